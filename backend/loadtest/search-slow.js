@@ -0,0 +1,47 @@
+// Нагрузочный тест поиска при медленном ML-сервисе (k6).
+//
+//   k6 run -e BASE_URL=http://localhost:8080 -e TOKEN=<jwt> search-slow.js
+//
+// Запускается дважды - с SPRING_THREADS_VIRTUAL_ENABLED=false и =true - и сравниваются
+// http_reqs (пропускная способность) и http_req_duration p(95). См. README, раздел про виртуальные потоки.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const TOKEN = __ENV.TOKEN;
+
+export const options = {
+  scenarios: {
+    // Медленный поиск вперемешку с быстрыми запросами, которые не должны от него страдать
+    search: {
+      executor: 'constant-arrival-rate',
+      exec: 'search',
+      rate: Number(__ENV.SEARCH_RATE || 300),
+      timeUnit: '1s',
+      duration: __ENV.DURATION || '1m',
+      preAllocatedVUs: 500,
+      maxVUs: 2000,
+    },
+    unread: {
+      executor: 'constant-arrival-rate',
+      exec: 'unread',
+      rate: Number(__ENV.UNREAD_RATE || 100),
+      timeUnit: '1s',
+      duration: __ENV.DURATION || '1m',
+      preAllocatedVUs: 50,
+      maxVUs: 500,
+    },
+  },
+};
+
+const params = { headers: { Authorization: `Bearer ${TOKEN}` } };
+
+export function search() {
+  const res = http.get(`${BASE_URL}/api/v1/services/search?keyword=press&size=20`, params);
+  check(res, { 'search 200': (r) => r.status === 200 });
+}
+
+export function unread() {
+  const res = http.get(`${BASE_URL}/api/v1/notifications/unread/count`, params);
+  check(res, { 'unread 200': (r) => r.status === 200 });
+}
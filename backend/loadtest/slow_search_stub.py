@@ -0,0 +1,37 @@
+"""
+Заглушка ML-поиска с настраиваемой задержкой для нагрузочного теста.
+
+    python3 slow_search_stub.py --port 8091 --delay-ms 800
+
+Бэкенд направить на нее: ML_SEARCH_BASE_URL=http://localhost:8091/api
+"""
+import argparse
+import json
+import time
+from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
+
+
+def main():
+    parser = argparse.ArgumentParser()
+    parser.add_argument("--port", type=int, default=8091)
+    parser.add_argument("--delay-ms", type=int, default=800)
+    args = parser.parse_args()
+
+    class Handler(BaseHTTPRequestHandler):
+        def do_GET(self):
+            time.sleep(args.delay_ms / 1000)
+            body = json.dumps({"hits": [], "found": 0}).encode()
+            self.send_response(200)
+            self.send_header("Content-Type", "application/json")
+            self.send_header("Content-Length", str(len(body)))
+            self.end_headers()
+            self.wfile.write(body)
+
+        def log_message(self, *_):
+            pass
+
+    ThreadingHTTPServer(("0.0.0.0", args.port), Handler).serve_forever()
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,81 @@
+package org.dev.powermarket.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.dev.powermarket.domain.enums.Role;
+import org.dev.powermarket.security.entity.User;
+import org.dev.powermarket.security.service.AuthenticatedUser;
+import org.dev.powermarket.security.service.JwtService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость проверки JWT на один запрос.
+ * <p>
+ * legacyFilterPath повторяет прежний JwtAuthenticationFilter: токен разбирался три раза
+ * (subject, затем subject и expiration в isTokenValid), и каждый раз заново строились ключ и парсер.
+ * currentFilterPath - текущий путь: один разбор общим парсером и principal из claims.
+ * Обращение к БД в прежнем пути сюда не входит.
+ * <p>
+ * Запуск: mvn -Pjmh -DskipTests test-compile exec:exec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthBenchmark {
+
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService(SECRET, 3_600_000, 7_200_000);
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setEmail("benchmark@powermarket.local");
+        user.setRole(Role.TENANT);
+        token = jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public boolean legacyFilterPath() {
+        String subject = legacyClaims(token).getSubject();
+        String subjectAgain = legacyClaims(token).getSubject();
+        Date expiration = legacyClaims(token).getExpiration();
+        return subject.equals(subjectAgain) && expiration.after(new Date());
+    }
+
+    @Benchmark
+    public AuthenticatedUser currentFilterPath() {
+        Claims claims = jwtService.extractAllClaims(token);
+        return AuthenticatedUser.fromClaims(claims);
+    }
+
+    private static Claims legacyClaims(String token) {
+        Key key = Keys.hmacShaKeyFor(SECRET.getBytes());
+        return Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+}
@@ -1,15 +1,51 @@
 package org.dev.powermarket.config;
 
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.dev.powermarket.integration.search.MlSearchProperties;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.DefaultUriBuilderFactory;
 
 @Configuration
 public class RestClientConfig {
 
+    /**
+     * Клиент ML-поиска: пул keep-alive соединений и ограничения по времени на подключение,
+     * ожидание соединения из пула и ответ, чтобы медленный сервис не занимал потоки бесконечно.
+     */
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder) {
-        return builder.build();
+    public RestTemplate mlSearchRestTemplate(RestTemplateBuilder builder, MlSearchProperties props) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(props.getMaxConnections())
+                .setMaxConnPerRoute(props.getMaxConnections())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(props.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.of(props.getReadTimeout()))
+                        .build())
+                .build();
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(props.getPoolTimeout()))
+                        .setResponseTimeout(Timeout.of(props.getReadTimeout()))
+                        .build())
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .build();
+
+        return builder
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
+                // Кодирует значения переменных шаблона целиком, шаблон URI остается тегом метрик
+                .uriTemplateHandler(new DefaultUriBuilderFactory())
+                .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,40 @@
+package org.dev.powermarket.config;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * Пул для @Scheduled-задач. По умолчанию Spring выполняет их в одном потоке,
+ * и долгая задача (сброс уведомлений, outbox, очистка) задерживает все остальные.
+ * <p>
+ * Планировщик не публикуется бином, чтобы не подменять автоконфигурируемый applicationTaskExecutor.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig implements SchedulingConfigurer {
+
+    private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+
+    public SchedulingConfig(@Value("${app.scheduling.pool-size:4}") int poolSize) {
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduling-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(10);
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        scheduler.initialize();
+        registrar.setTaskScheduler(scheduler);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+}
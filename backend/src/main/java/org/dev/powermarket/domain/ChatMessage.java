@@ -11,7 +11,10 @@ import java.util.UUID;
 @Setter
 @Getter
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages", indexes = {
+        // История чата: WHERE chat_id = ? ORDER BY created_at DESC, id DESC
+        @Index(name = "idx_chat_messages_chat_created_id", columnList = "chat_id, created_at DESC, id DESC")
+})
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
@@ -10,7 +10,10 @@ import java.time.Instant;
 import java.util.UUID;
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {
+        // Лента уведомлений пользователя: WHERE user_id = ? ORDER BY created_at DESC, id DESC
+        @Index(name = "idx_notifications_user_created_id", columnList = "user_id, created_at DESC, id DESC")
+})
 public class Notification {
 
     @Id
@@ -43,7 +46,10 @@ public class Notification {
 
     @PrePersist
     public void prePersist() {
-        createdAt = Instant.now();
+        // Диспетчер уведомлений проставляет время события заранее, запись в БД идет позже
+        if (createdAt == null) {
+            createdAt = Instant.now();
+        }
     }
 
     // Getters and setters
@@ -0,0 +1,49 @@
+package org.dev.powermarket.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.dev.powermarket.domain.enums.NotificationType;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Архив прочитанных уведомлений, перенесенных из горячей таблицы notifications.
+ * Идентификатор сохраняется исходный, связь с пользователем хранится без внешнего ключа.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "notifications_archive", indexes = {
+        @Index(name = "idx_notifications_archive_user_created", columnList = "user_id, created_at DESC")
+})
+public class NotificationArchive {
+
+    @Id
+    private UUID id;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private NotificationType type;
+
+    @Column(nullable = false)
+    private String title;
+
+    @Column(columnDefinition = "TEXT")
+    private String message;
+
+    @Column(name = "related_entity_id")
+    private UUID relatedEntityId;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "archived_at", nullable = false)
+    private Instant archivedAt;
+}
@@ -0,0 +1,72 @@
+package org.dev.powermarket.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.dev.powermarket.domain.enums.OutboxStatus;
+import org.hibernate.annotations.UuidGenerator;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Событие transactional outbox: пишется в той же транзакции, что и изменение состояния,
+ * и обрабатывается фоновым relay (уведомления, почта, поисковый индекс и т.п.).
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "outbox_events", indexes = {
+        // Выборка relay: WHERE status = 'PENDING' AND next_attempt_at <= now ORDER BY created_at
+        @Index(name = "idx_outbox_events_status_next_attempt", columnList = "status, next_attempt_at")
+})
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue
+    @UuidGenerator
+    private UUID id;
+
+    @Column(name = "aggregate_type", nullable = false, length = 50)
+    private String aggregateType;
+
+    @Column(name = "aggregate_id", nullable = false)
+    private UUID aggregateId;
+
+    @Column(name = "event_type", nullable = false, length = 100)
+    private String eventType;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    @Column(nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "processed_at")
+    private Instant processedAt;
+
+    @PrePersist
+    public void prePersist() {
+        if (createdAt == null) {
+            createdAt = Instant.now();
+        }
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.dev.powermarket.domain.dto.request;
+
+import org.dev.powermarket.domain.enums.ServiceCategory;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Поиск услуг по любому набору критериев с подсчетом фасетов.
+ * Все критерии необязательны, не переданные в запрос не попадают.
+ */
+public record FacetedServiceSearchRequest(
+        String keyword,
+        ServiceCategory category,
+
+        // Диапазоны, границы включительно
+        BigDecimal minCapacity,
+        BigDecimal maxCapacity,
+        BigDecimal minPrice,
+        BigDecimal maxPrice,
+
+        String location,
+        BigDecimal minRating,
+
+        // Услуга должна иметь период доступности, пересекающийся с интервалом
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+        LocalDate availableFrom,
+
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+        LocalDate availableTo,
+
+        Sort sort,
+
+        // Пагинация
+        Integer page,
+        Integer size
+) {
+    public static final int MAX_PAGE_SIZE = 100;
+
+    public FacetedServiceSearchRequest {
+        if (page == null) page = 0;
+        if (size == null) size = 20;
+        if (keyword != null && keyword.isBlank()) keyword = null;
+        if (location != null && location.isBlank()) location = null;
+        if (sort == null) sort = keyword != null ? Sort.RELEVANCE : Sort.NEWEST;
+
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE);
+        }
+        checkRange(minCapacity, maxCapacity, "capacity");
+        checkRange(minPrice, maxPrice, "price");
+        if (availableFrom != null && availableTo != null && availableFrom.isAfter(availableTo)) {
+            throw new IllegalArgumentException("availableFrom must not be after availableTo");
+        }
+    }
+
+    private static void checkRange(BigDecimal min, BigDecimal max, String name) {
+        if (min != null && max != null && min.compareTo(max) > 0) {
+            throw new IllegalArgumentException("Invalid " + name + " range: min is greater than max");
+        }
+    }
+
+    public enum Sort {
+        // По релевантности ключевому слову; без ключевого слова - как NEWEST
+        RELEVANCE,
+        NEWEST,
+        PRICE_ASC,
+        PRICE_DESC,
+        RATING_DESC
+    }
+}
@@ -0,0 +1,19 @@
+package org.dev.powermarket.domain.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.dev.powermarket.service.dto.ChatMessageDto;
+
+import java.util.List;
+
+@Schema(description = "Страница истории сообщений (keyset-пагинация, от новых к старым)")
+public record ChatMessageSliceDto(
+        @Schema(description = "Сообщения страницы")
+        List<ChatMessageDto> content,
+
+        @Schema(description = "Есть ли более старые сообщения")
+        boolean hasNext,
+
+        @Schema(description = "Курсор для следующей страницы (передается в параметр before)",
+                example = "2024-05-01T10:15:30.123Z,123e4567-e89b-12d3-a456-426614174000")
+        String nextCursor
+) {}
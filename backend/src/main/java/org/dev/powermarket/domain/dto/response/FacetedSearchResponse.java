@@ -0,0 +1,25 @@
+package org.dev.powermarket.domain.dto.response;
+
+import org.dev.powermarket.domain.enums.ServiceCategory;
+import org.springframework.data.domain.Page;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Страница результатов и счетчики фасетов.
+ * Счетчик фасета учитывает все фильтры, кроме фильтра по самому фасету:
+ * при выбранной категории видно, сколько услуг нашлось бы в других категориях.
+ */
+public record FacetedSearchResponse(
+        Page<ServiceSearchResultResponse> results,
+        Map<ServiceCategory, Long> categories,
+        List<PriceBucket> priceBuckets
+) {
+    /**
+     * Ценовой диапазон [from, to); to = null - без верхней границы
+     */
+    public record PriceBucket(BigDecimal from, BigDecimal to, long count) {
+    }
+}
@@ -0,0 +1,7 @@
+package org.dev.powermarket.domain.enums;
+
+public enum OutboxStatus {
+    PENDING,    // Ожидает обработки (в том числе повторной)
+    PROCESSED,  // Обработано всеми обработчиками
+    FAILED      // Исчерпаны попытки, нужен разбор вручную
+}
@@ -0,0 +1,84 @@
+package org.dev.powermarket.integration.search;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Простой предохранитель для вызовов внешнего сервиса.
+ * <p>
+ * После failureThreshold ошибок подряд размыкается на openDuration, и вызовы сразу отклоняются.
+ * Затем пропускает один пробный вызов: успех замыкает цепь, ошибка снова размыкает ее.
+ */
+class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Можно ли выполнить вызов. Разрешение в полуоткрытом состоянии нужно закрыть
+     * через onSuccess или onFailure.
+     */
+    boolean tryAcquire() {
+        lock.lock();
+        try {
+            return switch (state) {
+                case CLOSED -> true;
+                case OPEN -> {
+                    if (System.nanoTime() - openedAt < openNanos) {
+                        yield false;
+                    }
+                    state = State.HALF_OPEN;
+                    yield true;
+                }
+                // Пробный вызов уже выполняется
+                case HALF_OPEN -> false;
+            };
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onSuccess() {
+        lock.lock();
+        try {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onFailure() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+                state = State.OPEN;
+                openedAt = System.nanoTime();
+                consecutiveFailures = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    State state() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -2,75 +2,156 @@ package org.dev.powermarket.integration.search;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Клиент ML-поиска.
+ * <p>
+ * Вызовы ограничены по времени (см. RestClientConfig), по числу одновременных запросов (bulkhead)
+ * и защищены предохранителем: пока сервис недоступен, вызовы сразу возвращают пустой результат,
+ * и ServiceService ищет по БД. Задержки пишутся в гистограмму ml.search.requests.
+ */
 @Component
 public class MlSearchClient {
     private static final Logger log = LoggerFactory.getLogger(MlSearchClient.class);
 
+    private static final String SEARCH_PATH = "/search?q={q}&page={page}&per_page={perPage}";
+
     private final RestTemplate restTemplate;
     private final MlSearchProperties props;
     private final ObjectMapper mapper = new ObjectMapper();
+    private final CircuitBreaker circuitBreaker;
+    private final Semaphore bulkhead;
+
+    private final Timer successTimer;
+    private final Timer errorTimer;
+    private final Timer clientErrorTimer;
+    private final Counter circuitOpenRejections;
+    private final Counter bulkheadRejections;
 
-    public MlSearchClient(RestTemplate restTemplate, MlSearchProperties props) {
+    public MlSearchClient(RestTemplate restTemplate, MlSearchProperties props, MeterRegistry meterRegistry) {
         this.restTemplate = restTemplate;
         this.props = props;
+        this.circuitBreaker = new CircuitBreaker(props.getFailureThreshold(), props.getOpenDuration());
+        this.bulkhead = new Semaphore(props.getMaxConcurrentCalls());
+
+        this.successTimer = requestTimer(meterRegistry, "success");
+        this.errorTimer = requestTimer(meterRegistry, "error");
+        this.clientErrorTimer = requestTimer(meterRegistry, "client_error");
+        this.circuitOpenRejections = Counter.builder("ml.search.rejected")
+                .tag("reason", "circuit_open")
+                .register(meterRegistry);
+        this.bulkheadRejections = Counter.builder("ml.search.rejected")
+                .tag("reason", "bulkhead_full")
+                .register(meterRegistry);
+        Gauge.builder("ml.search.circuit.open", circuitBreaker,
+                        breaker -> breaker.state() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .register(meterRegistry);
     }
 
     /**
-     * Calls ML search microservice and returns list of Service UUIDs ordered by relevance.
+     * Calls ML search microservice and returns Service UUIDs ordered by relevance with the total hit count.
+     * Returns an empty result when the service is disabled, unavailable or overloaded.
      */
-    public List<UUID> searchServiceIds(String query, int page, int perPage) {
-        List<UUID> ids = new ArrayList<>();
+    public MlSearchResult search(String query, int page, int perPage) {
         if (!props.isEnabled() || query == null || query.isBlank()) {
-            return ids;
+            return MlSearchResult.EMPTY;
+        }
+        // Сначала bulkhead: иначе отклоненный вызов занял бы пробное разрешение предохранителя
+        if (!bulkhead.tryAcquire()) {
+            bulkheadRejections.increment();
+            return MlSearchResult.EMPTY;
         }
         try {
-            String url = String.format("%s/search?q=%s&page=%d&per_page=%d", props.getBaseUrl(), encode(query), page, perPage);
-            ResponseEntity<String> resp = restTemplate.getForEntity(url, String.class);
-            if (!resp.getStatusCode().is2xxSuccessful() || resp.getBody() == null) {
-                log.warn("ML search returned non-2xx: {}", resp.getStatusCode());
-                return ids;
-            }
-            JsonNode root = mapper.readTree(resp.getBody());
-            JsonNode hits = root.path("hits");
-            if (hits.isMissingNode() || !hits.isArray()) {
-                // Some services may wrap hits into { data: { hits: [...] } }
-                hits = root.path("data").path("hits");
+            if (!circuitBreaker.tryAcquire()) {
+                circuitOpenRejections.increment();
+                return MlSearchResult.EMPTY;
             }
-            for (JsonNode hit : hits) {
-                // Typesense format: each hit has 'document' with fields
-                JsonNode doc = hit.path("document").isMissingNode() ? hit : hit.path("document");
-                String idStr = doc.path("id").asText(null);
-                if (idStr != null) {
-                    try {
-                        ids.add(UUID.fromString(idStr));
-                    } catch (IllegalArgumentException e) {
-                        log.debug("Skip non-UUID id from ML search: {}", idStr);
-                    }
-                }
-            }
-        } catch (Exception e) {
-            log.error("Error calling ML search service", e);
+            return call(query, page, perPage);
+        } finally {
+            bulkhead.release();
         }
-        return ids;
     }
 
-    private String encode(String s) {
+    private MlSearchResult call(String query, int page, int perPage) {
+        long start = System.nanoTime();
+        Timer timer = errorTimer;
         try {
-            return java.net.URLEncoder.encode(s, java.nio.charset.StandardCharsets.UTF_8);
+            ResponseEntity<String> resp = restTemplate.getForEntity(
+                    props.getBaseUrl() + SEARCH_PATH, String.class, query, page, perPage);
+            MlSearchResult result = parse(resp.getBody());
+            circuitBreaker.onSuccess();
+            timer = successTimer;
+            return result;
+        } catch (HttpClientErrorException e) {
+            // 4xx - ошибка запроса, а не отказ сервиса: предохранитель не трогаем
+            circuitBreaker.onSuccess();
+            timer = clientErrorTimer;
+            log.warn("ML search rejected query: status={}", e.getStatusCode());
+            return MlSearchResult.EMPTY;
         } catch (Exception e) {
-            return s;
+            circuitBreaker.onFailure();
+            log.warn("Error calling ML search service: {}", e.toString());
+            return MlSearchResult.EMPTY;
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
     }
-}
\ No newline at end of file
+
+    private MlSearchResult parse(String body) throws Exception {
+        List<UUID> ids = new ArrayList<>();
+        if (body == null) {
+            return MlSearchResult.EMPTY;
+        }
+        JsonNode root = mapper.readTree(body);
+        // search_service отвечает { total, results: [...] }, Typesense напрямую - { found, hits: [...] }
+        JsonNode hits = root.path("results");
+        if (!hits.isArray()) {
+            hits = root.path("hits");
+        }
+        if (!hits.isArray()) {
+            // Some services may wrap hits into { data: { hits: [...] } }
+            hits = root.path("data").path("hits");
+        }
+        for (JsonNode hit : hits) {
+            // Typesense format: each hit has 'document' with fields
+            JsonNode doc = hit.path("document").isMissingNode() ? hit : hit.path("document");
+            String idStr = doc.path("id").asText(null);
+            if (idStr != null) {
+                try {
+                    ids.add(UUID.fromString(idStr));
+                } catch (IllegalArgumentException e) {
+                    log.debug("Skip non-UUID id from ML search: {}", idStr);
+                }
+            }
+        }
+        JsonNode total = root.path("total");
+        if (!total.isNumber()) {
+            total = root.path("found");
+        }
+        return new MlSearchResult(ids, total.asLong(ids.size()));
+    }
+
+    private static Timer requestTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("ml.search.requests")
+                .description("Latency of ML search calls")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -3,6 +3,8 @@ package org.dev.powermarket.integration.search;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+
 @Component
 @ConfigurationProperties(prefix = "ml.search")
 public class MlSearchProperties {
@@ -16,9 +18,65 @@ public class MlSearchProperties {
      */
     private String baseUrl = "http://localhost:8081/api";
 
+    /**
+     * Connect timeout to the ML search service.
+     */
+    private Duration connectTimeout = Duration.ofMillis(500);
+
+    /**
+     * Response timeout of a single search call.
+     */
+    private Duration readTimeout = Duration.ofSeconds(2);
+
+    /**
+     * Max wait for a free pooled connection.
+     */
+    private Duration poolTimeout = Duration.ofMillis(200);
+
+    /**
+     * Size of the HTTP connection pool.
+     */
+    private int maxConnections = 20;
+
+    /**
+     * Max concurrent calls to the ML search service (bulkhead), extra calls fall back to DB search.
+     */
+    private int maxConcurrentCalls = 20;
+
+    /**
+     * Consecutive failures after which the circuit breaker opens.
+     */
+    private int failureThreshold = 5;
+
+    /**
+     * How long the circuit breaker stays open before a trial call.
+     */
+    private Duration openDuration = Duration.ofSeconds(30);
+
     public boolean isEnabled() { return enabled; }
     public void setEnabled(boolean enabled) { this.enabled = enabled; }
 
     public String getBaseUrl() { return baseUrl; }
     public void setBaseUrl(String baseUrl) { this.baseUrl = baseUrl; }
-}
\ No newline at end of file
+
+    public Duration getConnectTimeout() { return connectTimeout; }
+    public void setConnectTimeout(Duration connectTimeout) { this.connectTimeout = connectTimeout; }
+
+    public Duration getReadTimeout() { return readTimeout; }
+    public void setReadTimeout(Duration readTimeout) { this.readTimeout = readTimeout; }
+
+    public Duration getPoolTimeout() { return poolTimeout; }
+    public void setPoolTimeout(Duration poolTimeout) { this.poolTimeout = poolTimeout; }
+
+    public int getMaxConnections() { return maxConnections; }
+    public void setMaxConnections(int maxConnections) { this.maxConnections = maxConnections; }
+
+    public int getMaxConcurrentCalls() { return maxConcurrentCalls; }
+    public void setMaxConcurrentCalls(int maxConcurrentCalls) { this.maxConcurrentCalls = maxConcurrentCalls; }
+
+    public int getFailureThreshold() { return failureThreshold; }
+    public void setFailureThreshold(int failureThreshold) { this.failureThreshold = failureThreshold; }
+
+    public Duration getOpenDuration() { return openDuration; }
+    public void setOpenDuration(Duration openDuration) { this.openDuration = openDuration; }
+}
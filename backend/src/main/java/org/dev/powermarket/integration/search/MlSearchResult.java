@@ -0,0 +1,22 @@
+package org.dev.powermarket.integration.search;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Страница ответа ML-поиска: id услуг в порядке релевантности и общее число найденных
+ */
+public record MlSearchResult(List<UUID> ids, long total) {
+
+    public static final MlSearchResult EMPTY = new MlSearchResult(List.of(), 0);
+
+    public MlSearchResult {
+        ids = List.copyOf(ids);
+        // Сервис может не прислать total - тогда известно только то, что пришло
+        total = Math.max(total, ids.size());
+    }
+
+    public boolean isEmpty() {
+        return ids.isEmpty();
+    }
+}
@@ -0,0 +1,169 @@
+package org.dev.powermarket.integration.search;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.dev.powermarket.domain.OutboxEvent;
+import org.dev.powermarket.domain.Service;
+import org.dev.powermarket.repository.ServiceRepository;
+import org.dev.powermarket.service.outbox.OutboxBatchHandler;
+import org.dev.powermarket.service.outbox.ServiceEventType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Отправка изменений услуг в индекс ML-поиска.
+ * <p>
+ * ServiceService и ReviewService пишут события SERVICE в outbox в своей транзакции, OutboxRelay
+ * отдает их сюда пачкой. Пачка сворачивается до списка id, актуальное состояние услуг читается
+ * одним запросом и уходит одним вызовом POST /services/index/batch: активные услуги - upsert,
+ * неактивные, удаленные и отсутствующие - delete. Ошибка вызова - повтор пачки с backoff relay,
+ * документы, отклоненные индексом, - повтор только событий этих услуг.
+ * Отставание индекса от БД видно в метрике search.index.lag.
+ */
+@Component
+public class SearchIndexPublisher implements OutboxBatchHandler {
+    private static final Logger log = LoggerFactory.getLogger(SearchIndexPublisher.class);
+
+    private static final String INDEX_BATCH_PATH = "/services/index/batch";
+
+    private final RestTemplate restTemplate;
+    private final MlSearchProperties props;
+    private final ServiceRepository serviceRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer lagTimer;
+    private final Counter upsertCounter;
+    private final Counter deleteCounter;
+
+    public SearchIndexPublisher(RestTemplate restTemplate,
+                                MlSearchProperties props,
+                                ServiceRepository serviceRepository,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry) {
+        this.restTemplate = restTemplate;
+        this.props = props;
+        this.serviceRepository = serviceRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.lagTimer = Timer.builder("search.index.lag")
+                .description("Time from service change to its delivery to the search index")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.upsertCounter = Counter.builder("search.index.documents").tag("action", "upsert").register(meterRegistry);
+        this.deleteCounter = Counter.builder("search.index.documents").tag("action", "delete").register(meterRegistry);
+    }
+
+    @Override
+    public String aggregateType() {
+        return ServiceEventType.AGGREGATE_TYPE;
+    }
+
+    @Override
+    public List<Failure> handleBatch(List<OutboxEvent> events) {
+        if (!props.isEnabled()) {
+            // Поиск идет по БД, индексировать некуда
+            return List.of();
+        }
+        Set<UUID> ids = events.stream()
+                .map(OutboxEvent::getAggregateId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<UUID, ServiceDocument> documents = transactionTemplate.execute(status ->
+                serviceRepository.findAllWithSupplierByIdIn(ids).stream()
+                        .filter(service -> Boolean.TRUE.equals(service.getIsActive())
+                                && !Boolean.TRUE.equals(service.getDeleted()))
+                        .map(ServiceDocument::of)
+                        .collect(Collectors.toMap(ServiceDocument::id, Function.identity())));
+
+        List<ServiceDocument> upserts = new ArrayList<>(documents.values());
+        List<UUID> deletes = ids.stream().filter(id -> !documents.containsKey(id)).toList();
+        IndexBatchResponse response = restTemplate.postForObject(props.getBaseUrl() + INDEX_BATCH_PATH,
+                new IndexBatchRequest(upserts, deletes), IndexBatchResponse.class);
+        Map<UUID, String> rejected = response != null && response.failed() != null
+                ? response.failed().stream().collect(Collectors.toMap(
+                        IndexBatchFailure::id, IndexBatchFailure::error, (first, second) -> first))
+                : Map.of();
+
+        upsertCounter.increment(upserts.size() - rejected.size());
+        deleteCounter.increment(deletes.size());
+        List<Failure> failures = new ArrayList<>();
+        Instant now = Instant.now();
+        for (OutboxEvent event : events) {
+            String error = rejected.get(event.getAggregateId());
+            if (error != null) {
+                failures.add(new Failure(event.getId(), "Search index rejected document: " + error));
+            } else if (event.getCreatedAt() != null) {
+                lagTimer.record(Duration.between(event.getCreatedAt(), now));
+            }
+        }
+        if (!rejected.isEmpty()) {
+            log.warn("Search index rejected documents: ids={}", rejected.keySet());
+        }
+        log.debug("Search index updated: upserts={}, deletes={}, rejected={}",
+                upserts.size(), deletes.size(), rejected.size());
+        return failures;
+    }
+
+    record IndexBatchRequest(List<ServiceDocument> upserts, List<UUID> deletes) {
+    }
+
+    record IndexBatchResponse(List<IndexBatchFailure> failed) {
+    }
+
+    record IndexBatchFailure(UUID id, String error) {
+    }
+
+    /**
+     * Документ услуги в формате индекса поискового сервиса
+     */
+    record ServiceDocument(
+            UUID id,
+            String title,
+            String description,
+            String category,
+            String location,
+            String capacity,
+            @JsonProperty("technical_specs") String technicalSpecs,
+            @JsonProperty("supplier_id") UUID supplierId,
+            @JsonProperty("supplier_name") String supplierName,
+            @JsonProperty("price_per_day") BigDecimal pricePerDay,
+            @JsonProperty("average_rating") BigDecimal averageRating,
+            @JsonProperty("total_reviews") Integer totalReviews,
+            @JsonProperty("created_at") String createdAt
+    ) {
+
+        static ServiceDocument of(Service service) {
+            return new ServiceDocument(
+                    service.getId(),
+                    service.getTitle(),
+                    service.getDescription(),
+                    service.getCategory() != null ? service.getCategory().name() : null,
+                    service.getLocation(),
+                    service.getMaxCapacity() != null ? service.getMaxCapacity().toPlainString() : null,
+                    service.getTechnicalSpecs(),
+                    service.getSupplier().getId(),
+                    service.getSupplier().getFullName(),
+                    service.getPricePerDay(),
+                    service.getAverageRating(),
+                    service.getTotalReviews(),
+                    service.getCreatedAt() != null ? service.getCreatedAt().toString() : null
+            );
+        }
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -38,6 +39,25 @@ public interface CapacityReservationRepository extends JpaRepository<CapacityRes
             @Param("startDate") LocalDate startDate,
             @Param("endDate") LocalDate endDate);
 
+    // Бронирования в окне дат вместе с арендой и арендатором (для календаря мощности)
+    @Query("SELECT cr FROM CapacityReservation cr " +
+            "JOIN FETCH cr.rental r JOIN FETCH r.tenant " +
+            "WHERE r.service = :service AND " +
+            "cr.startDate <= :endDate AND cr.endDate >= :startDate " +
+            "ORDER BY cr.startDate")
+    List<CapacityReservation> findByServiceAndDateRangeWithTenant(
+            @Param("service") Service service,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+
+    // Все бронирования сервиса (для построения журнала мощности)
+    @Query("SELECT cr FROM CapacityReservation cr WHERE cr.rental.service = :service")
+    List<CapacityReservation> findByService(@Param("service") Service service);
+
+    // Бронирования сразу для нескольких сервисов (для пакетной проверки доступности)
+    @Query("SELECT cr FROM CapacityReservation cr JOIN FETCH cr.rental r WHERE r.service.id IN :serviceIds")
+    List<CapacityReservation> findByServiceIdIn(@Param("serviceIds") Collection<UUID> serviceIds);
+
     // Найти сумму забронированной мощности на конкретную дату
     @Query("SELECT COALESCE(SUM(cr.reservedCapacity), 0) FROM CapacityReservation cr WHERE " +
             "cr.rental.service = :service AND " +
@@ -5,11 +5,14 @@ import org.dev.powermarket.domain.ChatMessage;
 import org.dev.powermarket.repository.projection.UnreadCountProjection;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -28,6 +31,29 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, UUID>
             @Param("userId") UUID userId,
             Pageable pageable);
 
+    // Первая страница истории для keyset-пагинации (без count-запроса)
+    @Query("SELECT m FROM ChatMessage m JOIN FETCH m.sender WHERE m.chat = :chat " +
+            "AND m.deletedForEveryone = false " +
+            "AND (m.deletedForSender = false OR m.sender.id != :userId) " +
+            "ORDER BY m.createdAt DESC, m.id DESC")
+    Slice<ChatMessage> findVisibleMessagesSlice(
+            @Param("chat") Chat chat,
+            @Param("userId") UUID userId,
+            Pageable pageable);
+
+    // Следующая страница истории: сообщения строго старше курсора (createdAt, id)
+    @Query("SELECT m FROM ChatMessage m JOIN FETCH m.sender WHERE m.chat = :chat " +
+            "AND m.deletedForEveryone = false " +
+            "AND (m.deletedForSender = false OR m.sender.id != :userId) " +
+            "AND (m.createdAt < :createdAt OR (m.createdAt = :createdAt AND m.id < :id)) " +
+            "ORDER BY m.createdAt DESC, m.id DESC")
+    Slice<ChatMessage> findVisibleMessagesBefore(
+            @Param("chat") Chat chat,
+            @Param("userId") UUID userId,
+            @Param("createdAt") Instant createdAt,
+            @Param("id") UUID id,
+            Pageable pageable);
+
     // Последнее видимое сообщение в чате
     @Query("SELECT m FROM ChatMessage m WHERE m.chat = :chat " +
             "AND m.deletedForEveryone = false " +
@@ -38,21 +64,6 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, UUID>
             @Param("chat") Chat chat,
             @Param("userId") UUID userId);
 
-    // Непрочитанные сообщения для пользователя
-    @Query("SELECT m FROM ChatMessage m " +
-            "WHERE m.chat.id = :chatId AND m.sender.id != :userId " +
-            "AND m.readAt IS NULL AND m.deletedForEveryone = false " +
-            "ORDER BY m.createdAt DESC")
-    List<ChatMessage> findUnreadMessages(@Param("chatId") UUID chatId, @Param("userId") UUID userId);
-
-    // Количество непрочитанных сообщений во всех чатах
-    @Query("SELECT COUNT(m) FROM ChatMessage m " +
-            "JOIN Chat c ON m.chat = c " +
-            "WHERE (c.rental.supplier.id = :userId OR c.rental.tenant.id = :userId) " +
-            "AND m.sender.id != :userId AND m.readAt IS NULL " +
-            "AND m.deletedForEveryone = false")
-    long countUnreadMessages(@Param("userId") UUID userId);
-
     // Последние сообщения для нескольких чатов (для списка)
     @Query("SELECT m FROM ChatMessage m " +
             "WHERE m.chat.id IN :chatIds " +
@@ -62,13 +73,22 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, UUID>
             "AND m2.deletedForEveryone = false)")
     List<ChatMessage> findLastMessagesForChats(@Param("chatIds") List<UUID> chatIds);
 
-    @Query("SELECT m FROM ChatMessage m " +
-            "JOIN Chat c ON m.chat = c " +
-            "WHERE (c.rental.supplier.id = :userId OR c.rental.tenant.id = :userId) " +
-            "AND m.sender.id != :userId AND m.readAt IS NULL " +
-            "AND m.deletedForEveryone = false " +
-            "ORDER BY m.createdAt DESC")
-    List<ChatMessage> findAllUnreadMessages(@Param("userId") UUID userId);
+    // Пометить прочитанными непрочитанные сообщения чата одним UPDATE, возвращает число измененных строк
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ChatMessage m SET m.readAt = :readAt " +
+            "WHERE m.chat.id = :chatId AND m.sender.id != :userId " +
+            "AND m.readAt IS NULL AND m.deletedForEveryone = false")
+    int markChatMessagesAsRead(@Param("chatId") UUID chatId,
+                               @Param("userId") UUID userId,
+                               @Param("readAt") Instant readAt);
+
+    // То же для всех чатов пользователя
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ChatMessage m SET m.readAt = :readAt " +
+            "WHERE m.sender.id != :userId AND m.readAt IS NULL AND m.deletedForEveryone = false " +
+            "AND m.chat.id IN (SELECT c.id FROM Chat c " +
+            "WHERE c.rental.supplier.id = :userId OR c.rental.tenant.id = :userId)")
+    int markAllMessagesAsRead(@Param("userId") UUID userId, @Param("readAt") Instant readAt);
 
     // Количество непрочитанных по каждому чату
     @Query("SELECT m.chat.id as chatId, COUNT(m) as count FROM ChatMessage m " +
@@ -5,6 +5,7 @@ import org.dev.powermarket.domain.Rental;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -30,4 +31,13 @@ public interface ChatRepository extends JpaRepository<Chat, UUID> {
 
 
     Optional<Chat> findByRental(Rental savedRental);
+
+    // Снять флаг непрочитанного со всех чатов, где пользователь - получатель последнего сообщения
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Chat c SET c.hasUnread = false " +
+            "WHERE c.hasUnread = true " +
+            "AND (c.lastSenderId IS NULL OR c.lastSenderId != :userId) " +
+            "AND c.rental.id IN (SELECT r.id FROM Rental r " +
+            "WHERE r.supplier.id = :userId OR r.tenant.id = :userId)")
+    int clearUnreadForRecipient(@Param("userId") UUID userId);
 }
@@ -0,0 +1,23 @@
+package org.dev.powermarket.repository;
+
+import org.dev.powermarket.domain.NotificationArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.UUID;
+
+@Repository
+public interface NotificationArchiveRepository extends JpaRepository<NotificationArchive, UUID> {
+
+    // Скопировать уведомления в архив одним INSERT ... SELECT, без загрузки сущностей
+    @Modifying
+    @Query("INSERT INTO NotificationArchive (id, userId, type, title, message, relatedEntityId, createdAt, archivedAt) " +
+            "SELECT n.id, n.user.id, n.type, n.title, n.message, n.relatedEntityId, n.createdAt, :archivedAt " +
+            "FROM Notification n WHERE n.id IN :ids")
+    int copyFromNotifications(@Param("ids") Collection<UUID> ids, @Param("archivedAt") Instant archivedAt);
+}
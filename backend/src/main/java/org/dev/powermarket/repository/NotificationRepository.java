@@ -1,10 +1,18 @@
 package org.dev.powermarket.repository;
 
 import org.dev.powermarket.domain.Notification;
+import org.dev.powermarket.domain.enums.NotificationType;
 import org.dev.powermarket.security.entity.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -17,4 +25,39 @@ public interface NotificationRepository extends JpaRepository<Notification, UUID
     List<Notification> findByUserAndIsReadFalseOrderByCreatedAtDesc(User user);
     
     long countByUserAndIsReadFalse(User user);
+
+    @Query("SELECT COUNT(n) FROM Notification n WHERE n.user.id = :userId AND n.isRead = false")
+    long countUnreadByUserId(@Param("userId") UUID userId);
+
+    // Первая страница ленты (без count-запроса), type == null - все типы
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId " +
+            "AND (:type IS NULL OR n.type = :type) " +
+            "ORDER BY n.createdAt DESC, n.id DESC")
+    Slice<Notification> findFeed(@Param("userId") UUID userId,
+                                 @Param("type") NotificationType type,
+                                 Pageable pageable);
+
+    // Следующая страница ленты: уведомления строго старше курсора (createdAt, id)
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId " +
+            "AND (:type IS NULL OR n.type = :type) " +
+            "AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id)) " +
+            "ORDER BY n.createdAt DESC, n.id DESC")
+    Slice<Notification> findFeedBefore(@Param("userId") UUID userId,
+                                       @Param("type") NotificationType type,
+                                       @Param("createdAt") Instant createdAt,
+                                       @Param("id") UUID id,
+                                       Pageable pageable);
+
+    // Прочитанные уведомления старше порога - кандидаты в архив
+    @Query("SELECT n.id FROM Notification n WHERE n.isRead = true AND n.createdAt < :cutoff ORDER BY n.createdAt")
+    List<UUID> findReadIdsCreatedBefore(@Param("cutoff") Instant cutoff, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<UUID> ids);
+
+    // Пометить все уведомления пользователя прочитанными одним UPDATE
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.user.id = :userId AND n.isRead = false")
+    int markAllAsRead(@Param("userId") UUID userId);
 }
@@ -0,0 +1,35 @@
+package org.dev.powermarket.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.dev.powermarket.domain.OutboxEvent;
+import org.dev.powermarket.domain.enums.OutboxStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, UUID> {
+
+    // События, готовые к обработке. SKIP LOCKED: параллельные relay не ждут и не берут чужие строки
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OutboxEvent e WHERE e.status = :status AND e.nextAttemptAt <= :now " +
+            "ORDER BY e.createdAt")
+    List<OutboxEvent> findReady(@Param("status") OutboxStatus status,
+                                @Param("now") Instant now,
+                                Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.status = :status AND e.processedAt < :cutoff")
+    int deleteProcessedBefore(@Param("status") OutboxStatus status, @Param("cutoff") Instant cutoff);
+}
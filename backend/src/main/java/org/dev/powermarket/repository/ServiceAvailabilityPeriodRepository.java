@@ -9,6 +9,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -40,4 +41,9 @@ public interface ServiceAvailabilityPeriodRepository extends JpaRepository<Servi
             @Param("service") Service service,
             @Param("startDate") LocalDate startDate,
             @Param("endDate") LocalDate endDate);
+
+    List<ServiceAvailabilityPeriod> findByServiceOrderByStartDate(Service service);
+
+    // Периоды сразу для нескольких сервисов (для пакетной проверки доступности)
+    List<ServiceAvailabilityPeriod> findByServiceIdIn(Collection<UUID> serviceIds);
 }
@@ -1,21 +1,26 @@
 package org.dev.powermarket.repository;
 
+import jakarta.persistence.QueryHint;
 import jakarta.validation.constraints.NotNull;
 import org.dev.powermarket.domain.Service;
 import org.dev.powermarket.security.entity.User;
 import org.dev.powermarket.domain.enums.ServiceCategory;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface ServiceRepository extends JpaRepository<Service, UUID> {
@@ -26,14 +31,69 @@ public interface ServiceRepository extends JpaRepository<Service, UUID> {
     
     Page<Service> findByIsActiveTrueAndCategoryAndDeletedFalse(ServiceCategory category, Pageable pageable);
 
+    // Фильтры полнотекстового поиска; CAST нужен, чтобы PostgreSQL определил тип null-параметров
+    String FULL_TEXT_FILTERS =
+            "s.is_active = true AND s.deleted = false " +
+            "AND s.search_vector @@ websearch_to_tsquery('russian', :search) " +
+            "AND (CAST(:category AS varchar) IS NULL OR s.category = CAST(:category AS varchar)) " +
+            "AND (CAST(:minCapacity AS numeric) IS NULL OR s.capacity >= CAST(:minCapacity AS numeric)) " +
+            "AND (CAST(:location AS varchar) IS NULL " +
+            "     OR s.location ILIKE CONCAT('%', CAST(:location AS varchar), '%')) " +
+            "AND (CAST(:availableFrom AS date) IS NULL AND CAST(:availableTo AS date) IS NULL " +
+            "     OR EXISTS (SELECT 1 FROM service_availability_periods p WHERE p.service_id = s.id " +
+            "         AND (CAST(:availableTo AS date) IS NULL OR p.start_date <= CAST(:availableTo AS date)) " +
+            "         AND (CAST(:availableFrom AS date) IS NULL OR p.end_date >= CAST(:availableFrom AS date)))) ";
+
+    // search == null - только фильтры
     @Query("SELECT s FROM Service s WHERE s.isActive = true AND s.deleted = false AND " +
-            "(LOWER(s.title) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-            "LOWER(s.description) LIKE LOWER(CONCAT('%', :search, '%')))")
-    Page<Service> searchServices(@Param("search") String search, Pageable pageable);
+            "(:search IS NULL OR LOWER(s.title) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(s.description) LIKE LOWER(CONCAT('%', :search, '%'))) AND " +
+            "(:category IS NULL OR s.category = :category) AND " +
+            "(:minCapacity IS NULL OR s.maxCapacity >= :minCapacity) AND " +
+            "(:location IS NULL OR LOWER(s.location) LIKE LOWER(CONCAT('%', :location, '%'))) AND " +
+            "(:availableFrom IS NULL AND :availableTo IS NULL OR EXISTS (" +
+            "SELECT p.id FROM ServiceAvailabilityPeriod p WHERE p.service = s AND " +
+            "(:availableTo IS NULL OR p.startDate <= :availableTo) AND " +
+            "(:availableFrom IS NULL OR p.endDate >= :availableFrom)))")
+    Page<Service> searchServices(
+            @Param("search") String search,
+            @Param("category") ServiceCategory category,
+            @Param("minCapacity") BigDecimal minCapacity,
+            @Param("location") String location,
+            @Param("availableFrom") LocalDate availableFrom,
+            @Param("availableTo") LocalDate availableTo,
+            Pageable pageable);
+
+    /**
+     * Ранжированный полнотекстовый поиск с фильтрами одним запросом (только PostgreSQL,
+     * колонка search_vector создается ServiceFullTextSearch). Порядок - по релевантности,
+     * сортировка из pageable не должна передаваться.
+     */
+    @Query(value = "SELECT s.* FROM services s WHERE " + FULL_TEXT_FILTERS +
+            "ORDER BY ts_rank_cd(s.search_vector, websearch_to_tsquery('russian', :search)) DESC, s.id",
+            countQuery = "SELECT count(*) FROM services s WHERE " + FULL_TEXT_FILTERS,
+            nativeQuery = true)
+    Page<Service> fullTextSearch(
+            @Param("search") String search,
+            @Param("category") String category,
+            @Param("minCapacity") BigDecimal minCapacity,
+            @Param("location") String location,
+            @Param("availableFrom") LocalDate availableFrom,
+            @Param("availableTo") LocalDate availableTo,
+            Pageable pageable);
     
     List<Service> findBySupplierAndIsActiveTrueAndDeletedFalse(User supplier);
 
-    List<Service> findByIdInAndIsActiveTrueAndDeletedFalse(List<UUID> ids);
+    // Активные услуги вместе с поставщиком одним запросом: поиск строит DTO вне транзакции
+    @Query("SELECT s FROM Service s JOIN FETCH s.supplier WHERE s.id IN :ids AND s.isActive = true AND s.deleted = false")
+    List<Service> findActiveWithSupplierByIdIn(@Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT s.id FROM Service s WHERE s.id IN :ids AND s.isActive = true AND s.deleted = false")
+    List<UUID> findActiveIdsByIdIn(@Param("ids") Collection<UUID> ids);
+
+    // Услуги вместе с поставщиком одним запросом, включая неактивные и удаленные
+    @Query("SELECT s FROM Service s JOIN FETCH s.supplier WHERE s.id IN :ids")
+    List<Service> findAllWithSupplierByIdIn(@Param("ids") Collection<UUID> ids);
 
     // Поиск сервисов с минимальной мощностью
     @Query("SELECT s FROM Service s WHERE " +
@@ -54,6 +114,19 @@ public interface ServiceRepository extends JpaRepository<Service, UUID> {
             @Param("minCapacity") BigDecimal minCapacity,
             Pageable pageable);
 
+    // Потоковое чтение сервисов категории (вместе с поставщиком) без загрузки всего списка в память
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "200"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT s FROM Service s JOIN FETCH s.supplier WHERE " +
+            "s.isActive = true AND s.deleted = false AND " +
+            "(:category IS NULL OR s.category = :category) AND " +
+            "s.maxCapacity >= :minCapacity")
+    Stream<Service> streamByCategoryAndMinCapacity(
+            @Param("category") ServiceCategory category,
+            @Param("minCapacity") BigDecimal minCapacity);
+
     // Поиск по категории, минимальной мощности и местоположению
     @Query("SELECT s FROM Service s WHERE " +
             "s.isActive = true AND s.deleted = false AND " +
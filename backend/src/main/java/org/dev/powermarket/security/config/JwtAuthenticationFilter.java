@@ -1,11 +1,14 @@
 package org.dev.powermarket.security.config;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.dev.powermarket.security.service.AuthenticatedUser;
 import org.dev.powermarket.security.service.JwtService;
+import org.dev.powermarket.security.service.TokenRevocationService;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -21,6 +24,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final TokenRevocationService tokenRevocationService;
+    // Собирать principal из claims токена без обращения к БД
+    private final boolean statelessPrincipal;
 
     @Override
     protected void doFilterInternal(
@@ -36,11 +42,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         final String jwt = authHeader.substring(7);
-        final String userLogin = jwtService.extractUsername(jwt);
+        // Токен разбирается один раз: подпись и срок действия проверяются здесь
+        final Claims claims = jwtService.extractAllClaims(jwt);
+        final String userLogin = claims.getSubject();
 
-        if (userLogin != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(userLogin);
-            if (jwtService.isTokenValid(jwt, userDetails.getUsername())) {
+        if (userLogin != null && SecurityContextHolder.getContext().getAuthentication() == null
+                && !tokenRevocationService.isRevoked(claims)) {
+            UserDetails userDetails = resolvePrincipal(claims);
+            if (userDetails.getUsername().equals(userLogin)) {
                 UsernamePasswordAuthenticationToken authToken =
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -50,5 +59,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
-}
 
+    private UserDetails resolvePrincipal(Claims claims) {
+        if (statelessPrincipal) {
+            AuthenticatedUser principal = AuthenticatedUser.fromClaims(claims);
+            if (principal != null) {
+                return principal;
+            }
+        }
+        // Токены без claims uid/role (выпущены до их появления) - через UserDetailsService
+        return userDetailsService.loadUserByUsername(claims.getSubject());
+    }
+}
@@ -1,8 +1,11 @@
 package org.dev.powermarket.security.config;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
-import org.dev.powermarket.security.repository.AuthorizedUserRepository;
 import org.dev.powermarket.security.service.JwtService;
+import org.dev.powermarket.security.service.TokenRevocationService;
+import org.dev.powermarket.security.service.UserLookupService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -31,11 +34,15 @@ import java.util.List;
 public class SecurityConfig {
 
     private final JwtService jwtService;
-    private final AuthorizedUserRepository userRepository;
+    private final UserLookupService userLookupService;
+    private final TokenRevocationService tokenRevocationService;
+
+    @Value("${app.jwt.stateless-principal:true}")
+    private boolean statelessPrincipal;
 
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(jwtService, userDetailsService());
+        return new JwtAuthenticationFilter(jwtService, userDetailsService(), tokenRevocationService, statelessPrincipal);
     }
 
     @Bean
@@ -44,6 +51,8 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .authorizeHttpRequests(auth -> auth
+                        // Повторные async-диспатчи SSE-потоков уже прошли авторизацию на исходном запросе
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(
                                 "/api/auth/**",
                                 "/actuator/health",
@@ -87,11 +96,11 @@ public class SecurityConfig {
 
     @Bean
     public UserDetailsService userDetailsService() {
-        return username -> userRepository.findByEmail(username)
+        return username -> userLookupService.findByEmail(username)
                 .map(user -> org.springframework.security.core.userdetails.User.builder()
-                        .username(user.getEmail())
-                        .password(user.getPasswordHash())
-                        .roles(user.getRole() != null ? user.getRole().toString() : "USER")
+                        .username(user.email())
+                        .password(user.passwordHash())
+                        .roles(user.role() != null ? user.role().toString() : "USER")
                         .build())
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
     }
@@ -9,6 +9,7 @@ import org.dev.powermarket.security.service.AuthService;
 import org.dev.powermarket.service.dto.AuthResponse;
 import org.dev.powermarket.service.dto.LoginRequest;
 import org.dev.powermarket.service.dto.RegisterRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -46,6 +47,21 @@ public class AuthController {
         return ResponseEntity.ok(authService.refreshToken(request));
     }
 
+    @PostMapping("/logout")
+    @Operation(
+            summary = "Logout",
+            description = "Revoke the access token from the Authorization header and the optional refresh token"
+    )
+    public ResponseEntity<Void> logout(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+            @RequestBody(required = false) RefreshTokenRequest request) {
+        String accessToken = authorization != null && authorization.startsWith("Bearer ")
+                ? authorization.substring(7)
+                : null;
+        authService.logout(accessToken, request);
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping("/me")
     public ResponseEntity<AuthResponse.UserDto> getCurrentUser(Authentication authentication) {
         String userLogin = authentication.getName();
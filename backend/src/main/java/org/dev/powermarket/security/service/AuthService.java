@@ -1,5 +1,6 @@
 package org.dev.powermarket.security.service;
 
+import io.jsonwebtoken.Claims;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.dev.powermarket.domain.enums.Role;
@@ -22,6 +23,7 @@ public class AuthService {
     private final AuthorizedUserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
+    private final TokenRevocationService tokenRevocationService;
 
     public AuthResponse login(@Valid LoginRequest request) {
         if (request == null) {
@@ -42,8 +44,8 @@ public class AuthService {
             throw new AuthenticationException("Неверный логин или пароль");
         }
 
-        String token = jwtService.generateToken(user.getEmail());
-        String refreshToken = jwtService.generateRefreshToken(user.getEmail());
+        String token = jwtService.generateToken(user);
+        String refreshToken = jwtService.generateRefreshToken(user);
 
         return AuthResponse.builder()
                 .token(token)
@@ -53,17 +55,21 @@ public class AuthService {
     }
 
     public AuthResponse refreshToken(RefreshTokenRequest request) {
-        String userLogin = jwtService.extractUsername(request.getRefreshToken());
+        Claims claims = jwtService.extractAllClaims(request.getRefreshToken());
+        if (tokenRevocationService.isRevoked(claims)) {
+            throw new AuthenticationException("Refresh token отозван");
+        }
+        String userLogin = claims.getSubject();
 
         User user = userRepository.findByEmail(userLogin)
                 .orElseThrow(() -> new AuthenticationException("Пользователь не найден"));
 
-        if (!jwtService.isTokenValid(request.getRefreshToken(), userLogin)) {
+        if (!jwtService.isTokenValid(claims, userLogin)) {
             throw new AuthenticationException("Невалидный refresh token");
         }
 
-        String token = jwtService.generateToken(user.getEmail());
-        String refreshToken = jwtService.generateRefreshToken(user.getEmail());
+        String token = jwtService.generateToken(user);
+        String refreshToken = jwtService.generateRefreshToken(user);
 
         return AuthResponse.builder()
                 .token(token)
@@ -72,6 +78,18 @@ public class AuthService {
                 .build();
     }
 
+    /**
+     * Выход: отзыв access-токена и, если передан, refresh-токена
+     */
+    public void logout(String accessToken, RefreshTokenRequest request) {
+        if (accessToken != null) {
+            tokenRevocationService.revoke(jwtService.extractAllClaims(accessToken));
+        }
+        if (request != null && request.getRefreshToken() != null) {
+            tokenRevocationService.revoke(jwtService.extractAllClaims(request.getRefreshToken()));
+        }
+    }
+
     public User getCurrentUser(String userLogin) {
         return userRepository.findByEmail(userLogin)
                 .orElseThrow(() -> new AuthenticationException("Пользователь не найден"));
@@ -101,8 +119,8 @@ public class AuthService {
 
         userRepository.save(user);
 
-        String token = jwtService.generateToken(user.getEmail());
-        String refreshToken = jwtService.generateRefreshToken(user.getEmail());
+        String token = jwtService.generateToken(user);
+        String refreshToken = jwtService.generateRefreshToken(user);
 
         return AuthResponse.builder()
                 .token(token)
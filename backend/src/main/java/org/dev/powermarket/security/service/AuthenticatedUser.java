@@ -0,0 +1,45 @@
+package org.dev.powermarket.security.service;
+
+import io.jsonwebtoken.Claims;
+import org.dev.powermarket.domain.enums.Role;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Principal, собранный из проверенных claims access-токена, без обращения к БД
+ */
+public record AuthenticatedUser(UUID id, String email, Role role) implements UserDetails {
+
+    /**
+     * @return principal или null, если токен выпущен без claims uid/role (старый формат или refresh-токен)
+     */
+    public static AuthenticatedUser fromClaims(Claims claims) {
+        String userId = claims.get(JwtService.CLAIM_USER_ID, String.class);
+        String role = claims.get(JwtService.CLAIM_ROLE, String.class);
+        if (userId == null || role == null || claims.getSubject() == null) {
+            return null;
+        }
+        return new AuthenticatedUser(UUID.fromString(userId), claims.getSubject(), Role.valueOf(role));
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role));
+    }
+
+    @Override
+    public String getPassword() {
+        // Пароль для аутентификации по токену не нужен
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+}
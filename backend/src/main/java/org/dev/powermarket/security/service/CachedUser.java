@@ -0,0 +1,16 @@
+package org.dev.powermarket.security.service;
+
+import org.dev.powermarket.domain.enums.Role;
+import org.dev.powermarket.security.entity.User;
+
+import java.util.UUID;
+
+/**
+ * Неизменяемый снимок пользователя для кэша: только поля, нужные аутентификации и проверкам доступа
+ */
+public record CachedUser(UUID id, String email, String passwordHash, Role role) {
+
+    public static CachedUser of(User user) {
+        return new CachedUser(user.getId(), user.getEmail(), user.getPasswordHash(), user.getRole());
+    }
+}
@@ -1,9 +1,11 @@
 package org.dev.powermarket.security.service;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import org.dev.powermarket.security.entity.User;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -11,19 +13,33 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
 
-    @Value("${app.jwt.secret:404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970}")
-    private String secretKey;
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
 
-    @Value("${jwt.expiration:172800000}") // 2 days in milliseconds
-    private Long jwtExpiration;
+    // Ключ и парсер неизменяемы и потокобезопасны: строятся один раз, а не на каждый токен
+    private final Key signInKey;
+    private final JwtParser parser;
+    private final long jwtExpiration;
+    private final long refreshExpiration;
 
-    @Value("${jwt.refresh-expiration:604800000}") // 7 days in milliseconds
-    private Long refreshExpiration;
+    public JwtService(
+            @Value("${app.jwt.secret:404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970}") String secretKey,
+            @Value("${jwt.expiration:172800000}") long jwtExpiration, // 2 days in milliseconds
+            @Value("${jwt.refresh-expiration:604800000}") long refreshExpiration // 7 days in milliseconds
+    ) {
+        this.signInKey = Keys.hmacShaKeyFor(secretKey.getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signInKey)
+                .build();
+        this.jwtExpiration = jwtExpiration;
+        this.refreshExpiration = refreshExpiration;
+    }
 
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -38,6 +54,16 @@ public class JwtService {
         return generateToken(new HashMap<>(), userLogin);
     }
 
+    /**
+     * Access-токен с claims uid и role: фильтр собирает principal из них без запроса к БД
+     */
+    public String generateToken(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_USER_ID, user.getId().toString());
+        claims.put(CLAIM_ROLE, user.getRole().name());
+        return generateToken(claims, user.getEmail());
+    }
+
     public String generateToken(Map<String, Object> extraClaims, String userLogin) {
         return buildToken(extraClaims, userLogin, jwtExpiration);
     }
@@ -46,6 +72,15 @@ public class JwtService {
         return buildToken(new HashMap<>(), userLogin, refreshExpiration);
     }
 
+    /**
+     * Refresh-токен с claim uid, чтобы его можно было отозвать вместе с остальными токенами пользователя
+     */
+    public String generateRefreshToken(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_USER_ID, user.getId().toString());
+        return buildToken(claims, user.getEmail(), refreshExpiration);
+    }
+
     private String buildToken(
             Map<String, Object> extraClaims,
             String userLogin,
@@ -55,36 +90,30 @@ public class JwtService {
                 .builder()
                 .setClaims(extraClaims)
                 .setSubject(userLogin)
+                .setId(UUID.randomUUID().toString())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public boolean isTokenValid(String token, String userLogin) {
-        final String username = extractUsername(token);
-        return (username.equals(userLogin)) && !isTokenExpired(token);
+        return isTokenValid(extractAllClaims(token), userLogin);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Проверка по уже разобранным claims, без повторного разбора токена
+     */
+    public boolean isTokenValid(Claims claims, String userLogin) {
+        return userLogin.equals(claims.getSubject())
+                && claims.getExpiration() != null
+                && claims.getExpiration().after(new Date());
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = secretKey.getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
+    /**
+     * Разобрать и проверить токен (подпись, срок действия)
+     */
+    public Claims extractAllClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
     }
 }
@@ -0,0 +1,74 @@
+package org.dev.powermarket.security.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Список отозванных токенов.
+ * <p>
+ * Токены проверяются без БД, поэтому выход из системы и смена роли отзывают их здесь:
+ * logout - конкретный токен по jti, смена роли - все токены пользователя, выпущенные раньше.
+ * Записи живут не дольше самих токенов, поэтому список остается маленьким.
+ * Хранится в памяти экземпляра приложения.
+ */
+@Service
+public class TokenRevocationService {
+
+    private final Cache<String, Instant> revokedTokens;
+    private final Cache<UUID, Instant> revokedUsers;
+
+    public TokenRevocationService(@Value("${jwt.refresh-expiration:604800000}") long refreshExpirationMs,
+                                  @Value("${app.jwt.revocation.max-size:100000}") long maxSize) {
+        this.revokedTokens = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                // Запись о токене нужна только до его истечения
+                .expireAfter(Expiry.creating((String jti, Instant expiresAt) ->
+                        Duration.between(Instant.now(), expiresAt)))
+                .build();
+        this.revokedUsers = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                // Через время жизни refresh-токена все токены, выпущенные до отзыва, истекли
+                .expireAfterWrite(Duration.ofMillis(refreshExpirationMs))
+                .build();
+    }
+
+    /**
+     * Отозвать токен (logout)
+     */
+    public void revoke(Claims claims) {
+        if (claims.getId() != null && claims.getExpiration() != null) {
+            revokedTokens.put(claims.getId(), claims.getExpiration().toInstant());
+        }
+    }
+
+    /**
+     * Отозвать все выпущенные на текущий момент токены пользователя (смена роли, блокировка)
+     */
+    public void revokeAllForUser(UUID userId) {
+        // iat в токене с точностью до секунды
+        revokedUsers.put(userId, Instant.now().truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    public boolean isRevoked(Claims claims) {
+        if (claims.getId() != null && revokedTokens.getIfPresent(claims.getId()) != null) {
+            return true;
+        }
+        String userId = claims.get(JwtService.CLAIM_USER_ID, String.class);
+        Date issuedAt = claims.getIssuedAt();
+        if (userId == null || issuedAt == null) {
+            return false;
+        }
+        Instant revokedBefore = revokedUsers.getIfPresent(UUID.fromString(userId));
+        return revokedBefore != null && issuedAt.toInstant().isBefore(revokedBefore);
+    }
+}
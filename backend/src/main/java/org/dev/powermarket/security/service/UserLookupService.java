@@ -0,0 +1,93 @@
+package org.dev.powermarket.security.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.dev.powermarket.security.entity.User;
+import org.dev.powermarket.security.repository.AuthorizedUserRepository;
+import org.dev.powermarket.service.support.TransactionHooks;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Поиск пользователя по email с кэшем.
+ * <p>
+ * Один запрос проходит JwtAuthenticationFilter и затем несколько сервисов, и каждый раньше
+ * искал пользователя по email заново. Кэш ограничен по размеру и TTL, отсутствующие
+ * пользователи не кэшируются. Код, меняющий email, пароль или роль, должен вызвать {@link #evict(String)}.
+ * Метрики попаданий: cache.gets{cache=users,result=hit|miss}.
+ * Id текущего пользователя берется из {@link AuthenticatedUser}, если токен его содержит.
+ */
+@Service
+public class UserLookupService {
+
+    private final AuthorizedUserRepository userRepository;
+    private final Cache<String, CachedUser> cache;
+
+    public UserLookupService(AuthorizedUserRepository userRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.users.cache.max-size:10000}") long maxSize,
+                             @Value("${app.users.cache.ttl-ms:300000}") long ttlMs) {
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "users");
+    }
+
+    public Optional<CachedUser> findByEmail(String email) {
+        CachedUser cached = cache.getIfPresent(email);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        // Отсутствие пользователя не кэшируем: он может зарегистрироваться следующим запросом
+        return userRepository.findByEmail(email)
+                .map(CachedUser::of)
+                .map(user -> {
+                    cache.put(email, user);
+                    return user;
+                });
+    }
+
+    public CachedUser getByEmail(String email) {
+        return findByEmail(email)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+    }
+
+    /**
+     * Id пользователя. Для текущего пользователя берется из principal токена без кэша и БД.
+     */
+    public UUID getUserIdByEmail(String email) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null
+                && authentication.getPrincipal() instanceof AuthenticatedUser principal
+                && principal.email().equals(email)) {
+            return principal.id();
+        }
+        return getByEmail(email).id();
+    }
+
+    /**
+     * Ссылка на пользователя без запроса к БД: для внешних ключей и сравнения id.
+     * Остальные поля загрузятся при первом обращении.
+     */
+    public User getReferenceByEmail(String email) {
+        return userRepository.getReferenceById(getUserIdByEmail(email));
+    }
+
+    /**
+     * Сбросить пользователя из кэша после коммита текущей транзакции
+     */
+    public void evict(String email) {
+        TransactionHooks.afterCommit(() -> cache.invalidate(email));
+    }
+}
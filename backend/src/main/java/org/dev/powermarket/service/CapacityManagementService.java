@@ -1,7 +1,8 @@
 package org.dev.powermarket.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
 import org.dev.powermarket.domain.CapacityReservation;
 import org.dev.powermarket.domain.Rental;
 import org.dev.powermarket.domain.Service;
@@ -9,21 +10,52 @@ import org.dev.powermarket.domain.ServiceAvailabilityPeriod;
 import org.dev.powermarket.repository.CapacityReservationRepository;
 import org.dev.powermarket.repository.ServiceAvailabilityPeriodRepository;
 import org.dev.powermarket.repository.ServiceRepository;
+import org.dev.powermarket.service.capacity.CapacityLedger;
+import org.dev.powermarket.service.capacity.CapacitySnapshot;
+import org.dev.powermarket.service.support.TransactionHooks;
+import org.springframework.beans.factory.annotation.Value;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 @org.springframework.stereotype.Service
 @Transactional
-@RequiredArgsConstructor
 public class CapacityManagementService {
 
     private final ServiceAvailabilityPeriodRepository periodRepository;
     private final CapacityReservationRepository reservationRepository;
     private final ServiceRepository serviceRepository;
 
-
+    // Журналы мощности по сервисам, строятся лениво и обновляются после коммита.
+    // Кэш ограничен по размеру; expireAfterWrite ограничивает расхождение с изменениями на других инстансах
+    private final Cache<UUID, CapacityLedger> ledgers;
+
+    public CapacityManagementService(ServiceAvailabilityPeriodRepository periodRepository,
+                                     CapacityReservationRepository reservationRepository,
+                                     ServiceRepository serviceRepository,
+                                     @Value("${app.capacity.ledger-cache.max-size:10000}") long maxSize,
+                                     @Value("${app.capacity.ledger-cache.expire-after-access-ms:600000}") long expireAfterAccessMs,
+                                     @Value("${app.capacity.ledger-cache.expire-after-write-ms:1800000}") long expireAfterWriteMs) {
+        this.periodRepository = periodRepository;
+        this.reservationRepository = reservationRepository;
+        this.serviceRepository = serviceRepository;
+        this.ledgers = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(Duration.ofMillis(expireAfterAccessMs))
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMs))
+                .build();
+    }
 
     /**
      * Забронировать мощность на период (ОДНА запись)
@@ -32,7 +64,9 @@ public class CapacityManagementService {
                                 LocalDate endDate, BigDecimal capacity) {
         Service service = rental.getService();
 
-        if (!isCapacityAvailable(service.getId(), startDate, endDate, capacity)) {
+        // Решение о брони - только по данным из БД: кэшированный журнал может не видеть
+        // брони других инстансов и изменений таблиц в обход сервиса
+        if (!isCapacityAvailable(loadLedger(service), startDate, endDate, capacity)) {
             throw new IllegalArgumentException("Not enough capacity available");
         }
 
@@ -44,6 +78,8 @@ public class CapacityManagementService {
         reservation.setReservedCapacity(capacity);
 
         reservationRepository.save(reservation);
+
+        applyAfterCommit(service.getId(), ledger -> ledger.reserve(startDate, endDate, capacity));
     }
 
     /**
@@ -51,26 +87,27 @@ public class CapacityManagementService {
      */
     public void releaseCapacity(Rental rental) {
         List<CapacityReservation> reservations = reservationRepository.findByRental(rental);
+        if (reservations.isEmpty()) {
+            return;
+        }
         reservationRepository.deleteAll(reservations);
+
+        applyAfterCommit(rental.getService().getId(), ledger -> reservations.forEach(reservation ->
+                ledger.release(reservation.getStartDate(), reservation.getEndDate(), reservation.getReservedCapacity())));
     }
 
     /**
      * Получить доступную мощность на конкретную дату
      */
     public BigDecimal getAvailableCapacityForDate(UUID serviceId, LocalDate date) {
-        Service service = serviceRepository.findById(serviceId)
-                .orElseThrow(() -> new IllegalArgumentException("Service not found"));
-
-        // Находим период, покрывающий эту дату
-        Optional<ServiceAvailabilityPeriod> periodOpt = periodRepository.findByServiceAndDate(service, date);
-        if (periodOpt.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-
-        BigDecimal totalCapacity = periodOpt.get().getTotalCapacity();
-        BigDecimal reservedCapacity = getReservedCapacityForDate(service, date);
+        return ledgerFor(serviceId).freeCapacityOn(date);
+    }
 
-        return totalCapacity.subtract(reservedCapacity);
+    /**
+     * Минимальная доступная мощность за период (дни вне периодов доступности считаются нулевыми)
+     */
+    public BigDecimal getMinAvailableCapacity(UUID serviceId, LocalDate startDate, LocalDate endDate) {
+        return ledgerFor(serviceId).minFreeCapacity(startDate, endDate);
     }
 
     /**
@@ -78,35 +115,128 @@ public class CapacityManagementService {
      */
     public boolean isCapacityAvailable(UUID serviceId, LocalDate startDate,
                                        LocalDate endDate, BigDecimal requiredCapacity) {
-        Service service = serviceRepository.findById(serviceId)
-                .orElseThrow(() -> new IllegalArgumentException("Service not found"));
+        return isCapacityAvailable(ledgerFor(serviceId), startDate, endDate, requiredCapacity);
+    }
+
+    /**
+     * Доступность сразу для нескольких сервисов: свободная мощность на дату и,
+     * если заданы даты, достаточно ли мощности на весь период.
+     * Недостающие журналы загружаются двумя запросами на всю пачку.
+     */
+    public Map<UUID, CapacitySnapshot> getCapacitySnapshots(Collection<UUID> serviceIds, LocalDate date,
+                                                            LocalDate startDate, LocalDate endDate,
+                                                            BigDecimal requiredCapacity) {
+        return snapshots(ledgers.getAll(serviceIds, this::loadLedgers), serviceIds, date,
+                startDate, endDate, requiredCapacity);
+    }
 
-        // Находим все периоды, которые пересекаются с запрошенным диапазоном
-        List<ServiceAvailabilityPeriod> periods = periodRepository.findOverlappingPeriods(
-                service, startDate, endDate);
+    /**
+     * То же, что getCapacitySnapshots, но загруженные журналы не кладутся в кэш.
+     * Для обхода всего каталога: иначе кэш заполнялся бы сервисами, которые больше не запросят.
+     */
+    public Map<UUID, CapacitySnapshot> computeCapacitySnapshots(Collection<UUID> serviceIds, LocalDate date,
+                                                                LocalDate startDate, LocalDate endDate,
+                                                                BigDecimal requiredCapacity) {
+        Map<UUID, CapacityLedger> available = new HashMap<>(ledgers.getAllPresent(serviceIds));
+        Set<UUID> missing = new HashSet<>(serviceIds);
+        missing.removeAll(available.keySet());
+        if (!missing.isEmpty()) {
+            available.putAll(loadLedgers(missing));
+        }
+        return snapshots(available, serviceIds, date, startDate, endDate, requiredCapacity);
+    }
 
-        if (periods.isEmpty()) {
+    private Map<UUID, CapacitySnapshot> snapshots(Map<UUID, CapacityLedger> loaded, Collection<UUID> serviceIds,
+                                                  LocalDate date, LocalDate startDate, LocalDate endDate,
+                                                  BigDecimal requiredCapacity) {
+        boolean withPeriod = startDate != null && endDate != null;
+        Map<UUID, CapacitySnapshot> snapshots = new LinkedHashMap<>();
+        for (UUID serviceId : serviceIds) {
+            CapacityLedger ledger = loaded.get(serviceId);
+            Boolean availableForPeriod = withPeriod
+                    ? isCapacityAvailable(ledger, startDate, endDate, requiredCapacity)
+                    : null;
+            snapshots.put(serviceId, new CapacitySnapshot(ledger.freeCapacityOn(date), availableForPeriod));
+        }
+        return snapshots;
+    }
+
+    /**
+     * Сбросить журнал сервиса после завершения текущей транзакции
+     * (например, после изменения периодов доступности)
+     */
+    public void evictLedger(UUID serviceId) {
+        TransactionHooks.afterCompletion(() -> ledgers.invalidate(serviceId), () -> ledgers.invalidate(serviceId));
+    }
+
+    private boolean isCapacityAvailable(CapacityLedger ledger, LocalDate startDate,
+                                        LocalDate endDate, BigDecimal requiredCapacity) {
+        if (endDate.isBefore(startDate)) {
             return false;
         }
 
-        // Для каждого дня в диапазоне проверяем доступность
-        LocalDate current = startDate;
-        while (!current.isAfter(endDate)) {
-            BigDecimal availableCapacity = getAvailableCapacityForDate(serviceId, current);
-            if (availableCapacity.compareTo(requiredCapacity) < 0) {
-                return false;
-            }
-            current = current.plusDays(1);
+        // Ни один период не пересекается с запрошенным диапазоном
+        if (!ledger.hasPeriodWithin(startDate, endDate)) {
+            return false;
+        }
+
+        return ledger.minFreeCapacity(startDate, endDate).compareTo(requiredCapacity) >= 0;
+    }
+
+    /**
+     * Журналы для отсутствующих в кэше сервисов: два запроса на всю пачку
+     */
+    private Map<UUID, CapacityLedger> loadLedgers(Set<? extends UUID> keys) {
+        List<UUID> missing = List.copyOf(keys);
+        Map<UUID, List<ServiceAvailabilityPeriod>> periods = new HashMap<>();
+        for (ServiceAvailabilityPeriod period : periodRepository.findByServiceIdIn(missing)) {
+            periods.computeIfAbsent(period.getService().getId(), id -> new ArrayList<>()).add(period);
+        }
+        Map<UUID, List<CapacityReservation>> reservations = new HashMap<>();
+        for (CapacityReservation reservation : reservationRepository.findByServiceIdIn(missing)) {
+            reservations.computeIfAbsent(reservation.getRental().getService().getId(), id -> new ArrayList<>())
+                    .add(reservation);
+        }
+
+        Map<UUID, CapacityLedger> loaded = new HashMap<>();
+        for (UUID serviceId : missing) {
+            loaded.put(serviceId, CapacityLedger.of(
+                    periods.getOrDefault(serviceId, List.of()),
+                    reservations.getOrDefault(serviceId, List.of())));
         }
+        return loaded;
+    }
 
-        return true;
+    private CapacityLedger ledgerFor(UUID serviceId) {
+        // Параллельные запросы одного сервиса ждут одну загрузку
+        return ledgers.get(serviceId, id -> {
+            Service service = serviceRepository.findById(id)
+                    .orElseThrow(() -> new IllegalArgumentException("Service not found"));
+            return loadLedger(service);
+        });
+    }
+
+    private CapacityLedger loadLedger(Service service) {
+        return CapacityLedger.of(
+                periodRepository.findByServiceOrderByStartDate(service),
+                reservationRepository.findByService(service));
     }
 
     /**
-     * Получить сумму забронированной мощности на конкретную дату
+     * Применить изменение к журналу только после коммита.
+     * Если журнал появился внутри транзакции или транзакция откатилась - журнал сбрасывается
+     * и при следующем обращении перечитывается из БД.
      */
-    private BigDecimal getReservedCapacityForDate(Service service, LocalDate date) {
-        return reservationRepository.getReservedCapacityForDate(service, date);
+    private void applyAfterCommit(UUID serviceId, Consumer<CapacityLedger> change) {
+        CapacityLedger known = ledgers.getIfPresent(serviceId);
+        TransactionHooks.afterCompletion(
+                () -> {
+                    if (known != null && ledgers.getIfPresent(serviceId) == known) {
+                        change.accept(known);
+                    } else {
+                        ledgers.invalidate(serviceId);
+                    }
+                },
+                () -> ledgers.invalidate(serviceId));
     }
 }
-
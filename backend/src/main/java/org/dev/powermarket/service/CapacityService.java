@@ -2,20 +2,18 @@ package org.dev.powermarket.service;
 
 import lombok.RequiredArgsConstructor;
 import org.dev.powermarket.domain.CapacityReservation;
-import org.dev.powermarket.domain.Rental;
 import org.dev.powermarket.domain.Service;
 import org.dev.powermarket.domain.ServiceAvailabilityPeriod;
 import org.dev.powermarket.domain.dto.response.CapacityAvailabilityResponse;
 import org.dev.powermarket.repository.CapacityReservationRepository;
 import org.dev.powermarket.repository.ServiceAvailabilityPeriodRepository;
 import org.dev.powermarket.repository.ServiceRepository;
-import org.dev.powermarket.service.dto.CapacityAvailabilityDto;
+import org.dev.powermarket.service.capacity.CapacityTimeline;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.UUID;
 
 @org.springframework.stereotype.Service
 @RequiredArgsConstructor
@@ -25,6 +23,10 @@ public class CapacityService {
     private final ServiceAvailabilityPeriodRepository periodRepository;
     private final CapacityReservationRepository reservationRepository;
 
+    /**
+     * Посуточный календарь мощности за период.
+     * Периоды и бронирования (вместе с арендатором) загружаются двумя запросами на всё окно.
+     */
     @Transactional(readOnly = true)
     public List<CapacityAvailabilityResponse> getCapacityAvailability(UUID serviceId,
                                                                       LocalDate startDate,
@@ -32,66 +34,15 @@ public class CapacityService {
         Service service = serviceRepository.findById(serviceId)
                 .orElseThrow(() -> new IllegalArgumentException("Service not found"));
 
-        List<CapacityAvailabilityResponse> result = new ArrayList<>();
-        LocalDate currentDate = startDate;
-
-        while (!currentDate.isAfter(endDate)) {
-            // Найти период для текущей даты
-            Optional<ServiceAvailabilityPeriod> periodOpt = periodRepository.findByServiceAndDate(service, currentDate);
-
-            BigDecimal totalCapacity = BigDecimal.ZERO;
-            BigDecimal reservedCapacity = BigDecimal.ZERO;
-            List<CapacityAvailabilityResponse.OccupiedSlot> occupiedSlots = new ArrayList<>();
-
-            if (periodOpt.isPresent()) {
-                ServiceAvailabilityPeriod period = periodOpt.get();
-                totalCapacity = period.getTotalCapacity();
-
-                // Получить забронированную мощность для этой даты
-                reservedCapacity = reservationRepository.getReservedCapacityForDate(service, currentDate);
-
-                // Получить детали бронирований
-                List<CapacityReservation> reservations = reservationRepository.findByServiceAndDateRange(
-                        service, currentDate, currentDate);
-
-                occupiedSlots = reservations.stream()
-                        .map(reservation -> {
-                            Rental rental = reservation.getRental();
-                            return new CapacityAvailabilityResponse.OccupiedSlot(
-                                    rental.getStartDate(),
-                                    rental.getEndDate(),
-                                    rental.getTenant().getFullName(),
-                                    reservation.getReservedCapacity()
-                            );
-                        })
-                        .toList();
-            }
-
-            BigDecimal availableCapacity = totalCapacity.subtract(reservedCapacity);
-
-            CapacityAvailabilityResponse response = new CapacityAvailabilityResponse(
-                    currentDate,
-                    totalCapacity,
-                    availableCapacity,
-                    reservedCapacity,
-                    occupiedSlots
-            );
-
-            result.add(response);
-            currentDate = currentDate.plusDays(1);
+        if (endDate.isBefore(startDate)) {
+            return List.of();
         }
 
-        return result;
-    }
-    /**
-     * Получить сумму забронированной мощности на конкретную дату
-     */
-    private BigDecimal getReservedCapacityForDate(Service service, LocalDate date) {
-        List<CapacityReservation> reservations = reservationRepository
-                .findOverlappingReservations(service, date, date);
+        List<ServiceAvailabilityPeriod> periods = periodRepository.findPeriodsInRange(service, startDate, endDate);
+        List<CapacityReservation> reservations = periods.isEmpty()
+                ? List.of()
+                : reservationRepository.findByServiceAndDateRangeWithTenant(service, startDate, endDate);
 
-        return reservations.stream()
-                .map(CapacityReservation::getReservedCapacity)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return CapacityTimeline.of(periods, reservations).days(startDate, endDate);
     }
 }
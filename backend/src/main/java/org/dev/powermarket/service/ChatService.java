@@ -8,20 +8,28 @@ import org.dev.powermarket.domain.dto.mapper.ChatMapper;
 import org.dev.powermarket.domain.dto.request.EditMessageRequest;
 import org.dev.powermarket.domain.dto.response.ChatDetailDto;
 import org.dev.powermarket.domain.dto.response.ChatListItemDto;
-import org.dev.powermarket.repository.projection.UnreadCountProjection;
+import org.dev.powermarket.domain.dto.response.ChatMessageSliceDto;
 import org.dev.powermarket.security.entity.User;
+import org.dev.powermarket.security.service.UserLookupService;
 import org.dev.powermarket.repository.ChatMessageRepository;
 import org.dev.powermarket.repository.ChatRepository;
-import org.dev.powermarket.security.repository.AuthorizedUserRepository;
 import org.dev.powermarket.service.dto.ChatMessageDto;
+import org.dev.powermarket.service.dto.KeysetCursor;
 import org.dev.powermarket.service.dto.SendMessageRequest;
+import org.dev.powermarket.service.realtime.ChatRealtimeEvent;
+import org.dev.powermarket.service.realtime.SseHub;
+import org.dev.powermarket.service.unread.UnreadCounterService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.Instant;
 import java.util.List;
@@ -38,14 +46,18 @@ public class ChatService {
 
     private final ChatRepository chatRepository;
     private final ChatMessageRepository messageRepository;
-    private final AuthorizedUserRepository userRepository;
+    private final UserLookupService userLookupService;
     private final ChatMapper chatMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SseHub sseHub;
+    private final UnreadCounterService unreadCounterService;
 
 
     //todo убрать их в default части?
     private static final int RECENT_MESSAGES_LIMIT = 10;
     private static final int MESSAGE_EDIT_TIMEOUT_MINUTES = 60;
     private static final int LAST_MESSAGE_PREVIEW_LENGTH = 50;
+    private static final int MESSAGE_HISTORY_MAX_PAGE_SIZE = 100;
 
     @Transactional(readOnly = true)
     public Page<ChatListItemDto> getMyChats(String email, Pageable pageable) {
@@ -67,10 +79,8 @@ public class ChatService {
                         (existing, replacement) -> existing
                 ));
 
-        // Получаем количество непрочитанных сообщений
-        List<UnreadCountProjection> projections = messageRepository.countUnreadMessagesByChat(user.getId());
-        Map<UUID, Long> unreadCountsMap = projections.stream()
-                .collect(Collectors.toMap(UnreadCountProjection::getChatId, UnreadCountProjection::getCount));
+        // Количество непрочитанных сообщений берется из счетчиков в памяти
+        Map<UUID, Long> unreadCountsMap = unreadCounterService.unreadMessagesByChat(user.getId());
 
         // Маппим в DTO
         List<ChatListItemDto> chatItems = chatsPage.getContent().stream()
@@ -84,6 +94,7 @@ public class ChatService {
         return new PageImpl<>(chatItems, pageable, chatsPage.getTotalElements());
     }
 
+    @Transactional
     @PreAuthorize("@chatAccessService.hasAccessToChat(@userService.getUserIdByEmail(#email), #chatId)")
     public Page<ChatMessageDto> getChatMessages(String email, UUID chatId, Pageable pageable) {
         Chat chat = getChatById(chatId);
@@ -97,6 +108,41 @@ public class ChatService {
     }
 
 
+    /**
+     * История сообщений с keyset-пагинацией: от новых к старым, начиная строго после курсора.
+     * Без курсора возвращается самая свежая страница, и только тогда сообщения помечаются прочитанными.
+     */
+    @Transactional
+    @PreAuthorize("@chatAccessService.hasAccessToChat(@userService.getUserIdByEmail(#email), #chatId)")
+    public ChatMessageSliceDto getChatMessageHistory(String email, UUID chatId, String before, int size) {
+        Chat chat = getChatById(chatId);
+        User user = getUserByEmail(email);
+        Pageable pageable = PageRequest.of(0, Math.clamp(size, 1, MESSAGE_HISTORY_MAX_PAGE_SIZE));
+
+        Slice<ChatMessage> slice;
+        if (before == null || before.isBlank()) {
+            markMessagesAsRead(chat, user);
+            slice = messageRepository.findVisibleMessagesSlice(chat, user.getId(), pageable);
+        } else {
+            KeysetCursor cursor = KeysetCursor.parse(before);
+            slice = messageRepository.findVisibleMessagesBefore(
+                    chat, user.getId(), cursor.createdAt(), cursor.id(), pageable);
+        }
+
+        List<ChatMessage> messages = slice.getContent();
+        String nextCursor = null;
+        if (slice.hasNext() && !messages.isEmpty()) {
+            ChatMessage oldest = messages.getLast();
+            nextCursor = new KeysetCursor(oldest.getCreatedAt(), oldest.getId()).encode();
+        }
+
+        return new ChatMessageSliceDto(
+                messages.stream().map(chatMapper::toMessageDto).toList(),
+                slice.hasNext(),
+                nextCursor
+        );
+    }
+
     @Transactional
     @PreAuthorize("@chatAccessService.hasAccessToChat(@userService.getUserIdByEmail(#email), #chatId)")
     public ChatMessageDto sendMessage(String email, UUID chatId, SendMessageRequest request) {
@@ -119,11 +165,14 @@ public class ChatService {
 
         // Обновляем информацию о последнем сообщении в чате
         updateChatLastMessage(chat, saved, user);
+        unreadCounterService.messageReceived(getOtherParticipant(chat, user).getId(), chatId);
 
         log.info("Message sent: chatId={}, senderId={}, messageId={}",
                 chatId, user.getId(), saved.getId());
 
-        return chatMapper.toMessageDto(saved);
+        ChatMessageDto dto = chatMapper.toMessageDto(saved);
+        publish(chat, participantIds(chat), ChatRealtimeEvent.MESSAGE_CREATED, dto);
+        return dto;
     }
 
     @Transactional
@@ -161,7 +210,9 @@ public class ChatService {
 
         log.info("Message edited: messageId={}, editorId={}", messageId, user.getId());
 
-        return chatMapper.toMessageDto(saved);
+        ChatMessageDto dto = chatMapper.toMessageDto(saved);
+        publish(saved.getChat(), participantIds(saved.getChat()), ChatRealtimeEvent.MESSAGE_UPDATED, dto);
+        return dto;
     }
 
     @Transactional
@@ -178,11 +229,19 @@ public class ChatService {
             }
             message.setDeletedForEveryone(true);
             messageRepository.save(message);
+            if (message.getReadAt() == null) {
+                unreadCounterService.unreadMessageRemoved(getOtherParticipant(message.getChat(), user).getId(),
+                        message.getChat().getId());
+            }
 
             // Если это последнее сообщение, обновляем чат
             updateChatIfLastMessageDeleted(message.getChat());
 
             log.info("Message deleted for everyone: messageId={}, deleterId={}", messageId, user.getId());
+
+            publish(message.getChat(), participantIds(message.getChat()),
+                    ChatRealtimeEvent.MESSAGE_DELETED,
+                    new ChatRealtimeEvent.DeletedMessage(message.getId(), message.getChat().getId()));
         } else {
             // Только отправитель может удалить для себя
             if (!message.getSender().getId().equals(user.getId())) {
@@ -192,14 +251,29 @@ public class ChatService {
             messageRepository.save(message);
 
             log.info("Message deleted for sender: messageId={}, senderId={}", messageId, user.getId());
+
+            // Удаление "для себя" видит только сам отправитель (например, в другой вкладке)
+            publish(message.getChat(), List.of(user.getId()),
+                    ChatRealtimeEvent.MESSAGE_DELETED,
+                    new ChatRealtimeEvent.DeletedMessage(message.getId(), message.getChat().getId()));
         }
     }
 
+    /**
+     * Открыть SSE-подписку на события чатов пользователя.
+     * Если chatId задан - только на события этого чата (доступ к чату проверяется).
+     */
+    @PreAuthorize("#chatId == null or @chatAccessService.hasAccessToChat(@userService.getUserIdByEmail(#email), #chatId)")
+    public SseEmitter subscribe(String email, UUID chatId) {
+        User user = getUserByEmail(email);
+        return sseHub.subscribe(user.getId(), chatId);
+    }
+
     @Transactional(readOnly = true)
     @PreAuthorize("isAuthenticated()")
     public long getUnreadMessagesCount(String email) {
         User user = getUserByEmail(email);
-        return messageRepository.countUnreadMessages(user.getId());
+        return unreadCounterService.unreadMessages(user.getId());
     }
 
     @Transactional
@@ -215,23 +289,13 @@ public class ChatService {
     public void markAllMessagesAsRead(String email) {
         User user = getUserByEmail(email);
 
-        // Получаем все непрочитанные сообщения пользователя
-        List<ChatMessage> unreadMessages = messageRepository.findAllUnreadMessages(user.getId());
-
-        if (!unreadMessages.isEmpty()) {
-            Instant now = Instant.now();
-            unreadMessages.forEach(msg -> msg.setReadAt(now));
-            messageRepository.saveAll(unreadMessages);
-
-            // Обновляем флаги hasUnread в чатах
-            unreadMessages.stream()
-                    .map(ChatMessage::getChat)
-                    .distinct()
-                    .forEach(chat -> {
-                        chat.setHasUnread(false);
-                        chatRepository.save(chat);
-                    });
+        // Сообщения и флаги чатов обновляются пакетно, без загрузки сущностей
+        int updated = messageRepository.markAllMessagesAsRead(user.getId(), Instant.now());
+        if (updated > 0) {
+            chatRepository.clearUnreadForRecipient(user.getId());
+            unreadCounterService.allChatsRead(user.getId());
         }
+        log.debug("Messages marked as read: userId={}, count={}", user.getId(), updated);
     }
 
     private Chat getChatById(UUID chatId) {
@@ -245,26 +309,21 @@ public class ChatService {
     }
 
     private User getUserByEmail(String email) {
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        return userLookupService.getReferenceByEmail(email);
     }
 
 
-    private void markMessagesAsRead(Chat chat, User user) {
-        List<ChatMessage> unreadMessages = messageRepository.findUnreadMessages(
-                chat.getId(),
-                user.getId()
-        );
-
-        if (!unreadMessages.isEmpty()) {
-            Instant now = Instant.now();
-            unreadMessages.forEach(msg -> msg.setReadAt(now));
-            messageRepository.saveAll(unreadMessages);
+    private int markMessagesAsRead(Chat chat, User user) {
+        int updated = messageRepository.markChatMessagesAsRead(chat.getId(), user.getId(), Instant.now());
 
-            // Обновляем флаг hasUnread в чате
-            chat.setHasUnread(false);
-            chatRepository.save(chat);
+        if (updated > 0) {
+            unreadCounterService.chatRead(user.getId(), chat.getId());
+            if (chat.isHasUnread()) {
+                // Чат уже загружен в контекст, флаг уйдет в БД при flush вместе с транзакцией
+                chat.setHasUnread(false);
+            }
         }
+        return updated;
     }
 
     private void updateChatLastMessage(Chat chat, ChatMessage message, User sender) {
@@ -311,6 +370,15 @@ public class ChatService {
         chatRepository.save(chat);
     }
 
+    private List<UUID> participantIds(Chat chat) {
+        return List.of(chat.getRental().getSupplier().getId(), chat.getRental().getTenant().getId());
+    }
+
+    private void publish(Chat chat, List<UUID> recipientIds, String type, Object payload) {
+        // Доставка подписчикам произойдет после коммита (см. ChatRealtimeListener)
+        eventPublisher.publishEvent(new ChatRealtimeEvent(chat.getId(), recipientIds, type, payload));
+    }
+
     private User getOtherParticipant(Chat chat, User currentUser) {
         if (chat.getRental().getSupplier().getId().equals(currentUser.getId())) {
             return chat.getRental().getTenant();
@@ -344,12 +412,7 @@ public class ChatService {
         ChatMessage lastMessage = messageRepository.findFirstVisibleByChat(chat, user.getId())
                 .orElse(null);
 
-        // Получаем количество непрочитанных
-        List<ChatMessage> unreadMessages = messageRepository.findUnreadMessages(chat.getId(), user.getId());
-        int unreadCount = (int) unreadMessages.stream()
-                .filter(msg -> !msg.isDeletedForEveryone() &&
-                        (!msg.getSender().getId().equals(user.getId()) || !msg.isDeletedForSender()))
-                .count();
+        int unreadCount = (int) unreadCounterService.unreadMessagesInChat(user.getId(), chat.getId());
 
         return chatMapper.toDetailDto(
                 chat,
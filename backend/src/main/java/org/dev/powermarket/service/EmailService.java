@@ -1,36 +1,134 @@
 package org.dev.powermarket.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.dev.powermarket.domain.Notification;
 import org.dev.powermarket.domain.enums.NotificationType;
 import org.dev.powermarket.security.entity.User;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Сервис для отправки e-mail уведомлений.
  * Логика отправки построена таким образом, чтобы при отсутствии/неправильной
  * настройке SMTP сервера приложение продолжало работать (ошибки логируются,
  * но не пробрасываются дальше).
+ * <p>
+ * Отправка асинхронная: письма попадают в ограниченную очередь, рабочие потоки забирают
+ * их пачками и отправляют одним вызовом JavaMailSender (одно SMTP-соединение на пачку).
+ * Временные ошибки повторяются с экспоненциальной задержкой. При переполнении очереди
+ * письмо отбрасывается, вызывающий поток никогда не ждет SMTP.
  */
-//@Service
+@Service
 @Slf4j
 public class EmailService {
 
-    private final JavaMailSender mailSender;
+    private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(10);
+
+    private final ObjectProvider<JavaMailSender> mailSenderProvider;
     private final String fromEmail;
     private final boolean mailEnabled;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryBase;
+    private final int workers;
+    private final boolean virtualThreads;
+
+    private final DelayQueue<MailJob> queue = new DelayQueue<>();
+    private final Timer sendTimer;
+    private final Timer deliveryDelayTimer;
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+    private final Counter droppedCounter;
+
+    private ExecutorService workerPool;
 
     public EmailService(
-            JavaMailSender mailSender,
+            ObjectProvider<JavaMailSender> mailSenderProvider,
+            MeterRegistry meterRegistry,
             @Value("${app.mail.from:no-reply@powermarket.local}") String fromEmail,
-            @Value("${app.mail.enabled:true}") boolean mailEnabled
+            @Value("${app.mail.enabled:true}") boolean mailEnabled,
+            @Value("${app.mail.queue-capacity:10000}") int queueCapacity,
+            @Value("${app.mail.batch-size:50}") int batchSize,
+            @Value("${app.mail.max-attempts:5}") int maxAttempts,
+            @Value("${app.mail.retry-base-ms:2000}") long retryBaseMs,
+            @Value("${app.mail.workers:1}") int workers,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
     ) {
-        this.mailSender = mailSender;
+        this.mailSenderProvider = mailSenderProvider;
         this.fromEmail = fromEmail;
         this.mailEnabled = mailEnabled;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBase = Duration.ofMillis(retryBaseMs);
+        this.workers = workers;
+        this.virtualThreads = virtualThreads;
+
+        Gauge.builder("mail.queue.size", queue, DelayQueue::size)
+                .description("Письма, ожидающие отправки или повтора")
+                .register(meterRegistry);
+        this.sendTimer = Timer.builder("mail.send")
+                .description("Время отправки одной пачки писем")
+                .register(meterRegistry);
+        this.deliveryDelayTimer = Timer.builder("mail.delivery.delay")
+                .description("Время от постановки письма в очередь до отправки")
+                .register(meterRegistry);
+        this.sentCounter = meterRegistry.counter("mail.sent");
+        this.failedCounter = meterRegistry.counter("mail.failed");
+        this.droppedCounter = meterRegistry.counter("mail.dropped");
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!mailEnabled || mailSenderProvider.getIfAvailable() == null) {
+            // Без SMTP письма в очередь не попадают, рабочие потоки не нужны
+            return;
+        }
+        // Рабочие потоки почти все время ждут SMTP, в режиме виртуальных потоков они тоже виртуальные
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("mail-worker-", 0).factory()
+                : Thread.ofPlatform().name("mail-worker-", 0).daemon(true).factory();
+        workerPool = Executors.newFixedThreadPool(workers, threadFactory);
+        for (int i = 0; i < workers; i++) {
+            workerPool.execute(this::runWorker);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (workerPool != null) {
+            workerPool.shutdownNow();
+        }
+        if (!queue.isEmpty()) {
+            log.warn("Mail queue is not empty on shutdown, {} letters were not sent", queue.size());
+        }
     }
 
     /**
@@ -91,7 +189,7 @@ public class EmailService {
     }
 
     /**
-     * Базовый метод отправки письма. Ничего не бросает наружу.
+     * Базовый метод отправки письма: только ставит письмо в очередь. Ничего не бросает наружу.
      */
     private void sendEmail(String to, String subject, String text) {
         if (!mailEnabled) {
@@ -103,22 +201,144 @@ public class EmailService {
             return;
         }
 
+        if (mailSenderProvider.getIfAvailable() == null) {
+            log.debug("SMTP не настроен (spring.mail.host). Письмо для {} с темой '{}' не было отправлено.", to, subject);
+            return;
+        }
+
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(fromEmail);
+        message.setTo(to);
+        message.setSubject(subject);
+        message.setText(text);
+
+        if (queue.size() >= queueCapacity) {
+            droppedCounter.increment();
+            log.warn("Очередь писем переполнена, письмо на адрес {} с темой '{}' отброшено", to, subject);
+            return;
+        }
+        queue.add(MailJob.first(message));
+    }
+
+    private void runWorker() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                sendBatch(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("Mail worker failed", e);
+            }
+        }
+    }
+
+    /**
+     * Отправить пачку из готовых к отправке писем без ожидания.
+     *
+     * @return false, если готовых писем нет
+     */
+    boolean sendReadyBatch() {
+        MailJob first = queue.poll();
+        if (first == null) {
+            return false;
+        }
+        sendBatch(first);
+        return true;
+    }
+
+    private void sendBatch(MailJob first) {
+        List<MailJob> batch = new ArrayList<>(batchSize);
+        batch.add(first);
+        // DelayQueue отдает только письма, у которых истекла задержка повтора
+        queue.drainTo(batch, batchSize - 1);
+
+        JavaMailSender mailSender = mailSenderProvider.getIfAvailable();
+        if (mailSender == null) {
+            droppedCounter.increment(batch.size());
+            return;
+        }
+
+        Map<SimpleMailMessage, MailJob> jobs = new IdentityHashMap<>(batch.size());
+        batch.forEach(job -> jobs.put(job.message(), job));
+
+        long started = System.nanoTime();
         try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(to);
-            message.setSubject(subject);
-            message.setText(text);
-
-            mailSender.send(message);
-            log.info("Отправлено письмо на адрес {} с темой '{}'", to, subject);
-        } catch (Exception ex) {
-            // Логируем, но не ломаем основной бизнес-процесс
-            log.warn("Не удалось отправить письмо на адрес {}: {}", to, ex.getMessage());
+            mailSender.send(batch.stream().map(MailJob::message).toArray(SimpleMailMessage[]::new));
+            sendTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            batch.forEach(this::recordSent);
+        } catch (MailSendException ex) {
+            sendTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            Map<Object, Exception> failed = ex.getFailedMessages();
+            if (failed.isEmpty()) {
+                // Соединение не установлено - повторяем всю пачку
+                batch.forEach(job -> retry(job, ex));
+                return;
+            }
+            for (MailJob job : batch) {
+                Exception cause = failed.get(job.message());
+                if (cause == null) {
+                    recordSent(job);
+                } else {
+                    retry(job, cause);
+                }
+            }
+        } catch (MailAuthenticationException | MailParseException | MailPreparationException ex) {
+            // Повтор не поможет
+            failedCounter.increment(batch.size());
+            log.warn("Не удалось отправить пачку из {} писем: {}", batch.size(), ex.getMessage());
+        } catch (MailException ex) {
+            batch.forEach(job -> retry(job, ex));
+        }
+    }
+
+    private void recordSent(MailJob job) {
+        sentCounter.increment();
+        deliveryDelayTimer.record(System.nanoTime() - job.enqueuedAt(), TimeUnit.NANOSECONDS);
+        log.info("Отправлено письмо на адрес {} с темой '{}'",
+                String.join(",", job.message().getTo()), job.message().getSubject());
+    }
+
+    private void retry(MailJob job, Exception cause) {
+        int attempts = job.attempts() + 1;
+        String to = String.join(",", job.message().getTo());
+        if (attempts >= maxAttempts) {
+            failedCounter.increment();
+            log.warn("Не удалось отправить письмо на адрес {} после {} попыток: {}", to, attempts, cause.getMessage());
+            return;
         }
+        log.debug("Повтор отправки письма на адрес {} (попытка {}): {}", to, attempts + 1, cause.getMessage());
+        queue.add(job.retry(attempts, retryDelay(attempts)));
+    }
+
+    Duration retryDelay(int attempts) {
+        Duration delay = retryBase.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(MAX_RETRY_DELAY) > 0 ? MAX_RETRY_DELAY : delay;
     }
 
     private boolean isBlank(String s) {
         return s == null || s.trim().isEmpty();
     }
+
+    private record MailJob(SimpleMailMessage message, int attempts, long enqueuedAt, long readyAt)
+            implements Delayed {
+
+        static MailJob first(SimpleMailMessage message) {
+            long now = System.nanoTime();
+            return new MailJob(message, 0, now, now);
+        }
+
+        MailJob retry(int attempts, Duration delay) {
+            return new MailJob(message, attempts, enqueuedAt, System.nanoTime() + delay.toNanos());
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(readyAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
 }
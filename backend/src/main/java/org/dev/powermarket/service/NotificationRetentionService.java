@@ -0,0 +1,76 @@
+package org.dev.powermarket.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.dev.powermarket.repository.NotificationArchiveRepository;
+import org.dev.powermarket.repository.NotificationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Перенос старых прочитанных уведомлений в notifications_archive, чтобы горячая таблица оставалась маленькой.
+ * Работает пачками, каждая пачка - отдельная короткая транзакция.
+ */
+@Slf4j
+@Service
+public class NotificationRetentionService {
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationArchiveRepository archiveRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+    private final int batchSize;
+
+    public NotificationRetentionService(NotificationRepository notificationRepository,
+                                        NotificationArchiveRepository archiveRepository,
+                                        PlatformTransactionManager transactionManager,
+                                        @Value("${app.notifications.retention-days:90}") long retentionDays,
+                                        @Value("${app.notifications.archive-batch-size:1000}") int batchSize) {
+        this.notificationRepository = notificationRepository;
+        this.archiveRepository = archiveRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retention = Duration.ofDays(retentionDays);
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(cron = "${app.notifications.retention-cron:0 30 3 * * *}")
+    public void archiveExpired() {
+        archiveReadBefore(Instant.now().minus(retention));
+    }
+
+    /**
+     * Архивировать прочитанные уведомления, созданные раньше cutoff.
+     *
+     * @return количество перенесенных уведомлений
+     */
+    public int archiveReadBefore(Instant cutoff) {
+        int total = 0;
+        int moved;
+        do {
+            moved = transactionTemplate.execute(status -> archiveBatch(cutoff));
+            total += moved;
+        } while (moved == batchSize);
+
+        if (total > 0) {
+            log.info("Notifications archived: count={}, cutoff={}", total, cutoff);
+        }
+        return total;
+    }
+
+    private int archiveBatch(Instant cutoff) {
+        List<UUID> ids = notificationRepository.findReadIdsCreatedBefore(cutoff, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        archiveRepository.copyFromNotifications(ids, Instant.now());
+        return notificationRepository.deleteByIds(ids);
+    }
+}
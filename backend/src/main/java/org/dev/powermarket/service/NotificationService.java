@@ -1,13 +1,22 @@
 package org.dev.powermarket.service;
 
 import org.dev.powermarket.domain.Notification;
+import org.dev.powermarket.domain.dto.response.NotificationSliceDto;
+import org.dev.powermarket.domain.enums.NotificationType;
 import org.dev.powermarket.security.entity.User;
+import org.dev.powermarket.security.service.UserLookupService;
 import org.dev.powermarket.repository.NotificationRepository;
-import org.dev.powermarket.security.repository.AuthorizedUserRepository;
+import org.dev.powermarket.service.dto.KeysetCursor;
 import org.dev.powermarket.service.dto.NotificationDto;
+import org.dev.powermarket.service.realtime.SseHub;
+import org.dev.powermarket.service.unread.UnreadCounterService;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.UUID;
@@ -16,70 +25,114 @@ import java.util.stream.Collectors;
 @Service
 public class NotificationService {
 
+    public static final int FEED_MAX_PAGE_SIZE = 100;
+
     private final NotificationRepository notificationRepository;
-    private final AuthorizedUserRepository userRepository;
+    private final UserLookupService userLookupService;
+    private final UnreadCounterService unreadCounterService;
+    private final SseHub sseHub;
 
     public NotificationService(NotificationRepository notificationRepository,
-                               AuthorizedUserRepository userRepository) {
+                               UserLookupService userLookupService,
+                               UnreadCounterService unreadCounterService,
+                               SseHub sseHub) {
         this.notificationRepository = notificationRepository;
-        this.userRepository = userRepository;
+        this.userLookupService = userLookupService;
+        this.unreadCounterService = unreadCounterService;
+        this.sseHub = sseHub;
+    }
+
+    /**
+     * SSE-подписка на новые уведомления (событие notification.created) и события чатов пользователя
+     */
+    public SseEmitter subscribe(String email) {
+        User user = userLookupService.getReferenceByEmail(email);
+
+        return sseHub.subscribe(user.getId(), null);
     }
 
     @Transactional(readOnly = true)
     public List<NotificationDto> getMyNotifications(String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        User user = userLookupService.getReferenceByEmail(email);
 
         return notificationRepository.findByUserOrderByCreatedAtDesc(user).stream()
-                .map(this::toDto)
+                .map(NotificationDto::of)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Лента уведомлений с keyset-пагинацией: от новых к старым, начиная строго после курсора.
+     * type == null - уведомления всех типов.
+     */
+    @Transactional(readOnly = true)
+    public NotificationSliceDto getNotificationFeed(String email, NotificationType type, String before, int size) {
+        User user = userLookupService.getReferenceByEmail(email);
+        Pageable pageable = PageRequest.of(0, Math.clamp(size, 1, FEED_MAX_PAGE_SIZE));
+
+        Slice<Notification> slice;
+        if (before == null || before.isBlank()) {
+            slice = notificationRepository.findFeed(user.getId(), type, pageable);
+        } else {
+            KeysetCursor cursor = KeysetCursor.parse(before);
+            slice = notificationRepository.findFeedBefore(
+                    user.getId(), type, cursor.createdAt(), cursor.id(), pageable);
+        }
+
+        List<Notification> notifications = slice.getContent();
+        String nextCursor = null;
+        if (slice.hasNext() && !notifications.isEmpty()) {
+            Notification oldest = notifications.getLast();
+            nextCursor = new KeysetCursor(oldest.getCreatedAt(), oldest.getId()).encode();
+        }
+
+        return new NotificationSliceDto(
+                notifications.stream().map(NotificationDto::of).toList(),
+                slice.hasNext(),
+                nextCursor
+        );
+    }
+
     @Transactional(readOnly = true)
     public List<NotificationDto> getUnreadNotifications(String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        User user = userLookupService.getReferenceByEmail(email);
 
         return notificationRepository.findByUserAndIsReadFalseOrderByCreatedAtDesc(user).stream()
-                .map(this::toDto)
+                .map(NotificationDto::of)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
+    public long getUnreadCount(String email) {
+        User user = userLookupService.getReferenceByEmail(email);
+
+        return unreadCounterService.unreadNotifications(user.getId());
+    }
+
     @Transactional
     public void markAsRead(String email, UUID notificationId) {
         Notification notification = notificationRepository.findById(notificationId)
                 .orElseThrow(() -> new IllegalArgumentException("Notification not found"));
 
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        User user = userLookupService.getReferenceByEmail(email);
 
         if (!notification.getUser().getId().equals(user.getId())) {
             throw new AccessDeniedException("You can only mark your own notifications as read");
         }
 
+        if (Boolean.TRUE.equals(notification.getIsRead())) {
+            return;
+        }
         notification.setIsRead(true);
         notificationRepository.save(notification);
+        unreadCounterService.notificationRead(user.getId());
     }
 
     @Transactional
     public void markAllAsRead(String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
-
-        List<Notification> unread = notificationRepository.findByUserAndIsReadFalseOrderByCreatedAtDesc(user);
-        unread.forEach(n -> n.setIsRead(true));
-        notificationRepository.saveAll(unread);
-    }
+        User user = userLookupService.getReferenceByEmail(email);
 
-    private NotificationDto toDto(Notification notification) {
-        return new NotificationDto(
-                notification.getId(),
-                notification.getType(),
-                notification.getTitle(),
-                notification.getMessage(),
-                notification.getRelatedEntityId(),
-                notification.getIsRead(),
-                notification.getCreatedAt()
-        );
+        if (notificationRepository.markAllAsRead(user.getId()) > 0) {
+            unreadCounterService.allNotificationsRead(user.getId());
+        }
     }
 }
@@ -11,6 +11,7 @@ import org.dev.powermarket.domain.enums.AvailabilityStatus;
 import org.dev.powermarket.repository.CapacityReservationRepository;
 import org.dev.powermarket.repository.ServiceAvailabilityPeriodRepository;
 import org.dev.powermarket.repository.ServiceRepository;
+import org.dev.powermarket.service.capacity.CapacityTimeline;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
@@ -26,7 +27,6 @@ public class PeriodAvailabilityService {
     private final ServiceRepository serviceRepository;
     private final ServiceAvailabilityPeriodRepository periodRepository;
     private final CapacityReservationRepository reservationRepository;
-    private final CapacityManagementService capacityManagementService;
 
     /**
      * Найти доступные периоды для сервиса с учетом требуемой мощности
@@ -43,99 +43,63 @@ public class PeriodAvailabilityService {
         List<ServiceAvailabilityPeriod> availabilityPeriods = periodRepository.findPeriodsInRange(
                 service, request.startDate(), request.endDate());
 
+        if (availabilityPeriods.isEmpty()) {
+            return availablePeriods;
+        }
+
+        // Бронирования загружаем один раз на весь охват периодов
+        List<CapacityReservation> reservations = reservationRepository.findOverlappingReservations(
+                service, earliestStart(availabilityPeriods), latestEnd(availabilityPeriods));
+        CapacityTimeline timeline = CapacityTimeline.of(availabilityPeriods, reservations);
+
         for (ServiceAvailabilityPeriod period : availabilityPeriods) {
             // Для каждого периода доступности находим доступные подпериоды
-            List<AvailablePeriodResponse> subPeriods = findAvailableSubPeriods(
-                    service, period, request.requiredCapacity());
-            availablePeriods.addAll(subPeriods);
+            availablePeriods.addAll(findAvailableSubPeriods(
+                    service, timeline, period, request.requiredCapacity()));
         }
 
         return availablePeriods;
     }
 
     /**
-     * Найти доступные подпериоды в рамках одного периода доступности
-     * НОВЫЙ АЛГОРИТМ: учитывает пересекающиеся бронирования и находит все доступные промежутки
+     * Найти доступные подпериоды в рамках одного периода доступности.
+     * Sweep-line по границам бронирований: занятая мощность пересчитывается только в точках
+     * начала/окончания бронирований, без обращений к БД. Подряд идущие подходящие отрезки
+     * объединяются в один подпериод с минимальной свободной мощностью по нему.
      */
-    private List<AvailablePeriodResponse> findAvailableSubPeriods(
-            Service service, ServiceAvailabilityPeriod period, BigDecimal requiredCapacity) {
-
+    private List<AvailablePeriodResponse> findAvailableSubPeriods(Service service,
+                                                                  CapacityTimeline timeline,
+                                                                  ServiceAvailabilityPeriod period,
+                                                                  BigDecimal requiredCapacity) {
         List<AvailablePeriodResponse> availablePeriods = new ArrayList<>();
-
-        // Находим все бронирования, которые пересекаются с этим периодом
-        List<CapacityReservation> overlappingReservations = reservationRepository
-                .findOverlappingReservations(service, period.getStartDate(), period.getEndDate());
-
-        // Если нет бронирований - весь период доступен
-        if (overlappingReservations.isEmpty()) {
-            if (isPeriodFullyAvailable(service, period.getStartDate(), period.getEndDate(), requiredCapacity)) {
-                BigDecimal minAvailableCapacity = findMinAvailableCapacityInPeriod(
-                        service, period.getStartDate(), period.getEndDate());
-                availablePeriods.add(createAvailablePeriodResponse(
-                        service, period.getStartDate(), period.getEndDate(), requiredCapacity, minAvailableCapacity));
+        LocalDate runStart = null;
+        LocalDate runEnd = null;
+        BigDecimal runMinCapacity = null;
+
+        // Отрезки идут подряд без пропусков, поэтому подпериод прерывает только неподходящий отрезок
+        for (CapacityTimeline.FreeSegment segment : timeline.freeSegments(
+                period.getStartDate(), period.getEndDate(), period.getTotalCapacity())) {
+            if (segment.freeCapacity().compareTo(requiredCapacity) >= 0) {
+                if (runStart == null) {
+                    runStart = segment.startDate();
+                    runMinCapacity = segment.freeCapacity();
+                } else {
+                    runMinCapacity = runMinCapacity.min(segment.freeCapacity());
+                }
+                runEnd = segment.endDate();
+            } else if (runStart != null) {
+                availablePeriods.add(createAvailablePeriodResponse(service, runStart, runEnd, requiredCapacity,
+                        runMinCapacity.min(service.getMaxCapacity())));
+                runStart = null;
             }
-            return availablePeriods;
-        }
-
-        // Создаем список всех значимых дат (начала и концы периодов и бронирований)
-        TreeSet<LocalDate> significantDates = new TreeSet<>();
-        significantDates.add(period.getStartDate());
-        significantDates.add(period.getEndDate().plusDays(1)); // +1 чтобы включить последний день
-
-        for (CapacityReservation reservation : overlappingReservations) {
-            significantDates.add(reservation.getStartDate());
-            significantDates.add(reservation.getEndDate().plusDays(1)); // +1 чтобы включить последний день
         }
-
-        // Преобразуем в отсортированный список
-        List<LocalDate> dates = new ArrayList<>(significantDates);
-        Collections.sort(dates);
-
-        // Проверяем каждый промежуток между значимыми датами
-        for (int i = 0; i < dates.size() - 1; i++) {
-            LocalDate intervalStart = dates.get(i);
-            LocalDate intervalEnd = dates.get(i + 1).minusDays(1); // -1 чтобы вернуть к нормальным датам
-
-            // Убедимся, что промежуток не выходит за границы периода
-            if (intervalStart.isBefore(period.getStartDate())) {
-                intervalStart = period.getStartDate();
-            }
-            if (intervalEnd.isAfter(period.getEndDate())) {
-                intervalEnd = period.getEndDate();
-            }
-
-            // Пропускаем некорректные промежутки
-            if (intervalStart.isAfter(intervalEnd)) {
-                continue;
-            }
-
-            // Проверяем доступность этого промежутка
-            if (isPeriodFullyAvailable(service, intervalStart, intervalEnd, requiredCapacity)) {
-                BigDecimal minAvailableCapacity = findMinAvailableCapacityInPeriod(
-                        service, intervalStart, intervalEnd);
-                availablePeriods.add(createAvailablePeriodResponse(
-                        service, intervalStart, intervalEnd, requiredCapacity, minAvailableCapacity));
-            }
+        if (runStart != null) {
+            availablePeriods.add(createAvailablePeriodResponse(service, runStart, runEnd, requiredCapacity,
+                    runMinCapacity.min(service.getMaxCapacity())));
         }
 
         return availablePeriods;
     }
-    /**
-     * Проверить, что в периоде достаточно доступной мощности на КАЖДЫЙ день
-     */
-    private boolean isPeriodFullyAvailable(Service service, LocalDate startDate,
-                                           LocalDate endDate, BigDecimal requiredCapacity) {
-        LocalDate current = startDate;
-        while (!current.isAfter(endDate)) {
-            BigDecimal availableCapacity = capacityManagementService.getAvailableCapacityForDate(
-                    service.getId(), current);
-            if (availableCapacity.compareTo(requiredCapacity) < 0) {
-                return false;
-            }
-            current = current.plusDays(1);
-        }
-        return true;
-    }
 
     private AvailablePeriodResponse createAvailablePeriodResponse(Service service,
                                                                   LocalDate startDate,
@@ -155,26 +119,6 @@ public class PeriodAvailabilityService {
         );
     }
 
-    /**
-     * Найти минимальную доступную мощность в периоде
-     */
-    private BigDecimal findMinAvailableCapacityInPeriod(Service service, LocalDate startDate,
-                                                        LocalDate endDate) {
-        BigDecimal minAvailableCapacity = service.getMaxCapacity();
-        LocalDate current = startDate;
-
-        while (!current.isAfter(endDate)) {
-            BigDecimal availableCapacity = capacityManagementService.getAvailableCapacityForDate(
-                    service.getId(), current);
-            if (availableCapacity.compareTo(minAvailableCapacity) < 0) {
-                minAvailableCapacity = availableCapacity;
-            }
-            current = current.plusDays(1);
-        }
-
-        return minAvailableCapacity;
-    }
-
     /**
      * Получить детальную информацию о доступности сервиса
      */
@@ -188,12 +132,20 @@ public class PeriodAvailabilityService {
         List<ServiceAvailabilityPeriod> periods = periodRepository.findPeriodsInRange(
                 service, startDate, endDate);
 
-        // Находим бронирования
-        List<CapacityReservation> reservations = reservationRepository.findOverlappingReservations(
-                service, startDate, endDate);
+        // Находим бронирования (одним запросом на запрошенный диапазон и охват периодов)
+        LocalDate reservationsFrom = startDate;
+        LocalDate reservationsTo = endDate;
+        if (!periods.isEmpty()) {
+            reservationsFrom = min(reservationsFrom, earliestStart(periods));
+            reservationsTo = max(reservationsTo, latestEnd(periods));
+        }
+        List<CapacityReservation> reservations = reservationRepository.findByServiceAndDateRangeWithTenant(
+                service, reservationsFrom, reservationsTo);
 
         List<ServiceAvailabilityResponse.AvailablePeriod> availablePeriods = new ArrayList<>();
         List<ServiceAvailabilityResponse.ReservedPeriod> reservedPeriods = reservations.stream()
+                .filter(reservation -> !reservation.getStartDate().isAfter(endDate)
+                        && !reservation.getEndDate().isBefore(startDate))
                 .map(reservation -> new ServiceAvailabilityResponse.ReservedPeriod(
                         reservation.getStartDate(),
                         reservation.getEndDate(),
@@ -202,10 +154,12 @@ public class PeriodAvailabilityService {
                 ))
                 .toList();
 
+        CapacityTimeline timeline = CapacityTimeline.of(periods, reservations);
+
         // Для каждого периода доступности находим доступные подпериоды
         for (ServiceAvailabilityPeriod period : periods) {
             List<AvailablePeriodResponse> availableSubPeriods = findAvailableSubPeriods(
-                    service, period, BigDecimal.ONE); // Минимальная мощность для отображения
+                    service, timeline, period, BigDecimal.ONE); // Минимальная мощность для отображения
 
             for (AvailablePeriodResponse availablePeriod : availableSubPeriods) {
                 availablePeriods.add(new ServiceAvailabilityResponse.AvailablePeriod(
@@ -246,4 +200,20 @@ public class PeriodAvailabilityService {
 
         return AvailabilityStatus.PARTIAL;
     }
+
+    private static LocalDate earliestStart(List<ServiceAvailabilityPeriod> periods) {
+        return periods.stream().map(ServiceAvailabilityPeriod::getStartDate).min(Comparator.naturalOrder()).orElseThrow();
+    }
+
+    private static LocalDate latestEnd(List<ServiceAvailabilityPeriod> periods) {
+        return periods.stream().map(ServiceAvailabilityPeriod::getEndDate).max(Comparator.naturalOrder()).orElseThrow();
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
 }
@@ -4,8 +4,8 @@ import lombok.RequiredArgsConstructor;
 import org.dev.powermarket.domain.Rental;
 import org.dev.powermarket.exception.RentalNotFoundException;
 import org.dev.powermarket.repository.RentalRepository;
-import org.dev.powermarket.security.entity.User;
-import org.dev.powermarket.security.repository.AuthorizedUserRepository;
+import org.dev.powermarket.security.service.CachedUser;
+import org.dev.powermarket.security.service.UserLookupService;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 
@@ -16,20 +16,21 @@ import java.util.UUID;
 public class RentalAccessService {
 
     private final RentalRepository rentalRepository;
-    private final AuthorizedUserRepository userRepository;
+    private final UserLookupService userLookupService;
 
     /**
      * Проверяет доступ пользователя к аренде и возвращает аренду, если доступ есть
      */
     public Rental getRentalWithAccessCheck(UUID rentalId, String userEmail) {
-        User user = userRepository.findByEmail(userEmail)
+        UUID userId = userLookupService.findByEmail(userEmail)
+                .map(CachedUser::id)
                 .orElseThrow(() -> new IllegalArgumentException("Пользователь не найден"));
 
         Rental rental = rentalRepository.findById(rentalId)
                 .orElseThrow(() -> new RentalNotFoundException(
                         String.format("Не найдена Аренда по Rental id %s", rentalId)));
 
-        checkUserRelatedToRental(user.getId(), rental);
+        checkUserRelatedToRental(userId, rental);
         return rental;
     }
 
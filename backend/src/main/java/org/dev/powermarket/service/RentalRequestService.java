@@ -2,13 +2,15 @@ package org.dev.powermarket.service;
 
 import lombok.RequiredArgsConstructor;
 import org.dev.powermarket.domain.*;
-import org.dev.powermarket.domain.enums.NotificationType;
 import org.dev.powermarket.domain.enums.RentalRequestStatus;
 import org.dev.powermarket.domain.enums.Role;
 import org.dev.powermarket.repository.*;
 import org.dev.powermarket.security.entity.User;
 import org.dev.powermarket.security.repository.AuthorizedUserRepository;
 import org.dev.powermarket.service.dto.*;
+import org.dev.powermarket.service.outbox.OutboxService;
+import org.dev.powermarket.service.outbox.RentalEventPayload;
+import org.dev.powermarket.service.outbox.RentalEventType;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
@@ -27,8 +29,7 @@ public class RentalRequestService {
     private final RentalRequestRepository rentalRequestRepository;
     private final ServiceRepository serviceRepository;
     private final AuthorizedUserRepository userRepository;
-    private final NotificationRepository notificationRepository;
-//    private final EmailService emailService;
+    private final OutboxService outboxService;
     private final RentalService rentalService;
     private final RentalRepository rentalRepository;
     private final ChatRepository chatRepository;
@@ -101,16 +102,7 @@ public class RentalRequestService {
         savedRental.setChat(savedChat);
         rentalRepository.save(savedRental);
 
-        // Create notification for supplier
-        createNotification(
-                service.getSupplier(),
-                NotificationType.NEW_RENTAL_REQUEST,
-                "Новый запрос на аренду",
-                String.format("Пользователь %s запросил аренду услуги '%s' с %s по %s",
-                        tenant.getFullName(), service.getTitle(),
-                        request.getStartDate(), request.getEndDate()),
-                saved.getId()
-        );
+        publishEvent(saved, savedRental, RentalEventType.REQUEST_CREATED);
 
         return toDto(saved);
     }
@@ -139,29 +131,13 @@ public class RentalRequestService {
             // Create rental and chat
             rentalService.createRentalFromRequest(rentalRequest);
 
-            // Create notification for tenant
-            createNotification(
-                    rentalRequest.getTenant(),
-                    NotificationType.REQUEST_APPROVED,
-                    "Запрос одобрен",
-                    String.format("Ваш запрос на аренду услуги '%s' был одобрен",
-                            rentalRequest.getService().getTitle()),
-                    rentalRequest.getId()
-            );
+            publishEvent(rentalRequest, rentalRequest.getRental(), RentalEventType.REQUEST_APPROVED);
         } else {
             rentalRequest.setStatus(RentalRequestStatus.REJECTED);
             rentalRequest.setRejectionReason(request.getRejectionReason());
             rentalRequest.setRespondedAt(Instant.now());
 
-            // Create notification for tenant
-            createNotification(
-                    rentalRequest.getTenant(),
-                    NotificationType.REQUEST_REJECTED,
-                    "Запрос отклонен",
-                    String.format("Ваш запрос на аренду услуги '%s' был отклонен",
-                            rentalRequest.getService().getTitle()),
-                    rentalRequest.getId()
-            );
+            publishEvent(rentalRequest, rentalRequest.getRental(), RentalEventType.REQUEST_REJECTED);
         }
 
         RentalRequest updated = rentalRequestRepository.save(rentalRequest);
@@ -228,19 +204,12 @@ public class RentalRequestService {
         return toDto(request);
     }
 
-    private void createNotification(User user, NotificationType type, String title,
-                                    String message, UUID relatedEntityId) {
-        Notification notification = new Notification();
-        notification.setUser(user);
-        notification.setType(type);
-        notification.setTitle(title);
-        notification.setMessage(message);
-        notification.setRelatedEntityId(relatedEntityId);
-        notification.setIsRead(false);
-        notificationRepository.save(notification);
-
-        // Отправляем e-mail с изменением статуса сделки
-//        emailService.sendDealStatusEmail(user, notification);
+    /**
+     * Записать событие заявки в outbox в рамках текущей транзакции
+     */
+    private void publishEvent(RentalRequest request, Rental rental, RentalEventType type) {
+        outboxService.publish(RentalEventType.AGGREGATE_TYPE, request.getId(), type.name(),
+                RentalEventPayload.of(request, rental));
     }
 
     private RentalRequestDto toDto(RentalRequest request) {
@@ -3,13 +3,15 @@ package org.dev.powermarket.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.dev.powermarket.domain.*;
-import org.dev.powermarket.domain.enums.NotificationType;
 import org.dev.powermarket.domain.enums.RentalRequestStatus;
 import org.dev.powermarket.repository.*;
 import org.dev.powermarket.security.entity.User;
 import org.dev.powermarket.security.repository.AuthorizedUserRepository;
 import org.dev.powermarket.service.dto.RentalDto;
 import org.dev.powermarket.service.dto.RentalStatsDto;
+import org.dev.powermarket.service.outbox.OutboxService;
+import org.dev.powermarket.service.outbox.RentalEventPayload;
+import org.dev.powermarket.service.outbox.RentalEventType;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -30,7 +32,7 @@ public class RentalService {
     private final ChatRepository chatRepository;
     private final AuthorizedUserRepository userRepository;
     private final RentalRequestRepository rentalRequestRepository;
-    private final NotificationRepository notificationRepository;
+    private final OutboxService outboxService;
     private final CapacityManagementService capacityManagementService;
 
 
@@ -98,24 +100,12 @@ public class RentalService {
             rental.setSupplierConfirmed(true);
             rental.setSupplierConfirmedAt(now);
 
-            createNotification(
-                    rental.getTenant(),
-                    NotificationType.REQUEST_APPROVED,
-                    "Арендодатель подтвердил аренду",
-                    String.format("Арендодатель подтвердил аренду '%s'", rental.getService().getTitle()),
-                    rental.getId()
-            );
+            publishEvent(rental, RentalEventType.SUPPLIER_CONFIRMED);
         } else if (isTenant && !rental.getTenantConfirmed()) {
             rental.setTenantConfirmed(true);
             rental.setTenantConfirmedAt(now);
 
-            createNotification(
-                    rental.getSupplier(),
-                    NotificationType.REQUEST_APPROVED,
-                    "Арендатор подтвердил аренду",
-                    String.format("Арендатор подтвердил аренду '%s'", rental.getService().getTitle()),
-                    rental.getId()
-            );
+            publishEvent(rental, RentalEventType.TENANT_CONFIRMED);
         } else {
             throw new IllegalArgumentException("You have already confirmed this rental");
         }
@@ -130,6 +120,7 @@ public class RentalService {
                     request.getEndDate(),
                     request.getCapacityNeeded()
             );
+            publishEvent(rental, RentalEventType.RENTAL_CONFIRMED);
         }
 
         Rental saved = rentalRepository.save(rental);
@@ -154,6 +145,7 @@ public class RentalService {
 
         request.setStatus(RentalRequestStatus.IN_RENT);
         rentalRequestRepository.save(request);
+        publishEvent(rental, RentalEventType.RENTAL_STARTED);
 
         return toDto(rental);
     }
@@ -180,22 +172,7 @@ public class RentalService {
 
         capacityManagementService.releaseCapacity(rental);
 
-        // Notify both parties
-        createNotification(
-                rental.getSupplier(),
-                NotificationType.REQUEST_APPROVED,
-                "Аренда завершена",
-                String.format("Аренда '%s' завершена. Оставьте отзыв!", rental.getService().getTitle()),
-                rental.getId()
-        );
-
-        createNotification(
-                rental.getTenant(),
-                NotificationType.REQUEST_APPROVED,
-                "Аренда завершена",
-                String.format("Аренда '%s' завершена. Оставьте отзыв!", rental.getService().getTitle()),
-                rental.getId()
-        );
+        publishEvent(rental, RentalEventType.RENTAL_COMPLETED);
 
         return toDto(rental);
     }
@@ -257,16 +234,12 @@ public class RentalService {
         return toDto(rental);
     }
 
-    private void createNotification(User user, NotificationType type, String title,
-                                    String message, UUID relatedEntityId) {
-        Notification notification = new Notification();
-        notification.setUser(user);
-        notification.setType(type);
-        notification.setTitle(title);
-        notification.setMessage(message);
-        notification.setRelatedEntityId(relatedEntityId);
-        notification.setIsRead(false);
-        notificationRepository.save(notification);
+    /**
+     * Записать событие аренды в outbox в рамках текущей транзакции
+     */
+    private void publishEvent(Rental rental, RentalEventType type) {
+        outboxService.publish(RentalEventType.AGGREGATE_TYPE, rental.getRentalRequest().getId(), type.name(),
+                RentalEventPayload.of(rental.getRentalRequest(), rental));
     }
 
     private RentalDto toDto(Rental rental) {
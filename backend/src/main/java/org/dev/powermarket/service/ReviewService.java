@@ -8,6 +8,10 @@ import org.dev.powermarket.security.entity.User;
 import org.dev.powermarket.security.repository.AuthorizedUserRepository;
 import org.dev.powermarket.service.dto.CreateReviewRequest;
 import org.dev.powermarket.service.dto.ReviewDto;
+import org.dev.powermarket.service.notification.NotificationDispatcher;
+import org.dev.powermarket.service.outbox.OutboxService;
+import org.dev.powermarket.service.outbox.ServiceEventPayload;
+import org.dev.powermarket.service.outbox.ServiceEventType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.AccessDeniedException;
@@ -28,18 +32,21 @@ public class ReviewService {
     private final RentalRepository rentalRepository;
     private final ServiceRepository serviceRepository;
     private final AuthorizedUserRepository userRepository;
-    private final NotificationRepository notificationRepository;
+    private final NotificationDispatcher notificationDispatcher;
+    private final OutboxService outboxService;
 
     public ReviewService(ReviewRepository reviewRepository,
                          RentalRepository rentalRepository,
                          ServiceRepository serviceRepository,
                          AuthorizedUserRepository userRepository,
-                         NotificationRepository notificationRepository) {
+                         NotificationDispatcher notificationDispatcher,
+                         OutboxService outboxService) {
         this.reviewRepository = reviewRepository;
         this.rentalRepository = rentalRepository;
         this.serviceRepository = serviceRepository;
         this.userRepository = userRepository;
-        this.notificationRepository = notificationRepository;
+        this.notificationDispatcher = notificationDispatcher;
+        this.outboxService = outboxService;
     }
 
     @Transactional
@@ -89,8 +96,8 @@ public class ReviewService {
         updateUserRating(reviewedUser);
 
         // Create notification
-        createNotification(
-                reviewedUser,
+        notificationDispatcher.dispatch(
+                reviewedUser.getId(),
                 NotificationType.NEW_RENTAL_REQUEST,
                 "Новый отзыв",
                 String.format("%s оставил отзыв о сотрудничестве", reviewer.getFullName()),
@@ -135,6 +142,9 @@ public class ReviewService {
         service.setTotalReviews(totalReviews != null ? totalReviews.intValue() : 0);
 
         serviceRepository.save(service);
+        // Рейтинг есть в документе поискового индекса
+        outboxService.publish(ServiceEventType.AGGREGATE_TYPE, service.getId(),
+                ServiceEventType.SERVICE_RATING_CHANGED.name(), new ServiceEventPayload(service.getId()));
     }
 
     private void updateUserRating(User user) {
@@ -149,18 +159,6 @@ public class ReviewService {
         userRepository.save(user);
     }
 
-    private void createNotification(User user, NotificationType type, String title,
-                                    String message, UUID relatedEntityId) {
-        Notification notification = new Notification();
-        notification.setUser(user);
-        notification.setType(type);
-        notification.setTitle(title);
-        notification.setMessage(message);
-        notification.setRelatedEntityId(relatedEntityId);
-        notification.setIsRead(false);
-        notificationRepository.save(notification);
-    }
-
     private ReviewDto toDto(Review review) {
         ReviewDto dto = new ReviewDto();
         dto.setId(review.getId());
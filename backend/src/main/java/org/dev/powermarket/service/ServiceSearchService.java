@@ -1,13 +1,19 @@
 package org.dev.powermarket.service;
 
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import org.dev.powermarket.domain.Service;
+import org.dev.powermarket.domain.dto.request.FacetedServiceSearchRequest;
 import org.dev.powermarket.domain.dto.request.ServiceSearchByCategoryRequest;
+import org.dev.powermarket.domain.dto.response.FacetedSearchResponse;
 import org.dev.powermarket.domain.dto.response.ServiceSearchResultResponse;
 import org.dev.powermarket.domain.enums.AvailabilityStatus;
 import org.dev.powermarket.domain.enums.ServiceCategory;
 import org.dev.powermarket.repository.ServiceRepository;
+import org.dev.powermarket.service.capacity.CapacitySnapshot;
+import org.dev.powermarket.service.search.ServiceFacetSearch;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,10 +21,14 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 @org.springframework.stereotype.Service
 @Transactional(readOnly = true)
@@ -28,6 +38,10 @@ public class ServiceSearchService {
     private final ServiceRepository serviceRepository;
     private final CapacityManagementService capacityManagementService;
     private final PeriodAvailabilityService periodAvailabilityService;
+    private final EntityManager entityManager;
+    private final ServiceFacetSearch serviceFacetSearch;
+
+    private static final int GROUPING_CHUNK_SIZE = 200;
 
     /**
      * Поиск сервисов по категории и минимальной мощности
@@ -57,34 +71,76 @@ public class ServiceSearchService {
             );
         }
 
+        // Доступность считаем сразу для всей страницы
+        Map<UUID, CapacitySnapshot> availability = loadAvailability(services.getContent(), searchRequest);
+
         // Конвертируем в Response с информацией о доступности
-        return services.map(service -> convertToSearchResultResponse(service, searchRequest));
+        return services.map(service -> convertToSearchResultResponse(service, availability.get(service.getId())));
+    }
+
+    /**
+     * Поиск по любому набору критериев со счетчиками по категориям и ценовым диапазонам.
+     * Страница, total и фасеты считаются одним запросом, услуги страницы догружаются по id.
+     */
+    public FacetedSearchResponse facetedSearch(FacetedServiceSearchRequest searchRequest) {
+        ServiceFacetSearch.Result found = serviceFacetSearch.search(searchRequest);
+
+        // Порядок задает запрос, findAllWithSupplierByIdIn его не сохраняет
+        Map<UUID, Service> byId = new HashMap<>();
+        if (!found.ids().isEmpty()) {
+            serviceRepository.findAllWithSupplierByIdIn(found.ids()).forEach(service -> byId.put(service.getId(), service));
+        }
+        List<Service> services = found.ids().stream().map(byId::get).filter(Objects::nonNull).toList();
+
+        Map<UUID, CapacitySnapshot> availability = loadAvailability(services, searchRequest.availableFrom(),
+                searchRequest.availableTo(), searchRequest.minCapacity() != null ? searchRequest.minCapacity() : BigDecimal.ZERO);
+        List<ServiceSearchResultResponse> content = services.stream()
+                .map(service -> convertToSearchResultResponse(service, availability.get(service.getId())))
+                .toList();
+
+        Page<ServiceSearchResultResponse> results = new PageImpl<>(
+                content, PageRequest.of(searchRequest.page(), searchRequest.size()), found.total());
+        return new FacetedSearchResponse(results, found.categories(), found.priceBuckets());
+    }
+
+    /**
+     * Доступность для пачки сервисов одним вызовом
+     */
+    private Map<UUID, CapacitySnapshot> loadAvailability(List<Service> services,
+                                                         ServiceSearchByCategoryRequest searchRequest) {
+        return loadAvailability(services, searchRequest.availableFrom(), searchRequest.availableTo(),
+                searchRequest.minCapacity());
+    }
+
+    private Map<UUID, CapacitySnapshot> loadAvailability(List<Service> services, LocalDate availableFrom,
+                                                         LocalDate availableTo, BigDecimal minCapacity) {
+        if (services.isEmpty()) {
+            return Map.of();
+        }
+        List<UUID> serviceIds = services.stream().map(Service::getId).toList();
+        return capacityManagementService.getCapacitySnapshots(
+                serviceIds,
+                LocalDate.now(),
+                availableFrom,
+                availableTo,
+                minCapacity
+        );
     }
 
     /**
      * Конвертировать Service в ServiceSearchResultResponse с информацией о доступности
      */
-    private ServiceSearchResultResponse convertToSearchResultResponse(
-            Service service, ServiceSearchByCategoryRequest searchRequest) {
+    private ServiceSearchResultResponse convertToSearchResultResponse(Service service, CapacitySnapshot snapshot) {
 
-        // Получаем текущую доступную мощность
-        BigDecimal currentAvailableCapacity = capacityManagementService.getAvailableCapacityForDate(
-                service.getId(), LocalDate.now());
+        // Текущая доступная мощность
+        BigDecimal currentAvailableCapacity = snapshot.currentAvailableCapacity();
 
         // Определяем статус доступности
         AvailabilityStatus availabilityStatus = determineAvailabilityStatus(
                 service, currentAvailableCapacity);
 
-        // Проверяем доступность для запрошенных дат (если указаны)
-        Boolean isAvailableForRequestedDates = null;
-        if (searchRequest.availableFrom() != null && searchRequest.availableTo() != null) {
-            isAvailableForRequestedDates = isServiceAvailableForPeriod(
-                    service,
-                    searchRequest.availableFrom(),
-                    searchRequest.availableTo(),
-                    searchRequest.minCapacity()
-            );
-        }
+        // Доступность для запрошенных дат (null, если даты не указаны)
+        Boolean isAvailableForRequestedDates = snapshot.availableForPeriod();
 
         return new ServiceSearchResultResponse(
                 service.getId(),
@@ -120,19 +176,6 @@ public class ServiceSearchService {
         }
     }
 
-    /**
-     * Проверить доступность сервиса на период
-     */
-    private Boolean isServiceAvailableForPeriod(Service service, LocalDate startDate,
-                                                LocalDate endDate, BigDecimal requiredCapacity) {
-        try {
-            return capacityManagementService.isCapacityAvailable(
-                    service.getId(), startDate, endDate, requiredCapacity);
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
     /**
      * Получить сервисы с самой высокой доступной мощностью в категории
      */
@@ -142,56 +185,61 @@ public class ServiceSearchService {
         Page<Service> servicePage = serviceRepository.findByCategoryAndMinCapacity(
                 category, minCapacity, PageRequest.of(0, Math.max(limit, 50))); // Берем больше для сортировки
 
-        // ✅ ИСПРАВЛЕНИЕ: создаем новый изменяемый список
-        List<Service> services = new ArrayList<>(servicePage.getContent());
-
-        // ✅ ИСПРАВЛЕНИЕ: безопасная сортировка с обработкой исключений
-        services.sort((s1, s2) -> {
-            try {
-                BigDecimal avail1 = capacityManagementService.getAvailableCapacityForDate(s1.getId(), LocalDate.now());
-                BigDecimal avail2 = capacityManagementService.getAvailableCapacityForDate(s2.getId(), LocalDate.now());
-                return avail2.compareTo(avail1); // По убыванию
-            } catch (Exception e) {
-                // В случае ошибки считаем доступную мощность = 0
-                return BigDecimal.ZERO.compareTo(BigDecimal.ZERO);
-            }
-        });
-
-        // Ограничиваем результат заданным лимитом
-        if (services.size() > limit) {
-            services = services.subList(0, limit);
-        }
-
         ServiceSearchByCategoryRequest searchRequest = new ServiceSearchByCategoryRequest(
                 category, minCapacity, null, null, 0, limit);
 
-        return services.stream()
-                .map(service -> convertToSearchResultResponse(service, searchRequest))
+        // Свободная мощность на сегодня берется из журналов мощности один раз на кандидата,
+        // сортировка идет по уже посчитанному ключу
+        Map<UUID, CapacitySnapshot> availability = loadAvailability(servicePage.getContent(), searchRequest);
+
+        return servicePage.getContent().stream()
+                .map(service -> convertToSearchResultResponse(service, availability.get(service.getId())))
+                .sorted(Comparator.comparing(ServiceSearchResultResponse::currentAvailableCapacity).reversed())
+                .limit(limit)
                 .toList();
     }
 
     /**
-     * Поиск сервисов по категории с группировкой по доступности
+     * Поиск сервисов по категории с группировкой по доступности.
+     * Сервисы читаются потоком и обрабатываются пачками: доступность считается одним вызовом на пачку,
+     * после чего сущности отсоединяются, чтобы контекст персистентности не рос вместе с каталогом.
      */
     public Map<AvailabilityStatus, List<ServiceSearchResultResponse>> findServicesGroupedByAvailability(
             ServiceCategory category, BigDecimal minCapacity) {
 
-        List<Service> services = serviceRepository.findByCategoryAndMinCapacity(
-                category, minCapacity, Pageable.unpaged()).getContent();
-
+        ServiceSearchByCategoryRequest searchRequest =
+                new ServiceSearchByCategoryRequest(category, minCapacity, null, null, 0, GROUPING_CHUNK_SIZE);
         Map<AvailabilityStatus, List<ServiceSearchResultResponse>> groupedResults = new HashMap<>();
+        List<Service> chunk = new ArrayList<>(GROUPING_CHUNK_SIZE);
+
+        try (Stream<Service> services = serviceRepository.streamByCategoryAndMinCapacity(category, minCapacity)) {
+            Iterator<Service> iterator = services.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == GROUPING_CHUNK_SIZE || !iterator.hasNext()) {
+                    groupChunk(chunk, searchRequest, groupedResults);
+                    chunk.clear();
+                }
+            }
+        }
 
-        for (Service service : services) {
-            BigDecimal currentAvailableCapacity = capacityManagementService.getAvailableCapacityForDate(
-                    service.getId(), LocalDate.now());
-            AvailabilityStatus status = determineAvailabilityStatus(service, currentAvailableCapacity);
+        return groupedResults;
+    }
 
-            ServiceSearchResultResponse response = convertToSearchResultResponse(service,
-                    new ServiceSearchByCategoryRequest(category, minCapacity, null, null, 0, 100));
+    private void groupChunk(List<Service> chunk, ServiceSearchByCategoryRequest searchRequest,
+                            Map<AvailabilityStatus, List<ServiceSearchResultResponse>> groupedResults) {
+        // Журналы мощности пачки в кэш не кладем, иначе куча растет вместе с каталогом
+        Map<UUID, CapacitySnapshot> availability = capacityManagementService.computeCapacitySnapshots(
+                chunk.stream().map(Service::getId).toList(), LocalDate.now(), null, null, searchRequest.minCapacity());
 
-            groupedResults.computeIfAbsent(status, k -> new ArrayList<>()).add(response);
+        for (Service service : chunk) {
+            ServiceSearchResultResponse response = convertToSearchResultResponse(
+                    service, availability.get(service.getId()));
+
+            groupedResults.computeIfAbsent(response.availabilityStatus(), k -> new ArrayList<>()).add(response);
         }
 
-        return groupedResults;
+        // Ответы уже собраны, сущности пачки (и подгруженные периоды/бронирования) больше не нужны
+        entityManager.clear();
     }
-}
\ No newline at end of file
+}
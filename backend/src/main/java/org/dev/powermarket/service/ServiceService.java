@@ -8,17 +8,26 @@ import org.dev.powermarket.security.entity.User;
 import org.dev.powermarket.domain.enums.Role;
 import org.dev.powermarket.domain.enums.ServiceCategory;
 import org.dev.powermarket.repository.ServiceRepository;
-import org.dev.powermarket.integration.search.MlSearchClient;
 import org.dev.powermarket.integration.search.MlSearchProperties;
+import org.dev.powermarket.service.outbox.OutboxService;
+import org.dev.powermarket.service.outbox.ServiceEventPayload;
+import org.dev.powermarket.service.outbox.ServiceEventType;
+import org.dev.powermarket.service.search.MlSearchPager;
+import org.dev.powermarket.service.search.SearchResultCache;
+import org.dev.powermarket.service.search.ServiceFullTextSearch;
+import org.dev.powermarket.service.search.ServiceSearchIndex;
 
 import java.util.Comparator;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 
 import org.dev.powermarket.security.repository.AuthorizedUserRepository;
 import org.dev.powermarket.service.dto.*;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -31,8 +40,13 @@ public class ServiceService {
     private final ServiceRepository serviceRepository;
     private final ServiceAvailabilityPeriodRepository availabilityPeriodRepository;
     private final AuthorizedUserRepository userRepository;
-    private final MlSearchClient mlSearchClient;
+    private final SearchResultCache searchResultCache;
+    private final MlSearchPager mlSearchPager;
+    private final ServiceSearchIndex serviceSearchIndex;
+    private final ServiceFullTextSearch serviceFullTextSearch;
     private final MlSearchProperties mlSearchProperties;
+    private final OutboxService outboxService;
+    private final CapacityManagementService capacityManagementService;
 
 
     @Transactional
@@ -56,6 +70,9 @@ public class ServiceService {
         service.setIsActive(true);
 
         Service saved = serviceRepository.save(service);
+        searchResultCache.invalidateAll();
+        serviceSearchIndex.index(saved);
+        publishEvent(saved.getId(), ServiceEventType.SERVICE_CREATED);
 
         if (request.getAvailabilities() != null) {
             for (CreateServiceRequest.AvailabilityPeriod period : request.getAvailabilities()) {
@@ -67,6 +84,8 @@ public class ServiceService {
 
                 availabilityPeriodRepository.save(availabilityPeriod);
             }
+            // Журнал мощности мог быть построен до появления периодов
+            capacityManagementService.evictLedger(saved.getId());
         }
 
         return toDto(saved);
@@ -93,41 +112,62 @@ public class ServiceService {
         if (request.getActive() != null) service.setIsActive(request.getActive());
 
         Service updated = serviceRepository.save(service);
+        searchResultCache.invalidateAll();
+        serviceSearchIndex.index(updated);
+        publishEvent(updated.getId(), ServiceEventType.SERVICE_UPDATED);
         return toDto(updated);
     }
 
-    @Transactional(readOnly = true)
+    // Без собственной транзакции: иначе соединение с БД удерживается на время вызова ML-поиска.
+    // Запросы к репозиторию открывают свои короткие транзакции. Требует spring.jpa.open-in-view=false,
+    // иначе сессия и соединение все равно удерживаются на весь HTTP-запрос. Поставщик ленивый,
+    // поэтому DTO строятся только из findInOrder, который загружает его тем же запросом.
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public Page<ServiceDto> searchServices(String keyword, ServiceCategory category,
+                                           BigDecimal minCapacity, String location,
                                            LocalDate startDate, LocalDate endDate, Pageable pageable) {
-        // ML-based search integration: if enabled and keyword present, delegate to ML service
-        if (keyword != null && !keyword.isBlank() && mlSearchProperties != null && mlSearchProperties.isEnabled()) {
-            var ids = mlSearchClient.searchServiceIds(keyword, pageable.getPageNumber() + 1, pageable.getPageSize());
-            if (!ids.isEmpty()) {
-                var list = serviceRepository.findByIdInAndIsActiveTrueAndDeletedFalse(ids);
-                // Preserve ML order
-                var order = new java.util.HashMap<UUID, Integer>();
-                for (int i = 0; i < ids.size(); i++) order.put(ids.get(i), i);
-                var sorted = list.stream()
-                        .sorted(Comparator.comparingInt(s -> order.getOrDefault(s.getId(), Integer.MAX_VALUE)))
-                        .map(this::toDto)
-                        .toList();
-                // Create Page
-                return new org.springframework.data.domain.PageImpl<>(sorted, pageable, sorted.size());
+        boolean hasKeyword = keyword != null && !keyword.isBlank();
+        String locationFilter = location != null && !location.isBlank() ? location.trim() : null;
+        // Фильтры, для которых нет отдельного производного запроса по категории
+        boolean hasRangeFilters = minCapacity != null || locationFilter != null || startDate != null || endDate != null;
+        // ML-поиск и встроенный индекс фильтров не знают: с фильтрами ищем в БД одним запросом
+        boolean hasFilters = category != null || hasRangeFilters;
+
+        // ML-based search integration: if enabled and keyword present, delegate to ML service.
+        // Пустой ответ (в том числе при разомкнутом предохранителе клиента) - поиск по БД ниже
+        if (hasKeyword && !hasFilters && mlSearchProperties != null && mlSearchProperties.isEnabled()) {
+            Page<UUID> ids = mlSearchPager.search(keyword, pageable);
+            if (ids.getTotalElements() > 0) {
+                return new org.springframework.data.domain.PageImpl<>(
+                        findInOrder(ids.getContent()), pageable, ids.getTotalElements());
             }
         }
 
+        // Без ML-поиска - встроенный полнотекстовый индекс, LIKE по таблице только пока он не построен
+        if (hasKeyword && !hasFilters && serviceSearchIndex.isReady()) {
+            Page<UUID> ids = serviceSearchIndex.search(keyword, pageable);
+            return new org.springframework.data.domain.PageImpl<>(
+                    findInOrder(ids.getContent()), pageable, ids.getTotalElements());
+        }
 
         Page<Service> services;
 
-        if (keyword != null && !keyword.isBlank()) {
-            services = serviceRepository.searchServices(keyword, pageable);
+        if (hasKeyword && serviceFullTextSearch.isAvailable()) {
+            // Порядок по релевантности, сортировку из запроса не передаем
+            services = serviceRepository.fullTextSearch(keyword, category != null ? category.name() : null,
+                    minCapacity, locationFilter, startDate, endDate,
+                    PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+        } else if (hasKeyword || hasRangeFilters) {
+            services = serviceRepository.searchServices(hasKeyword ? keyword : null, category,
+                    minCapacity, locationFilter, startDate, endDate, pageable);
         } else if (category != null) {
             services = serviceRepository.findByIsActiveTrueAndCategoryAndDeletedFalse(category, pageable);
         } else {
             services = serviceRepository.findByIsActiveTrueAndDeletedFalse(pageable);
         }
 
-        return services.map(this::toDto);
+        return new org.springframework.data.domain.PageImpl<>(
+                findInOrder(services.map(Service::getId).getContent()), services.getPageable(), services.getTotalElements());
     }
 
     @Transactional(readOnly = true)
@@ -162,6 +202,30 @@ public class ServiceService {
         service.setIsActive(false);
         service.setDeleted(true);
         serviceRepository.save(service);
+        searchResultCache.invalidateAll();
+        serviceSearchIndex.remove(serviceId);
+        publishEvent(serviceId, ServiceEventType.SERVICE_DELETED);
+    }
+
+    private void publishEvent(UUID serviceId, ServiceEventType type) {
+        outboxService.publish(ServiceEventType.AGGREGATE_TYPE, serviceId, type.name(), new ServiceEventPayload(serviceId));
+    }
+
+    /**
+     * Активные услуги по списку id в порядке списка
+     */
+    private List<ServiceDto> findInOrder(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        var list = serviceRepository.findActiveWithSupplierByIdIn(ids);
+        // Preserve relevance order
+        var order = new java.util.HashMap<UUID, Integer>();
+        for (int i = 0; i < ids.size(); i++) order.put(ids.get(i), i);
+        return list.stream()
+                .sorted(Comparator.comparingInt(s -> order.getOrDefault(s.getId(), Integer.MAX_VALUE)))
+                .map(this::toDto)
+                .toList();
     }
 
     private ServiceDto toDto(Service service) {
@@ -186,6 +250,7 @@ public class ServiceService {
         return dto;
     }
 
+    @Transactional(readOnly = true)
     public List<ServiceDto> getAllServices() {
         return serviceRepository.findAll().stream()
                 .map(this::toDto)
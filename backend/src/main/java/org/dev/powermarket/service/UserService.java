@@ -1,8 +1,7 @@
 package org.dev.powermarket.service;
 
 import lombok.RequiredArgsConstructor;
-import org.dev.powermarket.security.entity.User;
-import org.dev.powermarket.security.repository.AuthorizedUserRepository;
+import org.dev.powermarket.security.service.UserLookupService;
 import org.springframework.stereotype.Service;
 
 import java.util.UUID;
@@ -11,11 +10,9 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class UserService {
 
-    private final AuthorizedUserRepository userRepository;
+    private final UserLookupService userLookupService;
 
     public UUID getUserIdByEmail(String email) {
-        return userRepository.findByEmail(email)
-                .map(User::getId)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        return userLookupService.getUserIdByEmail(email);
     }
 }
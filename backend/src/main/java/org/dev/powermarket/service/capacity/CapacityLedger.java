@@ -0,0 +1,185 @@
+package org.dev.powermarket.service.capacity;
+
+import org.dev.powermarket.domain.CapacityReservation;
+import org.dev.powermarket.domain.ServiceAvailabilityPeriod;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Журнал мощности одного сервиса.
+ * <p>
+ * Хранит кусочно-постоянную функцию "мощность периода / забронировано" по дням:
+ * ключ - первый день отрезка (epoch day), значение действует до следующего ключа.
+ * Число отрезков пропорционально числу периодов и бронирований, а не длине диапазона,
+ * поэтому запрос минимума за [start, end] стоит O(log n + k), где k - число границ внутри диапазона.
+ */
+public final class CapacityLedger {
+
+    private final NavigableMap<Long, Slot> slots = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public CapacityLedger() {
+        slots.put(Long.MIN_VALUE, Slot.EMPTY);
+    }
+
+    /**
+     * Построить журнал по периодам доступности и бронированиям сервиса
+     */
+    public static CapacityLedger of(Collection<ServiceAvailabilityPeriod> periods,
+                                    Collection<CapacityReservation> reservations) {
+        CapacityLedger ledger = new CapacityLedger();
+        for (ServiceAvailabilityPeriod period : periods) {
+            ledger.addPeriod(period.getStartDate(), period.getEndDate(), period.getTotalCapacity());
+        }
+        for (CapacityReservation reservation : reservations) {
+            ledger.reserve(reservation.getStartDate(), reservation.getEndDate(), reservation.getReservedCapacity());
+        }
+        return ledger;
+    }
+
+    /**
+     * Добавить период доступности. Пересекающиеся периоды суммируются.
+     */
+    public void addPeriod(LocalDate startDate, LocalDate endDate, BigDecimal totalCapacity) {
+        update(startDate, endDate, slot -> new Slot(slot.periods() + 1, slot.capacity().add(totalCapacity), slot.reserved()));
+    }
+
+    /**
+     * Учесть бронирование мощности на период
+     */
+    public void reserve(LocalDate startDate, LocalDate endDate, BigDecimal capacity) {
+        update(startDate, endDate, slot -> new Slot(slot.periods(), slot.capacity(), slot.reserved().add(capacity)));
+    }
+
+    /**
+     * Снять бронирование мощности на период
+     */
+    public void release(LocalDate startDate, LocalDate endDate, BigDecimal capacity) {
+        update(startDate, endDate, slot -> new Slot(slot.periods(), slot.capacity(), slot.reserved().subtract(capacity)));
+    }
+
+    /**
+     * Свободная мощность на дату (0, если дата не покрыта ни одним периодом)
+     */
+    public BigDecimal freeCapacityOn(LocalDate date) {
+        lock.readLock().lock();
+        try {
+            return slots.floorEntry(date.toEpochDay()).getValue().free();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Минимальная свободная мощность за [startDate, endDate] включительно
+     */
+    public BigDecimal minFreeCapacity(LocalDate startDate, LocalDate endDate) {
+        long from = startDate.toEpochDay();
+        long to = endDate.toEpochDay();
+
+        lock.readLock().lock();
+        try {
+            BigDecimal min = slots.floorEntry(from).getValue().free();
+            for (Slot slot : slots.subMap(from, false, to, true).values()) {
+                min = min.min(slot.free());
+            }
+            return min;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Есть ли в [startDate, endDate] хотя бы один день, покрытый периодом доступности
+     */
+    public boolean hasPeriodWithin(LocalDate startDate, LocalDate endDate) {
+        long from = startDate.toEpochDay();
+        long to = endDate.toEpochDay();
+
+        lock.readLock().lock();
+        try {
+            if (slots.floorEntry(from).getValue().periods() > 0) {
+                return true;
+            }
+            for (Slot slot : slots.subMap(from, false, to, true).values()) {
+                if (slot.periods() > 0) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Количество отрезков в журнале (для тестов и метрик)
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void update(LocalDate startDate, LocalDate endDate, UnaryOperator<Slot> change) {
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date must not be before start date");
+        }
+        long from = startDate.toEpochDay();
+        long to = endDate.toEpochDay() + 1;
+
+        lock.writeLock().lock();
+        try {
+            split(from);
+            split(to);
+            for (Map.Entry<Long, Slot> entry : slots.subMap(from, true, to, false).entrySet()) {
+                entry.setValue(change.apply(entry.getValue()));
+            }
+            // Внутри диапазона изменение одинаковое, поэтому склеивать нужно только на границах
+            merge(to);
+            merge(from);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void split(long day) {
+        if (!slots.containsKey(day)) {
+            slots.put(day, slots.floorEntry(day).getValue());
+        }
+    }
+
+    private void merge(long day) {
+        Slot current = slots.get(day);
+        Map.Entry<Long, Slot> previous = slots.lowerEntry(day);
+        if (current != null && previous != null && previous.getValue().sameAs(current)) {
+            slots.remove(day);
+        }
+    }
+
+    private record Slot(int periods, BigDecimal capacity, BigDecimal reserved) {
+
+        static final Slot EMPTY = new Slot(0, BigDecimal.ZERO, BigDecimal.ZERO);
+
+        BigDecimal free() {
+            return periods == 0 ? BigDecimal.ZERO : capacity.subtract(reserved);
+        }
+
+        boolean sameAs(Slot other) {
+            return periods == other.periods
+                    && capacity.compareTo(other.capacity) == 0
+                    && reserved.compareTo(other.reserved) == 0;
+        }
+    }
+}
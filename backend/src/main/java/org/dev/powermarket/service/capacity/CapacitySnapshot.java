@@ -0,0 +1,12 @@
+package org.dev.powermarket.service.capacity;
+
+import java.math.BigDecimal;
+
+/**
+ * Доступность сервиса для выдачи поиска.
+ *
+ * @param currentAvailableCapacity свободная мощность на текущую дату
+ * @param availableForPeriod       хватает ли мощности на запрошенный период (null, если даты не заданы)
+ */
+public record CapacitySnapshot(BigDecimal currentAvailableCapacity, Boolean availableForPeriod) {
+}
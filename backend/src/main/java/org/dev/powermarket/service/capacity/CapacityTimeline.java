@@ -0,0 +1,190 @@
+package org.dev.powermarket.service.capacity;
+
+import org.dev.powermarket.domain.CapacityReservation;
+import org.dev.powermarket.domain.Rental;
+import org.dev.powermarket.domain.ServiceAvailabilityPeriod;
+import org.dev.powermarket.domain.dto.response.CapacityAvailabilityResponse;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Календарь мощности сервиса за окно дат.
+ * <p>
+ * Строится по уже загруженным периодам и бронированиям (без обращений к БД)
+ * и проходит окно одним проходом: на каждый день поддерживается множество активных
+ * периодов и бронирований, которое меняется только на их границах.
+ */
+public final class CapacityTimeline {
+
+    private static final Comparator<ServiceAvailabilityPeriod> BY_PERIOD_START =
+            Comparator.comparing(ServiceAvailabilityPeriod::getStartDate);
+    private static final Comparator<CapacityReservation> BY_RESERVATION_START =
+            Comparator.comparing(CapacityReservation::getStartDate);
+
+    private final List<ServiceAvailabilityPeriod> periods;
+    private final List<CapacityReservation> reservations;
+
+    private CapacityTimeline(List<ServiceAvailabilityPeriod> periods, List<CapacityReservation> reservations) {
+        this.periods = periods;
+        this.reservations = reservations;
+    }
+
+    public static CapacityTimeline of(Collection<ServiceAvailabilityPeriod> periods,
+                                      Collection<CapacityReservation> reservations) {
+        List<ServiceAvailabilityPeriod> sortedPeriods = new ArrayList<>(periods);
+        sortedPeriods.sort(BY_PERIOD_START);
+        List<CapacityReservation> sortedReservations = new ArrayList<>(reservations);
+        sortedReservations.sort(BY_RESERVATION_START);
+        return new CapacityTimeline(sortedPeriods, sortedReservations);
+    }
+
+    /**
+     * Посуточная доступность за [startDate, endDate] включительно.
+     * Для дней вне периодов доступности вся мощность и бронирования считаются нулевыми.
+     */
+    public List<CapacityAvailabilityResponse> days(LocalDate startDate, LocalDate endDate) {
+        List<CapacityAvailabilityResponse> result = new ArrayList<>();
+        if (endDate.isBefore(startDate)) {
+            return result;
+        }
+
+        List<ServiceAvailabilityPeriod> activePeriods = new ArrayList<>();
+        List<CapacityReservation> activeReservations = new ArrayList<>();
+        int nextPeriod = 0;
+        int nextReservation = 0;
+
+        BigDecimal totalCapacity = BigDecimal.ZERO;
+        BigDecimal reservedCapacity = BigDecimal.ZERO;
+        List<CapacityAvailabilityResponse.OccupiedSlot> slots = List.of();
+        boolean reservationsChanged = false;
+
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            LocalDate day = date;
+
+            // Периоды: снимаем закончившиеся, добавляем начавшиеся
+            if (activePeriods.removeIf(period -> period.getEndDate().isBefore(day))) {
+                totalCapacity = sumCapacity(activePeriods);
+            }
+            while (nextPeriod < periods.size() && !periods.get(nextPeriod).getStartDate().isAfter(day)) {
+                ServiceAvailabilityPeriod period = periods.get(nextPeriod++);
+                if (!period.getEndDate().isBefore(day)) {
+                    activePeriods.add(period);
+                    totalCapacity = totalCapacity.add(period.getTotalCapacity());
+                }
+            }
+
+            // Бронирования: то же самое
+            if (activeReservations.removeIf(reservation -> reservation.getEndDate().isBefore(day))) {
+                reservedCapacity = sumReserved(activeReservations);
+                reservationsChanged = true;
+            }
+            while (nextReservation < reservations.size()
+                    && !reservations.get(nextReservation).getStartDate().isAfter(day)) {
+                CapacityReservation reservation = reservations.get(nextReservation++);
+                if (!reservation.getEndDate().isBefore(day)) {
+                    activeReservations.add(reservation);
+                    reservedCapacity = reservedCapacity.add(reservation.getReservedCapacity());
+                    reservationsChanged = true;
+                }
+            }
+            if (reservationsChanged) {
+                // Список слотов неизменяемый, поэтому между границами его можно переиспользовать
+                slots = toSlots(activeReservations);
+                reservationsChanged = false;
+            }
+
+            if (activePeriods.isEmpty()) {
+                result.add(new CapacityAvailabilityResponse(
+                        day, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, List.of()));
+            } else {
+                result.add(new CapacityAvailabilityResponse(
+                        day, totalCapacity, totalCapacity.subtract(reservedCapacity), reservedCapacity, slots));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Отрезки с постоянной свободной мощностью внутри [startDate, endDate] при общей мощности totalCapacity.
+     * Считается одним проходом по границам бронирований, соседние отрезки с одинаковой мощностью склеиваются.
+     */
+    public List<FreeSegment> freeSegments(LocalDate startDate, LocalDate endDate, BigDecimal totalCapacity) {
+        TreeMap<LocalDate, BigDecimal> deltas = new TreeMap<>();
+        BigDecimal reservedAtStart = BigDecimal.ZERO;
+
+        for (CapacityReservation reservation : reservations) {
+            if (reservation.getStartDate().isAfter(endDate)) {
+                break;
+            }
+            if (reservation.getEndDate().isBefore(startDate)) {
+                continue;
+            }
+            BigDecimal capacity = reservation.getReservedCapacity();
+            if (reservation.getStartDate().isAfter(startDate)) {
+                deltas.merge(reservation.getStartDate(), capacity, BigDecimal::add);
+            } else {
+                reservedAtStart = reservedAtStart.add(capacity);
+            }
+            if (reservation.getEndDate().isBefore(endDate)) {
+                deltas.merge(reservation.getEndDate().plusDays(1), capacity.negate(), BigDecimal::add);
+            }
+        }
+
+        List<FreeSegment> segments = new ArrayList<>();
+        LocalDate segmentStart = startDate;
+        BigDecimal free = totalCapacity.subtract(reservedAtStart);
+
+        for (Map.Entry<LocalDate, BigDecimal> delta : deltas.entrySet()) {
+            // Одно бронирование закончилось, другое такой же мощности началось - отрезок продолжается
+            if (delta.getValue().signum() == 0) {
+                continue;
+            }
+            segments.add(new FreeSegment(segmentStart, delta.getKey().minusDays(1), free));
+            segmentStart = delta.getKey();
+            free = free.subtract(delta.getValue());
+        }
+        segments.add(new FreeSegment(segmentStart, endDate, free));
+
+        return segments;
+    }
+
+    private static BigDecimal sumCapacity(List<ServiceAvailabilityPeriod> periods) {
+        return periods.stream()
+                .map(ServiceAvailabilityPeriod::getTotalCapacity)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static BigDecimal sumReserved(List<CapacityReservation> reservations) {
+        return reservations.stream()
+                .map(CapacityReservation::getReservedCapacity)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static List<CapacityAvailabilityResponse.OccupiedSlot> toSlots(List<CapacityReservation> reservations) {
+        return reservations.stream()
+                .map(reservation -> {
+                    Rental rental = reservation.getRental();
+                    return new CapacityAvailabilityResponse.OccupiedSlot(
+                            rental.getStartDate(),
+                            rental.getEndDate(),
+                            rental.getTenant().getFullName(),
+                            reservation.getReservedCapacity()
+                    );
+                })
+                .toList();
+    }
+
+    /**
+     * Отрезок дат [startDate, endDate] с одинаковой свободной мощностью
+     */
+    public record FreeSegment(LocalDate startDate, LocalDate endDate, BigDecimal freeCapacity) {
+    }
+}
@@ -0,0 +1,30 @@
+package org.dev.powermarket.service.dto;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.UUID;
+
+/**
+ * Курсор для keyset-пагинации лент (сообщения, уведомления): позиция (createdAt, id) последней полученной записи.
+ * В API передается строкой вида {@code 2024-05-01T10:15:30.123Z,123e4567-e89b-12d3-a456-426614174000}.
+ */
+public record KeysetCursor(Instant createdAt, UUID id) {
+
+    public static KeysetCursor parse(String value) {
+        int separator = value.lastIndexOf(',');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Invalid cursor: expected '<createdAt>,<id>'");
+        }
+        try {
+            return new KeysetCursor(
+                    Instant.parse(value.substring(0, separator).trim()),
+                    UUID.fromString(value.substring(separator + 1).trim()));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: expected '<createdAt>,<id>'", e);
+        }
+    }
+
+    public String encode() {
+        return createdAt + "," + id;
+    }
+}
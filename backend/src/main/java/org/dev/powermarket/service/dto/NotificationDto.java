@@ -3,6 +3,7 @@ package org.dev.powermarket.service.dto;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.dev.powermarket.domain.Notification;
 import org.dev.powermarket.domain.enums.NotificationType;
 
 import java.time.Instant;
@@ -19,4 +20,16 @@ public class NotificationDto {
     private UUID relatedEntityId;
     private Boolean read;
     private Instant createdAt;
+
+    public static NotificationDto of(Notification notification) {
+        return new NotificationDto(
+                notification.getId(),
+                notification.getType(),
+                notification.getTitle(),
+                notification.getMessage(),
+                notification.getRelatedEntityId(),
+                notification.getIsRead(),
+                notification.getCreatedAt()
+        );
+    }
 }
@@ -0,0 +1,210 @@
+package org.dev.powermarket.service.notification;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.dev.powermarket.domain.Notification;
+import org.dev.powermarket.domain.enums.NotificationType;
+import org.dev.powermarket.repository.NotificationRepository;
+import org.dev.powermarket.security.entity.User;
+import org.dev.powermarket.security.repository.AuthorizedUserRepository;
+import org.dev.powermarket.service.EmailService;
+import org.dev.powermarket.service.dto.NotificationDto;
+import org.dev.powermarket.service.realtime.SseHub;
+import org.dev.powermarket.service.support.TransactionHooks;
+import org.dev.powermarket.service.unread.UnreadCounterService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Рассылка уведомлений.
+ * <p>
+ * Бизнес-транзакция только ставит уведомление в очередь (после коммита), запись в БД идет
+ * пачками через saveAll в отдельной транзакции, после чего уведомления отправляются
+ * подключенным клиентам по SSE. Так смена статуса аренды не ждет записи уведомлений,
+ * а клиентам не нужно опрашивать /unread. Копия уведомления уходит на почту через очередь EmailService.
+ * <p>
+ * Обработчики outbox пишут уведомление в своей транзакции через {@link #saveAndDispatch}:
+ * событие помечается обработанным только вместе с записью уведомления.
+ */
+@Slf4j
+@Service
+public class NotificationDispatcher {
+
+    public static final String NOTIFICATION_CREATED = "notification.created";
+
+    private final NotificationRepository notificationRepository;
+    private final AuthorizedUserRepository userRepository;
+    private final UnreadCounterService unreadCounterService;
+    private final SseHub sseHub;
+    private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    private final BlockingQueue<PendingNotification> queue;
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public NotificationDispatcher(NotificationRepository notificationRepository,
+                                  AuthorizedUserRepository userRepository,
+                                  UnreadCounterService unreadCounterService,
+                                  SseHub sseHub,
+                                  EmailService emailService,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.notifications.batch-size:100}") int batchSize,
+                                  @Value("${app.notifications.queue-capacity:10000}") int queueCapacity) {
+        this.notificationRepository = notificationRepository;
+        this.userRepository = userRepository;
+        this.unreadCounterService = unreadCounterService;
+        this.sseHub = sseHub;
+        this.emailService = emailService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Отправить уведомление пользователю после коммита текущей транзакции.
+     * При откате транзакции уведомление не отправляется.
+     */
+    public void dispatch(UUID userId, NotificationType type, String title, String message, UUID relatedEntityId) {
+        PendingNotification pending = new PendingNotification(
+                userId, type, title, message, relatedEntityId, Instant.now());
+        TransactionHooks.afterCommit(() -> enqueue(pending));
+    }
+
+    /**
+     * Записать уведомление в текущей транзакции и разослать его после коммита.
+     * Ошибка записи откатывает транзакцию вызывающего (например, relay outbox), и событие повторяется.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void saveAndDispatch(UUID userId, NotificationType type, String title, String message,
+                                UUID relatedEntityId) {
+        User user = userRepository.findById(userId).orElse(null);
+        if (user == null) {
+            log.warn("Notification skipped, user not found: userId={}, type={}", userId, type);
+            return;
+        }
+        Notification saved = notificationRepository.save(toEntity(
+                new PendingNotification(userId, type, title, message, relatedEntityId, Instant.now()), user));
+        TransactionHooks.afterCommit(() -> push(saved));
+    }
+
+    /**
+     * Записать накопившиеся уведомления пачками и разослать их подписчикам
+     */
+    @Scheduled(fixedDelayString = "${app.notifications.flush-ms:200}")
+    public void flush() {
+        if (!flushLock.tryLock()) {
+            // Очередь уже разбирает другой поток
+            return;
+        }
+        try {
+            List<PendingNotification> batch = new ArrayList<>(batchSize);
+            while (queue.drainTo(batch, batchSize) > 0) {
+                writeAndPush(batch);
+                batch.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void enqueue(PendingNotification pending) {
+        if (!queue.offer(pending)) {
+            // Очередь переполнена - пишем сами, чтобы не терять уведомление.
+            // writeAndPush не бросает исключений: строку, которую не удалось записать, он логирует
+            log.warn("Notification queue is full, writing synchronously: userId={}", pending.userId());
+            flush();
+            if (!queue.offer(pending)) {
+                writeAndPush(List.of(pending));
+            }
+        }
+    }
+
+    private void writeAndPush(List<PendingNotification> batch) {
+        List<Notification> saved;
+        try {
+            saved = transactionTemplate.execute(status -> save(batch));
+        } catch (RuntimeException e) {
+            // Одна плохая строка не должна ронять всю пачку - повторяем по одной
+            log.warn("Failed to write notifications batch, retrying one by one: size={}", batch.size(), e);
+            saved = saveOneByOne(batch);
+        }
+        saved.forEach(this::push);
+    }
+
+    private List<Notification> saveOneByOne(List<PendingNotification> batch) {
+        List<Notification> saved = new ArrayList<>(batch.size());
+        for (PendingNotification pending : batch) {
+            try {
+                saved.addAll(transactionTemplate.execute(status -> save(List.of(pending))));
+            } catch (RuntimeException e) {
+                log.error("Notification dropped: userId={}, type={}, title={}",
+                        pending.userId(), pending.type(), pending.title(), e);
+            }
+        }
+        return saved;
+    }
+
+    private List<Notification> save(List<PendingNotification> batch) {
+        // Получатели нужны целиком (e-mail для письма), грузим их одним запросом на пачку
+        Map<UUID, User> users = userRepository.findAllById(
+                        batch.stream().map(PendingNotification::userId).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<Notification> notifications = new ArrayList<>(batch.size());
+        for (PendingNotification pending : batch) {
+            User user = users.get(pending.userId());
+            if (user == null) {
+                // Уведомления удаленным пользователям пропускаем, чтобы не ронять всю пачку
+                log.warn("Notification skipped, user not found: userId={}, type={}", pending.userId(), pending.type());
+                continue;
+            }
+            notifications.add(toEntity(pending, user));
+        }
+        return notificationRepository.saveAll(notifications);
+    }
+
+    private void push(Notification notification) {
+        UUID userId = notification.getUser().getId();
+        unreadCounterService.notificationCreated(userId);
+        sseHub.sendToUser(userId, null, NOTIFICATION_CREATED, NotificationDto.of(notification));
+        emailService.sendDealStatusEmail(notification.getUser(), notification);
+    }
+
+    private Notification toEntity(PendingNotification pending, User user) {
+        Notification notification = new Notification();
+        notification.setUser(user);
+        notification.setType(pending.type());
+        notification.setTitle(pending.title());
+        notification.setMessage(pending.message());
+        notification.setRelatedEntityId(pending.relatedEntityId());
+        notification.setIsRead(false);
+        notification.setCreatedAt(pending.createdAt());
+        return notification;
+    }
+
+    private record PendingNotification(UUID userId, NotificationType type, String title, String message,
+                                       UUID relatedEntityId, Instant createdAt) {
+    }
+}
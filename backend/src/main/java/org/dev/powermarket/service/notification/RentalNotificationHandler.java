@@ -0,0 +1,94 @@
+package org.dev.powermarket.service.notification;
+
+import lombok.RequiredArgsConstructor;
+import org.dev.powermarket.domain.OutboxEvent;
+import org.dev.powermarket.domain.enums.NotificationType;
+import org.dev.powermarket.service.outbox.OutboxEventHandler;
+import org.dev.powermarket.service.outbox.OutboxService;
+import org.dev.powermarket.service.outbox.RentalEventPayload;
+import org.dev.powermarket.service.outbox.RentalEventType;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Уведомления участников по событиям жизненного цикла аренды из outbox.
+ * Уведомления пишутся в транзакции relay, поэтому при ошибке записи событие будет повторено.
+ */
+@Component
+@RequiredArgsConstructor
+public class RentalNotificationHandler implements OutboxEventHandler {
+
+    private static final Set<RentalEventType> NOTIFIED = EnumSet.of(
+            RentalEventType.REQUEST_CREATED,
+            RentalEventType.REQUEST_APPROVED,
+            RentalEventType.REQUEST_REJECTED,
+            RentalEventType.SUPPLIER_CONFIRMED,
+            RentalEventType.TENANT_CONFIRMED,
+            RentalEventType.RENTAL_COMPLETED
+    );
+
+    private final NotificationDispatcher notificationDispatcher;
+    private final OutboxService outboxService;
+
+    @Override
+    public boolean supports(String eventType) {
+        return NOTIFIED.stream().anyMatch(type -> type.name().equals(eventType));
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        RentalEventPayload rental = outboxService.readPayload(event, RentalEventPayload.class);
+
+        switch (RentalEventType.valueOf(event.getEventType())) {
+            case REQUEST_CREATED -> notificationDispatcher.saveAndDispatch(
+                    rental.supplierId(),
+                    NotificationType.NEW_RENTAL_REQUEST,
+                    "Новый запрос на аренду",
+                    String.format("Пользователь %s запросил аренду услуги '%s' с %s по %s",
+                            rental.tenantName(), rental.serviceTitle(),
+                            rental.startDate(), rental.endDate()),
+                    rental.rentalRequestId()
+            );
+            case REQUEST_APPROVED -> notificationDispatcher.saveAndDispatch(
+                    rental.tenantId(),
+                    NotificationType.REQUEST_APPROVED,
+                    "Запрос одобрен",
+                    String.format("Ваш запрос на аренду услуги '%s' был одобрен", rental.serviceTitle()),
+                    rental.rentalRequestId()
+            );
+            case REQUEST_REJECTED -> notificationDispatcher.saveAndDispatch(
+                    rental.tenantId(),
+                    NotificationType.REQUEST_REJECTED,
+                    "Запрос отклонен",
+                    String.format("Ваш запрос на аренду услуги '%s' был отклонен", rental.serviceTitle()),
+                    rental.rentalRequestId()
+            );
+            case SUPPLIER_CONFIRMED -> notificationDispatcher.saveAndDispatch(
+                    rental.tenantId(),
+                    NotificationType.REQUEST_APPROVED,
+                    "Арендодатель подтвердил аренду",
+                    String.format("Арендодатель подтвердил аренду '%s'", rental.serviceTitle()),
+                    rental.rentalId()
+            );
+            case TENANT_CONFIRMED -> notificationDispatcher.saveAndDispatch(
+                    rental.supplierId(),
+                    NotificationType.REQUEST_APPROVED,
+                    "Арендатор подтвердил аренду",
+                    String.format("Арендатор подтвердил аренду '%s'", rental.serviceTitle()),
+                    rental.rentalId()
+            );
+            case RENTAL_COMPLETED -> {
+                String message = String.format("Аренда '%s' завершена. Оставьте отзыв!", rental.serviceTitle());
+                notificationDispatcher.saveAndDispatch(rental.supplierId(), NotificationType.REQUEST_APPROVED,
+                        "Аренда завершена", message, rental.rentalId());
+                notificationDispatcher.saveAndDispatch(rental.tenantId(), NotificationType.REQUEST_APPROVED,
+                        "Аренда завершена", message, rental.rentalId());
+            }
+            default -> {
+                // Остальные события уведомлений не порождают
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.dev.powermarket.service.outbox;
+
+import org.dev.powermarket.domain.OutboxEvent;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Потребитель, который забирает события своего типа агрегата пачкой (например, для одного
+ * HTTP-запроса на всю пачку). Вызывается relay вне транзакции БД; исключение планирует
+ * повтор всех событий пачки, поэтому обработка должна быть идемпотентной.
+ * Если пачка применена частично, обработчик возвращает отказавшие события: повторяются
+ * только они, остальные отмечаются обработанными.
+ * Обычные {@link OutboxEventHandler} эти события не получают.
+ */
+public interface OutboxBatchHandler {
+
+    String aggregateType();
+
+    /**
+     * @return события, которые не удалось обработать (пустой список - пачка обработана целиком)
+     */
+    List<Failure> handleBatch(List<OutboxEvent> events);
+
+    /**
+     * Отказ по одному событию пачки
+     *
+     * @param eventId id события outbox
+     * @param error   причина, сохраняется в last_error
+     */
+    record Failure(UUID eventId, String error) {
+    }
+}
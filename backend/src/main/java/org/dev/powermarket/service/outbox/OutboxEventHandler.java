@@ -0,0 +1,15 @@
+package org.dev.powermarket.service.outbox;
+
+import org.dev.powermarket.domain.OutboxEvent;
+
+/**
+ * Потребитель событий outbox. Обработчики вызываются relay в отдельной транзакции на событие;
+ * исключение откатывает ее и планирует повтор события для всех обработчиков,
+ * поэтому обработка должна быть идемпотентной.
+ */
+public interface OutboxEventHandler {
+
+    boolean supports(String eventType);
+
+    void handle(OutboxEvent event);
+}
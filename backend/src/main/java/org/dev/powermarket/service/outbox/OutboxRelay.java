@@ -0,0 +1,233 @@
+package org.dev.powermarket.service.outbox;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.dev.powermarket.domain.OutboxEvent;
+import org.dev.powermarket.domain.enums.OutboxStatus;
+import org.dev.powermarket.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Фоновая доставка событий outbox обработчикам.
+ * <p>
+ * Пачка событий забирается в короткой транзакции с SKIP LOCKED и "арендуется" сдвигом next_attempt_at,
+ * затем каждое событие обрабатывается в своей транзакции. При ошибке событие откладывается
+ * с экспоненциальной задержкой, после maxAttempts попыток помечается FAILED.
+ * Размер пачки ограничивает нагрузку на обработчики (backpressure).
+ * События агрегатов, у которых есть {@link OutboxBatchHandler}, передаются ему одной пачкой;
+ * отказавшие события пачки повторяются по отдельности.
+ * <p>
+ * Опрос идет в собственном потоке: разбор накопившегося хвоста может занять долго
+ * и не должен задерживать остальные @Scheduled-задачи.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private static final Duration MAX_RETRY_DELAY = Duration.ofHours(1);
+    private static final int LAST_ERROR_LENGTH = 1000;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final List<OutboxEventHandler> handlers;
+    private final Map<String, OutboxBatchHandler> batchHandlers;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryBase;
+    private final Duration lease;
+    private final Duration retention;
+    private final long pollMs;
+    private final ScheduledExecutorService pollExecutor;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       List<OutboxEventHandler> handlers,
+                       List<OutboxBatchHandler> batchHandlers,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${app.outbox.batch-size:100}") int batchSize,
+                       @Value("${app.outbox.max-attempts:10}") int maxAttempts,
+                       @Value("${app.outbox.retry-base-ms:1000}") long retryBaseMs,
+                       @Value("${app.outbox.lease-ms:60000}") long leaseMs,
+                       @Value("${app.outbox.retention-days:7}") long retentionDays,
+                       @Value("${app.outbox.poll-ms:500}") long pollMs,
+                       @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.handlers = handlers;
+        this.batchHandlers = batchHandlers.stream()
+                .collect(Collectors.toMap(OutboxBatchHandler::aggregateType, Function.identity()));
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBase = Duration.ofMillis(retryBaseMs);
+        this.lease = Duration.ofMillis(leaseMs);
+        this.retention = Duration.ofDays(retentionDays);
+        this.pollMs = pollMs;
+        // Поток опроса почти все время ждет БД и обработчиков, в режиме виртуальных потоков он тоже виртуальный
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("outbox-relay").factory()
+                : Thread.ofPlatform().name("outbox-relay").daemon(true).factory();
+        this.pollExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    @PostConstruct
+    void start() {
+        pollExecutor.scheduleWithFixedDelay(this::poll, pollMs, pollMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        pollExecutor.shutdown();
+        if (!pollExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+            pollExecutor.shutdownNow();
+        }
+    }
+
+    private void poll() {
+        try {
+            relay();
+        } catch (RuntimeException e) {
+            // Исключение остановило бы периодическую задачу навсегда
+            log.error("Outbox relay iteration failed", e);
+        }
+    }
+
+    public void relay() {
+        List<OutboxEvent> batch;
+        do {
+            batch = claimBatch();
+            dispatch(batch);
+        } while (batch.size() == batchSize);
+    }
+
+    @Scheduled(cron = "${app.outbox.cleanup-cron:0 0 4 * * *}")
+    public void deleteProcessed() {
+        Integer deleted = transactionTemplate.execute(status -> outboxEventRepository.deleteProcessedBefore(
+                OutboxStatus.PROCESSED, Instant.now().minus(retention)));
+        log.info("Processed outbox events deleted: count={}", deleted);
+    }
+
+    private List<OutboxEvent> claimBatch() {
+        return transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<OutboxEvent> events = outboxEventRepository.findReady(
+                    OutboxStatus.PENDING, now, PageRequest.of(0, batchSize));
+            // Пока событие обрабатывается, другие экземпляры relay его не возьмут
+            events.forEach(event -> event.setNextAttemptAt(now.plus(lease)));
+            return events;
+        });
+    }
+
+    private void dispatch(List<OutboxEvent> batch) {
+        Map<OutboxBatchHandler, List<OutboxEvent>> batched = new LinkedHashMap<>();
+        for (OutboxEvent event : batch) {
+            OutboxBatchHandler batchHandler = batchHandlers.get(event.getAggregateType());
+            if (batchHandler != null) {
+                batched.computeIfAbsent(batchHandler, handler -> new ArrayList<>()).add(event);
+            } else {
+                process(event);
+            }
+        }
+        batched.forEach(this::processBatch);
+    }
+
+    private void processBatch(OutboxBatchHandler handler, List<OutboxEvent> events) {
+        Map<UUID, String> failures;
+        try {
+            failures = handler.handleBatch(events).stream()
+                    .collect(Collectors.toMap(OutboxBatchHandler.Failure::eventId, OutboxBatchHandler.Failure::error,
+                            (first, second) -> first));
+        } catch (RuntimeException e) {
+            events.forEach(event -> scheduleRetry(event, e));
+            return;
+        }
+        List<OutboxEvent> processed = events.stream()
+                .filter(event -> !failures.containsKey(event.getId()))
+                .toList();
+        // Если отметка не запишется, пачка уйдет повторно после аренды - обработчик идемпотентен
+        if (!processed.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                Instant now = Instant.now();
+                for (OutboxEvent event : processed) {
+                    event.setStatus(OutboxStatus.PROCESSED);
+                    event.setProcessedAt(now);
+                    event.setLastError(null);
+                }
+                outboxEventRepository.saveAll(processed);
+            });
+        }
+        // Повторяются только события, которые обработчик не смог применить
+        events.stream()
+                .filter(event -> failures.containsKey(event.getId()))
+                .forEach(event -> scheduleRetry(event, failures.get(event.getId()), null));
+    }
+
+    private void process(OutboxEvent event) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (OutboxEventHandler handler : handlers) {
+                    if (handler.supports(event.getEventType())) {
+                        handler.handle(event);
+                    }
+                }
+                event.setStatus(OutboxStatus.PROCESSED);
+                event.setProcessedAt(Instant.now());
+                event.setLastError(null);
+                outboxEventRepository.save(event);
+            });
+        } catch (RuntimeException e) {
+            // Отметка PROCESSED могла упасть вместе с коммитом (например, отложенный INSERT уведомления),
+            // а объект события тот же - без сброса повтор сохранил бы его обработанным
+            event.setStatus(OutboxStatus.PENDING);
+            event.setProcessedAt(null);
+            scheduleRetry(event, e);
+        }
+    }
+
+    private void scheduleRetry(OutboxEvent event, RuntimeException error) {
+        scheduleRetry(event, String.valueOf(error.getMessage()), error);
+    }
+
+    private void scheduleRetry(OutboxEvent event, String reason, RuntimeException error) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        event.setLastError(truncate(reason));
+        if (attempts >= maxAttempts) {
+            event.setStatus(OutboxStatus.FAILED);
+            log.error("Outbox event failed permanently: id={}, type={}, attempts={}, reason={}",
+                    event.getId(), event.getEventType(), attempts, reason, error);
+        } else {
+            event.setNextAttemptAt(Instant.now().plus(retryDelay(attempts)));
+            log.warn("Outbox event failed, will retry: id={}, type={}, attempts={}, reason={}",
+                    event.getId(), event.getEventType(), attempts, reason);
+        }
+        transactionTemplate.executeWithoutResult(status -> outboxEventRepository.save(event));
+    }
+
+    Duration retryDelay(int attempts) {
+        Duration delay = retryBase.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(MAX_RETRY_DELAY) > 0 ? MAX_RETRY_DELAY : delay;
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= LAST_ERROR_LENGTH ? message : message.substring(0, LAST_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,53 @@
+package org.dev.powermarket.service.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.dev.powermarket.domain.OutboxEvent;
+import org.dev.powermarket.repository.OutboxEventRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+/**
+ * Запись событий в outbox в транзакции вызывающего кода
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Записать событие. Должно вызываться внутри бизнес-транзакции:
+     * событие фиксируется только вместе с изменением состояния.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(String aggregateType, UUID aggregateId, String eventType, Object payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setAggregateType(aggregateType);
+        event.setAggregateId(aggregateId);
+        event.setEventType(eventType);
+        event.setPayload(write(payload));
+        outboxEventRepository.save(event);
+    }
+
+    public <T> T readPayload(OutboxEvent event, Class<T> type) {
+        try {
+            return objectMapper.readValue(event.getPayload(), type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid outbox payload: eventId=" + event.getId(), e);
+        }
+    }
+
+    private String write(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Outbox payload is not serializable", e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.dev.powermarket.service.outbox;
+
+import org.dev.powermarket.domain.Rental;
+import org.dev.powermarket.domain.RentalRequest;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Снимок заявки/аренды на момент события: обработчикам не нужно ничего дочитывать из БД
+ */
+public record RentalEventPayload(
+        UUID rentalRequestId,
+        UUID rentalId,
+        UUID serviceId,
+        String serviceTitle,
+        UUID supplierId,
+        UUID tenantId,
+        String tenantName,
+        LocalDate startDate,
+        LocalDate endDate,
+        String rejectionReason
+) {
+
+    public static RentalEventPayload of(RentalRequest request, Rental rental) {
+        return new RentalEventPayload(
+                request.getId(),
+                rental != null ? rental.getId() : null,
+                request.getService().getId(),
+                request.getService().getTitle(),
+                request.getService().getSupplier().getId(),
+                request.getTenant().getId(),
+                request.getTenant().getFullName(),
+                request.getStartDate(),
+                request.getEndDate(),
+                request.getRejectionReason()
+        );
+    }
+}
@@ -0,0 +1,18 @@
+package org.dev.powermarket.service.outbox;
+
+/**
+ * События жизненного цикла заявки и аренды (outbox, aggregateType = RENTAL).
+ * Идентификатор агрегата - id заявки: он есть у всех событий, включая создание заявки.
+ */
+public enum RentalEventType {
+    REQUEST_CREATED,
+    REQUEST_APPROVED,
+    REQUEST_REJECTED,
+    SUPPLIER_CONFIRMED,
+    TENANT_CONFIRMED,
+    RENTAL_CONFIRMED,
+    RENTAL_STARTED,
+    RENTAL_COMPLETED;
+
+    public static final String AGGREGATE_TYPE = "RENTAL";
+}
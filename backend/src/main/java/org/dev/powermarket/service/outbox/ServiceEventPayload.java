@@ -0,0 +1,10 @@
+package org.dev.powermarket.service.outbox;
+
+import java.util.UUID;
+
+/**
+ * Только id услуги: публикатор перечитывает актуальное состояние при отправке,
+ * поэтому порядок и количество событий одной услуги в пачке не важны
+ */
+public record ServiceEventPayload(UUID serviceId) {
+}
@@ -0,0 +1,14 @@
+package org.dev.powermarket.service.outbox;
+
+/**
+ * Изменения услуги для внешнего поискового индекса (outbox, aggregateType = SERVICE).
+ * Идентификатор агрегата - id услуги.
+ */
+public enum ServiceEventType {
+    SERVICE_CREATED,
+    SERVICE_UPDATED,
+    SERVICE_DELETED,
+    SERVICE_RATING_CHANGED;
+
+    public static final String AGGREGATE_TYPE = "SERVICE";
+}
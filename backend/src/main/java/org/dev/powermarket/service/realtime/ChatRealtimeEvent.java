@@ -0,0 +1,26 @@
+package org.dev.powermarket.service.realtime;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Изменение в чате, которое нужно доставить участникам после коммита.
+ *
+ * @param chatId       чат
+ * @param recipientIds кому доставить
+ * @param type         тип события: message.created, message.updated, message.deleted
+ * @param payload      тело события: сообщение целиком или {@link DeletedMessage} для удаления
+ */
+public record ChatRealtimeEvent(UUID chatId, Collection<UUID> recipientIds, String type, Object payload) {
+
+    public static final String MESSAGE_CREATED = "message.created";
+    public static final String MESSAGE_UPDATED = "message.updated";
+    public static final String MESSAGE_DELETED = "message.deleted";
+
+    /**
+     * Тело события message.deleted: клиенту достаточно идентификаторов,
+     * текст удаленного сообщения подписчикам не отправляется.
+     */
+    public record DeletedMessage(UUID id, UUID chatId) {
+    }
+}
@@ -0,0 +1,26 @@
+package org.dev.powermarket.service.realtime;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.UUID;
+
+/**
+ * Доставляет события чата подписчикам только после коммита,
+ * чтобы клиент не увидел сообщение, которое затем откатится.
+ */
+@Component
+@RequiredArgsConstructor
+public class ChatRealtimeListener {
+
+    private final SseHub sseHub;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onChatEvent(ChatRealtimeEvent event) {
+        for (UUID recipientId : event.recipientIds()) {
+            sseHub.sendToUser(recipientId, event.chatId(), event.type(), event.payload());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.dev.powermarket.service.realtime;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Реестр SSE-подписок пользователей.
+ * <p>
+ * У пользователя может быть несколько подписок (вкладки, устройства). Подписка либо общая
+ * (получает события всех чатов пользователя и уведомления), либо привязана к одному чату.
+ * Права на чат проверяются при подписке, получатели события определяются отправителем.
+ */
+@Slf4j
+@Component
+public class SseHub {
+
+    private final Map<UUID, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final long timeoutMs;
+    private final long heartbeatMs;
+    // Отдельный поток: отправка пингов блокируется на медленных клиентах и не должна занимать общий планировщик
+    private final ScheduledExecutorService heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("sse-heartbeat").daemon(true).factory());
+
+    public SseHub(@Value("${app.realtime.sse-timeout-ms:1800000}") long timeoutMs,
+                  @Value("${app.realtime.heartbeat-ms:25000}") long heartbeatMs) {
+        this.timeoutMs = timeoutMs;
+        this.heartbeatMs = heartbeatMs;
+    }
+
+    @PostConstruct
+    void startHeartbeat() {
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stopHeartbeat() {
+        heartbeatExecutor.shutdownNow();
+    }
+
+    /**
+     * Открыть подписку пользователя. chatId == null - подписка на все события пользователя.
+     */
+    public SseEmitter subscribe(UUID userId, UUID chatId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscription subscription = new Subscription(emitter, chatId);
+
+        subscriptions.computeIfAbsent(userId, id -> new CopyOnWriteArrayList<>()).add(subscription);
+        emitter.onCompletion(() -> remove(userId, subscription));
+        emitter.onTimeout(() -> remove(userId, subscription));
+        emitter.onError(error -> remove(userId, subscription));
+
+        // Первое событие сразу отдает заголовки ответа, чтобы клиент понял, что подписка открыта
+        send(userId, subscription, SseEmitter.event().name("ready").data(chatId != null ? chatId.toString() : ""));
+        return emitter;
+    }
+
+    /**
+     * Отправить событие пользователю. Если chatId задан, событие получают только общие подписки
+     * и подписки на этот чат.
+     */
+    public void sendToUser(UUID userId, UUID chatId, String eventName, Object payload) {
+        List<Subscription> userSubscriptions = subscriptions.get(userId);
+        if (userSubscriptions == null) {
+            return;
+        }
+        for (Subscription subscription : userSubscriptions) {
+            if (chatId == null || subscription.chatId() == null || subscription.chatId().equals(chatId)) {
+                send(userId, subscription, SseEmitter.event().name(eventName).data(payload));
+            }
+        }
+    }
+
+    public boolean hasSubscriptions(UUID userId) {
+        List<Subscription> userSubscriptions = subscriptions.get(userId);
+        return userSubscriptions != null && !userSubscriptions.isEmpty();
+    }
+
+    /**
+     * Heartbeat, чтобы прокси и балансировщики не закрывали простаивающие соединения
+     */
+    public void heartbeat() {
+        try {
+            subscriptions.forEach((userId, userSubscriptions) -> {
+                for (Subscription subscription : userSubscriptions) {
+                    send(userId, subscription, SseEmitter.event().comment("ping"));
+                }
+            });
+        } catch (RuntimeException e) {
+            // Исключение остановило бы периодическую задачу навсегда
+            log.warn("SSE heartbeat failed", e);
+        }
+    }
+
+    private void send(UUID userId, Subscription subscription, SseEmitter.SseEventBuilder event) {
+        try {
+            subscription.emitter().send(event);
+        } catch (IOException | IllegalStateException e) {
+            // Клиент отключился - закрываем подписку
+            log.debug("SSE subscription closed: userId={}, reason={}", userId, e.getMessage());
+            remove(userId, subscription);
+            subscription.emitter().completeWithError(e);
+        }
+    }
+
+    private void remove(UUID userId, Subscription subscription) {
+        subscriptions.computeIfPresent(userId, (id, userSubscriptions) -> {
+            userSubscriptions.remove(subscription);
+            return userSubscriptions.isEmpty() ? null : userSubscriptions;
+        });
+    }
+
+    private record Subscription(SseEmitter emitter, UUID chatId) {
+    }
+}
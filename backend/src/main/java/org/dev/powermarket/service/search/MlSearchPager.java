@@ -0,0 +1,94 @@
+package org.dev.powermarket.service.search;
+
+import org.dev.powermarket.integration.search.MlSearchResult;
+import org.dev.powermarket.repository.ServiceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Постраничная выдача ML-поиска поверх окон.
+ * <p>
+ * Сервис поиска не знает об удаленных и скрытых услугах, поэтому страницы клиента собираются
+ * из окон по window-size id: отфильтрованные id замещаются следующими из того же окна,
+ * страницы не "худеют" и не пересекаются. Total берется из ответа сервиса за вычетом
+ * отброшенных id; на последнем окне он точный. Окна лежат в SearchResultCache, а когда
+ * следующая страница уже не помещается в загруженные окна, следующее окно грузится в фоне.
+ */
+@Service
+public class MlSearchPager {
+
+    private final SearchResultCache searchResultCache;
+    private final ServiceRepository serviceRepository;
+    private final int windowSize;
+    private final long maxResults;
+
+    public MlSearchPager(SearchResultCache searchResultCache,
+                         ServiceRepository serviceRepository,
+                         @Value("${app.search.ml.window-size:100}") int windowSize,
+                         @Value("${app.search.ml.max-results:1000}") long maxResults) {
+        this.searchResultCache = searchResultCache;
+        this.serviceRepository = serviceRepository;
+        this.windowSize = windowSize;
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * Страница id активных услуг в порядке релевантности.
+     * Пустая страница с нулевым total - сервис поиска ничего не нашел или недоступен.
+     */
+    public Page<UUID> search(String query, Pageable pageable) {
+        long offset = pageable.getOffset();
+        int pageSize = pageable.getPageSize();
+        int window = Math.max(windowSize, pageSize);
+
+        List<UUID> visible = new ArrayList<>();
+        long upstreamTotal = 0;
+        long dropped = 0;
+        boolean exhausted = false;
+        for (int windowPage = 1; ; windowPage++) {
+            MlSearchResult result = searchResultCache.search(query, windowPage, window);
+            if (result.isEmpty()) {
+                if (windowPage == 1) {
+                    return Page.empty(pageable);
+                }
+                // Сервис перестал отвечать посреди выдачи - отдаем то, что уже собрано
+                break;
+            }
+            upstreamTotal = Math.min(result.total(), maxResults);
+            List<UUID> active = activeIds(result.ids());
+            dropped += result.ids().size() - active.size();
+            visible.addAll(active);
+
+            long consumed = (long) windowPage * window;
+            if (result.ids().size() < window || consumed >= upstreamTotal) {
+                exhausted = true;
+                break;
+            }
+            if (visible.size() >= offset + pageSize) {
+                if (visible.size() < offset + 2L * pageSize) {
+                    searchResultCache.prefetch(query, windowPage + 1, window);
+                }
+                break;
+            }
+        }
+
+        long total = exhausted ? visible.size() : Math.max(upstreamTotal - dropped, visible.size());
+        int from = (int) Math.min(offset, visible.size());
+        int to = (int) Math.min(offset + pageSize, visible.size());
+        return new PageImpl<>(List.copyOf(visible.subList(from, to)), pageable, total);
+    }
+
+    private List<UUID> activeIds(List<UUID> ids) {
+        Set<UUID> active = new HashSet<>(serviceRepository.findActiveIdsByIdIn(ids));
+        return ids.stream().filter(active::contains).toList();
+    }
+}
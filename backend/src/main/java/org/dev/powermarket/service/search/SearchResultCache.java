@@ -0,0 +1,134 @@
+package org.dev.powermarket.service.search;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.dev.powermarket.integration.search.MlSearchClient;
+import org.dev.powermarket.integration.search.MlSearchResult;
+import org.dev.powermarket.service.support.TransactionHooks;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Кэш результатов ML-поиска: упорядоченный список id услуг и total по нормализованному запросу и странице.
+ * <p>
+ * Популярные запросы ("склад", "токарный") не ходят в сервис поиска каждый раз. Одинаковые
+ * одновременные запросы объединяются: в сервис идет один вызов, остальные ждут его результат.
+ * Пустые ответы (в том числе отказ сервиса) не кэшируются. Любое изменение услуги сбрасывает
+ * кэш целиком после коммита - результат поиска может измениться для любого запроса.
+ * Предзагрузка идет в собственном ограниченном пуле, число одновременных предзагрузок ограничено.
+ * Метрики: cache.gets{cache=search.results,result=hit|miss}.
+ */
+@Service
+public class SearchResultCache {
+
+    private final MlSearchClient mlSearchClient;
+    private final AsyncCache<SearchKey, MlSearchResult> cache;
+    private final ExecutorService prefetchExecutor;
+    private final Semaphore prefetchPermits;
+
+    public SearchResultCache(MlSearchClient mlSearchClient,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.search.cache.max-size:10000}") long maxSize,
+                             @Value("${app.search.cache.ttl-ms:60000}") long ttlMs,
+                             @Value("${app.search.prefetch.max-in-flight:4}") int prefetchMaxInFlight) {
+        this.mlSearchClient = mlSearchClient;
+        // Блокирующий HTTP-вызов не должен занимать ForkJoinPool.commonPool
+        this.prefetchExecutor = Executors.newFixedThreadPool(prefetchMaxInFlight,
+                Thread.ofPlatform().name("search-prefetch-", 0).daemon(true).factory());
+        this.prefetchPermits = new Semaphore(prefetchMaxInFlight);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "search.results");
+    }
+
+    /**
+     * Id услуг по запросу в порядке релевантности (page начинается с 1)
+     */
+    public MlSearchResult search(String query, int page, int perPage) {
+        SearchKey key = new SearchKey(normalize(query), page, perPage);
+        CompletableFuture<MlSearchResult> loading = new CompletableFuture<>();
+        CompletableFuture<MlSearchResult> result = cache.get(key, (k, executor) -> loading);
+        if (result == loading) {
+            // Этот поток первым запросил ключ - грузит сам, без отдельного пула
+            load(key, loading);
+        }
+        MlSearchResult found = result.join();
+        return found != null ? found : MlSearchResult.EMPTY;
+    }
+
+    /**
+     * Загрузить страницу в фоне, если ее еще нет в кэше: следующий скролл обслуживается локально.
+     * Вызов не ждет ответа сервиса поиска. Если лимит одновременных предзагрузок исчерпан,
+     * предзагрузка пропускается - страница загрузится обычным запросом.
+     */
+    public void prefetch(String query, int page, int perPage) {
+        SearchKey key = new SearchKey(normalize(query), page, perPage);
+        if (cache.getIfPresent(key) != null || !prefetchPermits.tryAcquire()) {
+            return;
+        }
+        AtomicBoolean started = new AtomicBoolean();
+        try {
+            cache.get(key, (k, executor) -> {
+                CompletableFuture<MlSearchResult> loading = new CompletableFuture<>();
+                prefetchExecutor.execute(() -> {
+                    try {
+                        load(k, loading);
+                    } finally {
+                        prefetchPermits.release();
+                    }
+                });
+                started.set(true);
+                return loading;
+            });
+        } finally {
+            if (!started.get()) {
+                // Ключ успел загрузиться другим запросом
+                prefetchPermits.release();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    /**
+     * Сбросить кэш после коммита текущей транзакции.
+     * Загрузки, начатые до сброса, отдадут результат своим ожидающим, но в кэш не попадут.
+     */
+    public void invalidateAll() {
+        TransactionHooks.afterCommit(() -> cache.synchronous().invalidateAll());
+    }
+
+    private void load(SearchKey key, CompletableFuture<MlSearchResult> loading) {
+        try {
+            MlSearchResult result = mlSearchClient.search(key.query(), key.page(), key.perPage());
+            // null удаляет запись из кэша
+            loading.complete(result.isEmpty() ? null : result);
+        } catch (RuntimeException e) {
+            loading.completeExceptionally(e);
+        }
+    }
+
+    static String normalize(String query) {
+        return query.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private record SearchKey(String query, int page, int perPage) {
+    }
+}
@@ -0,0 +1,167 @@
+package org.dev.powermarket.service.search;
+
+import org.dev.powermarket.domain.dto.request.FacetedServiceSearchRequest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * SQL фасетного поиска, собранный только из переданных критериев.
+ * <p>
+ * Один запрос (PostgreSQL) возвращает строки (kind, facet_key, cnt) четырех видов:
+ * hit - id услуги страницы и ее позиция, total - число найденных, category и price - счетчики фасетов.
+ * CTE base содержит все фильтры, кроме категории и цены; hits добавляет их. Фасет категорий
+ * считается по base с фильтром цены, фасет цен - по base с фильтром категории.
+ */
+final class ServiceFacetQuery {
+
+    static final String HIT = "hit";
+    static final String TOTAL = "total";
+    static final String CATEGORY = "category";
+    static final String PRICE = "price";
+
+    private static final String TS_QUERY = "websearch_to_tsquery('russian', :keyword)";
+
+    private final String sql;
+    private final Map<String, Object> parameters;
+
+    private ServiceFacetQuery(String sql, Map<String, Object> parameters) {
+        this.sql = sql;
+        this.parameters = parameters;
+    }
+
+    /**
+     * @param priceBounds возрастающие границы ценовых диапазонов
+     * @param fullText    есть ли колонка search_vector (см. ServiceFullTextSearch)
+     */
+    static ServiceFacetQuery build(FacetedServiceSearchRequest request, List<BigDecimal> priceBounds, boolean fullText) {
+        Map<String, Object> params = new HashMap<>();
+        List<String> base = new ArrayList<>();
+        base.add("s.is_active = true");
+        base.add("s.deleted = false");
+
+        boolean ranked = false;
+        if (request.keyword() != null) {
+            if (fullText) {
+                base.add("s.search_vector @@ " + TS_QUERY);
+                params.put("keyword", request.keyword());
+                ranked = true;
+            } else {
+                base.add("(LOWER(s.title) LIKE :keyword OR LOWER(s.description) LIKE :keyword)");
+                params.put("keyword", containsPattern(request.keyword()));
+            }
+        }
+        if (request.minCapacity() != null) {
+            base.add("s.capacity >= :minCapacity");
+            params.put("minCapacity", request.minCapacity());
+        }
+        if (request.maxCapacity() != null) {
+            base.add("s.capacity <= :maxCapacity");
+            params.put("maxCapacity", request.maxCapacity());
+        }
+        if (request.location() != null) {
+            base.add("LOWER(s.location) LIKE :location");
+            params.put("location", containsPattern(request.location()));
+        }
+        if (request.minRating() != null) {
+            base.add("s.average_rating >= :minRating");
+            params.put("minRating", request.minRating());
+        }
+        if (request.availableFrom() != null || request.availableTo() != null) {
+            StringBuilder exists = new StringBuilder(
+                    "EXISTS (SELECT 1 FROM service_availability_periods p WHERE p.service_id = s.id");
+            if (request.availableTo() != null) {
+                exists.append(" AND p.start_date <= :availableTo");
+                params.put("availableTo", request.availableTo());
+            }
+            if (request.availableFrom() != null) {
+                exists.append(" AND p.end_date >= :availableFrom");
+                params.put("availableFrom", request.availableFrom());
+            }
+            base.add(exists.append(")").toString());
+        }
+
+        List<String> categoryFilter = new ArrayList<>();
+        if (request.category() != null) {
+            categoryFilter.add("b.category = :category");
+            params.put("category", request.category().name());
+        }
+        List<String> priceFilter = new ArrayList<>();
+        if (request.minPrice() != null) {
+            priceFilter.add("b.price_per_day >= :minPrice");
+            params.put("minPrice", request.minPrice());
+        }
+        if (request.maxPrice() != null) {
+            priceFilter.add("b.price_per_day <= :maxPrice");
+            params.put("maxPrice", request.maxPrice());
+        }
+        List<String> hitFilter = new ArrayList<>(categoryFilter);
+        hitFilter.addAll(priceFilter);
+        List<String> priceFacetFilter = new ArrayList<>(categoryFilter);
+        priceFacetFilter.add("b.price_per_day IS NOT NULL");
+
+        params.put("pageLimit", request.size());
+        params.put("pageOffset", (long) request.page() * request.size());
+
+        String sql = "WITH base AS (SELECT s.id, s.category, s.price_per_day, s.average_rating, s.created_at, "
+                + (ranked ? "ts_rank_cd(s.search_vector, " + TS_QUERY + ")" : "0") + " AS rank "
+                + "FROM services s WHERE " + String.join(" AND ", base) + "), "
+                + "hits AS (SELECT * FROM base b" + where(hitFilter) + ") "
+                + "SELECT '" + HIT + "' AS kind, CAST(p.id AS varchar) AS facet_key, p.pos AS cnt FROM ("
+                + "SELECT b.id, ROW_NUMBER() OVER (ORDER BY " + orderBy(request.sort(), ranked) + ") AS pos "
+                + "FROM hits b ORDER BY pos LIMIT :pageLimit OFFSET :pageOffset) p "
+                + "UNION ALL SELECT '" + TOTAL + "', NULL, COUNT(*) FROM hits "
+                // CAST: в H2 колонка enum-типа и не объединяется с varchar
+                + "UNION ALL SELECT '" + CATEGORY + "', CAST(b.category AS varchar), COUNT(*) FROM base b"
+                + where(priceFilter) + " GROUP BY b.category "
+                // Группировка по колонке подзапроса, а не по номеру: GROUP BY 2 H2 не поддерживает
+                + "UNION ALL SELECT '" + PRICE + "', CAST(x.bucket AS varchar), COUNT(*) FROM (SELECT "
+                + priceBucket(priceBounds, params) + " AS bucket FROM base b" + where(priceFacetFilter)
+                + ") x GROUP BY x.bucket";
+        return new ServiceFacetQuery(sql, params);
+    }
+
+    String sql() {
+        return sql;
+    }
+
+    Map<String, Object> parameters() {
+        return parameters;
+    }
+
+    // Имена колонок только из этого списка - сортировка не собирается из пользовательского ввода
+    private static String orderBy(FacetedServiceSearchRequest.Sort sort, boolean ranked) {
+        return switch (sort) {
+            case RELEVANCE -> ranked ? "b.rank DESC, b.created_at DESC, b.id" : "b.created_at DESC, b.id";
+            case NEWEST -> "b.created_at DESC, b.id";
+            case PRICE_ASC -> "b.price_per_day ASC NULLS LAST, b.id";
+            case PRICE_DESC -> "b.price_per_day DESC NULLS LAST, b.id";
+            case RATING_DESC -> "b.average_rating DESC NULLS LAST, b.id";
+        };
+    }
+
+    // Номер диапазона: 0 - дешевле первой границы, priceBounds.size() - от последней границы
+    private static String priceBucket(List<BigDecimal> priceBounds, Map<String, Object> params) {
+        if (priceBounds.isEmpty()) {
+            return "0";
+        }
+        StringBuilder bucket = new StringBuilder("CASE");
+        for (int i = 0; i < priceBounds.size(); i++) {
+            bucket.append(" WHEN b.price_per_day < :priceBound").append(i).append(" THEN ").append(i);
+            params.put("priceBound" + i, priceBounds.get(i));
+        }
+        return bucket.append(" ELSE ").append(priceBounds.size()).append(" END").toString();
+    }
+
+    private static String where(List<String> conditions) {
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private static String containsPattern(String value) {
+        return "%" + value.strip().toLowerCase(Locale.ROOT) + "%";
+    }
+}
@@ -0,0 +1,84 @@
+package org.dev.powermarket.service.search;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.dev.powermarket.domain.dto.request.FacetedServiceSearchRequest;
+import org.dev.powermarket.domain.dto.response.FacetedSearchResponse.PriceBucket;
+import org.dev.powermarket.domain.enums.ServiceCategory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Фасетный поиск услуг: id страницы, total и счетчики фасетов за один запрос к БД (см. ServiceFacetQuery).
+ * Ключевое слово ищется по search_vector, если он есть, иначе LIKE по названию и описанию.
+ */
+@Service
+public class ServiceFacetSearch {
+
+    private final EntityManager entityManager;
+    private final ServiceFullTextSearch serviceFullTextSearch;
+    private final List<BigDecimal> priceBounds;
+
+    public ServiceFacetSearch(EntityManager entityManager,
+                              ServiceFullTextSearch serviceFullTextSearch,
+                              @Value("${app.search.facets.price-bounds:1000,5000,20000,50000}") List<BigDecimal> priceBounds) {
+        this.entityManager = entityManager;
+        this.serviceFullTextSearch = serviceFullTextSearch;
+        this.priceBounds = priceBounds.stream().sorted().distinct().toList();
+    }
+
+    public Result search(FacetedServiceSearchRequest request) {
+        ServiceFacetQuery facetQuery = ServiceFacetQuery.build(request, priceBounds, serviceFullTextSearch.isAvailable());
+        Query query = entityManager.createNativeQuery(facetQuery.sql());
+        facetQuery.parameters().forEach(query::setParameter);
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query.getResultList();
+        return read(rows);
+    }
+
+    private Result read(List<Object[]> rows) {
+        Map<Long, UUID> hits = new TreeMap<>();
+        long total = 0;
+        Map<ServiceCategory, Long> categories = new EnumMap<>(ServiceCategory.class);
+        for (ServiceCategory category : ServiceCategory.values()) {
+            categories.put(category, 0L);
+        }
+        long[] priceCounts = new long[priceBounds.size() + 1];
+
+        for (Object[] row : rows) {
+            String key = (String) row[1];
+            long count = ((Number) row[2]).longValue();
+            switch ((String) row[0]) {
+                case ServiceFacetQuery.HIT -> hits.put(count, UUID.fromString(key));
+                case ServiceFacetQuery.TOTAL -> total = count;
+                case ServiceFacetQuery.CATEGORY -> categories.put(ServiceCategory.valueOf(key), count);
+                case ServiceFacetQuery.PRICE -> priceCounts[Integer.parseInt(key)] = count;
+                default -> throw new IllegalStateException("Unexpected facet row: " + row[0]);
+            }
+        }
+
+        List<PriceBucket> buckets = new ArrayList<>(priceCounts.length);
+        for (int i = 0; i < priceCounts.length; i++) {
+            BigDecimal from = i == 0 ? BigDecimal.ZERO : priceBounds.get(i - 1);
+            BigDecimal to = i < priceBounds.size() ? priceBounds.get(i) : null;
+            buckets.add(new PriceBucket(from, to, priceCounts[i]));
+        }
+        return new Result(List.copyOf(hits.values()), total, categories, buckets);
+    }
+
+    /**
+     * @param ids id услуг страницы в порядке сортировки
+     */
+    public record Result(List<UUID> ids, long total, Map<ServiceCategory, Long> categories,
+                         List<PriceBucket> priceBuckets) {
+    }
+}
@@ -0,0 +1,72 @@
+package org.dev.powermarket.service.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+/**
+ * Полнотекстовый поиск услуг средствами PostgreSQL.
+ * <p>
+ * При старте добавляет в services вычисляемую колонку search_vector (title, technical_specs,
+ * description с весами A/B/C) и GIN-индекс по ней (db/postgresql/service-search.sql).
+ * На других СУБД (H2 в тестах) или при ошибке скрипта поиск остается на LIKE-запросе.
+ */
+@Slf4j
+@Component
+public class ServiceFullTextSearch {
+
+    private static final String SCRIPT = "classpath:db/postgresql/service-search.sql";
+
+    private final DataSource dataSource;
+    private final ResourceLoader resourceLoader;
+    private final boolean enabled;
+
+    private volatile boolean available;
+
+    public ServiceFullTextSearch(DataSource dataSource,
+                                 ResourceLoader resourceLoader,
+                                 @Value("${app.search.full-text.enabled:true}") boolean enabled) {
+        this.dataSource = dataSource;
+        this.resourceLoader = resourceLoader;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Колонка search_vector и индекс созданы, можно использовать ServiceRepository.fullTextSearch
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (!enabled || !isPostgres()) {
+            return;
+        }
+        try {
+            new ResourceDatabasePopulator(resourceLoader.getResource(SCRIPT)).execute(dataSource);
+            available = true;
+        } catch (RuntimeException e) {
+            log.warn("Full-text search column is not available, falling back to LIKE search", e);
+        }
+    }
+
+    private boolean isPostgres() {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            return "PostgreSQL".equals(product);
+        } catch (MetaDataAccessException e) {
+            log.warn("Failed to detect database product", e);
+            return false;
+        }
+    }
+}
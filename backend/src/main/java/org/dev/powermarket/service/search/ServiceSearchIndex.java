@@ -0,0 +1,462 @@
+package org.dev.powermarket.service.search;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.ru.RussianAnalyzer;
+import org.apache.lucene.analysis.snowball.SnowballFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.synonym.SolrSynonymParser;
+import org.apache.lucene.analysis.synonym.SynonymGraphFilter;
+import org.apache.lucene.analysis.synonym.SynonymMap;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.util.QueryBuilder;
+import org.dev.powermarket.domain.Service;
+import org.dev.powermarket.repository.ServiceRepository;
+import org.dev.powermarket.service.support.TransactionHooks;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.tartarus.snowball.ext.RussianStemmer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Встроенный полнотекстовый индекс активных услуг (Lucene в памяти процесса).
+ * <p>
+ * Используется для поиска по ключевому слову, когда ML-поиск выключен или недоступен, вместо
+ * LIKE '%..%' по всей таблице. Индексируются title, description, technicalSpecs и location
+ * с русским стеммингом, синонимы (search/synonyms.txt) раскрываются в запросе.
+ * <p>
+ * Индекс полностью перестраивается из БД при старте и затем редко (по умолчанию раз в час,
+ * при app.search.index.rebuild-ms = 0 - только при старте) в собственном потоке, не занимая
+ * общий планировщик: новый индекс строится рядом и подменяет старый, изменения, пришедшие
+ * во время перестройки, переносятся в новый. Изменения услуг этого экземпляра попадают в индекс
+ * сразу после коммита. Другие экземпляры увидят их после своей следующей перестройки.
+ */
+@Slf4j
+@Component
+public class ServiceSearchIndex {
+
+    static final String ID = "id";
+    static final String ALL = "all";
+    static final String TITLE = "title";
+    static final String DESCRIPTION = "description";
+    static final String TECHNICAL_SPECS = "technicalSpecs";
+    static final String LOCATION = "location";
+
+    private static final Map<String, Float> FIELD_BOOSTS = Map.of(
+            TITLE, 3f, TECHNICAL_SPECS, 1.5f, LOCATION, 1.5f, DESCRIPTION, 1f);
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    private final ServiceRepository serviceRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long rebuildMs;
+    private final ScheduledExecutorService rebuildExecutor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("search-index-rebuild").daemon(true).factory());
+
+    private final Analyzer indexAnalyzer;
+    private final QueryBuilder queryBuilder;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Index current;
+    // Изменения, пришедшие во время перестройки; не null, пока перестройка идет
+    private List<IndexChange> changesDuringRebuild;
+
+    public ServiceSearchIndex(ServiceRepository serviceRepository,
+                              PlatformTransactionManager transactionManager,
+                              ResourceLoader resourceLoader,
+                              @Value("${app.search.index.enabled:true}") boolean enabled,
+                              @Value("${app.search.index.batch-size:500}") int batchSize,
+                              @Value("${app.search.index.synonyms:classpath:search/synonyms.txt}") String synonymsLocation,
+                              @Value("${app.search.index.rebuild-ms:3600000}") long rebuildMs) {
+        this.serviceRepository = serviceRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.rebuildMs = rebuildMs;
+        this.indexAnalyzer = new RussianStemmingAnalyzer(null);
+        this.queryBuilder = new QueryBuilder(
+                new RussianStemmingAnalyzer(loadSynonyms(resourceLoader.getResource(synonymsLocation))));
+    }
+
+    /**
+     * Индекс построен и может отвечать на запросы
+     */
+    public boolean isReady() {
+        return current != null;
+    }
+
+    /**
+     * Id услуг по ключевому слову в порядке релевантности.
+     * Последнее слово запроса ищется и как префикс, чтобы поиск работал по мере набора.
+     */
+    public Page<UUID> search(String keyword, Pageable pageable) {
+        Query query = buildQuery(keyword);
+        if (query == null) {
+            return Page.empty(pageable);
+        }
+        // Индекс мог быть подменен перестройкой между чтением current и acquire
+        for (int attempt = 0; ; attempt++) {
+            Index index = current;
+            if (index == null) {
+                return Page.empty(pageable);
+            }
+            try {
+                return search(index, query, pageable);
+            } catch (AlreadyClosedException e) {
+                if (attempt > 0) {
+                    throw e;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Добавить или обновить услугу в индексе после коммита текущей транзакции.
+     * Неактивные и удаленные услуги из индекса убираются.
+     */
+    public void index(Service service) {
+        if (!Boolean.TRUE.equals(service.getIsActive()) || Boolean.TRUE.equals(service.getDeleted())) {
+            remove(service.getId());
+            return;
+        }
+        // Снимок полей берем сейчас: после коммита сущность может быть уже отсоединена
+        Document document = toDocument(IndexedService.of(service));
+        Term id = idTerm(service.getId());
+        TransactionHooks.afterCommit(() -> apply(writer -> writer.updateDocument(id, document)));
+    }
+
+    /**
+     * Убрать услугу из индекса после коммита текущей транзакции
+     */
+    public void remove(UUID serviceId) {
+        Term id = idTerm(serviceId);
+        TransactionHooks.afterCommit(() -> apply(writer -> writer.deleteDocuments(id)));
+    }
+
+    @PostConstruct
+    void scheduleRebuilds() {
+        if (!enabled) {
+            return;
+        }
+        if (rebuildMs > 0) {
+            rebuildExecutor.scheduleWithFixedDelay(this::rebuild, 0, rebuildMs, TimeUnit.MILLISECONDS);
+        } else {
+            rebuildExecutor.execute(this::rebuild);
+        }
+    }
+
+    /**
+     * Перестроить индекс из БД
+     */
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+
+        Index fresh = null;
+        try {
+            fresh = Index.create(indexAnalyzer);
+            int indexed = loadFromDatabase(fresh.writer());
+
+            Index previous;
+            lock.lock();
+            try {
+                for (IndexChange change : changesDuringRebuild) {
+                    change.apply(fresh.writer());
+                }
+                fresh.searcherManager().maybeRefresh();
+                previous = current;
+                current = fresh;
+                changesDuringRebuild = null;
+            } finally {
+                lock.unlock();
+            }
+            close(previous);
+            log.debug("Service search index rebuilt: services={}", indexed);
+        } catch (IOException | RuntimeException e) {
+            lock.lock();
+            try {
+                changesDuringRebuild = null;
+            } finally {
+                lock.unlock();
+            }
+            close(fresh);
+            log.error("Failed to rebuild service search index", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+        close(current);
+    }
+
+    private int loadFromDatabase(IndexWriter writer) throws IOException {
+        int indexed = 0;
+        int page = 0;
+        Page<IndexedService> batch;
+        do {
+            PageRequest pageRequest = PageRequest.of(page++, batchSize, Sort.by(ID));
+            batch = transactionTemplate.execute(status -> serviceRepository
+                    .findByIsActiveTrueAndDeletedFalse(pageRequest)
+                    .map(IndexedService::of));
+            for (IndexedService service : batch) {
+                writer.updateDocument(idTerm(service.id()), toDocument(service));
+                indexed++;
+            }
+        } while (batch.hasNext());
+        return indexed;
+    }
+
+    private void apply(IndexChange change) {
+        lock.lock();
+        try {
+            Index index = current;
+            if (index != null) {
+                change.apply(index.writer());
+                index.searcherManager().maybeRefresh();
+            }
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Индекс поправит следующая перестройка
+            log.warn("Failed to update service search index", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Page<UUID> search(Index index, Query query, Pageable pageable) throws IOException {
+        IndexSearcher searcher = index.searcherManager().acquire();
+        try {
+            int offset = (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE - pageable.getPageSize());
+            TopDocs top = searcher.search(query, offset + pageable.getPageSize());
+            List<UUID> ids = new ArrayList<>(pageable.getPageSize());
+            ScoreDoc[] hits = top.scoreDocs;
+            for (int i = offset; i < hits.length; i++) {
+                ids.add(UUID.fromString(searcher.storedFields().document(hits[i].doc, Set.of(ID)).get(ID)));
+            }
+            return new PageImpl<>(ids, pageable, searcher.count(query));
+        } finally {
+            index.searcherManager().release(searcher);
+        }
+    }
+
+    /**
+     * Все слова запроса должны встретиться в услуге (в любом из полей), совпадения в заголовке
+     * и характеристиках поднимают услугу выше.
+     */
+    Query buildQuery(String keyword) {
+        if (keyword == null || keyword.isBlank()) {
+            return null;
+        }
+        String text = keyword.strip().replaceAll("\\s+", " ");
+        int split = text.lastIndexOf(' ');
+        String head = split < 0 ? "" : text.substring(0, split);
+        String last = text.substring(split + 1);
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        boolean hasRequired = false;
+        Query headMatch = queryBuilder.createBooleanQuery(ALL, head, BooleanClause.Occur.MUST);
+        if (headMatch != null) {
+            query.add(headMatch, BooleanClause.Occur.MUST);
+            hasRequired = true;
+        }
+        // Последнее слово может быть недописано: подходит совпадение основы или префикса
+        Query lastMatch = queryBuilder.createBooleanQuery(ALL, last, BooleanClause.Occur.MUST);
+        Query lastPrefix = prefixQuery(last);
+        if (lastMatch != null || lastPrefix != null) {
+            BooleanQuery.Builder lastWord = new BooleanQuery.Builder();
+            if (lastMatch != null) {
+                lastWord.add(lastMatch, BooleanClause.Occur.SHOULD);
+            }
+            if (lastPrefix != null) {
+                lastWord.add(lastPrefix, BooleanClause.Occur.SHOULD);
+            }
+            query.add(lastWord.build(), BooleanClause.Occur.MUST);
+            hasRequired = true;
+        }
+        if (!hasRequired) {
+            return null;
+        }
+
+        FIELD_BOOSTS.forEach((field, boost) -> {
+            Query fieldQuery = queryBuilder.createBooleanQuery(field, text, BooleanClause.Occur.SHOULD);
+            if (fieldQuery != null) {
+                query.add(new BoostQuery(fieldQuery, boost), BooleanClause.Occur.SHOULD);
+            }
+        });
+        return query.build();
+    }
+
+    private static Query prefixQuery(String word) {
+        String prefix = word.toLowerCase(Locale.ROOT);
+        if (prefix.length() < MIN_PREFIX_LENGTH || !prefix.chars().allMatch(Character::isLetterOrDigit)) {
+            return null;
+        }
+        return new PrefixQuery(new Term(ALL, prefix));
+    }
+
+    private static Document toDocument(IndexedService service) {
+        Document document = new Document();
+        document.add(new StringField(ID, service.id().toString(), Field.Store.YES));
+        addText(document, TITLE, service.title());
+        addText(document, DESCRIPTION, service.description());
+        addText(document, TECHNICAL_SPECS, service.technicalSpecs());
+        addText(document, LOCATION, service.location());
+        for (String value : new String[]{service.title(), service.description(),
+                service.technicalSpecs(), service.location()}) {
+            addText(document, ALL, value);
+        }
+        return document;
+    }
+
+    private static void addText(Document document, String field, String value) {
+        if (value != null && !value.isBlank()) {
+            document.add(new TextField(field, value, Field.Store.NO));
+        }
+    }
+
+    private static Term idTerm(UUID serviceId) {
+        return new Term(ID, serviceId.toString());
+    }
+
+    private static SynonymMap loadSynonyms(Resource resource) {
+        if (!resource.exists()) {
+            log.warn("Search synonyms not found: {}", resource);
+            return null;
+        }
+        // Синонимы приводятся к основе тем же анализатором, что и индекс
+        try (Analyzer analyzer = new RussianStemmingAnalyzer(null);
+             Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            SolrSynonymParser parser = new SolrSynonymParser(true, true, analyzer);
+            parser.parse(reader);
+            return parser.build();
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Failed to load search synonyms: " + resource, e);
+        }
+    }
+
+    private static void close(Index index) {
+        if (index == null) {
+            return;
+        }
+        try {
+            index.searcherManager().close();
+            index.writer().close();
+        } catch (IOException e) {
+            log.warn("Failed to close service search index", e);
+        }
+    }
+
+    /**
+     * Стандартная токенизация, нижний регистр, стоп-слова и русский стеммер Snowball.
+     * С картой синонимов раскрывает синонимы после стемминга (для запросов).
+     */
+    private static final class RussianStemmingAnalyzer extends Analyzer {
+
+        private final SynonymMap synonyms;
+
+        private RussianStemmingAnalyzer(SynonymMap synonyms) {
+            this.synonyms = synonyms;
+        }
+
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer source = new StandardTokenizer();
+            TokenStream result = new LowerCaseFilter(source);
+            result = new StopFilter(result, RussianAnalyzer.getDefaultStopSet());
+            result = new SnowballFilter(result, new RussianStemmer());
+            if (synonyms != null) {
+                result = new SynonymGraphFilter(result, synonyms, true);
+            }
+            return new TokenStreamComponents(source, result);
+        }
+
+        @Override
+        protected TokenStream normalize(String fieldName, TokenStream in) {
+            return new LowerCaseFilter(in);
+        }
+    }
+
+    private record Index(IndexWriter writer, SearcherManager searcherManager) {
+
+        static Index create(Analyzer analyzer) throws IOException {
+            IndexWriter writer = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(analyzer));
+            return new Index(writer, new SearcherManager(writer, null));
+        }
+    }
+
+    private record IndexedService(UUID id, String title, String description,
+                                  String technicalSpecs, String location) {
+
+        static IndexedService of(Service service) {
+            return new IndexedService(service.getId(), service.getTitle(), service.getDescription(),
+                    service.getTechnicalSpecs(), service.getLocation());
+        }
+    }
+
+    @FunctionalInterface
+    private interface IndexChange {
+        void apply(IndexWriter writer) throws IOException;
+    }
+}
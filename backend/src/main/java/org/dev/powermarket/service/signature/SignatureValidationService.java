@@ -4,8 +4,8 @@ import lombok.RequiredArgsConstructor;
 import org.dev.powermarket.domain.Rental;
 import org.dev.powermarket.domain.dto.response.SignatureValidationResult;
 import org.dev.powermarket.exception.SignatureValidationException;
-import org.dev.powermarket.security.entity.User;
-import org.dev.powermarket.security.repository.AuthorizedUserRepository;
+import org.dev.powermarket.security.service.CachedUser;
+import org.dev.powermarket.security.service.UserLookupService;
 import org.dev.powermarket.service.RentalAccessService;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -21,7 +21,7 @@ public class SignatureValidationService {
     // Список валидаторов, которые будут применены последовательно
     private final List<SignatureValidator> validators;
     private final RentalAccessService rentalAccessService;
-    private final AuthorizedUserRepository userRepository;
+    private final UserLookupService userLookupService;
 
     /**
      * Проверяет файл электронной подписи
@@ -43,9 +43,10 @@ public class SignatureValidationService {
             }
         }
 
-        User user = userRepository.findByEmail(email)
+        UUID userId = userLookupService.findByEmail(email)
+                .map(CachedUser::id)
                 .orElseThrow(() -> new IllegalArgumentException("Пользователь не найден"));
-        setSignatureValidForParty(user.getId(), rental);
+        setSignatureValidForParty(userId, rental);
 
         // Все проверки пройдены
         return SignatureValidationResult.accepted(
@@ -0,0 +1,44 @@
+package org.dev.powermarket.service.support;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Хелперы для действий, которые должны выполняться только после фиксации транзакции
+ * (обновление in-memory кэшей, push-уведомления и т.п.).
+ */
+public final class TransactionHooks {
+
+    private TransactionHooks() {
+    }
+
+    /**
+     * Выполнить действие после коммита текущей транзакции.
+     * Если транзакции нет - выполняется сразу.
+     */
+    public static void afterCommit(Runnable action) {
+        afterCompletion(action, () -> { });
+    }
+
+    /**
+     * Выполнить onCommit после успешного коммита, onRollback - после отката.
+     * Если транзакции нет - onCommit выполняется сразу.
+     */
+    public static void afterCompletion(Runnable onCommit, Runnable onRollback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onCommit.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    onCommit.run();
+                } else {
+                    onRollback.run();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,186 @@
+package org.dev.powermarket.service.unread;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import lombok.extern.slf4j.Slf4j;
+import org.dev.powermarket.repository.ChatMessageRepository;
+import org.dev.powermarket.repository.NotificationRepository;
+import org.dev.powermarket.repository.projection.UnreadCountProjection;
+import org.dev.powermarket.service.support.TransactionHooks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Счетчики непрочитанного (сообщения по чатам и уведомления) в памяти.
+ * <p>
+ * Счетчики пользователя загружаются из БД агрегирующими запросами при первом обращении,
+ * дальше чтение стоит O(1), а изменения применяются инкрементально после коммита.
+ * БД нужна только для восстановления: записи живут не дольше ttl с момента загрузки (изменения
+ * срок не продлевают), поэтому возможное расхождение (например, гонка загрузки с параллельной
+ * отправкой) исправляется само. Загрузка атомарна для пользователя, число пользователей в памяти ограничено.
+ */
+@Slf4j
+@Service
+public class UnreadCounterService {
+
+    private final ChatMessageRepository messageRepository;
+    private final NotificationRepository notificationRepository;
+
+    private final LoadingCache<UUID, UserCounters> counters;
+
+    @Autowired
+    public UnreadCounterService(ChatMessageRepository messageRepository,
+                                NotificationRepository notificationRepository,
+                                @Value("${app.unread.ttl-ms:300000}") long ttlMs,
+                                @Value("${app.unread.max-users:100000}") long maxUsers) {
+        this(messageRepository, notificationRepository, ttlMs, maxUsers, Ticker.systemTicker());
+    }
+
+    UnreadCounterService(ChatMessageRepository messageRepository,
+                         NotificationRepository notificationRepository,
+                         long ttlMs,
+                         long maxUsers,
+                         Ticker ticker) {
+        this.messageRepository = messageRepository;
+        this.notificationRepository = notificationRepository;
+        this.counters = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfter(Expiry.<UUID, UserCounters>creating((userId, loaded) -> Duration.ofMillis(ttlMs)))
+                .ticker(ticker)
+                .build(this::load);
+    }
+
+    /**
+     * Непрочитанные сообщения пользователя во всех чатах
+     */
+    public long unreadMessages(UUID userId) {
+        return countersFor(userId).messagesTotal.get();
+    }
+
+    /**
+     * Непрочитанные сообщения по чатам (чаты без непрочитанного отсутствуют)
+     */
+    public Map<UUID, Long> unreadMessagesByChat(UUID userId) {
+        return Map.copyOf(countersFor(userId).messagesByChat);
+    }
+
+    public long unreadMessagesInChat(UUID userId, UUID chatId) {
+        return countersFor(userId).messagesByChat.getOrDefault(chatId, 0L);
+    }
+
+    public long unreadNotifications(UUID userId) {
+        return countersFor(userId).notifications.get();
+    }
+
+    /**
+     * Получатель получил новое сообщение в чате
+     */
+    public void messageReceived(UUID recipientId, UUID chatId) {
+        applyAfterCommit(recipientId, c -> c.addMessages(chatId, 1));
+    }
+
+    /**
+     * Непрочитанное сообщение удалено для всех
+     */
+    public void unreadMessageRemoved(UUID recipientId, UUID chatId) {
+        applyAfterCommit(recipientId, c -> c.addMessages(chatId, -1));
+    }
+
+    public void chatRead(UUID userId, UUID chatId) {
+        applyAfterCommit(userId, c -> c.resetChat(chatId));
+    }
+
+    public void allChatsRead(UUID userId) {
+        applyAfterCommit(userId, UserCounters::resetChats);
+    }
+
+    public void notificationCreated(UUID userId) {
+        applyAfterCommit(userId, c -> c.notifications.incrementAndGet());
+    }
+
+    public void notificationRead(UUID userId) {
+        applyAfterCommit(userId, c -> c.notifications.updateAndGet(value -> Math.max(value - 1, 0)));
+    }
+
+    public void allNotificationsRead(UUID userId) {
+        applyAfterCommit(userId, c -> c.notifications.set(0));
+    }
+
+    /**
+     * Сбросить счетчики пользователя: следующее обращение перечитает их из БД
+     */
+    public void evict(UUID userId) {
+        counters.invalidate(userId);
+    }
+
+    private UserCounters countersFor(UUID userId) {
+        // Параллельные обращения к одному пользователю ждут одну загрузку, а не перезаписывают друг друга
+        return counters.get(userId);
+    }
+
+    private UserCounters load(UUID userId) {
+        UserCounters loaded = new UserCounters();
+        for (UnreadCountProjection projection : messageRepository.countUnreadMessagesByChat(userId)) {
+            loaded.addMessages(projection.getChatId(), projection.getCount());
+        }
+        loaded.notifications.set(notificationRepository.countUnreadByUserId(userId));
+        log.debug("Unread counters loaded: userId={}, messages={}, notifications={}",
+                userId, loaded.messagesTotal.get(), loaded.notifications.get());
+        return loaded;
+    }
+
+    /**
+     * Изменение применяется только к уже загруженным счетчикам: если их нет,
+     * следующая загрузка из БД и так увидит зафиксированные данные.
+     */
+    private void applyAfterCommit(UUID userId, Consumer<UserCounters> change) {
+        TransactionHooks.afterCommit(() -> counters.asMap().computeIfPresent(userId, (id, current) -> {
+            change.accept(current);
+            return current;
+        }));
+    }
+
+    /**
+     * Счетчики одного пользователя. Изменяются только внутри computeIfPresent,
+     * то есть последовательно для каждого пользователя, читаются без блокировок.
+     */
+    private static final class UserCounters {
+
+        private final Map<UUID, Long> messagesByChat = new ConcurrentHashMap<>();
+        private final AtomicLong messagesTotal = new AtomicLong();
+        private final AtomicLong notifications = new AtomicLong();
+
+        private void addMessages(UUID chatId, long delta) {
+            long before = messagesByChat.getOrDefault(chatId, 0L);
+            long after = Math.max(before + delta, 0);
+            if (after == 0) {
+                messagesByChat.remove(chatId);
+            } else {
+                messagesByChat.put(chatId, after);
+            }
+            messagesTotal.addAndGet(after - before);
+        }
+
+        private void resetChat(UUID chatId) {
+            Long before = messagesByChat.remove(chatId);
+            if (before != null) {
+                messagesTotal.addAndGet(-before);
+            }
+        }
+
+        private void resetChats() {
+            messagesByChat.clear();
+            messagesTotal.set(0);
+        }
+    }
+}
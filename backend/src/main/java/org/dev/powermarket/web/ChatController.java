@@ -11,6 +11,7 @@ import lombok.RequiredArgsConstructor;
 import org.dev.powermarket.domain.dto.request.EditMessageRequest;
 import org.dev.powermarket.domain.dto.response.ChatDetailDto;
 import org.dev.powermarket.domain.dto.response.ChatListItemDto;
+import org.dev.powermarket.domain.dto.response.ChatMessageSliceDto;
 import org.dev.powermarket.service.ChatService;
 import org.dev.powermarket.service.dto.*;
 import org.springframework.data.domain.Page;
@@ -22,6 +23,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.UUID;
 
@@ -52,6 +54,24 @@ public class ChatController {
         return ResponseEntity.ok(chatService.getMyChats(principal.getUsername(), pageable));
     }
 
+    @Operation(
+            summary = "Подписаться на события чатов (SSE)",
+            description = "Открывает поток Server-Sent Events с событиями message.created, message.updated и " +
+                    "message.deleted. Без chatId приходят события всех чатов пользователя, с chatId - только этого чата."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Поток открыт"),
+            @ApiResponse(responseCode = "401", description = "Пользователь не авторизован"),
+            @ApiResponse(responseCode = "403", description = "Доступ к чату запрещен")
+    })
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(
+            @Parameter(hidden = true) @AuthenticationPrincipal UserDetails principal,
+            @Parameter(description = "ID чата (необязательно)", example = "123e4567-e89b-12d3-a456-426614174000")
+            @RequestParam(required = false) UUID chatId) {
+        return chatService.subscribe(principal.getUsername(), chatId);
+    }
+
     @Operation(
             summary = "Получить детальную информацию о чате",
             description = "Возвращает полную информацию о чате, включая последние сообщения"
@@ -90,6 +110,32 @@ public class ChatController {
         return ResponseEntity.ok(chatService.getChatMessages(principal.getUsername(), chatId, pageable));
     }
 
+    @Operation(
+            summary = "Получить историю сообщений чата (курсор)",
+            description = "Возвращает сообщения от новых к старым с keyset-пагинацией. Для следующей страницы " +
+                    "передайте nextCursor из предыдущего ответа в параметр before. Первая страница (без before) " +
+                    "помечает сообщения как прочитанные."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешный запрос"),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор"),
+            @ApiResponse(responseCode = "401", description = "Пользователь не авторизован"),
+            @ApiResponse(responseCode = "403", description = "Доступ к чату запрещен"),
+            @ApiResponse(responseCode = "404", description = "Чат не найден")
+    })
+    @GetMapping(value = "/{chatId}/messages/history", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ChatMessageSliceDto> getChatMessageHistory(
+            @Parameter(hidden = true) @AuthenticationPrincipal UserDetails principal,
+            @Parameter(description = "ID чата", required = true, example = "123e4567-e89b-12d3-a456-426614174000")
+            @PathVariable UUID chatId,
+            @Parameter(description = "Курсор: createdAt и id последнего полученного сообщения",
+                    example = "2024-05-01T10:15:30.123Z,123e4567-e89b-12d3-a456-426614174000")
+            @RequestParam(required = false) String before,
+            @Parameter(description = "Размер страницы (1-100)", example = "30")
+            @RequestParam(defaultValue = "30") int size) {
+        return ResponseEntity.ok(chatService.getChatMessageHistory(principal.getUsername(), chatId, before, size));
+    }
+
     @Operation(
             summary = "Отправить сообщение в чат",
             description = "Отправляет новое сообщение в указанный чат"
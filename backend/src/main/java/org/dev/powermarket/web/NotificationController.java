@@ -3,11 +3,15 @@ package org.dev.powermarket.web;
 import org.dev.powermarket.service.NotificationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import org.dev.powermarket.domain.dto.response.NotificationSliceDto;
+import org.dev.powermarket.domain.enums.NotificationType;
 import org.dev.powermarket.service.dto.NotificationDto;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.UUID;
@@ -29,12 +33,31 @@ public class NotificationController {
         return ResponseEntity.ok(notificationService.getMyNotifications(principal.getUsername()));
     }
 
+    @GetMapping("/feed")
+    public ResponseEntity<NotificationSliceDto> getNotificationFeed(
+            @AuthenticationPrincipal UserDetails principal,
+            @RequestParam(required = false) NotificationType type,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(notificationService.getNotificationFeed(principal.getUsername(), type, before, size));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@AuthenticationPrincipal UserDetails principal) {
+        return notificationService.subscribe(principal.getUsername());
+    }
+
     @GetMapping("/unread")
     public ResponseEntity<List<NotificationDto>> getUnreadNotifications(
             @AuthenticationPrincipal UserDetails principal) {
         return ResponseEntity.ok(notificationService.getUnreadNotifications(principal.getUsername()));
     }
 
+    @GetMapping("/unread/count")
+    public ResponseEntity<Long> getUnreadCount(@AuthenticationPrincipal UserDetails principal) {
+        return ResponseEntity.ok(notificationService.getUnreadCount(principal.getUsername()));
+    }
+
     @PutMapping("/{notificationId}/read")
     public ResponseEntity<Void> markAsRead(
             @AuthenticationPrincipal UserDetails principal,
@@ -59,10 +59,13 @@ public class ServiceController {
     public ResponseEntity<Page<ServiceDto>> searchServices(
             @RequestParam(required = false) String keyword,
             @RequestParam(required = false) ServiceCategory category,
+            @RequestParam(required = false) BigDecimal minCapacity,
+            @RequestParam(required = false) String location,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             Pageable pageable) {
-        return ResponseEntity.ok(serviceService.searchServices(keyword, category, startDate, endDate, pageable));
+        return ResponseEntity.ok(serviceService.searchServices(
+                keyword, category, minCapacity, location, startDate, endDate, pageable));
     }
 
     @GetMapping("/{serviceId}")
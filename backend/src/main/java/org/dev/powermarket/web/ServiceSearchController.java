@@ -3,7 +3,9 @@ package org.dev.powermarket.web;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.dev.powermarket.domain.dto.request.FacetedServiceSearchRequest;
 import org.dev.powermarket.domain.dto.request.ServiceSearchByCategoryRequest;
+import org.dev.powermarket.domain.dto.response.FacetedSearchResponse;
 import org.dev.powermarket.domain.dto.response.ServiceSearchResultResponse;
 import org.dev.powermarket.domain.enums.AvailabilityStatus;
 import org.dev.powermarket.domain.enums.ServiceCategory;
@@ -24,6 +26,14 @@ public class ServiceSearchController {
 
     private final ServiceSearchService serviceSearchService;
 
+    @PostMapping("/faceted")
+    @Operation(summary = "Faceted service search",
+            description = "Search by keyword, category, capacity and price ranges, location, rating and availability " +
+                    "dates. Returns a page of services with counts by category and price range")
+    public ResponseEntity<FacetedSearchResponse> facetedSearch(@RequestBody FacetedServiceSearchRequest searchRequest) {
+        return ResponseEntity.ok(serviceSearchService.facetedSearch(searchRequest));
+    }
+
     @PostMapping("/by-category-capacity")
     @Operation(summary = "Search services by category and capacity",
             description = "Search services filtered by category and minimum capacity")
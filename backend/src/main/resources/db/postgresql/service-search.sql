@@ -0,0 +1,10 @@
+-- Полнотекстовый поиск услуг: вычисляемый tsvector и GIN-индекс.
+-- Скрипт идемпотентный, выполняется при старте приложения на PostgreSQL.
+ALTER TABLE services ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('russian'::regconfig, coalesce(title, '')), 'A') ||
+        setweight(to_tsvector('russian'::regconfig, coalesce(technical_specs, '')), 'B') ||
+        setweight(to_tsvector('russian'::regconfig, coalesce(description, '')), 'C')
+    ) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_services_search_vector ON services USING GIN (search_vector);
@@ -0,0 +1,131 @@
+package org.dev.powermarket.integration.search;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.ExpectedCount.times;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withBadRequest;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class MlSearchClientTest {
+
+    private static final String URL = "http://ml/api/search?q=%D1%81%D0%BA%D0%BB%D0%B0%D0%B4%20%26%201&page=1&per_page=10";
+    private static final String QUERY = "склад & 1";
+
+    private RestTemplate restTemplate;
+    private MockRestServiceServer server;
+    private MlSearchProperties props;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        restTemplate = new RestTemplate();
+        restTemplate.setUriTemplateHandler(new DefaultUriBuilderFactory());
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        props = new MlSearchProperties();
+        props.setBaseUrl("http://ml/api");
+        props.setFailureThreshold(2);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void search_parsesHitsAndRecordsLatency() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        server.expect(once(), requestTo(URL)).andRespond(withSuccess(
+                "{\"hits\":[{\"document\":{\"id\":\"" + first + "\"}},{\"id\":\"" + second + "\"},{\"id\":\"x\"}]}",
+                MediaType.APPLICATION_JSON));
+
+        MlSearchResult result = client().search(QUERY, 1, 10);
+
+        assertThat(result.ids()).containsExactly(first, second);
+        assertThat(result.total()).isEqualTo(2);
+        assertThat(meterRegistry.get("ml.search.requests").tag("outcome", "success").timer().count()).isEqualTo(1);
+        server.verify();
+    }
+
+    @Test
+    void search_readsSearchServiceResultsAndTotal() {
+        UUID id = UUID.randomUUID();
+        server.expect(once(), requestTo(URL)).andRespond(withSuccess(
+                "{\"query\":\"склад\",\"total\":57,\"results\":[{\"document\":{\"id\":\"" + id + "\"}}],\"page\":1}",
+                MediaType.APPLICATION_JSON));
+
+        MlSearchResult result = client().search(QUERY, 1, 10);
+
+        assertThat(result.ids()).containsExactly(id);
+        assertThat(result.total()).isEqualTo(57);
+        server.verify();
+    }
+
+    @Test
+    void search_afterConsecutiveFailures_opensCircuitAndSkipsCalls() {
+        server.expect(times(2), requestTo(URL)).andRespond(withServerError());
+        MlSearchClient client = client();
+
+        assertThat(client.search(QUERY, 1, 10).isEmpty()).isTrue();
+        assertThat(client.search(QUERY, 1, 10).isEmpty()).isTrue();
+        // Цепь разомкнута - третий вызов в сервис не идет
+        assertThat(client.search(QUERY, 1, 10).isEmpty()).isTrue();
+
+        server.verify();
+        assertThat(meterRegistry.get("ml.search.rejected").tag("reason", "circuit_open").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("ml.search.circuit.open").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void search_trialCallAfterOpenDuration_closesCircuit() {
+        props.setOpenDuration(Duration.ZERO);
+        UUID id = UUID.randomUUID();
+        server.expect(times(2), requestTo(URL)).andRespond(withServerError());
+        server.expect(once(), requestTo(URL)).andRespond(withSuccess(
+                "{\"hits\":[{\"id\":\"" + id + "\"}]}", MediaType.APPLICATION_JSON));
+        MlSearchClient client = client();
+
+        client.search(QUERY, 1, 10);
+        client.search(QUERY, 1, 10);
+
+        assertThat(client.search(QUERY, 1, 10).ids()).containsExactly(id);
+        assertThat(meterRegistry.get("ml.search.circuit.open").gauge().value()).isZero();
+        server.verify();
+    }
+
+    @Test
+    void search_clientErrorsDoNotOpenCircuit() {
+        server.expect(times(3), requestTo(URL)).andRespond(withBadRequest());
+        MlSearchClient client = client();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(client.search(QUERY, 1, 10).isEmpty()).isTrue();
+        }
+
+        server.verify();
+        assertThat(meterRegistry.get("ml.search.requests").tag("outcome", "client_error").timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    void search_whenBulkheadIsFull_rejectsWithoutCalling() {
+        props.setMaxConcurrentCalls(0);
+
+        assertThat(client().search(QUERY, 1, 10)).isEqualTo(MlSearchResult.EMPTY);
+
+        server.verify();
+        assertThat(meterRegistry.get("ml.search.rejected").tag("reason", "bulkhead_full").counter().count()).isEqualTo(1);
+    }
+
+    private MlSearchClient client() {
+        return new MlSearchClient(restTemplate, props, meterRegistry);
+    }
+}
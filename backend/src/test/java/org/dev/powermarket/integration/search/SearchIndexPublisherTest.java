@@ -0,0 +1,158 @@
+package org.dev.powermarket.integration.search;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.dev.powermarket.domain.OutboxEvent;
+import org.dev.powermarket.domain.Service;
+import org.dev.powermarket.domain.enums.ServiceCategory;
+import org.dev.powermarket.repository.ServiceRepository;
+import org.dev.powermarket.security.entity.User;
+import org.dev.powermarket.service.outbox.OutboxBatchHandler;
+import org.dev.powermarket.service.outbox.ServiceEventType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+@ExtendWith(MockitoExtension.class)
+class SearchIndexPublisherTest {
+
+    private static final String URL = "http://ml/api/services/index/batch";
+
+    @Mock
+    private ServiceRepository serviceRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MockRestServiceServer server;
+    private MlSearchProperties props;
+    private SimpleMeterRegistry meterRegistry;
+    private SearchIndexPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        props = new MlSearchProperties();
+        props.setBaseUrl("http://ml/api");
+        meterRegistry = new SimpleMeterRegistry();
+        publisher = new SearchIndexPublisher(restTemplate, props, serviceRepository, transactionManager, meterRegistry);
+    }
+
+    @Test
+    void handleBatch_coalescesEventsAndSendsUpsertsAndDeletes() {
+        Service active = buildService(true, false);
+        Service deleted = buildService(false, true);
+        UUID missing = UUID.randomUUID();
+        List<OutboxEvent> events = List.of(
+                event(active.getId()), event(active.getId()), event(deleted.getId()), event(missing));
+        when(serviceRepository.findAllWithSupplierByIdIn(Set.of(active.getId(), deleted.getId(), missing)))
+                .thenReturn(List.of(active, deleted));
+        server.expect(requestTo(URL))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(jsonPath("$.upserts.length()").value(1))
+                .andExpect(jsonPath("$.upserts[0].id").value(active.getId().toString()))
+                .andExpect(jsonPath("$.upserts[0].technical_specs").value("380 В"))
+                .andExpect(jsonPath("$.upserts[0].supplier_name").value("ООО Склад"))
+                .andExpect(jsonPath("$.upserts[0].category").value("WAREHOUSE"))
+                .andExpect(jsonPath("$.deletes.length()").value(2))
+                .andRespond(withSuccess());
+
+        assertThat(publisher.handleBatch(events)).isEmpty();
+
+        server.verify();
+        assertThat(meterRegistry.get("search.index.lag").timer().count()).isEqualTo(4);
+        assertThat(meterRegistry.get("search.index.documents").tag("action", "delete").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void handleBatch_whenIndexRejectsDocument_reportsOnlyItsEvents() {
+        Service good = buildService(true, false);
+        Service bad = buildService(true, false);
+        OutboxEvent goodEvent = event(good.getId());
+        OutboxEvent badEvent = event(bad.getId());
+        when(serviceRepository.findAllWithSupplierByIdIn(Set.of(good.getId(), bad.getId())))
+                .thenReturn(List.of(good, bad));
+        server.expect(requestTo(URL)).andRespond(withSuccess("""
+                {"success": false, "upserted": 1, "deleted": 0,
+                 "failed": [{"id": "%s", "error": "field title is empty"}]}
+                """.formatted(bad.getId()), MediaType.APPLICATION_JSON));
+
+        List<OutboxBatchHandler.Failure> failures = publisher.handleBatch(List.of(goodEvent, badEvent));
+
+        assertThat(failures).singleElement().satisfies(failure -> {
+            assertThat(failure.eventId()).isEqualTo(badEvent.getId());
+            assertThat(failure.error()).contains("field title is empty");
+        });
+        assertThat(meterRegistry.get("search.index.lag").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void handleBatch_whenSearchServiceFails_throwsForRetry() {
+        Service active = buildService(true, false);
+        when(serviceRepository.findAllWithSupplierByIdIn(Set.of(active.getId()))).thenReturn(List.of(active));
+        server.expect(requestTo(URL)).andRespond(withServerError());
+
+        assertThatThrownBy(() -> publisher.handleBatch(List.of(event(active.getId()))))
+                .isInstanceOf(HttpServerErrorException.class);
+        assertThat(meterRegistry.get("search.index.lag").timer().count()).isZero();
+    }
+
+    @Test
+    void handleBatch_whenMlSearchDisabled_skipsPublishing() {
+        props.setEnabled(false);
+
+        publisher.handleBatch(List.of(event(UUID.randomUUID())));
+
+        verifyNoInteractions(serviceRepository);
+        server.verify();
+    }
+
+    private OutboxEvent event(UUID serviceId) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId(UUID.randomUUID());
+        event.setAggregateType(ServiceEventType.AGGREGATE_TYPE);
+        event.setAggregateId(serviceId);
+        event.setEventType(ServiceEventType.SERVICE_UPDATED.name());
+        event.setCreatedAt(Instant.now().minusSeconds(1));
+        return event;
+    }
+
+    private Service buildService(boolean active, boolean deleted) {
+        User supplier = new User();
+        supplier.setId(UUID.randomUUID());
+        supplier.setFullName("ООО Склад");
+        Service service = new Service();
+        service.setId(UUID.randomUUID());
+        service.setTitle("Теплый склад");
+        service.setCategory(ServiceCategory.WAREHOUSE);
+        service.setMaxCapacity(BigDecimal.TEN);
+        service.setTechnicalSpecs("380 В");
+        service.setSupplier(supplier);
+        service.setIsActive(active);
+        service.setDeleted(deleted);
+        return service;
+    }
+}
@@ -0,0 +1,107 @@
+package org.dev.powermarket.security.config;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.dev.powermarket.domain.enums.Role;
+import org.dev.powermarket.security.service.AuthenticatedUser;
+import org.dev.powermarket.security.service.JwtService;
+import org.dev.powermarket.security.service.TokenRevocationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwtAuthenticationFilterTest {
+
+    @Mock
+    private JwtService jwtService;
+    @Mock
+    private UserDetailsService userDetailsService;
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    private JwtAuthenticationFilter filter;
+
+    private final UUID userId = UUID.randomUUID();
+    private final String email = "user@test.com";
+
+    @BeforeEach
+    void setUp() {
+        filter = new JwtAuthenticationFilter(jwtService, userDetailsService, tokenRevocationService, true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void tokenWithClaims_authenticatesWithoutLoadingUser() throws Exception {
+        Claims claims = claims(true);
+        when(jwtService.extractAllClaims("token")).thenReturn(claims);
+
+        filter.doFilter(request(), new MockHttpServletResponse(), new MockFilterChain());
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertThat(authentication.getPrincipal()).isEqualTo(new AuthenticatedUser(userId, email, Role.TENANT));
+        assertThat(authentication.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_TENANT");
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void tokenWithoutClaims_fallsBackToUserDetailsService() throws Exception {
+        Claims claims = claims(false);
+        when(jwtService.extractAllClaims("token")).thenReturn(claims);
+        when(userDetailsService.loadUserByUsername(email))
+                .thenReturn(User.withUsername(email).password("hash").roles("TENANT").build());
+
+        filter.doFilter(request(), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(SecurityContextHolder.getContext().getAuthentication().getName()).isEqualTo(email);
+        verify(userDetailsService).loadUserByUsername(email);
+    }
+
+    @Test
+    void revokedToken_isNotAuthenticated() throws Exception {
+        Claims claims = claims(true);
+        when(jwtService.extractAllClaims("token")).thenReturn(claims);
+        when(tokenRevocationService.isRevoked(claims)).thenReturn(true);
+
+        filter.doFilter(request(), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    private MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer token");
+        return request;
+    }
+
+    private Claims claims(boolean withPrincipalClaims) {
+        Claims claims = Jwts.claims();
+        claims.setSubject(email);
+        if (withPrincipalClaims) {
+            claims.put(JwtService.CLAIM_USER_ID, userId.toString());
+            claims.put(JwtService.CLAIM_ROLE, Role.TENANT.name());
+        }
+        return claims;
+    }
+}
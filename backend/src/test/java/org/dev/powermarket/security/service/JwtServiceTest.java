@@ -0,0 +1,67 @@
+package org.dev.powermarket.security.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.security.SignatureException;
+import org.dev.powermarket.domain.enums.Role;
+import org.dev.powermarket.security.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    private JwtService jwtService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService(SECRET, 60_000, 120_000);
+        user = new User();
+        user.setId(UUID.randomUUID());
+        user.setEmail("user@test.com");
+        user.setRole(Role.SUPPLIER);
+    }
+
+    @Test
+    void generateToken_carriesPrincipalClaims() {
+        Claims claims = jwtService.extractAllClaims(jwtService.generateToken(user));
+
+        assertThat(claims.getSubject()).isEqualTo(user.getEmail());
+        assertThat(claims.getId()).isNotBlank();
+        assertThat(AuthenticatedUser.fromClaims(claims))
+                .isEqualTo(new AuthenticatedUser(user.getId(), user.getEmail(), Role.SUPPLIER));
+        assertThat(jwtService.isTokenValid(claims, user.getEmail())).isTrue();
+        assertThat(jwtService.isTokenValid(claims, "other@test.com")).isFalse();
+    }
+
+    @Test
+    void refreshToken_hasUserIdButNoRole() {
+        Claims claims = jwtService.extractAllClaims(jwtService.generateRefreshToken(user));
+
+        assertThat(claims.get(JwtService.CLAIM_USER_ID, String.class)).isEqualTo(user.getId().toString());
+        assertThat(AuthenticatedUser.fromClaims(claims)).isNull();
+    }
+
+    @Test
+    void extractAllClaims_rejectsTokenSignedWithAnotherKey() {
+        JwtService other = new JwtService(SECRET.replace('4', '5'), 60_000, 120_000);
+        String token = other.generateToken(user);
+
+        assertThatThrownBy(() -> jwtService.extractAllClaims(token)).isInstanceOf(SignatureException.class);
+    }
+
+    @Test
+    void extractAllClaims_rejectsExpiredToken() {
+        JwtService expired = new JwtService(SECRET, -1_000, -1_000);
+        String token = expired.generateToken(user);
+
+        assertThatThrownBy(() -> jwtService.extractAllClaims(token)).isInstanceOf(ExpiredJwtException.class);
+    }
+}
@@ -0,0 +1,57 @@
+package org.dev.powermarket.security.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenRevocationServiceTest {
+
+    private TokenRevocationService tokenRevocationService;
+
+    private final UUID userId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        tokenRevocationService = new TokenRevocationService(60_000, 100);
+    }
+
+    @Test
+    void revoke_rejectsOnlyThatToken() {
+        Claims token = claims(Instant.now());
+        Claims other = claims(Instant.now());
+
+        tokenRevocationService.revoke(token);
+
+        assertThat(tokenRevocationService.isRevoked(token)).isTrue();
+        assertThat(tokenRevocationService.isRevoked(other)).isFalse();
+    }
+
+    @Test
+    void revokeAllForUser_rejectsTokensIssuedEarlier() {
+        Claims issuedBefore = claims(Instant.now().minus(1, ChronoUnit.MINUTES));
+
+        tokenRevocationService.revokeAllForUser(userId);
+        Claims issuedAfter = claims(Instant.now().plus(1, ChronoUnit.SECONDS));
+
+        assertThat(tokenRevocationService.isRevoked(issuedBefore)).isTrue();
+        assertThat(tokenRevocationService.isRevoked(issuedAfter)).isFalse();
+    }
+
+    private Claims claims(Instant issuedAt) {
+        Claims claims = Jwts.claims();
+        claims.setId(UUID.randomUUID().toString());
+        claims.setSubject("user@test.com");
+        claims.put(JwtService.CLAIM_USER_ID, userId.toString());
+        claims.setIssuedAt(Date.from(issuedAt));
+        claims.setExpiration(Date.from(issuedAt.plus(1, ChronoUnit.HOURS)));
+        return claims;
+    }
+}
@@ -0,0 +1,105 @@
+package org.dev.powermarket.security.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.dev.powermarket.domain.enums.Role;
+import org.dev.powermarket.security.entity.User;
+import org.dev.powermarket.security.repository.AuthorizedUserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserLookupServiceTest {
+
+    @Mock
+    private AuthorizedUserRepository userRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private UserLookupService userLookupService;
+
+    private final String email = "user@test.com";
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        userLookupService = new UserLookupService(userRepository, meterRegistry, 100, 60_000);
+        user = new User();
+        user.setId(UUID.randomUUID());
+        user.setEmail(email);
+        user.setPasswordHash("hash");
+        user.setRole(Role.TENANT);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void findByEmail_loadsOnceAndServesFromCache() {
+        when(userRepository.findByEmail(email)).thenReturn(Optional.of(user));
+
+        CachedUser first = userLookupService.getByEmail(email);
+        UUID id = userLookupService.getUserIdByEmail(email);
+
+        assertThat(first).isEqualTo(new CachedUser(user.getId(), email, "hash", Role.TENANT));
+        assertThat(id).isEqualTo(user.getId());
+        verify(userRepository, times(1)).findByEmail(email);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "users").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void findByEmail_doesNotCacheMissingUser() {
+        when(userRepository.findByEmail(email)).thenReturn(Optional.empty(), Optional.of(user));
+
+        assertThatThrownBy(() -> userLookupService.getByEmail(email))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("User not found");
+        assertThat(userLookupService.findByEmail(email)).isPresent();
+    }
+
+    @Test
+    void evict_forcesReload() {
+        when(userRepository.findByEmail(email)).thenReturn(Optional.of(user));
+        userLookupService.getByEmail(email);
+
+        userLookupService.evict(email);
+        userLookupService.getByEmail(email);
+
+        verify(userRepository, times(2)).findByEmail(email);
+    }
+
+    @Test
+    void getReferenceByEmail_usesCachedIdWithoutQueryingByEmailAgain() {
+        when(userRepository.findByEmail(email)).thenReturn(Optional.of(user));
+        when(userRepository.getReferenceById(user.getId())).thenReturn(user);
+        userLookupService.getByEmail(email);
+
+        assertThat(userLookupService.getReferenceByEmail(email)).isSameAs(user);
+        verify(userRepository, times(1)).findByEmail(email);
+    }
+
+    @Test
+    void getUserIdByEmail_forCurrentPrincipal_doesNotLookUp() {
+        AuthenticatedUser principal = new AuthenticatedUser(user.getId(), email, Role.TENANT);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        assertThat(userLookupService.getUserIdByEmail(email)).isEqualTo(user.getId());
+        verifyNoInteractions(userRepository);
+    }
+}
@@ -7,23 +7,25 @@ import org.dev.powermarket.domain.ServiceAvailabilityPeriod;
 import org.dev.powermarket.repository.CapacityReservationRepository;
 import org.dev.powermarket.repository.ServiceAvailabilityPeriodRepository;
 import org.dev.powermarket.repository.ServiceRepository;
+import org.dev.powermarket.service.capacity.CapacitySnapshot;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
-import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,10 +38,14 @@ class CapacityManagementServiceTest {
     @Mock
     private ServiceRepository serviceRepository;
 
-    @Spy
-    @InjectMocks
     private CapacityManagementService capacityManagementService;
 
+    @BeforeEach
+    void setUp() {
+        capacityManagementService = new CapacityManagementService(
+                periodRepository, reservationRepository, serviceRepository, 100, 600_000, 1_800_000);
+    }
+
     @Test
     void reserveCapacity_whenCapacityAvailable_savesSingleReservation() {
         UUID serviceId = UUID.randomUUID();
@@ -51,8 +57,9 @@ class CapacityManagementServiceTest {
         LocalDate end = start.plusDays(2);
         BigDecimal capacity = BigDecimal.valueOf(4);
 
-        doReturn(true).when(capacityManagementService)
-                .isCapacityAvailable(serviceId, start, end, capacity);
+        when(periodRepository.findByServiceOrderByStartDate(service))
+                .thenReturn(List.of(period(start, end, BigDecimal.TEN)));
+        when(reservationRepository.findByService(service)).thenReturn(List.of());
 
         capacityManagementService.reserveCapacity(rental, start, end, capacity);
 
@@ -76,8 +83,10 @@ class CapacityManagementServiceTest {
         LocalDate end = start.plusDays(1);
         BigDecimal capacity = BigDecimal.valueOf(6);
 
-        doReturn(false).when(capacityManagementService)
-                .isCapacityAvailable(serviceId, start, end, capacity);
+        when(periodRepository.findByServiceOrderByStartDate(service))
+                .thenReturn(List.of(period(start, end, BigDecimal.TEN)));
+        when(reservationRepository.findByService(service))
+                .thenReturn(List.of(reservation(start, end, BigDecimal.valueOf(5))));
 
         assertThatThrownBy(() -> capacityManagementService.reserveCapacity(rental, start, end, capacity))
                 .isInstanceOf(IllegalArgumentException.class)
@@ -88,6 +97,9 @@ class CapacityManagementServiceTest {
     @Test
     void releaseCapacity_deletesAllReservationsForRental() {
         Rental rental = new Rental();
+        Service service = new Service();
+        service.setId(UUID.randomUUID());
+        rental.setService(service);
         List<CapacityReservation> reservations = List.of(new CapacityReservation());
 
         when(reservationRepository.findByRental(rental)).thenReturn(reservations);
@@ -103,13 +115,12 @@ class CapacityManagementServiceTest {
         LocalDate date = LocalDate.of(2024, 5, 10);
         Service service = new Service();
         service.setId(serviceId);
-        ServiceAvailabilityPeriod period = new ServiceAvailabilityPeriod();
-        period.setTotalCapacity(BigDecimal.TEN);
 
         when(serviceRepository.findById(serviceId)).thenReturn(Optional.of(service));
-        when(periodRepository.findByServiceAndDate(service, date)).thenReturn(Optional.of(period));
-        when(reservationRepository.getReservedCapacityForDate(service, date))
-                .thenReturn(BigDecimal.valueOf(3));
+        when(periodRepository.findByServiceOrderByStartDate(service))
+                .thenReturn(List.of(period(date.minusDays(5), date.plusDays(5), BigDecimal.TEN)));
+        when(reservationRepository.findByService(service))
+                .thenReturn(List.of(reservation(date, date.plusDays(1), BigDecimal.valueOf(3))));
 
         BigDecimal available = capacityManagementService.getAvailableCapacityForDate(serviceId, date);
 
@@ -124,12 +135,32 @@ class CapacityManagementServiceTest {
         service.setId(serviceId);
 
         when(serviceRepository.findById(serviceId)).thenReturn(Optional.of(service));
-        when(periodRepository.findByServiceAndDate(service, date)).thenReturn(Optional.empty());
+        when(periodRepository.findByServiceOrderByStartDate(service)).thenReturn(List.of());
+        when(reservationRepository.findByService(service)).thenReturn(List.of());
 
         BigDecimal available = capacityManagementService.getAvailableCapacityForDate(serviceId, date);
 
         assertThat(available).isZero();
-        verify(reservationRepository, never()).getReservedCapacityForDate(any(), any());
+    }
+
+    @Test
+    void getAvailableCapacityForDate_loadsLedgerOnlyOnce() {
+        UUID serviceId = UUID.randomUUID();
+        LocalDate date = LocalDate.of(2024, 5, 10);
+        Service service = new Service();
+        service.setId(serviceId);
+
+        when(serviceRepository.findById(serviceId)).thenReturn(Optional.of(service));
+        when(periodRepository.findByServiceOrderByStartDate(service))
+                .thenReturn(List.of(period(date, date.plusDays(90), BigDecimal.TEN)));
+        when(reservationRepository.findByService(service)).thenReturn(List.of());
+
+        capacityManagementService.getAvailableCapacityForDate(serviceId, date);
+        capacityManagementService.isCapacityAvailable(serviceId, date, date.plusDays(90), BigDecimal.ONE);
+
+        verify(serviceRepository, times(1)).findById(serviceId);
+        verify(periodRepository, times(1)).findByServiceOrderByStartDate(service);
+        verify(reservationRepository, times(1)).findByService(service);
     }
 
     @Test
@@ -142,10 +173,10 @@ class CapacityManagementServiceTest {
         service.setId(serviceId);
 
         when(serviceRepository.findById(serviceId)).thenReturn(Optional.of(service));
-        when(periodRepository.findOverlappingPeriods(service, start, end))
-                .thenReturn(List.of(new ServiceAvailabilityPeriod()));
-        doReturn(BigDecimal.valueOf(6)).when(capacityManagementService)
-                .getAvailableCapacityForDate(eq(serviceId), any(LocalDate.class));
+        when(periodRepository.findByServiceOrderByStartDate(service))
+                .thenReturn(List.of(period(start, end, BigDecimal.TEN)));
+        when(reservationRepository.findByService(service))
+                .thenReturn(List.of(reservation(start, end, BigDecimal.valueOf(4))));
 
         boolean result = capacityManagementService.isCapacityAvailable(serviceId, start, end, required);
 
@@ -162,14 +193,177 @@ class CapacityManagementServiceTest {
         service.setId(serviceId);
 
         when(serviceRepository.findById(serviceId)).thenReturn(Optional.of(service));
-        when(periodRepository.findOverlappingPeriods(service, start, end))
-                .thenReturn(List.of(new ServiceAvailabilityPeriod()));
-        doReturn(BigDecimal.valueOf(6), BigDecimal.valueOf(4))
-                .when(capacityManagementService)
-                .getAvailableCapacityForDate(eq(serviceId), any(LocalDate.class));
+        when(periodRepository.findByServiceOrderByStartDate(service))
+                .thenReturn(List.of(period(start, end, BigDecimal.TEN)));
+        when(reservationRepository.findByService(service))
+                .thenReturn(List.of(reservation(end, end, BigDecimal.valueOf(6))));
 
         boolean result = capacityManagementService.isCapacityAvailable(serviceId, start, end, required);
 
         assertThat(result).isFalse();
     }
+
+    @Test
+    void isCapacityAvailable_whenNoPeriodOverlaps_returnsFalse() {
+        UUID serviceId = UUID.randomUUID();
+        LocalDate start = LocalDate.of(2024, 8, 1);
+        Service service = new Service();
+        service.setId(serviceId);
+
+        when(serviceRepository.findById(serviceId)).thenReturn(Optional.of(service));
+        when(periodRepository.findByServiceOrderByStartDate(service))
+                .thenReturn(List.of(period(start.plusDays(10), start.plusDays(20), BigDecimal.TEN)));
+        when(reservationRepository.findByService(service)).thenReturn(List.of());
+
+        boolean result = capacityManagementService.isCapacityAvailable(serviceId, start, start.plusDays(2), BigDecimal.ZERO);
+
+        assertThat(result).isFalse();
+    }
+
+    @Test
+    void reserveAndRelease_updateCachedLedgerIncrementally() {
+        UUID serviceId = UUID.randomUUID();
+        LocalDate start = LocalDate.of(2024, 9, 1);
+        LocalDate end = start.plusDays(3);
+        Service service = new Service();
+        service.setId(serviceId);
+        Rental rental = new Rental();
+        rental.setService(service);
+
+        when(serviceRepository.findById(serviceId)).thenReturn(Optional.of(service));
+        when(periodRepository.findByServiceOrderByStartDate(service))
+                .thenReturn(List.of(period(start, end, BigDecimal.TEN)));
+        when(reservationRepository.findByService(service)).thenReturn(List.of());
+
+        assertThat(capacityManagementService.getAvailableCapacityForDate(serviceId, start)).isEqualByComparingTo("10");
+
+        capacityManagementService.reserveCapacity(rental, start.plusDays(1), end, BigDecimal.valueOf(4));
+
+        assertThat(capacityManagementService.getAvailableCapacityForDate(serviceId, start)).isEqualByComparingTo("10");
+        assertThat(capacityManagementService.getMinAvailableCapacity(serviceId, start, end)).isEqualByComparingTo("6");
+
+        when(reservationRepository.findByRental(rental))
+                .thenReturn(List.of(reservation(start.plusDays(1), end, BigDecimal.valueOf(4))));
+        capacityManagementService.releaseCapacity(rental);
+
+        assertThat(capacityManagementService.getMinAvailableCapacity(serviceId, start, end)).isEqualByComparingTo("10");
+        // Одна загрузка для кэша чтения и одна проверка брони по БД
+        verify(reservationRepository, times(2)).findByService(service);
+        verify(serviceRepository, times(1)).findById(serviceId);
+    }
+
+    @Test
+    void reserveCapacity_checksDatabaseInsteadOfStaleCachedLedger() {
+        UUID serviceId = UUID.randomUUID();
+        LocalDate start = LocalDate.of(2024, 9, 1);
+        LocalDate end = start.plusDays(3);
+        Service service = new Service();
+        service.setId(serviceId);
+        Rental rental = new Rental();
+        rental.setService(service);
+
+        when(serviceRepository.findById(serviceId)).thenReturn(Optional.of(service));
+        when(periodRepository.findByServiceOrderByStartDate(service))
+                .thenReturn(List.of(period(start, end, BigDecimal.TEN)));
+        when(reservationRepository.findByService(service)).thenReturn(List.of());
+        assertThat(capacityManagementService.isCapacityAvailable(serviceId, start, end, BigDecimal.valueOf(4))).isTrue();
+
+        // Бронь другого инстанса: в кэше ее нет, в БД есть
+        when(reservationRepository.findByService(service))
+                .thenReturn(List.of(reservation(start, end, BigDecimal.valueOf(8))));
+
+        assertThatThrownBy(() -> capacityManagementService.reserveCapacity(rental, start, end, BigDecimal.valueOf(4)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Not enough capacity");
+        verify(reservationRepository, never()).save(any());
+    }
+
+    @Test
+    void getCapacitySnapshots_loadsMissingLedgersWithTwoQueries() {
+        LocalDate today = LocalDate.of(2024, 10, 1);
+        Service first = new Service();
+        first.setId(UUID.randomUUID());
+        Service second = new Service();
+        second.setId(UUID.randomUUID());
+        List<UUID> ids = List.of(first.getId(), second.getId());
+
+        ServiceAvailabilityPeriod firstPeriod = period(today, today.plusDays(30), BigDecimal.TEN);
+        firstPeriod.setService(first);
+        ServiceAvailabilityPeriod secondPeriod = period(today, today.plusDays(30), BigDecimal.valueOf(50));
+        secondPeriod.setService(second);
+        Rental rental = new Rental();
+        rental.setService(second);
+        CapacityReservation reservation = reservation(today.plusDays(5), today.plusDays(6), BigDecimal.valueOf(45));
+        reservation.setRental(rental);
+
+        when(periodRepository.findByServiceIdIn(anyCollection())).thenReturn(List.of(firstPeriod, secondPeriod));
+        when(reservationRepository.findByServiceIdIn(anyCollection())).thenReturn(List.of(reservation));
+
+        Map<UUID, CapacitySnapshot> snapshots = capacityManagementService.getCapacitySnapshots(
+                ids, today, today, today.plusDays(10), BigDecimal.TEN);
+
+        assertThat(snapshots.get(first.getId()).currentAvailableCapacity()).isEqualByComparingTo("10");
+        assertThat(snapshots.get(first.getId()).availableForPeriod()).isTrue();
+        assertThat(snapshots.get(second.getId()).currentAvailableCapacity()).isEqualByComparingTo("50");
+        assertThat(snapshots.get(second.getId()).availableForPeriod()).isFalse();
+
+        capacityManagementService.getCapacitySnapshots(ids, today, null, null, BigDecimal.ZERO);
+
+        verify(periodRepository, times(1)).findByServiceIdIn(anyCollection());
+        verify(reservationRepository, times(1)).findByServiceIdIn(anyCollection());
+        verify(serviceRepository, never()).findById(any());
+    }
+
+    @Test
+    void computeCapacitySnapshots_doesNotCacheLoadedLedgers() {
+        LocalDate today = LocalDate.of(2024, 10, 1);
+        Service service = new Service();
+        service.setId(UUID.randomUUID());
+        ServiceAvailabilityPeriod period = period(today, today.plusDays(30), BigDecimal.TEN);
+        period.setService(service);
+        when(periodRepository.findByServiceIdIn(anyCollection())).thenReturn(List.of(period));
+        when(reservationRepository.findByServiceIdIn(anyCollection())).thenReturn(List.of());
+
+        Map<UUID, CapacitySnapshot> snapshots = capacityManagementService.computeCapacitySnapshots(
+                List.of(service.getId()), today, null, null, BigDecimal.ZERO);
+        capacityManagementService.computeCapacitySnapshots(List.of(service.getId()), today, null, null, BigDecimal.ZERO);
+
+        assertThat(snapshots.get(service.getId()).currentAvailableCapacity()).isEqualByComparingTo("10");
+        verify(periodRepository, times(2)).findByServiceIdIn(anyCollection());
+    }
+
+    @Test
+    void evictLedger_withoutTransaction_reloadsLedgerOnNextRequest() {
+        UUID serviceId = UUID.randomUUID();
+        Service service = new Service();
+        service.setId(serviceId);
+        LocalDate start = LocalDate.of(2024, 10, 1);
+        when(serviceRepository.findById(serviceId)).thenReturn(Optional.of(service));
+        when(periodRepository.findByServiceOrderByStartDate(service))
+                .thenReturn(List.of(period(start, start.plusDays(5), BigDecimal.TEN)));
+        when(reservationRepository.findByService(service)).thenReturn(List.of());
+
+        capacityManagementService.getAvailableCapacityForDate(serviceId, start);
+        capacityManagementService.getAvailableCapacityForDate(serviceId, start);
+        capacityManagementService.evictLedger(serviceId);
+        capacityManagementService.getAvailableCapacityForDate(serviceId, start);
+
+        verify(periodRepository, times(2)).findByServiceOrderByStartDate(service);
+    }
+
+    private ServiceAvailabilityPeriod period(LocalDate start, LocalDate end, BigDecimal totalCapacity) {
+        ServiceAvailabilityPeriod period = new ServiceAvailabilityPeriod();
+        period.setStartDate(start);
+        period.setEndDate(end);
+        period.setTotalCapacity(totalCapacity);
+        return period;
+    }
+
+    private CapacityReservation reservation(LocalDate start, LocalDate end, BigDecimal capacity) {
+        CapacityReservation reservation = new CapacityReservation();
+        reservation.setStartDate(start);
+        reservation.setEndDate(end);
+        reservation.setReservedCapacity(capacity);
+        return reservation;
+    }
 }
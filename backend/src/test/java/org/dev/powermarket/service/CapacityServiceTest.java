@@ -43,25 +43,14 @@ class CapacityServiceTest {
         UUID serviceId = UUID.randomUUID();
         Service service = new Service();
         LocalDate date = LocalDate.of(2024, 1, 1);
-        ServiceAvailabilityPeriod period = new ServiceAvailabilityPeriod();
-        period.setTotalCapacity(BigDecimal.TEN);
+        ServiceAvailabilityPeriod period = period(date, date.plusDays(30), BigDecimal.TEN);
 
         when(serviceRepository.findById(serviceId)).thenReturn(Optional.of(service));
-        when(periodRepository.findByServiceAndDate(service, date)).thenReturn(Optional.of(period));
-        when(reservationRepository.getReservedCapacityForDate(service, date)).thenReturn(BigDecimal.valueOf(3));
-
-        User tenant = new User();
-        tenant.setFullName("John Doe");
-        Rental rental = new Rental();
-        rental.setTenant(tenant);
-        rental.setStartDate(date);
-        rental.setEndDate(date.plusDays(1));
+        when(periodRepository.findPeriodsInRange(service, date, date)).thenReturn(List.of(period));
 
-        CapacityReservation reservation = new CapacityReservation();
-        reservation.setRental(rental);
-        reservation.setReservedCapacity(BigDecimal.valueOf(3));
+        CapacityReservation reservation = reservation("John Doe", date, date.plusDays(1), BigDecimal.valueOf(3));
 
-        when(reservationRepository.findByServiceAndDateRange(service, date, date))
+        when(reservationRepository.findByServiceAndDateRangeWithTenant(service, date, date))
                 .thenReturn(List.of(reservation));
 
         List<CapacityAvailabilityResponse> responses =
@@ -80,9 +69,43 @@ class CapacityServiceTest {
         assertThat(slot.reservedCapacity()).isEqualByComparingTo("3");
 
         verify(serviceRepository).findById(serviceId);
-        verify(periodRepository).findByServiceAndDate(service, date);
-        verify(reservationRepository).getReservedCapacityForDate(service, date);
-        verify(reservationRepository).findByServiceAndDateRange(service, date, date);
+        verify(periodRepository).findPeriodsInRange(service, date, date);
+        verify(reservationRepository).findByServiceAndDateRangeWithTenant(service, date, date);
+        verifyNoMoreInteractions(periodRepository, reservationRepository);
+    }
+
+    @Test
+    void getCapacityAvailability_overLongWindow_usesTwoQueriesAndSweepsReservations() {
+        UUID serviceId = UUID.randomUUID();
+        Service service = new Service();
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        LocalDate end = start.plusDays(364);
+
+        when(serviceRepository.findById(serviceId)).thenReturn(Optional.of(service));
+        when(periodRepository.findPeriodsInRange(service, start, end)).thenReturn(List.of(
+                period(start, start.plusDays(99), BigDecimal.TEN),
+                period(start.plusDays(200), end, BigDecimal.valueOf(20))));
+        when(reservationRepository.findByServiceAndDateRangeWithTenant(service, start, end)).thenReturn(List.of(
+                reservation("A", start.plusDays(10), start.plusDays(19), BigDecimal.valueOf(4)),
+                reservation("B", start.plusDays(15), start.plusDays(210), BigDecimal.valueOf(5))));
+
+        List<CapacityAvailabilityResponse> responses =
+                capacityService.getCapacityAvailability(serviceId, start, end);
+
+        assertThat(responses).hasSize(365);
+        assertThat(responses.get(9).availableCapacity()).isEqualByComparingTo("10");
+        assertThat(responses.get(12).availableCapacity()).isEqualByComparingTo("6");
+        assertThat(responses.get(16).availableCapacity()).isEqualByComparingTo("1");
+        assertThat(responses.get(16).occupiedSlots()).extracting(CapacityAvailabilityResponse.OccupiedSlot::tenantName)
+                .containsExactly("A", "B");
+        assertThat(responses.get(20).reservedCapacity()).isEqualByComparingTo("5");
+        assertThat(responses.get(150).totalCapacity()).isZero();
+        assertThat(responses.get(150).occupiedSlots()).isEmpty();
+        assertThat(responses.get(205).availableCapacity()).isEqualByComparingTo("15");
+        assertThat(responses.get(300).availableCapacity()).isEqualByComparingTo("20");
+
+        verify(periodRepository, times(1)).findPeriodsInRange(any(), any(), any());
+        verify(reservationRepository, times(1)).findByServiceAndDateRangeWithTenant(any(), any(), any());
     }
 
     @Test
@@ -93,8 +116,7 @@ class CapacityServiceTest {
         LocalDate end = start.plusDays(1);
 
         when(serviceRepository.findById(serviceId)).thenReturn(Optional.of(service));
-        when(periodRepository.findByServiceAndDate(eq(service), any(LocalDate.class)))
-                .thenReturn(Optional.empty());
+        when(periodRepository.findPeriodsInRange(service, start, end)).thenReturn(List.of());
 
         List<CapacityAvailabilityResponse> responses =
                 capacityService.getCapacityAvailability(serviceId, start, end);
@@ -107,7 +129,30 @@ class CapacityServiceTest {
             assertThat(response.occupiedSlots()).isEmpty();
         });
 
-        verify(reservationRepository, never()).getReservedCapacityForDate(any(), any());
-        verify(reservationRepository, never()).findByServiceAndDateRange(any(), any(), any());
+        verify(reservationRepository, never()).findByServiceAndDateRangeWithTenant(any(), any(), any());
+    }
+
+    private ServiceAvailabilityPeriod period(LocalDate start, LocalDate end, BigDecimal totalCapacity) {
+        ServiceAvailabilityPeriod period = new ServiceAvailabilityPeriod();
+        period.setStartDate(start);
+        period.setEndDate(end);
+        period.setTotalCapacity(totalCapacity);
+        return period;
+    }
+
+    private CapacityReservation reservation(String tenantName, LocalDate start, LocalDate end, BigDecimal capacity) {
+        User tenant = new User();
+        tenant.setFullName(tenantName);
+        Rental rental = new Rental();
+        rental.setTenant(tenant);
+        rental.setStartDate(start);
+        rental.setEndDate(end);
+
+        CapacityReservation reservation = new CapacityReservation();
+        reservation.setRental(rental);
+        reservation.setStartDate(start);
+        reservation.setEndDate(end);
+        reservation.setReservedCapacity(capacity);
+        return reservation;
     }
 }
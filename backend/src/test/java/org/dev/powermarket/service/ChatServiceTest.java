@@ -8,29 +8,38 @@ import org.dev.powermarket.domain.dto.mapper.ChatMapper;
 import org.dev.powermarket.domain.dto.request.EditMessageRequest;
 import org.dev.powermarket.domain.dto.response.ChatDetailDto;
 import org.dev.powermarket.domain.dto.response.ChatListItemDto;
+import org.dev.powermarket.domain.dto.response.ChatMessageSliceDto;
 import org.dev.powermarket.repository.ChatMessageRepository;
 import org.dev.powermarket.repository.ChatRepository;
-import org.dev.powermarket.repository.projection.UnreadCountProjection;
 import org.dev.powermarket.security.entity.User;
-import org.dev.powermarket.security.repository.AuthorizedUserRepository;
+import org.dev.powermarket.security.service.UserLookupService;
 import org.dev.powermarket.service.dto.ChatMessageDto;
+import org.dev.powermarket.service.dto.KeysetCursor;
 import org.dev.powermarket.service.dto.SendMessageRequest;
+import org.dev.powermarket.service.realtime.ChatRealtimeEvent;
+import org.dev.powermarket.service.realtime.SseHub;
+import org.dev.powermarket.service.unread.UnreadCounterService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -42,9 +51,15 @@ class ChatServiceTest {
     @Mock
     private ChatMessageRepository messageRepository;
     @Mock
-    private AuthorizedUserRepository userRepository;
+    private UserLookupService userLookupService;
     @Mock
     private ChatMapper chatMapper;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private SseHub sseHub;
+    @Mock
+    private UnreadCounterService unreadCounterService;
 
     @InjectMocks
     private ChatService chatService;
@@ -57,14 +72,14 @@ class ChatServiceTest {
         Chat chat = buildChat(user, buildUser("tenant"));
         Pageable pageable = PageRequest.of(0, 5);
 
-        when(userRepository.findByEmail(email)).thenReturn(Optional.of(user));
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(user);
         when(chatRepository.findChatsByUserId(user.getId(), pageable))
                 .thenReturn(new PageImpl<>(List.of(chat), pageable, 1));
         ChatMessage lastMessage = buildMessage(chat, user, "last");
         when(messageRepository.findLastMessagesForChats(List.of(chat.getId())))
                 .thenReturn(List.of(lastMessage));
-        when(messageRepository.countUnreadMessagesByChat(user.getId()))
-                .thenReturn(List.of(new TestUnreadCountProjection(chat.getId(), 3L)));
+        when(unreadCounterService.unreadMessagesByChat(user.getId()))
+                .thenReturn(Map.of(chat.getId(), 3L));
         ChatListItemDto dto = mock(ChatListItemDto.class);
         when(chatMapper.toListItemDto(chat, user, lastMessage, 3)).thenReturn(dto);
 
@@ -82,9 +97,9 @@ class ChatServiceTest {
         ChatMessageDto dto = mock(ChatMessageDto.class);
 
         when(chatRepository.findById(chat.getId())).thenReturn(Optional.of(chat));
-        when(userRepository.findByEmail(email)).thenReturn(Optional.of(user));
-        when(messageRepository.findUnreadMessages(chat.getId(), user.getId()))
-                .thenReturn(List.of(unread));
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(user);
+        when(messageRepository.markChatMessagesAsRead(eq(chat.getId()), eq(user.getId()), any(Instant.class)))
+                .thenReturn(1);
         when(messageRepository.findVisibleMessagesByChat(chat, user.getId(), pageable))
                 .thenReturn(new PageImpl<>(List.of(unread), pageable, 1));
         when(chatMapper.toMessageDto(unread)).thenReturn(dto);
@@ -92,8 +107,68 @@ class ChatServiceTest {
         Page<ChatMessageDto> page = chatService.getChatMessages(email, chat.getId(), pageable);
 
         assertThat(page.getContent()).containsExactly(dto);
-        verify(messageRepository).saveAll(List.of(unread));
-        verify(chatRepository).save(chat);
+        assertThat(chat.isHasUnread()).isFalse();
+        verify(messageRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void getChatMessageHistory_firstPage_marksReadAndReturnsCursor() {
+        User user = buildUser("supplier");
+        User tenant = buildUser("tenant");
+        Chat chat = buildChat(user, tenant);
+        ChatMessage newest = buildMessage(chat, tenant, "newest");
+        ChatMessage oldest = buildMessage(chat, tenant, "oldest");
+        oldest.setCreatedAt(newest.getCreatedAt().minusSeconds(60));
+        Pageable pageable = PageRequest.of(0, 2);
+
+        when(chatRepository.findById(chat.getId())).thenReturn(Optional.of(chat));
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(user);
+        when(messageRepository.markChatMessagesAsRead(eq(chat.getId()), eq(user.getId()), any(Instant.class)))
+                .thenReturn(1);
+        when(messageRepository.findVisibleMessagesSlice(chat, user.getId(), pageable))
+                .thenReturn(new SliceImpl<>(List.of(newest, oldest), pageable, true));
+
+        ChatMessageSliceDto result = chatService.getChatMessageHistory(email, chat.getId(), null, 2);
+
+        assertThat(result.content()).hasSize(2);
+        assertThat(result.hasNext()).isTrue();
+        assertThat(KeysetCursor.parse(result.nextCursor()))
+                .isEqualTo(new KeysetCursor(oldest.getCreatedAt(), oldest.getId()));
+        verify(messageRepository).markChatMessagesAsRead(eq(chat.getId()), eq(user.getId()), any(Instant.class));
+    }
+
+    @Test
+    void getChatMessageHistory_withCursor_seeksWithoutMarkingRead() {
+        User user = buildUser("supplier");
+        Chat chat = buildChat(user, buildUser("tenant"));
+        KeysetCursor cursor = new KeysetCursor(Instant.parse("2024-05-01T10:15:30.123Z"), UUID.randomUUID());
+        ChatMessage older = buildMessage(chat, user, "older");
+        Pageable pageable = PageRequest.of(0, 100);
+
+        when(chatRepository.findById(chat.getId())).thenReturn(Optional.of(chat));
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(user);
+        when(messageRepository.findVisibleMessagesBefore(chat, user.getId(), cursor.createdAt(), cursor.id(), pageable))
+                .thenReturn(new SliceImpl<>(List.of(older), pageable, false));
+
+        ChatMessageSliceDto result = chatService.getChatMessageHistory(email, chat.getId(), cursor.encode(), 500);
+
+        assertThat(result.content()).hasSize(1);
+        assertThat(result.hasNext()).isFalse();
+        assertThat(result.nextCursor()).isNull();
+        verify(messageRepository, never()).markChatMessagesAsRead(any(), any(), any());
+    }
+
+    @Test
+    void getChatMessageHistory_withMalformedCursor_throwsException() {
+        User user = buildUser("supplier");
+        Chat chat = buildChat(user, buildUser("tenant"));
+
+        when(chatRepository.findById(chat.getId())).thenReturn(Optional.of(chat));
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(user);
+
+        assertThatThrownBy(() -> chatService.getChatMessageHistory(email, chat.getId(), "yesterday", 20))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid cursor");
     }
 
     @Test
@@ -105,9 +180,7 @@ class ChatServiceTest {
         ChatMessageDto dto = mock(ChatMessageDto.class);
 
         when(chatRepository.findById(chat.getId())).thenReturn(Optional.of(chat));
-        when(userRepository.findByEmail(email)).thenReturn(Optional.of(supplier));
-        when(messageRepository.findUnreadMessages(chat.getId(), supplier.getId()))
-                .thenReturn(List.of());
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(supplier);
         when(messageRepository.save(any(ChatMessage.class))).thenAnswer(invocation -> {
             ChatMessage saved = invocation.getArgument(0);
             saved.setId(UUID.randomUUID());
@@ -119,6 +192,13 @@ class ChatServiceTest {
 
         assertThat(result).isSameAs(dto);
         verify(chatRepository).save(chat);
+        verify(unreadCounterService).messageReceived(tenant.getId(), chat.getId());
+
+        ArgumentCaptor<ChatRealtimeEvent> event = ArgumentCaptor.forClass(ChatRealtimeEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().type()).isEqualTo(ChatRealtimeEvent.MESSAGE_CREATED);
+        assertThat(event.getValue().recipientIds()).containsExactlyInAnyOrder(supplier.getId(), tenant.getId());
+        assertThat(event.getValue().payload()).isSameAs(dto);
     }
 
     @Test
@@ -133,7 +213,7 @@ class ChatServiceTest {
         ChatMessageDto dto = mock(ChatMessageDto.class);
 
         when(messageRepository.findById(message.getId())).thenReturn(Optional.of(message));
-        when(userRepository.findByEmail(email)).thenReturn(Optional.of(user));
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(user);
         when(messageRepository.save(message)).thenReturn(message);
         when(messageRepository.findFirstVisibleByChat(eq(chat), isNull()))
                 .thenReturn(Optional.of(message));
@@ -156,7 +236,7 @@ class ChatServiceTest {
         ChatMessage previous = buildMessage(chat, sender, "prev");
 
         when(messageRepository.findById(message.getId())).thenReturn(Optional.of(message));
-        when(userRepository.findByEmail(email)).thenReturn(Optional.of(sender));
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(sender);
         when(messageRepository.findFirstVisibleByChat(eq(chat), isNull()))
                 .thenReturn(Optional.of(previous));
 
@@ -174,20 +254,27 @@ class ChatServiceTest {
         ChatMessage message = buildMessage(chat, sender, "to delete");
 
         when(messageRepository.findById(message.getId())).thenReturn(Optional.of(message));
-        when(userRepository.findByEmail(email)).thenReturn(Optional.of(sender));
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(sender);
 
         chatService.deleteMessage(email, message.getId(), false);
 
         assertThat(message.isDeletedForSender()).isTrue();
         verify(messageRepository).save(message);
         verify(chatRepository, never()).save(any());
+
+        ArgumentCaptor<ChatRealtimeEvent> event = ArgumentCaptor.forClass(ChatRealtimeEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().type()).isEqualTo(ChatRealtimeEvent.MESSAGE_DELETED);
+        assertThat(event.getValue().recipientIds()).containsExactly(sender.getId());
+        assertThat(event.getValue().payload())
+                .isEqualTo(new ChatRealtimeEvent.DeletedMessage(message.getId(), chat.getId()));
     }
 
     @Test
-    void getUnreadMessagesCount_returnsRepositoryValue() {
+    void getUnreadMessagesCount_returnsCounterValue() {
         User user = buildUser("supplier");
-        when(userRepository.findByEmail(email)).thenReturn(Optional.of(user));
-        when(messageRepository.countUnreadMessages(user.getId())).thenReturn(7L);
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(user);
+        when(unreadCounterService.unreadMessages(user.getId())).thenReturn(7L);
 
         long count = chatService.getUnreadMessagesCount(email);
 
@@ -198,38 +285,62 @@ class ChatServiceTest {
     void markMessagesAsRead_marksAllAndClearsFlag() {
         User user = buildUser("supplier");
         Chat chat = buildChat(user, buildUser("tenant"));
-        ChatMessage unread = buildMessage(chat, buildUser("tenant"), "unread");
 
         when(chatRepository.findById(chat.getId())).thenReturn(Optional.of(chat));
-        when(userRepository.findByEmail(email)).thenReturn(Optional.of(user));
-        when(messageRepository.findUnreadMessages(chat.getId(), user.getId()))
-                .thenReturn(List.of(unread));
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(user);
+        when(messageRepository.markChatMessagesAsRead(eq(chat.getId()), eq(user.getId()), any(Instant.class)))
+                .thenReturn(3);
 
         chatService.markMessagesAsRead(email, chat.getId());
 
-        assertThat(unread.getReadAt()).isNotNull();
-        verify(messageRepository).saveAll(List.of(unread));
-        verify(chatRepository).save(chat);
+        assertThat(chat.isHasUnread()).isFalse();
+        verify(unreadCounterService).chatRead(user.getId(), chat.getId());
+        verify(chatRepository, never()).save(any());
+    }
+
+    @Test
+    void markMessagesAsRead_withNothingUnread_keepsFlag() {
+        User user = buildUser("supplier");
+        Chat chat = buildChat(user, buildUser("tenant"));
+
+        when(chatRepository.findById(chat.getId())).thenReturn(Optional.of(chat));
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(user);
+        when(messageRepository.markChatMessagesAsRead(eq(chat.getId()), eq(user.getId()), any(Instant.class)))
+                .thenReturn(0);
+
+        chatService.markMessagesAsRead(email, chat.getId());
+
+        // Флаг мог быть выставлен сообщением самого пользователя для собеседника
+        assertThat(chat.isHasUnread()).isTrue();
     }
 
     @Test
     void markAllMessagesAsRead_marksEveryUnreadAndUpdatesChats() {
         User user = buildUser("supplier");
-        Chat chat1 = buildChat(user, buildUser("tenant1"));
-        Chat chat2 = buildChat(user, buildUser("tenant2"));
-        ChatMessage msg1 = buildMessage(chat1, buildUser("tenant1"), "m1");
-        ChatMessage msg2 = buildMessage(chat2, buildUser("tenant2"), "m2");
 
-        when(userRepository.findByEmail(email)).thenReturn(Optional.of(user));
-        when(messageRepository.findAllUnreadMessages(user.getId()))
-                .thenReturn(List.of(msg1, msg2));
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(user);
+        when(messageRepository.markAllMessagesAsRead(eq(user.getId()), any(Instant.class)))
+                .thenReturn(2);
 
         chatService.markAllMessagesAsRead(email);
 
-        assertThat(msg1.getReadAt()).isNotNull();
-        assertThat(msg2.getReadAt()).isNotNull();
-        verify(messageRepository).saveAll(List.of(msg1, msg2));
-        verify(chatRepository, times(2)).save(any(Chat.class));
+        verify(chatRepository).clearUnreadForRecipient(user.getId());
+        verify(unreadCounterService).allChatsRead(user.getId());
+        verify(messageRepository, never()).saveAll(any());
+        verify(chatRepository, never()).save(any(Chat.class));
+    }
+
+    @Test
+    void markAllMessagesAsRead_withNothingUnread_skipsChatUpdate() {
+        User user = buildUser("supplier");
+
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(user);
+        when(messageRepository.markAllMessagesAsRead(eq(user.getId()), any(Instant.class)))
+                .thenReturn(0);
+
+        chatService.markAllMessagesAsRead(email);
+
+        verify(chatRepository, never()).clearUnreadForRecipient(any());
     }
 
     @Test
@@ -238,18 +349,15 @@ class ChatServiceTest {
         User tenant = buildUser("tenant");
         Chat chat = buildChat(supplier, tenant);
         ChatMessage lastVisible = buildMessage(chat, tenant, "last");
-        ChatMessage unread = buildMessage(chat, tenant, "new");
-        unread.setDeletedForEveryone(false);
         ChatDetailDto detailDto = mock(ChatDetailDto.class);
 
         when(chatRepository.findById(chat.getId())).thenReturn(Optional.of(chat));
-        when(userRepository.findByEmail(email)).thenReturn(Optional.of(supplier));
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(supplier);
         when(messageRepository.findVisibleMessagesByChat(eq(chat), eq(supplier.getId()), any(Pageable.class)))
                 .thenReturn(new PageImpl<>(List.of(lastVisible)));
         when(messageRepository.findFirstVisibleByChat(chat, supplier.getId()))
                 .thenReturn(Optional.of(lastVisible));
-        when(messageRepository.findUnreadMessages(chat.getId(), supplier.getId()))
-                .thenReturn(List.of(unread));
+        when(unreadCounterService.unreadMessagesInChat(supplier.getId(), chat.getId())).thenReturn(1L);
         when(chatMapper.toDetailDto(eq(chat), eq(supplier), anyList(), eq(lastVisible), eq(1)))
                 .thenReturn(detailDto);
 
@@ -287,9 +395,4 @@ class ChatServiceTest {
         message.setCreatedAt(Instant.now());
         return message;
     }
-
-    private record TestUnreadCountProjection(UUID chatId, Long count) implements UnreadCountProjection {
-        @Override public UUID getChatId() { return chatId; }
-        @Override public Long getCount() { return count; }
-    }
 }
@@ -0,0 +1,165 @@
+package org.dev.powermarket.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.dev.powermarket.domain.Notification;
+import org.dev.powermarket.domain.enums.NotificationType;
+import org.dev.powermarket.security.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EmailServiceTest {
+
+    @Mock
+    private ObjectProvider<JavaMailSender> mailSenderProvider;
+
+    private final FakeMailSender mailSender = new FakeMailSender();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private EmailService emailService;
+
+    @BeforeEach
+    void setUp() {
+        emailService = new EmailService(mailSenderProvider, meterRegistry, "no-reply@test",
+                true, 3, 2, 3, 0, 1, false);
+    }
+
+    @Test
+    void queuedLetters_areSentInBatches() {
+        when(mailSenderProvider.getIfAvailable()).thenReturn(mailSender);
+
+        emailService.sendDealStatusEmail(user("a@test.com"), notification());
+        emailService.sendDealStatusEmail(user("b@test.com"), notification());
+        emailService.sendDealStatusEmail(user("c@test.com"), notification());
+
+        while (emailService.sendReadyBatch()) {
+            // отправляем все, что готово
+        }
+
+        assertThat(mailSender.batches).extracting(List::size).containsExactly(2, 1);
+        assertThat(mailSender.batches.getFirst().getFirst().getSubject()).isEqualTo("Запрос на аренду одобрен");
+        assertThat(meterRegistry.counter("mail.sent").count()).isEqualTo(3);
+        assertThat(meterRegistry.get("mail.queue.size").gauge().value()).isZero();
+    }
+
+    @Test
+    void transientFailure_isRetriedUntilSent() {
+        when(mailSenderProvider.getIfAvailable()).thenReturn(mailSender);
+        mailSender.failuresLeft = 1;
+
+        emailService.sendDealStatusEmail(user("a@test.com"), notification());
+
+        assertThat(emailService.sendReadyBatch()).isTrue();
+        assertThat(mailSender.batches).isEmpty();
+        assertThat(emailService.sendReadyBatch()).isTrue();
+
+        assertThat(mailSender.batches).hasSize(1);
+        assertThat(meterRegistry.counter("mail.sent").count()).isEqualTo(1);
+    }
+
+    @Test
+    void partialFailure_retriesOnlyFailedLetters() {
+        when(mailSenderProvider.getIfAvailable()).thenReturn(mailSender);
+        mailSender.rejectedRecipient = "b@test.com";
+
+        emailService.sendDealStatusEmail(user("a@test.com"), notification());
+        emailService.sendDealStatusEmail(user("b@test.com"), notification());
+
+        while (emailService.sendReadyBatch()) {
+            // повторы до исчерпания попыток
+        }
+
+        assertThat(meterRegistry.counter("mail.sent").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("mail.failed").count()).isEqualTo(1);
+        assertThat(mailSender.batches).extracting(List::size).containsExactly(2, 1, 1);
+    }
+
+    @Test
+    void fullQueue_dropsLetterInsteadOfBlocking() {
+        when(mailSenderProvider.getIfAvailable()).thenReturn(mailSender);
+
+        for (int i = 0; i < 4; i++) {
+            emailService.sendDealStatusEmail(user(i + "@test.com"), notification());
+        }
+
+        assertThat(meterRegistry.counter("mail.dropped").count()).isEqualTo(1);
+        assertThat(meterRegistry.get("mail.queue.size").gauge().value()).isEqualTo(3);
+    }
+
+    @Test
+    void withoutMailSender_lettersAreNotQueued() {
+        emailService.sendWelcomeEmail(user("a@test.com"));
+
+        assertThat(emailService.sendReadyBatch()).isFalse();
+    }
+
+    @Test
+    void retryDelay_growsExponentiallyAndIsCapped() {
+        EmailService service = new EmailService(mailSenderProvider, meterRegistry, "no-reply@test",
+                true, 3, 2, 3, 1000, 1, false);
+
+        assertThat(service.retryDelay(1)).isEqualTo(Duration.ofSeconds(1));
+        assertThat(service.retryDelay(3)).isEqualTo(Duration.ofSeconds(4));
+        assertThat(service.retryDelay(20)).isEqualTo(Duration.ofMinutes(10));
+    }
+
+    private User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setFullName("Test User");
+        return user;
+    }
+
+    private Notification notification() {
+        Notification notification = new Notification();
+        notification.setType(NotificationType.REQUEST_APPROVED);
+        notification.setTitle("Запрос одобрен");
+        notification.setMessage("Ваш запрос одобрен");
+        return notification;
+    }
+
+    /**
+     * SMTP-заглушка в памяти: запоминает пачки и умеет имитировать сбои
+     */
+    private static class FakeMailSender extends JavaMailSenderImpl {
+
+        private final List<List<SimpleMailMessage>> batches = new ArrayList<>();
+        private int failuresLeft;
+        private String rejectedRecipient;
+
+        @Override
+        public void send(SimpleMailMessage... messages) {
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                throw new MailSendException("Connection refused");
+            }
+            batches.add(List.of(messages));
+            Map<Object, Exception> failed = new LinkedHashMap<>();
+            for (SimpleMailMessage message : messages) {
+                if (message.getTo()[0].equals(rejectedRecipient)) {
+                    failed.put(message, new IllegalStateException("Mailbox unavailable"));
+                }
+            }
+            if (!failed.isEmpty()) {
+                throw new MailSendException(failed);
+            }
+        }
+    }
+}
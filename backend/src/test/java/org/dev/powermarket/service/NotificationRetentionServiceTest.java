@@ -0,0 +1,70 @@
+package org.dev.powermarket.service;
+
+import org.dev.powermarket.repository.NotificationArchiveRepository;
+import org.dev.powermarket.repository.NotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationRetentionServiceTest {
+
+    @Mock
+    private NotificationRepository notificationRepository;
+    @Mock
+    private NotificationArchiveRepository archiveRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private NotificationRetentionService retentionService;
+
+    private final Instant cutoff = Instant.parse("2024-01-01T00:00:00Z");
+
+    @BeforeEach
+    void setUp() {
+        retentionService = new NotificationRetentionService(
+                notificationRepository, archiveRepository, transactionManager, 90, 2);
+    }
+
+    @Test
+    void archiveReadBefore_movesBatchesUntilPartialBatch() {
+        List<UUID> first = List.of(UUID.randomUUID(), UUID.randomUUID());
+        List<UUID> second = List.of(UUID.randomUUID());
+        when(notificationRepository.findReadIdsCreatedBefore(cutoff, PageRequest.of(0, 2)))
+                .thenReturn(first, second);
+        when(notificationRepository.deleteByIds(first)).thenReturn(2);
+        when(notificationRepository.deleteByIds(second)).thenReturn(1);
+
+        int archived = retentionService.archiveReadBefore(cutoff);
+
+        assertThat(archived).isEqualTo(3);
+        verify(archiveRepository).copyFromNotifications(eq(first), any(Instant.class));
+        verify(archiveRepository).copyFromNotifications(eq(second), any(Instant.class));
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void archiveReadBefore_withNothingToArchive_doesNotTouchArchive() {
+        when(notificationRepository.findReadIdsCreatedBefore(cutoff, PageRequest.of(0, 2)))
+                .thenReturn(List.of());
+
+        int archived = retentionService.archiveReadBefore(cutoff);
+
+        assertThat(archived).isZero();
+        verifyNoInteractions(archiveRepository);
+        verify(notificationRepository, never()).deleteByIds(any());
+    }
+}
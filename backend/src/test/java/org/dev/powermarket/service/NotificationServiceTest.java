@@ -1,16 +1,22 @@
 package org.dev.powermarket.service;
 
 import org.dev.powermarket.domain.Notification;
+import org.dev.powermarket.domain.dto.response.NotificationSliceDto;
+import org.dev.powermarket.domain.enums.NotificationType;
 import org.dev.powermarket.repository.NotificationRepository;
 import org.dev.powermarket.security.entity.User;
-import org.dev.powermarket.security.repository.AuthorizedUserRepository;
+import org.dev.powermarket.security.service.UserLookupService;
+import org.dev.powermarket.service.dto.KeysetCursor;
 import org.dev.powermarket.service.dto.NotificationDto;
+import org.dev.powermarket.service.unread.UnreadCounterService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.security.access.AccessDeniedException;
 
 import java.time.Instant;
@@ -30,7 +36,9 @@ class NotificationServiceTest {
     @Mock
     private NotificationRepository notificationRepository;
     @Mock
-    private AuthorizedUserRepository authorizedUserRepository;
+    private UserLookupService userLookupService;
+    @Mock
+    private UnreadCounterService unreadCounterService;
 
     @InjectMocks
     private NotificationService notificationService;
@@ -41,7 +49,7 @@ class NotificationServiceTest {
     void getMyNotifications_returnsMappedDtos() {
         User user = buildUser();
         Notification notification = buildNotification(user);
-        when(authorizedUserRepository.findByEmail(email)).thenReturn(Optional.of(user));
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(user);
         when(notificationRepository.findByUserOrderByCreatedAtDesc(user)).thenReturn(List.of(notification));
 
         List<NotificationDto> result = notificationService.getMyNotifications(email);
@@ -55,7 +63,7 @@ class NotificationServiceTest {
     void getUnreadNotifications_returnsOnlyUnreadDtos() {
         User user = buildUser();
         Notification notification = buildNotification(user);
-        when(authorizedUserRepository.findByEmail(email)).thenReturn(Optional.of(user));
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(user);
         when(notificationRepository.findByUserAndIsReadFalseOrderByCreatedAtDesc(user))
                 .thenReturn(List.of(notification));
 
@@ -71,12 +79,23 @@ class NotificationServiceTest {
         User user = buildUser();
         Notification notification = buildNotification(user);
         when(notificationRepository.findById(notification.getId())).thenReturn(Optional.of(notification));
-        when(authorizedUserRepository.findByEmail(email)).thenReturn(Optional.of(user));
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(user);
 
         notificationService.markAsRead(email, notification.getId());
 
         assertThat(notification.getIsRead()).isTrue();
         verify(notificationRepository).save(notification);
+        verify(unreadCounterService).notificationRead(user.getId());
+    }
+
+    @Test
+    void getUnreadCount_returnsCounterValue() {
+        User user = buildUser();
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(user);
+        when(unreadCounterService.unreadNotifications(user.getId())).thenReturn(4L);
+
+        assertThat(notificationService.getUnreadCount(email)).isEqualTo(4L);
+        verify(notificationRepository, never()).countByUserAndIsReadFalse(any());
     }
 
     @Test
@@ -86,7 +105,7 @@ class NotificationServiceTest {
         another.setId(UUID.randomUUID());
         Notification notification = buildNotification(owner);
         when(notificationRepository.findById(notification.getId())).thenReturn(Optional.of(notification));
-        when(authorizedUserRepository.findByEmail(email)).thenReturn(Optional.of(another));
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(another);
 
         assertThrows(AccessDeniedException.class,
                 () -> notificationService.markAsRead(email, notification.getId()));
@@ -95,19 +114,55 @@ class NotificationServiceTest {
     }
 
     @Test
-    void markAllAsRead_marksEachUnreadAndPersists() {
+    void markAllAsRead_updatesInBulk() {
         User user = buildUser();
-        Notification unread1 = buildNotification(user);
-        Notification unread2 = buildNotification(user);
-        when(authorizedUserRepository.findByEmail(email)).thenReturn(Optional.of(user));
-        when(notificationRepository.findByUserAndIsReadFalseOrderByCreatedAtDesc(user))
-                .thenReturn(List.of(unread1, unread2));
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(user);
+        when(notificationRepository.markAllAsRead(user.getId())).thenReturn(2);
 
         notificationService.markAllAsRead(email);
 
-        ArgumentCaptor<List<Notification>> captor = ArgumentCaptor.forClass(List.class);
-        verify(notificationRepository).saveAll(captor.capture());
-        assertThat(captor.getValue()).allMatch(Notification::getIsRead);
+        verify(notificationRepository).markAllAsRead(user.getId());
+        verify(unreadCounterService).allNotificationsRead(user.getId());
+        verify(notificationRepository, never()).findByUserAndIsReadFalseOrderByCreatedAtDesc(any());
+        verify(notificationRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void getNotificationFeed_firstPage_returnsCursorForNextPage() {
+        User user = buildUser();
+        Notification newest = buildNotification(user);
+        Notification oldest = buildNotification(user);
+        oldest.setCreatedAt(newest.getCreatedAt().minusSeconds(60));
+        Pageable pageable = PageRequest.of(0, 2);
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(user);
+        when(notificationRepository.findFeed(user.getId(), NotificationType.REQUEST_APPROVED, pageable))
+                .thenReturn(new SliceImpl<>(List.of(newest, oldest), pageable, true));
+
+        NotificationSliceDto result = notificationService.getNotificationFeed(
+                email, NotificationType.REQUEST_APPROVED, null, 2);
+
+        assertThat(result.content()).extracting(NotificationDto::getId)
+                .containsExactly(newest.getId(), oldest.getId());
+        assertThat(result.hasNext()).isTrue();
+        assertThat(KeysetCursor.parse(result.nextCursor()))
+                .isEqualTo(new KeysetCursor(oldest.getCreatedAt(), oldest.getId()));
+    }
+
+    @Test
+    void getNotificationFeed_withCursor_seeksAndClampsPageSize() {
+        User user = buildUser();
+        KeysetCursor cursor = new KeysetCursor(Instant.parse("2024-05-01T10:15:30Z"), UUID.randomUUID());
+        Pageable pageable = PageRequest.of(0, NotificationService.FEED_MAX_PAGE_SIZE);
+        when(userLookupService.getReferenceByEmail(email)).thenReturn(user);
+        when(notificationRepository.findFeedBefore(user.getId(), null, cursor.createdAt(), cursor.id(), pageable))
+                .thenReturn(new SliceImpl<>(List.of(), pageable, false));
+
+        NotificationSliceDto result = notificationService.getNotificationFeed(email, null, cursor.encode(), 1000);
+
+        assertThat(result.content()).isEmpty();
+        assertThat(result.hasNext()).isFalse();
+        assertThat(result.nextCursor()).isNull();
+        verify(notificationRepository, never()).findFeed(any(), any(), any());
     }
 
     private User buildUser() {
@@ -20,14 +20,15 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,8 +40,6 @@ class PeriodAvailabilityServiceTest {
     private ServiceAvailabilityPeriodRepository periodRepository;
     @Mock
     private CapacityReservationRepository reservationRepository;
-    @Mock
-    private CapacityManagementService capacityManagementService;
 
     @InjectMocks
     private PeriodAvailabilityService periodAvailabilityService;
@@ -58,11 +57,6 @@ class PeriodAvailabilityServiceTest {
         when(serviceRepository.findById(serviceId)).thenReturn(Optional.of(service));
         when(periodRepository.findPeriodsInRange(service, start, end)).thenReturn(List.of(availabilityPeriod));
         when(reservationRepository.findOverlappingReservations(service, start, end)).thenReturn(List.of());
-        mockDailyCapacity(service, Map.of(
-                start, BigDecimal.TEN,
-                start.plusDays(1), BigDecimal.TEN,
-                end, BigDecimal.TEN
-        ));
 
         List<AvailablePeriodResponse> result = periodAvailabilityService.findAvailablePeriods(serviceId, request);
 
@@ -83,16 +77,11 @@ class PeriodAvailabilityServiceTest {
         LocalDate end = start.plusDays(2);
         ServiceAvailabilityPeriod availabilityPeriod = buildAvailabilityPeriod(service, start, end);
         CapacityReservation reservation = buildReservation(service, start.plusDays(1), start.plusDays(1),
-                BigDecimal.valueOf(4), "Tenant");
+                BigDecimal.TEN, "Tenant");
 
         when(serviceRepository.findById(serviceId)).thenReturn(Optional.of(service));
         when(periodRepository.findPeriodsInRange(service, start, end)).thenReturn(List.of(availabilityPeriod));
         when(reservationRepository.findOverlappingReservations(service, start, end)).thenReturn(List.of(reservation));
-        mockDailyCapacity(service, Map.of(
-                start, BigDecimal.TEN,
-                start.plusDays(1), BigDecimal.ZERO,
-                end, BigDecimal.TEN
-        ));
 
         AvailablePeriodSearchRequest request =
                 new AvailablePeriodSearchRequest(start, end, BigDecimal.ONE);
@@ -112,19 +101,14 @@ class PeriodAvailabilityServiceTest {
         LocalDate start = LocalDate.now();
         LocalDate end = start.plusDays(4);
         ServiceAvailabilityPeriod availabilityPeriod = buildAvailabilityPeriod(service, start, end);
+        availabilityPeriod.setTotalCapacity(BigDecimal.valueOf(9));
         CapacityReservation reservation = buildReservation(service, start.plusDays(1), start.plusDays(2),
-                BigDecimal.valueOf(6), "John Tenant");
+                BigDecimal.valueOf(9), "John Tenant");
 
         when(serviceRepository.findById(serviceId)).thenReturn(Optional.of(service));
         when(periodRepository.findPeriodsInRange(service, start, end)).thenReturn(List.of(availabilityPeriod));
-        when(reservationRepository.findOverlappingReservations(service, start, end)).thenReturn(List.of(reservation));
-        mockDailyCapacity(service, Map.of(
-                start, BigDecimal.valueOf(9),
-                start.plusDays(1), BigDecimal.ZERO,
-                start.plusDays(2), BigDecimal.ZERO,
-                start.plusDays(3), BigDecimal.valueOf(8),
-                end, BigDecimal.valueOf(8)
-        ));
+        when(reservationRepository.findByServiceAndDateRangeWithTenant(service, start, end))
+                .thenReturn(List.of(reservation));
 
         ServiceAvailabilityResponse response =
                 periodAvailabilityService.getServiceAvailability(serviceId, start, end);
@@ -132,11 +116,81 @@ class PeriodAvailabilityServiceTest {
         assertThat(response.serviceId()).isEqualTo(serviceId);
         assertThat(response.availablePeriods()).hasSize(2);
         assertThat(response.availablePeriods().getFirst().startDate()).isEqualTo(start);
+        assertThat(response.availablePeriods().getFirst().endDate()).isEqualTo(start);
+        assertThat(response.availablePeriods().get(1).startDate()).isEqualTo(start.plusDays(3));
+        assertThat(response.availablePeriods().get(1).availableCapacity()).isEqualByComparingTo("9");
         assertThat(response.reservedPeriods()).hasSize(1);
         assertThat(response.reservedPeriods().getFirst().tenantName()).isEqualTo("John Tenant");
         assertThat(response.availabilityStatus()).isEqualTo(AvailabilityStatus.PARTIAL);
     }
 
+    @Test
+    void findAvailablePeriods_withManyReservations_sweepsWithSingleReservationQuery() {
+        Service service = buildService(BigDecimal.valueOf(100));
+        UUID serviceId = service.getId();
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        LocalDate end = start.plusDays(299);
+        ServiceAvailabilityPeriod availabilityPeriod = buildAvailabilityPeriod(service, start, end);
+        List<CapacityReservation> reservations = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            // Бронирования по 20 на каждые 3 дня из первых 300, каждое пятое - на всю мощность
+            LocalDate day = start.plusDays(i * 3L);
+            BigDecimal capacity = i % 5 == 0 ? BigDecimal.valueOf(100) : BigDecimal.valueOf(20);
+            reservations.add(buildReservation(service, day, day, capacity, "Tenant " + i));
+        }
+
+        when(serviceRepository.findById(serviceId)).thenReturn(Optional.of(service));
+        when(periodRepository.findPeriodsInRange(service, start, end)).thenReturn(List.of(availabilityPeriod));
+        when(reservationRepository.findOverlappingReservations(service, start, end)).thenReturn(reservations);
+
+        List<AvailablePeriodResponse> result = periodAvailabilityService.findAvailablePeriods(
+                serviceId, new AvailablePeriodSearchRequest(start, end, BigDecimal.ONE));
+
+        // Свободны все дни, кроме 20 полностью занятых
+        long freeDays = result.stream()
+                .mapToLong(period -> period.periodEnd().toEpochDay() - period.periodStart().toEpochDay() + 1)
+                .sum();
+        assertThat(freeDays).isEqualTo(280);
+        assertThat(result).noneMatch(period -> period.periodStart().equals(start));
+        // Между полностью занятыми днями 0 и 15 - один подпериод, минимум по частично занятым дням
+        assertThat(result).hasSize(20);
+        assertThat(result.getFirst()).satisfies(period -> {
+            assertThat(period.periodStart()).isEqualTo(start.plusDays(1));
+            assertThat(period.periodEnd()).isEqualTo(start.plusDays(14));
+            assertThat(period.availableCapacity()).isEqualByComparingTo("80");
+            assertThat(period.isFullyAvailable()).isFalse();
+        });
+        verify(reservationRepository, times(1)).findOverlappingReservations(any(), any(), any());
+    }
+
+    @Test
+    void findAvailablePeriods_mergesAdjacentQualifyingSegmentsWithMinimumCapacity() {
+        Service service = buildService(BigDecimal.TEN);
+        UUID serviceId = service.getId();
+        LocalDate start = LocalDate.now();
+        LocalDate end = start.plusDays(5);
+        ServiceAvailabilityPeriod availabilityPeriod = buildAvailabilityPeriod(service, start, end);
+        List<CapacityReservation> reservations = List.of(
+                buildReservation(service, start.plusDays(1), start.plusDays(1), BigDecimal.valueOf(3), "A"),
+                buildReservation(service, start.plusDays(2), start.plusDays(2), BigDecimal.valueOf(6), "B"),
+                buildReservation(service, start.plusDays(4), start.plusDays(4), BigDecimal.valueOf(9), "C"));
+
+        when(serviceRepository.findById(serviceId)).thenReturn(Optional.of(service));
+        when(periodRepository.findPeriodsInRange(service, start, end)).thenReturn(List.of(availabilityPeriod));
+        when(reservationRepository.findOverlappingReservations(service, start, end)).thenReturn(reservations);
+
+        List<AvailablePeriodResponse> result = periodAvailabilityService.findAvailablePeriods(
+                serviceId, new AvailablePeriodSearchRequest(start, end, BigDecimal.valueOf(4)));
+
+        assertThat(result).hasSize(2);
+        assertThat(result.getFirst().periodStart()).isEqualTo(start);
+        assertThat(result.getFirst().periodEnd()).isEqualTo(start.plusDays(3));
+        assertThat(result.getFirst().availableCapacity()).isEqualByComparingTo("4");
+        assertThat(result.get(1).periodStart()).isEqualTo(end);
+        assertThat(result.get(1).periodEnd()).isEqualTo(end);
+        assertThat(result.get(1).isFullyAvailable()).isTrue();
+    }
+
     private Service buildService(BigDecimal maxCapacity) {
         Service service = new Service();
         service.setId(UUID.randomUUID());
@@ -151,6 +205,7 @@ class PeriodAvailabilityServiceTest {
         period.setService(service);
         period.setStartDate(start);
         period.setEndDate(end);
+        period.setTotalCapacity(service.getMaxCapacity());
         return period;
     }
 
@@ -174,12 +229,4 @@ class PeriodAvailabilityServiceTest {
         reservation.setRental(rental);
         return reservation;
     }
-
-    private void mockDailyCapacity(Service service, Map<LocalDate, BigDecimal> capacityByDate) {
-        when(capacityManagementService.getAvailableCapacityForDate(eq(service.getId()), any(LocalDate.class)))
-                .thenAnswer(invocation -> {
-                    LocalDate date = invocation.getArgument(1);
-                    return capacityByDate.getOrDefault(date, service.getMaxCapacity());
-                });
-    }
 }
@@ -1,17 +1,14 @@
 package org.dev.powermarket.service;
 
 import org.dev.powermarket.domain.Chat;
-import org.dev.powermarket.domain.Notification;
 import org.dev.powermarket.domain.Rental;
 import org.dev.powermarket.domain.RentalRequest;
 import org.dev.powermarket.domain.Service;
-import org.dev.powermarket.domain.enums.NotificationType;
 import org.dev.powermarket.domain.enums.RentalRequestStatus;
 import org.dev.powermarket.domain.enums.Role;
 import org.dev.powermarket.security.repository.AuthorizedUserRepository;
 import org.dev.powermarket.service.CapacityManagementService;
 import org.dev.powermarket.repository.ChatRepository;
-import org.dev.powermarket.repository.NotificationRepository;
 import org.dev.powermarket.repository.RentalRepository;
 import org.dev.powermarket.repository.RentalRequestRepository;
 import org.dev.powermarket.repository.ServiceRepository;
@@ -19,10 +16,12 @@ import org.dev.powermarket.security.entity.User;
 import org.dev.powermarket.service.dto.CreateRentalRequestRequest;
 import org.dev.powermarket.service.dto.RentalRequestDto;
 import org.dev.powermarket.service.dto.RespondToRentalRequestRequest;
+import org.dev.powermarket.service.outbox.OutboxService;
+import org.dev.powermarket.service.outbox.RentalEventPayload;
+import org.dev.powermarket.service.outbox.RentalEventType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -51,9 +50,7 @@ class RentalRequestServiceTest {
     @Mock
     private AuthorizedUserRepository userRepository;
     @Mock
-    private NotificationRepository notificationRepository;
-//    @Mock
-//    private EmailService emailService;
+    private OutboxService outboxService;
     @Mock
     private RentalService rentalService;
     @Mock
@@ -112,7 +109,6 @@ class RentalRequestServiceTest {
             chat.setId(UUID.randomUUID());
             return chat;
         });
-        when(notificationRepository.save(any(Notification.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         RentalRequestDto dto = rentalRequestService.createRentalRequest(tenant.getEmail(), request);
 
@@ -121,7 +117,8 @@ class RentalRequestServiceTest {
         assertThat(dto.getStatus()).isEqualTo(RentalRequestStatus.PENDING);
         assertThat(dto.getRentalId()).isNotNull();
 
-        verify(notificationRepository).save(any(Notification.class));
+        verify(outboxService).publish(eq(RentalEventType.AGGREGATE_TYPE), eq(dto.getId()),
+                eq(RentalEventType.REQUEST_CREATED.name()), any(RentalEventPayload.class));
         verify(chatRepository).save(any(Chat.class));
         verify(rentalRepository, times(2)).save(any(Rental.class));
     }
@@ -141,7 +138,8 @@ class RentalRequestServiceTest {
         assertThat(dto.getStatus()).isEqualTo(RentalRequestStatus.IN_CONTRACT);
         assertThat(rentalRequest.getRespondedAt()).isNotNull();
         verify(rentalService).createRentalFromRequest(rentalRequest);
-        verify(notificationRepository).save(any(Notification.class));
+        verify(outboxService).publish(eq(RentalEventType.AGGREGATE_TYPE), eq(rentalRequest.getId()),
+                eq(RentalEventType.REQUEST_APPROVED.name()), any(RentalEventPayload.class));
     }
 
     @Test
@@ -160,7 +158,8 @@ class RentalRequestServiceTest {
         assertThat(dto.getStatus()).isEqualTo(RentalRequestStatus.REJECTED);
         assertThat(dto.getRejectionReason()).isEqualTo("Busy");
         verify(rentalService, never()).createRentalFromRequest(any());
-        verify(notificationRepository).save(any(Notification.class));
+        verify(outboxService).publish(eq(RentalEventType.AGGREGATE_TYPE), eq(rentalRequest.getId()),
+                eq(RentalEventType.REQUEST_REJECTED.name()), any(RentalEventPayload.class));
     }
 
     @Test
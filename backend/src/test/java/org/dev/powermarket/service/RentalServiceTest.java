@@ -1,24 +1,23 @@
 package org.dev.powermarket.service;
 
 import org.dev.powermarket.domain.Chat;
-import org.dev.powermarket.domain.Notification;
 import org.dev.powermarket.domain.Rental;
 import org.dev.powermarket.domain.RentalRequest;
 import org.dev.powermarket.domain.Service;
-import org.dev.powermarket.domain.enums.NotificationType;
 import org.dev.powermarket.domain.enums.RentalRequestStatus;
 import org.dev.powermarket.repository.ChatRepository;
-import org.dev.powermarket.repository.NotificationRepository;
 import org.dev.powermarket.repository.RentalRepository;
 import org.dev.powermarket.repository.RentalRequestRepository;
 import org.dev.powermarket.security.entity.User;
 import org.dev.powermarket.security.repository.AuthorizedUserRepository;
 import org.dev.powermarket.service.dto.RentalDto;
 import org.dev.powermarket.service.dto.RentalStatsDto;
+import org.dev.powermarket.service.outbox.OutboxService;
+import org.dev.powermarket.service.outbox.RentalEventPayload;
+import org.dev.powermarket.service.outbox.RentalEventType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -47,7 +46,7 @@ class RentalServiceTest {
     @Mock
     private RentalRequestRepository rentalRequestRepository;
     @Mock
-    private NotificationRepository notificationRepository;
+    private OutboxService outboxService;
     @Mock
     private CapacityManagementService capacityManagementService;
 
@@ -136,11 +135,8 @@ class RentalServiceTest {
         assertThat(dto.getTenantConfirmed()).isFalse();
         assertThat(baseRental.getSupplierConfirmedAt()).isNotNull();
 
-        ArgumentCaptor<Notification> notificationCaptor = ArgumentCaptor.forClass(Notification.class);
-        verify(notificationRepository).save(notificationCaptor.capture());
-        Notification notification = notificationCaptor.getValue();
-        assertThat(notification.getUser().getId()).isEqualTo(tenant.getId());
-        assertThat(notification.getType()).isEqualTo(NotificationType.REQUEST_APPROVED);
+        verify(outboxService).publish(eq(RentalEventType.AGGREGATE_TYPE), eq(baseRequest.getId()),
+                eq(RentalEventType.SUPPLIER_CONFIRMED.name()), any(RentalEventPayload.class));
 
         verify(capacityManagementService, never()).reserveCapacity(any(), any(), any(), any());
         verify(rentalRequestRepository, never()).save(baseRequest);
@@ -169,7 +165,10 @@ class RentalServiceTest {
                 eq(baseRequest.getEndDate()),
                 eq(baseRequest.getCapacityNeeded())
         );
-        verify(notificationRepository).save(any(Notification.class));
+        verify(outboxService).publish(eq(RentalEventType.AGGREGATE_TYPE), eq(baseRequest.getId()),
+                eq(RentalEventType.TENANT_CONFIRMED.name()), any(RentalEventPayload.class));
+        verify(outboxService).publish(eq(RentalEventType.AGGREGATE_TYPE), eq(baseRequest.getId()),
+                eq(RentalEventType.RENTAL_CONFIRMED.name()), any(RentalEventPayload.class));
     }
 
     @Test
@@ -182,10 +181,12 @@ class RentalServiceTest {
         assertThat(baseRequest.getStatus()).isEqualTo(RentalRequestStatus.IN_RENT);
         assertThat(dto.getStatus()).isEqualTo(RentalRequestStatus.IN_RENT);
         verify(rentalRequestRepository).save(baseRequest);
+        verify(outboxService).publish(eq(RentalEventType.AGGREGATE_TYPE), eq(baseRequest.getId()),
+                eq(RentalEventType.RENTAL_STARTED.name()), any(RentalEventPayload.class));
     }
 
     @Test
-    void completeRental_whenInRentAndEnded_releasesCapacityAndSendsNotifications() {
+    void completeRental_whenInRentAndEnded_releasesCapacityAndPublishesEvent() {
         baseRequest.setStatus(RentalRequestStatus.IN_RENT);
         baseRental.setEndDate(LocalDate.now());
         when(rentalRepository.findById(rentalId)).thenReturn(Optional.of(baseRental));
@@ -199,7 +200,8 @@ class RentalServiceTest {
         verify(rentalRepository).save(baseRental);
         verify(rentalRequestRepository).save(baseRequest);
         verify(capacityManagementService).releaseCapacity(baseRental);
-        verify(notificationRepository, times(2)).save(any(Notification.class));
+        verify(outboxService).publish(eq(RentalEventType.AGGREGATE_TYPE), eq(baseRequest.getId()),
+                eq(RentalEventType.RENTAL_COMPLETED.name()), any(RentalEventPayload.class));
     }
 
     @Test
@@ -1,12 +1,17 @@
 package org.dev.powermarket.service;
 
+import jakarta.persistence.EntityManager;
 import org.dev.powermarket.domain.Service;
 import org.dev.powermarket.domain.enums.AvailabilityStatus;
 import org.dev.powermarket.domain.enums.ServiceCategory;
+import org.dev.powermarket.domain.dto.request.FacetedServiceSearchRequest;
 import org.dev.powermarket.domain.dto.request.ServiceSearchByCategoryRequest;
+import org.dev.powermarket.domain.dto.response.FacetedSearchResponse;
 import org.dev.powermarket.domain.dto.response.ServiceSearchResultResponse;
 import org.dev.powermarket.repository.ServiceRepository;
 import org.dev.powermarket.security.entity.User;
+import org.dev.powermarket.service.capacity.CapacitySnapshot;
+import org.dev.powermarket.service.search.ServiceFacetSearch;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -19,9 +24,12 @@ import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
@@ -36,6 +44,10 @@ class ServiceSearchServiceTest {
     private CapacityManagementService capacityManagementService;
     @Mock
     private PeriodAvailabilityService periodAvailabilityService;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private ServiceFacetSearch serviceFacetSearch;
 
     @InjectMocks
     private ServiceSearchService serviceSearchService;
@@ -59,14 +71,13 @@ class ServiceSearchServiceTest {
                 request.availableTo(),
                 pageRequest
         )).thenReturn(new PageImpl<>(List.of(service)));
-        when(capacityManagementService.getAvailableCapacityForDate(eq(service.getId()), any(LocalDate.class)))
-                .thenReturn(BigDecimal.valueOf(40));
-        when(capacityManagementService.isCapacityAvailable(
-                service.getId(),
-                request.availableFrom(),
-                request.availableTo(),
-                request.minCapacity()
-        )).thenReturn(true);
+        when(capacityManagementService.getCapacitySnapshots(
+                eq(List.of(service.getId())),
+                any(LocalDate.class),
+                eq(request.availableFrom()),
+                eq(request.availableTo()),
+                eq(request.minCapacity())
+        )).thenReturn(Map.of(service.getId(), new CapacitySnapshot(BigDecimal.valueOf(40), true)));
 
         Page<ServiceSearchResultResponse> page = serviceSearchService.searchServicesByCategoryAndCapacity(request);
 
@@ -81,12 +92,8 @@ class ServiceSearchServiceTest {
                 request.availableTo(),
                 pageRequest
         );
-        verify(capacityManagementService).isCapacityAvailable(
-                service.getId(),
-                request.availableFrom(),
-                request.availableTo(),
-                request.minCapacity()
-        );
+        verify(capacityManagementService, never()).getAvailableCapacityForDate(any(), any());
+        verify(capacityManagementService, never()).isCapacityAvailable(any(), any(), any(), any());
     }
 
     @Test
@@ -106,8 +113,9 @@ class ServiceSearchServiceTest {
                 request.minCapacity(),
                 pageRequest
         )).thenReturn(new PageImpl<>(List.of(service)));
-        when(capacityManagementService.getAvailableCapacityForDate(eq(service.getId()), any(LocalDate.class)))
-                .thenReturn(BigDecimal.valueOf(75));
+        when(capacityManagementService.getCapacitySnapshots(
+                eq(List.of(service.getId())), any(LocalDate.class), isNull(), isNull(), eq(request.minCapacity())))
+                .thenReturn(Map.of(service.getId(), new CapacitySnapshot(BigDecimal.valueOf(75), null)));
 
         Page<ServiceSearchResultResponse> page = serviceSearchService.searchServicesByCategoryAndCapacity(request);
 
@@ -134,17 +142,21 @@ class ServiceSearchServiceTest {
 
         when(serviceRepository.findByCategoryAndMinCapacity(category, minCapacity, expectedPageable))
                 .thenReturn(new PageImpl<>(List.of(lowAvailability, highAvailability)));
-        when(capacityManagementService.getAvailableCapacityForDate(eq(highAvailability.getId()), any(LocalDate.class)))
-                .thenReturn(BigDecimal.valueOf(80));
-        when(capacityManagementService.getAvailableCapacityForDate(eq(lowAvailability.getId()), any(LocalDate.class)))
-                .thenReturn(BigDecimal.valueOf(20));
+        when(capacityManagementService.getCapacitySnapshots(
+                eq(List.of(lowAvailability.getId(), highAvailability.getId())),
+                any(LocalDate.class), isNull(), isNull(), eq(minCapacity)))
+                .thenReturn(Map.of(
+                        lowAvailability.getId(), new CapacitySnapshot(BigDecimal.valueOf(20), null),
+                        highAvailability.getId(), new CapacitySnapshot(BigDecimal.valueOf(80), null)));
 
         List<ServiceSearchResultResponse> responses =
                 serviceSearchService.findTopServicesByCategoryAndCapacity(category, minCapacity, limit);
 
         assertThat(responses).hasSize(1);
         assertThat(responses.getFirst().id()).isEqualTo(highAvailability.getId());
+        assertThat(responses.getFirst().currentAvailableCapacity()).isEqualByComparingTo("80");
         verify(serviceRepository).findByCategoryAndMinCapacity(category, minCapacity, expectedPageable);
+        verify(capacityManagementService, never()).getAvailableCapacityForDate(any(), any());
     }
 
     @Test
@@ -154,12 +166,13 @@ class ServiceSearchServiceTest {
         Service unavailable = buildService(BigDecimal.valueOf(60));
         Service partial = buildService(BigDecimal.valueOf(90));
 
-        when(serviceRepository.findByCategoryAndMinCapacity(category, minCapacity, Pageable.unpaged()))
-                .thenReturn(new PageImpl<>(List.of(unavailable, partial)));
-        when(capacityManagementService.getAvailableCapacityForDate(eq(unavailable.getId()), any(LocalDate.class)))
-                .thenReturn(BigDecimal.ZERO);
-        when(capacityManagementService.getAvailableCapacityForDate(eq(partial.getId()), any(LocalDate.class)))
-                .thenReturn(BigDecimal.valueOf(30));
+        when(serviceRepository.streamByCategoryAndMinCapacity(category, minCapacity))
+                .thenReturn(Stream.of(unavailable, partial));
+        when(capacityManagementService.computeCapacitySnapshots(
+                eq(List.of(unavailable.getId(), partial.getId())), any(LocalDate.class), isNull(), isNull(), eq(minCapacity)))
+                .thenReturn(Map.of(
+                        unavailable.getId(), new CapacitySnapshot(BigDecimal.ZERO, null),
+                        partial.getId(), new CapacitySnapshot(BigDecimal.valueOf(30), null)));
 
         Map<AvailabilityStatus, List<ServiceSearchResultResponse>> grouped =
                 serviceSearchService.findServicesGroupedByAvailability(category, minCapacity);
@@ -170,7 +183,81 @@ class ServiceSearchServiceTest {
         assertThat(grouped.get(AvailabilityStatus.PARTIAL))
                 .extracting(ServiceSearchResultResponse::id)
                 .containsExactly(partial.getId());
-        verify(serviceRepository).findByCategoryAndMinCapacity(category, minCapacity, Pageable.unpaged());
+        verify(serviceRepository, never()).findByCategoryAndMinCapacity(any(), any(), any());
+        verify(entityManager).clear();
+    }
+
+    @Test
+    void findServicesGroupedByAvailability_ProcessesStreamInChunks() {
+        ServiceCategory category = ServiceCategory.MANUFACTURING;
+        BigDecimal minCapacity = BigDecimal.ONE;
+        List<Service> services = IntStream.range(0, 450)
+                .mapToObj(i -> buildService(BigDecimal.TEN))
+                .toList();
+
+        when(serviceRepository.streamByCategoryAndMinCapacity(category, minCapacity))
+                .thenReturn(services.stream());
+        when(capacityManagementService.computeCapacitySnapshots(anyList(), any(LocalDate.class), isNull(), isNull(), eq(minCapacity)))
+                .thenAnswer(invocation -> {
+                    List<UUID> ids = invocation.getArgument(0);
+                    assertThat(ids.size()).isLessThanOrEqualTo(200);
+                    Map<UUID, CapacitySnapshot> snapshots = new HashMap<>();
+                    ids.forEach(id -> snapshots.put(id, new CapacitySnapshot(BigDecimal.TEN, null)));
+                    return snapshots;
+                });
+
+        Map<AvailabilityStatus, List<ServiceSearchResultResponse>> grouped =
+                serviceSearchService.findServicesGroupedByAvailability(category, minCapacity);
+
+        assertThat(grouped.get(AvailabilityStatus.AVAILABLE)).hasSize(450);
+        verify(capacityManagementService, times(3))
+                .computeCapacitySnapshots(anyList(), any(LocalDate.class), isNull(), isNull(), eq(minCapacity));
+        verify(entityManager, times(3)).clear();
+        verify(capacityManagementService, never()).getCapacitySnapshots(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void facetedSearch_keepsQueryOrderAndReturnsFacets() {
+        Service first = buildService(BigDecimal.valueOf(100));
+        Service second = buildService(BigDecimal.valueOf(100));
+        FacetedServiceSearchRequest request = new FacetedServiceSearchRequest("склад", null, null, null, null, null,
+                null, null, null, null, FacetedServiceSearchRequest.Sort.PRICE_ASC, 1, 2);
+        Map<ServiceCategory, Long> categories = Map.of(ServiceCategory.OTHER, 5L);
+        List<FacetedSearchResponse.PriceBucket> buckets =
+                List.of(new FacetedSearchResponse.PriceBucket(BigDecimal.ZERO, null, 5));
+        when(serviceFacetSearch.search(request)).thenReturn(new ServiceFacetSearch.Result(
+                List.of(second.getId(), first.getId()), 5, categories, buckets));
+        when(serviceRepository.findAllWithSupplierByIdIn(List.of(second.getId(), first.getId())))
+                .thenReturn(List.of(first, second));
+        when(capacityManagementService.getCapacitySnapshots(
+                eq(List.of(second.getId(), first.getId())), any(LocalDate.class), isNull(), isNull(), eq(BigDecimal.ZERO)))
+                .thenReturn(Map.of(
+                        first.getId(), new CapacitySnapshot(BigDecimal.valueOf(100), null),
+                        second.getId(), new CapacitySnapshot(BigDecimal.ZERO, null)));
+
+        FacetedSearchResponse response = serviceSearchService.facetedSearch(request);
+
+        assertThat(response.results().getContent()).extracting(ServiceSearchResultResponse::id)
+                .containsExactly(second.getId(), first.getId());
+        assertThat(response.results().getContent()).extracting(ServiceSearchResultResponse::availabilityStatus)
+                .containsExactly(AvailabilityStatus.UNAVAILABLE, AvailabilityStatus.AVAILABLE);
+        assertThat(response.results().getTotalElements()).isEqualTo(5);
+        assertThat(response.results().getNumber()).isEqualTo(1);
+        assertThat(response.categories()).isEqualTo(categories);
+        assertThat(response.priceBuckets()).isEqualTo(buckets);
+    }
+
+    @Test
+    void facetedSearch_withNoHits_doesNotLoadServices() {
+        FacetedServiceSearchRequest request = new FacetedServiceSearchRequest("склад", null, null, null, null, null,
+                null, null, null, null, null, 0, 20);
+        when(serviceFacetSearch.search(request)).thenReturn(new ServiceFacetSearch.Result(List.of(), 0, Map.of(), List.of()));
+
+        FacetedSearchResponse response = serviceSearchService.facetedSearch(request);
+
+        assertThat(response.results().getContent()).isEmpty();
+        verify(serviceRepository, never()).findAllWithSupplierByIdIn(any());
+        verifyNoInteractions(capacityManagementService);
     }
 
     private Service buildService(BigDecimal maxCapacity) {
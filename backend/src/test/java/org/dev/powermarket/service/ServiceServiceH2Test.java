@@ -0,0 +1,85 @@
+package org.dev.powermarket.service;
+
+import jakarta.persistence.EntityManager;
+import org.dev.powermarket.domain.Service;
+import org.dev.powermarket.domain.enums.ServiceCategory;
+import org.dev.powermarket.security.entity.User;
+import org.dev.powermarket.service.dto.ServiceDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Чтение услуг без транзакции теста, как из контроллера при spring.jpa.open-in-view=false:
+ * ленивый поставщик должен быть загружен до закрытия сессии.
+ */
+@SpringBootTest
+class ServiceServiceH2Test {
+
+    @Autowired
+    private ServiceService serviceService;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private User supplier;
+    private Service service;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            supplier = new User();
+            supplier.setEmail("osiv-" + UUID.randomUUID() + "@example.com");
+            supplier.setPasswordHash("hash");
+            supplier.setFullName("ООО Энергия");
+            entityManager.persist(supplier);
+
+            service = new Service();
+            service.setSupplier(supplier);
+            service.setTitle("Генератор 500 кВт");
+            service.setCategory(ServiceCategory.EQUIPMENT);
+            service.setPricePerDay(new BigDecimal("1500"));
+            service.setMaxCapacity(BigDecimal.TEN);
+            service.setIsActive(true);
+            entityManager.persist(service);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.remove(entityManager.find(Service.class, service.getId()));
+            entityManager.remove(entityManager.find(User.class, supplier.getId()));
+        });
+    }
+
+    @Test
+    void getAllServices_outsideTransaction_loadsSupplierName() {
+        assertThat(serviceService.getAllServices())
+                .filteredOn(dto -> dto.getId().equals(service.getId()))
+                .extracting(ServiceDto::getSupplierName)
+                .containsExactly("ООО Энергия");
+    }
+
+    @Test
+    void searchServices_outsideTransaction_loadsSupplierName() {
+        assertThat(serviceService.searchServices(null, ServiceCategory.EQUIPMENT, null, null, null, null,
+                PageRequest.of(0, 20)).getContent())
+                .filteredOn(dto -> dto.getId().equals(service.getId()))
+                .extracting(ServiceDto::getSupplierName)
+                .containsExactly("ООО Энергия");
+    }
+}
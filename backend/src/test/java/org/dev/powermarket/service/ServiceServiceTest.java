@@ -5,7 +5,6 @@ import org.dev.powermarket.domain.Service;
 import org.dev.powermarket.domain.ServiceAvailabilityPeriod;
 import org.dev.powermarket.domain.enums.Role;
 import org.dev.powermarket.domain.enums.ServiceCategory;
-import org.dev.powermarket.integration.search.MlSearchClient;
 import org.dev.powermarket.integration.search.MlSearchProperties;
 import org.dev.powermarket.repository.ServiceAvailabilityPeriodRepository;
 import org.dev.powermarket.repository.ServiceRepository;
@@ -14,6 +13,13 @@ import org.dev.powermarket.security.repository.AuthorizedUserRepository;
 import org.dev.powermarket.service.dto.CreateServiceRequest;
 import org.dev.powermarket.service.dto.ServiceDto;
 import org.dev.powermarket.service.dto.UpdateServiceRequest;
+import org.dev.powermarket.service.outbox.OutboxService;
+import org.dev.powermarket.service.outbox.ServiceEventPayload;
+import org.dev.powermarket.service.outbox.ServiceEventType;
+import org.dev.powermarket.service.search.MlSearchPager;
+import org.dev.powermarket.service.search.SearchResultCache;
+import org.dev.powermarket.service.search.ServiceFullTextSearch;
+import org.dev.powermarket.service.search.ServiceSearchIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -25,6 +31,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.access.AccessDeniedException;
 
 import java.math.BigDecimal;
@@ -36,11 +43,11 @@ import java.util.UUID;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -53,9 +60,19 @@ class ServiceServiceTest {
     @Mock
     private AuthorizedUserRepository userRepository;
     @Mock
-    private MlSearchClient mlSearchClient;
+    private SearchResultCache searchResultCache;
+    @Mock
+    private MlSearchPager mlSearchPager;
+    @Mock
+    private ServiceSearchIndex serviceSearchIndex;
+    @Mock
+    private ServiceFullTextSearch serviceFullTextSearch;
+    @Mock
+    private OutboxService outboxService;
     @Mock
     private MlSearchProperties mlSearchProperties;
+    @Mock
+    private CapacityManagementService capacityManagementService;
 
     @InjectMocks
     private ServiceService serviceService;
@@ -104,6 +121,12 @@ class ServiceServiceTest {
         assertThat(serviceCaptor.getValue().getSupplier()).isEqualTo(supplier);
 
         verify(availabilityPeriodRepository, times(1)).save(any(ServiceAvailabilityPeriod.class));
+        verify(capacityManagementService).evictLedger(serviceCaptor.getValue().getId());
+        verify(searchResultCache).invalidateAll();
+        verify(serviceSearchIndex).index(serviceCaptor.getValue());
+        UUID createdId = serviceCaptor.getValue().getId();
+        verify(outboxService).publish(ServiceEventType.AGGREGATE_TYPE, createdId,
+                ServiceEventType.SERVICE_CREATED.name(), new ServiceEventPayload(createdId));
     }
 
     @Test
@@ -145,6 +168,10 @@ class ServiceServiceTest {
         assertThat(service.getPricePerDay()).isEqualByComparingTo("200");
         assertThat(service.getIsActive()).isFalse();
         verify(serviceRepository).save(service);
+        verify(searchResultCache).invalidateAll();
+        verify(serviceSearchIndex).index(service);
+        verify(outboxService).publish(ServiceEventType.AGGREGATE_TYPE, serviceId,
+                ServiceEventType.SERVICE_UPDATED.name(), new ServiceEventPayload(serviceId));
     }
 
     @Test
@@ -174,13 +201,95 @@ class ServiceServiceTest {
         Service serviceB = buildService(idB, supplier);
 
         when(mlSearchProperties.isEnabled()).thenReturn(true);
-        when(mlSearchClient.searchServiceIds(eq(keyword), eq(1), eq(10))).thenReturn(ids);
-        when(serviceRepository.findByIdInAndIsActiveTrueAndDeletedFalse(ids)).thenReturn(List.of(serviceB, serviceA));
+        when(mlSearchPager.search(keyword, pageable)).thenReturn(new PageImpl<>(ids, pageable, 40));
+        when(serviceRepository.findActiveWithSupplierByIdIn(ids)).thenReturn(List.of(serviceB, serviceA));
 
-        Page<ServiceDto> result = serviceService.searchServices(keyword, null, null, null, pageable);
+        Page<ServiceDto> result = serviceService.searchServices(keyword, null, null, null, null, null, pageable);
 
         assertThat(result.getContent()).extracting(ServiceDto::getId).containsExactly(idA, idB);
-        verify(serviceRepository, times(0)).searchServices(anyString(), any(Pageable.class));
+        assertThat(result.getTotalElements()).isEqualTo(40);
+        verify(serviceRepository, times(0))
+                .searchServices(anyString(), any(), any(), any(), any(), any(), any(Pageable.class));
+    }
+
+    @Test
+    void searchServices_WhenMlDisabledAndIndexReady_UsesIndexOrdering() {
+        Pageable pageable = PageRequest.of(0, 10);
+        UUID idA = UUID.randomUUID();
+        UUID idB = UUID.randomUUID();
+        Service serviceA = buildService(idA, supplier);
+        Service serviceB = buildService(idB, supplier);
+
+        when(mlSearchProperties.isEnabled()).thenReturn(false);
+        when(serviceSearchIndex.isReady()).thenReturn(true);
+        when(serviceSearchIndex.search("склад", pageable)).thenReturn(new PageImpl<>(List.of(idA, idB), pageable, 12));
+        when(serviceRepository.findActiveWithSupplierByIdIn(List.of(idA, idB)))
+                .thenReturn(List.of(serviceB, serviceA));
+
+        Page<ServiceDto> result = serviceService.searchServices("склад", null, null, null, null, null, pageable);
+
+        assertThat(result.getContent()).extracting(ServiceDto::getId).containsExactly(idA, idB);
+        assertThat(result.getTotalElements()).isEqualTo(12);
+        verify(serviceRepository, times(0))
+                .searchServices(anyString(), any(), any(), any(), any(), any(), any(Pageable.class));
+    }
+
+    @Test
+    void searchServices_WhenIndexNotReady_FallsBackToLikeQuery() {
+        Pageable pageable = PageRequest.of(0, 10);
+        when(mlSearchProperties.isEnabled()).thenReturn(false);
+        when(serviceSearchIndex.isReady()).thenReturn(false);
+        when(serviceRepository.searchServices("склад", null, null, null, null, null, pageable))
+                .thenReturn(Page.empty(pageable));
+
+        serviceService.searchServices("склад", null, null, null, null, null, pageable);
+
+        verify(serviceRepository).searchServices("склад", null, null, null, null, null, pageable);
+    }
+
+    @Test
+    void searchServices_WhenKeywordWithFilters_UsesRankedFullTextQuery() {
+        Pageable pageable = PageRequest.of(1, 10, Sort.by("createdAt"));
+        LocalDate from = LocalDate.of(2025, 3, 1);
+        LocalDate to = LocalDate.of(2025, 3, 10);
+        Service service = buildService(UUID.randomUUID(), supplier);
+        when(serviceFullTextSearch.isAvailable()).thenReturn(true);
+        when(serviceRepository.fullTextSearch("склад", "WAREHOUSE", BigDecimal.TEN, "Казань", from, to,
+                PageRequest.of(1, 10)))
+                .thenReturn(new PageImpl<>(List.of(service)));
+        when(serviceRepository.findActiveWithSupplierByIdIn(List.of(service.getId()))).thenReturn(List.of(service));
+
+        Page<ServiceDto> result = serviceService.searchServices(
+                "склад", ServiceCategory.WAREHOUSE, BigDecimal.TEN, " Казань ", from, to, pageable);
+
+        assertThat(result.getContent()).extracting(ServiceDto::getId).containsExactly(service.getId());
+        verifyNoInteractions(mlSearchPager, serviceSearchIndex);
+    }
+
+    @Test
+    void searchServices_WhenKeywordWithFiltersAndNoFullText_AppliesFiltersToLikeQuery() {
+        Pageable pageable = PageRequest.of(0, 10);
+        LocalDate from = LocalDate.of(2025, 3, 1);
+        when(serviceFullTextSearch.isAvailable()).thenReturn(false);
+        when(serviceRepository.searchServices("склад", ServiceCategory.WAREHOUSE, null, null, from, null, pageable))
+                .thenReturn(Page.empty(pageable));
+
+        serviceService.searchServices("склад", ServiceCategory.WAREHOUSE, null, null, from, null, pageable);
+
+        verify(serviceRepository).searchServices("склад", ServiceCategory.WAREHOUSE, null, null, from, null, pageable);
+        verifyNoInteractions(mlSearchPager, serviceSearchIndex);
+    }
+
+    @Test
+    void searchServices_WhenOnlyCapacityAndLocation_AppliesFiltersWithoutKeyword() {
+        Pageable pageable = PageRequest.of(0, 10);
+        when(serviceRepository.searchServices(null, null, BigDecimal.TEN, "Казань", null, null, pageable))
+                .thenReturn(Page.empty(pageable));
+
+        serviceService.searchServices(" ", null, BigDecimal.TEN, "Казань", null, null, pageable);
+
+        verify(serviceRepository).searchServices(null, null, BigDecimal.TEN, "Казань", null, null, pageable);
+        verify(serviceRepository, never()).findByIsActiveTrueAndDeletedFalse(any(Pageable.class));
     }
 
     @Test
@@ -189,10 +298,13 @@ class ServiceServiceTest {
         Service service = buildService(UUID.randomUUID(), supplier);
         when(serviceRepository.findByIsActiveTrueAndCategoryAndDeletedFalse(ServiceCategory.OTHER, pageable))
                 .thenReturn(new PageImpl<>(List.of(service)));
+        when(serviceRepository.findActiveWithSupplierByIdIn(List.of(service.getId()))).thenReturn(List.of(service));
 
-        Page<ServiceDto> page = serviceService.searchServices(null, ServiceCategory.OTHER, null, null, pageable);
+        Page<ServiceDto> page = serviceService.searchServices(
+                null, ServiceCategory.OTHER, null, null, null, null, pageable);
 
         assertThat(page.getTotalElements()).isEqualTo(1);
+        assertThat(page.getContent()).extracting(ServiceDto::getSupplierId).containsExactly(supplierId);
         verify(serviceRepository).findByIsActiveTrueAndCategoryAndDeletedFalse(ServiceCategory.OTHER, pageable);
     }
 
@@ -231,6 +343,10 @@ class ServiceServiceTest {
         assertThat(service.getIsActive()).isFalse();
         assertThat(service.getDeleted()).isTrue();
         verify(serviceRepository).save(service);
+        verify(searchResultCache).invalidateAll();
+        verify(serviceSearchIndex).remove(serviceId);
+        verify(outboxService).publish(ServiceEventType.AGGREGATE_TYPE, serviceId,
+                ServiceEventType.SERVICE_DELETED.name(), new ServiceEventPayload(serviceId));
     }
 
     @Test
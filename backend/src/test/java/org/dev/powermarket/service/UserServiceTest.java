@@ -1,7 +1,6 @@
 package org.dev.powermarket.service;
 
-import org.dev.powermarket.security.entity.User;
-import org.dev.powermarket.security.repository.AuthorizedUserRepository;
+import org.dev.powermarket.security.service.UserLookupService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,7 +8,6 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -20,7 +18,7 @@ import static org.mockito.Mockito.when;
 class UserServiceTest {
 
     @Mock
-    private AuthorizedUserRepository userRepository;
+    private UserLookupService userLookupService;
 
     @InjectMocks
     private UserService userService;
@@ -36,9 +34,7 @@ class UserServiceTest {
 
     @Test
     void getUserIdByEmail_WhenUserExists_ReturnsId() {
-        User user = new User();
-        user.setId(userId);
-        when(userRepository.findByEmail(email)).thenReturn(Optional.of(user));
+        when(userLookupService.getUserIdByEmail(email)).thenReturn(userId);
 
         UUID result = userService.getUserIdByEmail(email);
 
@@ -47,7 +43,7 @@ class UserServiceTest {
 
     @Test
     void getUserIdByEmail_WhenUserMissing_ThrowsException() {
-        when(userRepository.findByEmail(email)).thenReturn(Optional.empty());
+        when(userLookupService.getUserIdByEmail(email)).thenThrow(new IllegalArgumentException("User not found"));
 
         assertThatThrownBy(() -> userService.getUserIdByEmail(email))
                 .isInstanceOf(IllegalArgumentException.class)
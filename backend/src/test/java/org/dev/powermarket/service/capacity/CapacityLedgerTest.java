@@ -0,0 +1,73 @@
+package org.dev.powermarket.service.capacity;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CapacityLedgerTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+    @Test
+    void freeCapacityOn_outsideAnyPeriod_isZero() {
+        CapacityLedger ledger = new CapacityLedger();
+        ledger.addPeriod(START, START.plusDays(9), BigDecimal.TEN);
+
+        assertThat(ledger.freeCapacityOn(START.minusDays(1))).isZero();
+        assertThat(ledger.freeCapacityOn(START)).isEqualByComparingTo("10");
+        assertThat(ledger.freeCapacityOn(START.plusDays(9))).isEqualByComparingTo("10");
+        assertThat(ledger.freeCapacityOn(START.plusDays(10))).isZero();
+    }
+
+    @Test
+    void minFreeCapacity_accountsForOverlappingReservations() {
+        CapacityLedger ledger = new CapacityLedger();
+        ledger.addPeriod(START, START.plusDays(30), BigDecimal.valueOf(100));
+        ledger.reserve(START.plusDays(2), START.plusDays(10), BigDecimal.valueOf(30));
+        ledger.reserve(START.plusDays(8), START.plusDays(12), BigDecimal.valueOf(50));
+
+        assertThat(ledger.minFreeCapacity(START, START.plusDays(1))).isEqualByComparingTo("100");
+        assertThat(ledger.minFreeCapacity(START, START.plusDays(7))).isEqualByComparingTo("70");
+        assertThat(ledger.minFreeCapacity(START, START.plusDays(30))).isEqualByComparingTo("20");
+        assertThat(ledger.minFreeCapacity(START.plusDays(11), START.plusDays(30))).isEqualByComparingTo("50");
+        assertThat(ledger.minFreeCapacity(START.plusDays(13), START.plusDays(13))).isEqualByComparingTo("100");
+    }
+
+    @Test
+    void minFreeCapacity_withGapBetweenPeriods_isZero() {
+        CapacityLedger ledger = new CapacityLedger();
+        ledger.addPeriod(START, START.plusDays(4), BigDecimal.TEN);
+        ledger.addPeriod(START.plusDays(6), START.plusDays(9), BigDecimal.TEN);
+
+        assertThat(ledger.minFreeCapacity(START, START.plusDays(9))).isZero();
+        assertThat(ledger.hasPeriodWithin(START.plusDays(5), START.plusDays(5))).isFalse();
+        assertThat(ledger.hasPeriodWithin(START.plusDays(5), START.plusDays(6))).isTrue();
+    }
+
+    @Test
+    void release_restoresCapacityAndMergesSegments() {
+        CapacityLedger ledger = new CapacityLedger();
+        ledger.addPeriod(START, START.plusDays(9), BigDecimal.TEN);
+        int segmentsBefore = ledger.size();
+
+        ledger.reserve(START.plusDays(3), START.plusDays(5), new BigDecimal("4.00"));
+        assertThat(ledger.size()).isGreaterThan(segmentsBefore);
+
+        ledger.release(START.plusDays(3), START.plusDays(5), BigDecimal.valueOf(4));
+
+        assertThat(ledger.minFreeCapacity(START, START.plusDays(9))).isEqualByComparingTo("10");
+        assertThat(ledger.size()).isEqualTo(segmentsBefore);
+    }
+
+    @Test
+    void reserve_withEndBeforeStart_throwsException() {
+        CapacityLedger ledger = new CapacityLedger();
+
+        assertThatThrownBy(() -> ledger.reserve(START, START.minusDays(1), BigDecimal.ONE))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,179 @@
+package org.dev.powermarket.service.notification;
+
+import org.dev.powermarket.domain.Notification;
+import org.dev.powermarket.domain.enums.NotificationType;
+import org.dev.powermarket.repository.NotificationRepository;
+import org.dev.powermarket.security.entity.User;
+import org.dev.powermarket.security.repository.AuthorizedUserRepository;
+import org.dev.powermarket.service.EmailService;
+import org.dev.powermarket.service.dto.NotificationDto;
+import org.dev.powermarket.service.realtime.SseHub;
+import org.dev.powermarket.service.unread.UnreadCounterService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationDispatcherTest {
+
+    @Mock
+    private NotificationRepository notificationRepository;
+    @Mock
+    private AuthorizedUserRepository userRepository;
+    @Mock
+    private UnreadCounterService unreadCounterService;
+    @Mock
+    private SseHub sseHub;
+    @Mock
+    private EmailService emailService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private NotificationDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new NotificationDispatcher(notificationRepository, userRepository, unreadCounterService,
+                sseHub, emailService, transactionManager, 2, 100);
+    }
+
+    @Test
+    void flush_writesQueuedNotificationsInBatchesAndPushesThem() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        when(userRepository.findAllById(anyList())).thenAnswer(invocation -> {
+            List<UUID> ids = invocation.getArgument(0);
+            return ids.stream().map(id -> {
+                User user = new User();
+                user.setId(id);
+                return user;
+            }).toList();
+        });
+        when(notificationRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        dispatcher.dispatch(first, NotificationType.REQUEST_APPROVED, "t1", "m1", null);
+        dispatcher.dispatch(second, NotificationType.REQUEST_REJECTED, "t2", "m2", null);
+        dispatcher.dispatch(first, NotificationType.NEW_RENTAL_REQUEST, "t3", "m3", null);
+
+        dispatcher.flush();
+
+        ArgumentCaptor<List<Notification>> batches = ArgumentCaptor.forClass(List.class);
+        verify(notificationRepository, times(2)).saveAll(batches.capture());
+        assertThat(batches.getAllValues()).extracting(List::size).containsExactly(2, 1);
+        assertThat(batches.getAllValues().getFirst())
+                .allSatisfy(notification -> {
+                    assertThat(notification.getIsRead()).isFalse();
+                    assertThat(notification.getCreatedAt()).isNotNull();
+                });
+
+        verify(unreadCounterService, times(2)).notificationCreated(first);
+        verify(unreadCounterService).notificationCreated(second);
+        verify(sseHub, times(3)).sendToUser(any(UUID.class), isNull(),
+                eq(NotificationDispatcher.NOTIFICATION_CREATED), any(NotificationDto.class));
+        verify(emailService, times(3)).sendDealStatusEmail(any(User.class), any(Notification.class));
+    }
+
+    @Test
+    void flush_withEmptyQueue_doesNothing() {
+        dispatcher.flush();
+
+        verify(notificationRepository, never()).saveAll(anyList());
+        verifyNoInteractions(sseHub, emailService);
+    }
+
+    @Test
+    void saveAndDispatch_savesInCallerTransactionAndPushesAfterCommit() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        when(notificationRepository.save(any(Notification.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        dispatcher.saveAndDispatch(user.getId(), NotificationType.REQUEST_APPROVED, "t", "m", null);
+
+        ArgumentCaptor<Notification> saved = ArgumentCaptor.forClass(Notification.class);
+        verify(notificationRepository).save(saved.capture());
+        assertThat(saved.getValue().getUser()).isSameAs(user);
+        assertThat(saved.getValue().getIsRead()).isFalse();
+        // Вне транзакции afterCommit выполняется сразу
+        verify(unreadCounterService).notificationCreated(user.getId());
+        verify(sseHub).sendToUser(eq(user.getId()), isNull(),
+                eq(NotificationDispatcher.NOTIFICATION_CREATED), any(NotificationDto.class));
+        verify(emailService).sendDealStatusEmail(user, saved.getValue());
+    }
+
+    @Test
+    void saveAndDispatch_whenUserMissing_skipsNotification() {
+        UUID userId = UUID.randomUUID();
+        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+
+        dispatcher.saveAndDispatch(userId, NotificationType.REQUEST_APPROVED, "t", "m", null);
+
+        verify(notificationRepository, never()).save(any());
+        verifyNoInteractions(sseHub, emailService);
+    }
+
+    @Test
+    void flush_whenBatchFails_savesRowsOneByOneAndDropsOnlyTheBadOne() {
+        stubUsers();
+        when(notificationRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Notification> notifications = invocation.getArgument(0);
+            if (notifications.stream().anyMatch(notification -> "bad".equals(notification.getTitle()))) {
+                throw new IllegalStateException("constraint violation");
+            }
+            return notifications;
+        });
+        UUID good = UUID.randomUUID();
+        UUID bad = UUID.randomUUID();
+
+        dispatcher.dispatch(good, NotificationType.REQUEST_APPROVED, "good", "m1", null);
+        dispatcher.dispatch(bad, NotificationType.REQUEST_APPROVED, "bad", "m2", null);
+        dispatcher.flush();
+
+        // Пачка целиком + две попытки по одной
+        verify(notificationRepository, times(3)).saveAll(anyList());
+        verify(unreadCounterService).notificationCreated(good);
+        verify(unreadCounterService, never()).notificationCreated(bad);
+        verify(sseHub).sendToUser(eq(good), isNull(),
+                eq(NotificationDispatcher.NOTIFICATION_CREATED), any(NotificationDto.class));
+    }
+
+    @Test
+    void dispatch_whenQueueFull_writesInsteadOfDropping() {
+        dispatcher = new NotificationDispatcher(notificationRepository, userRepository, unreadCounterService,
+                sseHub, emailService, transactionManager, 2, 1);
+        stubUsers();
+        when(notificationRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        dispatcher.dispatch(first, NotificationType.REQUEST_APPROVED, "t1", "m1", null);
+        dispatcher.dispatch(second, NotificationType.REQUEST_APPROVED, "t2", "m2", null);
+        dispatcher.flush();
+
+        verify(unreadCounterService).notificationCreated(first);
+        verify(unreadCounterService).notificationCreated(second);
+    }
+
+    private void stubUsers() {
+        when(userRepository.findAllById(anyList())).thenAnswer(invocation -> {
+            List<UUID> ids = invocation.getArgument(0);
+            return ids.stream().map(id -> {
+                User user = new User();
+                user.setId(id);
+                return user;
+            }).toList();
+        });
+    }
+}
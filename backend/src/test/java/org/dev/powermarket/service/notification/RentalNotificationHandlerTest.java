@@ -0,0 +1,73 @@
+package org.dev.powermarket.service.notification;
+
+import org.dev.powermarket.domain.OutboxEvent;
+import org.dev.powermarket.domain.enums.NotificationType;
+import org.dev.powermarket.service.outbox.OutboxService;
+import org.dev.powermarket.service.outbox.RentalEventPayload;
+import org.dev.powermarket.service.outbox.RentalEventType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RentalNotificationHandlerTest {
+
+    @Mock
+    private NotificationDispatcher notificationDispatcher;
+    @Mock
+    private OutboxService outboxService;
+
+    @InjectMocks
+    private RentalNotificationHandler handler;
+
+    private final RentalEventPayload payload = new RentalEventPayload(
+            UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), "Excavator",
+            UUID.randomUUID(), UUID.randomUUID(), "Tenant", LocalDate.now(), LocalDate.now().plusDays(2), null);
+
+    @Test
+    void supports_onlyEventsWithNotifications() {
+        assertThat(handler.supports(RentalEventType.REQUEST_CREATED.name())).isTrue();
+        assertThat(handler.supports(RentalEventType.RENTAL_COMPLETED.name())).isTrue();
+        assertThat(handler.supports(RentalEventType.RENTAL_STARTED.name())).isFalse();
+        assertThat(handler.supports("SERVICE_UPDATED")).isFalse();
+    }
+
+    @Test
+    void handle_requestCreated_notifiesSupplier() {
+        OutboxEvent event = buildEvent(RentalEventType.REQUEST_CREATED);
+
+        handler.handle(event);
+
+        verify(notificationDispatcher).saveAndDispatch(eq(payload.supplierId()), eq(NotificationType.NEW_RENTAL_REQUEST),
+                anyString(), anyString(), eq(payload.rentalRequestId()));
+    }
+
+    @Test
+    void handle_rentalCompleted_notifiesBothParties() {
+        OutboxEvent event = buildEvent(RentalEventType.RENTAL_COMPLETED);
+
+        handler.handle(event);
+
+        verify(notificationDispatcher).saveAndDispatch(eq(payload.supplierId()), eq(NotificationType.REQUEST_APPROVED),
+                anyString(), anyString(), eq(payload.rentalId()));
+        verify(notificationDispatcher).saveAndDispatch(eq(payload.tenantId()), eq(NotificationType.REQUEST_APPROVED),
+                anyString(), anyString(), eq(payload.rentalId()));
+    }
+
+    private OutboxEvent buildEvent(RentalEventType type) {
+        OutboxEvent event = new OutboxEvent();
+        event.setEventType(type.name());
+        when(outboxService.readPayload(event, RentalEventPayload.class)).thenReturn(payload);
+        return event;
+    }
+}
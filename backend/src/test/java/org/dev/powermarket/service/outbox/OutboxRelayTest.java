@@ -0,0 +1,211 @@
+package org.dev.powermarket.service.outbox;
+
+import org.dev.powermarket.domain.OutboxEvent;
+import org.dev.powermarket.domain.enums.OutboxStatus;
+import org.dev.powermarket.repository.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+    @Mock
+    private OutboxEventHandler handler;
+    @Mock
+    private OutboxBatchHandler batchHandler;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        when(batchHandler.aggregateType()).thenReturn(ServiceEventType.AGGREGATE_TYPE);
+        relay = new OutboxRelay(outboxEventRepository, List.of(handler), List.of(batchHandler), transactionManager,
+                10, 3, 1000, 60_000, 7, 500, false);
+    }
+
+    @Test
+    void relay_whenHandlerSucceeds_marksEventProcessed() {
+        OutboxEvent event = buildEvent(0);
+        when(outboxEventRepository.findReady(eq(OutboxStatus.PENDING), any(Instant.class), eq(PageRequest.of(0, 10))))
+                .thenReturn(List.of(event));
+        when(handler.supports("REQUEST_CREATED")).thenReturn(true);
+
+        relay.relay();
+
+        verify(handler).handle(event);
+        verify(outboxEventRepository).save(event);
+        assertThat(event.getStatus()).isEqualTo(OutboxStatus.PROCESSED);
+        assertThat(event.getProcessedAt()).isNotNull();
+        assertThat(event.getAttempts()).isZero();
+    }
+
+    @Test
+    void relay_whenHandlerFails_schedulesRetryWithBackoff() {
+        OutboxEvent event = buildEvent(0);
+        when(outboxEventRepository.findReady(eq(OutboxStatus.PENDING), any(Instant.class), eq(PageRequest.of(0, 10))))
+                .thenReturn(List.of(event));
+        when(handler.supports("REQUEST_CREATED")).thenReturn(true);
+        doThrow(new IllegalStateException("smtp down")).when(handler).handle(event);
+
+        Instant before = Instant.now();
+        relay.relay();
+
+        assertThat(event.getStatus()).isEqualTo(OutboxStatus.PENDING);
+        assertThat(event.getAttempts()).isEqualTo(1);
+        assertThat(event.getLastError()).isEqualTo("smtp down");
+        assertThat(event.getNextAttemptAt()).isAfterOrEqualTo(before.plusSeconds(1));
+        verify(outboxEventRepository).save(event);
+    }
+
+    @Test
+    void relay_whenCommitFails_schedulesRetryInsteadOfProcessed() {
+        OutboxEvent event = buildEvent(0);
+        when(outboxEventRepository.findReady(eq(OutboxStatus.PENDING), any(Instant.class), eq(PageRequest.of(0, 10))))
+                .thenReturn(List.of(event));
+        when(handler.supports("REQUEST_CREATED")).thenReturn(true);
+        // Первый коммит - аренда пачки, второй - обработка события с отложенным INSERT
+        doNothing()
+                .doThrow(new DataIntegrityViolationException("fk_notifications_user"))
+                .doNothing()
+                .when(transactionManager).commit(any());
+
+        relay.relay();
+
+        verify(handler).handle(event);
+        verify(outboxEventRepository, times(2)).save(event);
+        assertThat(event.getStatus()).isEqualTo(OutboxStatus.PENDING);
+        assertThat(event.getProcessedAt()).isNull();
+        assertThat(event.getAttempts()).isEqualTo(1);
+        assertThat(event.getLastError()).isEqualTo("fk_notifications_user");
+    }
+
+    @Test
+    void relay_whenAttemptsExhausted_marksEventFailed() {
+        OutboxEvent event = buildEvent(2);
+        when(outboxEventRepository.findReady(eq(OutboxStatus.PENDING), any(Instant.class), eq(PageRequest.of(0, 10))))
+                .thenReturn(List.of(event));
+        when(handler.supports("REQUEST_CREATED")).thenReturn(true);
+        doThrow(new IllegalStateException("smtp down")).when(handler).handle(event);
+
+        relay.relay();
+
+        assertThat(event.getStatus()).isEqualTo(OutboxStatus.FAILED);
+        assertThat(event.getAttempts()).isEqualTo(3);
+    }
+
+    @Test
+    void relay_skipsHandlersThatDoNotSupportEvent() {
+        OutboxEvent event = buildEvent(0);
+        when(outboxEventRepository.findReady(eq(OutboxStatus.PENDING), any(Instant.class), eq(PageRequest.of(0, 10))))
+                .thenReturn(List.of(event));
+        when(handler.supports("REQUEST_CREATED")).thenReturn(false);
+
+        relay.relay();
+
+        verify(handler, never()).handle(any());
+        assertThat(event.getStatus()).isEqualTo(OutboxStatus.PROCESSED);
+    }
+
+    @Test
+    void relay_passesBatchHandledEventsAsOneBatch() {
+        OutboxEvent rentalEvent = buildEvent(0);
+        OutboxEvent first = buildServiceEvent();
+        OutboxEvent second = buildServiceEvent();
+        when(outboxEventRepository.findReady(eq(OutboxStatus.PENDING), any(Instant.class), eq(PageRequest.of(0, 10))))
+                .thenReturn(List.of(first, rentalEvent, second));
+        when(handler.supports("REQUEST_CREATED")).thenReturn(true);
+
+        relay.relay();
+
+        verify(batchHandler).handleBatch(List.of(first, second));
+        verify(handler).handle(rentalEvent);
+        verify(handler, never()).handle(first);
+        verify(outboxEventRepository).saveAll(List.of(first, second));
+        assertThat(first.getStatus()).isEqualTo(OutboxStatus.PROCESSED);
+        assertThat(second.getStatus()).isEqualTo(OutboxStatus.PROCESSED);
+    }
+
+    @Test
+    void relay_whenBatchHandlerFails_schedulesRetryForWholeBatch() {
+        OutboxEvent first = buildServiceEvent();
+        OutboxEvent second = buildServiceEvent();
+        when(outboxEventRepository.findReady(eq(OutboxStatus.PENDING), any(Instant.class), eq(PageRequest.of(0, 10))))
+                .thenReturn(List.of(first, second));
+        doThrow(new IllegalStateException("search down")).when(batchHandler).handleBatch(any());
+
+        relay.relay();
+
+        assertThat(List.of(first, second)).allSatisfy(event -> {
+            assertThat(event.getStatus()).isEqualTo(OutboxStatus.PENDING);
+            assertThat(event.getAttempts()).isEqualTo(1);
+            assertThat(event.getLastError()).isEqualTo("search down");
+        });
+        verify(outboxEventRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void relay_whenBatchHandlerRejectsSomeEvents_retriesOnlyThem() {
+        OutboxEvent first = buildServiceEvent();
+        OutboxEvent second = buildServiceEvent();
+        when(outboxEventRepository.findReady(eq(OutboxStatus.PENDING), any(Instant.class), eq(PageRequest.of(0, 10))))
+                .thenReturn(List.of(first, second));
+        when(batchHandler.handleBatch(List.of(first, second)))
+                .thenReturn(List.of(new OutboxBatchHandler.Failure(second.getId(), "bad document")));
+
+        relay.relay();
+
+        verify(outboxEventRepository).saveAll(List.of(first));
+        assertThat(first.getStatus()).isEqualTo(OutboxStatus.PROCESSED);
+        assertThat(second.getStatus()).isEqualTo(OutboxStatus.PENDING);
+        assertThat(second.getAttempts()).isEqualTo(1);
+        assertThat(second.getLastError()).isEqualTo("bad document");
+        verify(outboxEventRepository).save(second);
+    }
+
+    @Test
+    void retryDelay_growsExponentiallyAndIsCapped() {
+        assertThat(relay.retryDelay(1)).isEqualTo(Duration.ofSeconds(1));
+        assertThat(relay.retryDelay(4)).isEqualTo(Duration.ofSeconds(8));
+        assertThat(relay.retryDelay(30)).isEqualTo(Duration.ofHours(1));
+    }
+
+    private OutboxEvent buildServiceEvent() {
+        OutboxEvent event = buildEvent(0);
+        event.setAggregateType(ServiceEventType.AGGREGATE_TYPE);
+        event.setEventType(ServiceEventType.SERVICE_UPDATED.name());
+        return event;
+    }
+
+    private OutboxEvent buildEvent(int attempts) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId(UUID.randomUUID());
+        event.setAggregateType(RentalEventType.AGGREGATE_TYPE);
+        event.setAggregateId(UUID.randomUUID());
+        event.setEventType(RentalEventType.REQUEST_CREATED.name());
+        event.setPayload("{}");
+        event.setStatus(OutboxStatus.PENDING);
+        event.setAttempts(attempts);
+        event.setNextAttemptAt(Instant.now());
+        return event;
+    }
+}
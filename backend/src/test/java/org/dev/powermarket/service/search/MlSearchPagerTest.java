@@ -0,0 +1,96 @@
+package org.dev.powermarket.service.search;
+
+import org.dev.powermarket.integration.search.MlSearchResult;
+import org.dev.powermarket.repository.ServiceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MlSearchPagerTest {
+
+    @Mock
+    private SearchResultCache searchResultCache;
+    @Mock
+    private ServiceRepository serviceRepository;
+
+    private MlSearchPager pager;
+
+    private final List<UUID> firstWindow = ids(4);
+    private final List<UUID> secondWindow = ids(4);
+
+    @BeforeEach
+    void setUp() {
+        pager = new MlSearchPager(searchResultCache, serviceRepository, 4, 1000);
+    }
+
+    @Test
+    void search_backfillsFilteredIdsFromWindowAndReportsUpstreamTotal() {
+        when(searchResultCache.search("склад", 1, 4)).thenReturn(new MlSearchResult(firstWindow, 10));
+        // Вторая услуга удалена
+        when(serviceRepository.findActiveIdsByIdIn(firstWindow))
+                .thenReturn(List.of(firstWindow.get(0), firstWindow.get(2), firstWindow.get(3)));
+
+        Page<UUID> page = pager.search("склад", PageRequest.of(0, 2));
+
+        assertThat(page.getContent()).containsExactly(firstWindow.get(0), firstWindow.get(2));
+        assertThat(page.getTotalElements()).isEqualTo(9);
+        // Следующая страница выходит за окно - его продолжение грузится заранее
+        verify(searchResultCache).prefetch("склад", 2, 4);
+    }
+
+    @Test
+    void search_pageSpanningWindows_doesNotRepeatIdsOfPreviousPage() {
+        when(searchResultCache.search("склад", 1, 4)).thenReturn(new MlSearchResult(firstWindow, 8));
+        when(searchResultCache.search("склад", 2, 4)).thenReturn(new MlSearchResult(secondWindow, 8));
+        when(serviceRepository.findActiveIdsByIdIn(firstWindow)).thenReturn(firstWindow.subList(0, 3));
+        when(serviceRepository.findActiveIdsByIdIn(secondWindow)).thenReturn(secondWindow);
+
+        Page<UUID> page = pager.search("склад", PageRequest.of(1, 2));
+
+        assertThat(page.getContent()).containsExactly(firstWindow.get(2), secondWindow.get(0));
+        // Последнее окно прочитано - total точный
+        assertThat(page.getTotalElements()).isEqualTo(7);
+        assertThat(page.hasNext()).isTrue();
+    }
+
+    @Test
+    void search_whenPageServedFromLoadedWindow_doesNotPrefetch() {
+        when(searchResultCache.search("склад", 1, 4)).thenReturn(new MlSearchResult(firstWindow, 20));
+        when(serviceRepository.findActiveIdsByIdIn(firstWindow)).thenReturn(firstWindow);
+
+        Page<UUID> page = pager.search("склад", PageRequest.of(0, 1));
+
+        assertThat(page.getContent()).containsExactly(firstWindow.get(0));
+        assertThat(page.getTotalElements()).isEqualTo(20);
+        verify(searchResultCache, never()).prefetch(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void search_whenMlReturnsNothing_returnsEmptyPage() {
+        when(searchResultCache.search("склад", 1, 4)).thenReturn(MlSearchResult.EMPTY);
+
+        Page<UUID> page = pager.search("склад", PageRequest.of(0, 2));
+
+        assertThat(page.getTotalElements()).isZero();
+        verify(serviceRepository, never()).findActiveIdsByIdIn(anyList());
+    }
+
+    private static List<UUID> ids(int count) {
+        return Stream.generate(UUID::randomUUID).limit(count).toList();
+    }
+}
@@ -0,0 +1,134 @@
+package org.dev.powermarket.service.search;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.dev.powermarket.integration.search.MlSearchClient;
+import org.dev.powermarket.integration.search.MlSearchResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SearchResultCacheTest {
+
+    @Mock
+    private MlSearchClient mlSearchClient;
+
+    private SearchResultCache searchResultCache;
+
+    private final MlSearchResult ids = new MlSearchResult(List.of(UUID.randomUUID(), UUID.randomUUID()), 25);
+
+    @BeforeEach
+    void setUp() {
+        searchResultCache = new SearchResultCache(mlSearchClient, new SimpleMeterRegistry(), 100, 60_000, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        searchResultCache.shutdown();
+    }
+
+    @Test
+    void search_normalizesQueryAndServesRepeatsFromCache() {
+        when(mlSearchClient.search("токарный станок", 1, 10)).thenReturn(ids);
+
+        assertThat(searchResultCache.search("  Токарный   станок ", 1, 10)).isEqualTo(ids);
+        assertThat(searchResultCache.search("токарный станок", 1, 10)).isEqualTo(ids);
+
+        verify(mlSearchClient, times(1)).search(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void search_pagesAreCachedSeparately() {
+        when(mlSearchClient.search(eq("склад"), anyInt(), eq(10))).thenReturn(ids);
+
+        searchResultCache.search("склад", 1, 10);
+        searchResultCache.search("склад", 2, 10);
+
+        verify(mlSearchClient).search("склад", 1, 10);
+        verify(mlSearchClient).search("склад", 2, 10);
+    }
+
+    @Test
+    void search_emptyResultIsNotCached() {
+        when(mlSearchClient.search("склад", 1, 10)).thenReturn(MlSearchResult.EMPTY, ids);
+
+        assertThat(searchResultCache.search("склад", 1, 10)).isEqualTo(MlSearchResult.EMPTY);
+        assertThat(searchResultCache.search("склад", 1, 10)).isEqualTo(ids);
+    }
+
+    @Test
+    void invalidateAll_withoutTransaction_dropsCachedResults() {
+        when(mlSearchClient.search("склад", 1, 10)).thenReturn(ids);
+        searchResultCache.search("склад", 1, 10);
+
+        searchResultCache.invalidateAll();
+        searchResultCache.search("склад", 1, 10);
+
+        verify(mlSearchClient, times(2)).search("склад", 1, 10);
+    }
+
+    @Test
+    void search_concurrentIdenticalRequests_makeSingleUpstreamCall() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(mlSearchClient.search("склад", 1, 10)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return ids;
+        });
+
+        CompletableFuture<MlSearchResult> first = CompletableFuture.supplyAsync(
+                () -> searchResultCache.search("склад", 1, 10));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<MlSearchResult> second = CompletableFuture.supplyAsync(
+                () -> searchResultCache.search("СКЛАД", 1, 10));
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(ids);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(ids);
+        verify(mlSearchClient, times(1)).search(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void prefetch_loadsPageInBackgroundAndServesItFromCache() {
+        when(mlSearchClient.search("склад", 2, 10)).thenReturn(ids);
+
+        searchResultCache.prefetch("Склад", 2, 10);
+
+        verify(mlSearchClient, timeout(5000)).search("склад", 2, 10);
+        assertThat(searchResultCache.search("склад", 2, 10)).isEqualTo(ids);
+        verify(mlSearchClient, times(1)).search(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void prefetch_whenLimitReached_skipsInsteadOfQueueing() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(mlSearchClient.search("склад", 2, 10)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return ids;
+        });
+
+        searchResultCache.prefetch("склад", 2, 10);
+        verify(mlSearchClient, timeout(5000)).search("склад", 2, 10);
+        // Единственное разрешение занято первой предзагрузкой
+        searchResultCache.prefetch("склад", 3, 10);
+        release.countDown();
+
+        assertThat(searchResultCache.search("склад", 2, 10)).isEqualTo(ids);
+        verify(mlSearchClient, never()).search("склад", 3, 10);
+    }
+}
@@ -0,0 +1,83 @@
+package org.dev.powermarket.service.search;
+
+import org.dev.powermarket.domain.dto.request.FacetedServiceSearchRequest;
+import org.dev.powermarket.domain.enums.ServiceCategory;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ServiceFacetQueryTest {
+
+    private final List<BigDecimal> bounds = List.of(BigDecimal.valueOf(1000), BigDecimal.valueOf(5000));
+
+    @Test
+    void build_withoutCriteria_filtersOnlyActiveServices() {
+        ServiceFacetQuery query = ServiceFacetQuery.build(request(null, null, null, null, null), bounds, true);
+
+        assertThat(query.sql())
+                .contains("WHERE s.is_active = true AND s.deleted = false)")
+                .doesNotContain("search_vector", "service_availability_periods", ":category", ":minPrice")
+                .contains("ORDER BY b.created_at DESC, b.id");
+        assertThat(query.parameters()).containsOnlyKeys("pageLimit", "pageOffset", "priceBound0", "priceBound1");
+    }
+
+    @Test
+    void build_keepsFacetFiltersOutOfTheirOwnCounts() {
+        FacetedServiceSearchRequest request = new FacetedServiceSearchRequest("склад", ServiceCategory.WAREHOUSE,
+                null, null, BigDecimal.valueOf(500), null, null, null, null, null, null, 2, 10);
+
+        ServiceFacetQuery query = ServiceFacetQuery.build(request, bounds, true);
+
+        assertThat(query.sql())
+                .contains("s.search_vector @@ websearch_to_tsquery('russian', :keyword)")
+                .contains("hits AS (SELECT * FROM base b WHERE b.category = :category AND b.price_per_day >= :minPrice)")
+                .contains("SELECT 'category', CAST(b.category AS varchar), COUNT(*) FROM base b WHERE b.price_per_day >= :minPrice GROUP BY b.category")
+                .contains("FROM base b WHERE b.category = :category AND b.price_per_day IS NOT NULL) x GROUP BY x.bucket")
+                .contains("ORDER BY b.rank DESC");
+        assertThat(query.parameters())
+                .containsEntry("keyword", "склад")
+                .containsEntry("category", "WAREHOUSE")
+                .containsEntry("pageOffset", 20L);
+    }
+
+    @Test
+    void build_withoutFullText_usesLikeAndFallsBackFromRelevanceOrder() {
+        FacetedServiceSearchRequest request = new FacetedServiceSearchRequest(" Склад ", null, BigDecimal.ONE,
+                BigDecimal.TEN, null, null, "Казань", BigDecimal.valueOf(4), LocalDate.of(2025, 3, 1), null,
+                null, 0, 20);
+
+        ServiceFacetQuery query = ServiceFacetQuery.build(request, bounds, false);
+
+        assertThat(query.sql())
+                .doesNotContain("search_vector")
+                .contains("(LOWER(s.title) LIKE :keyword OR LOWER(s.description) LIKE :keyword)")
+                .contains("s.capacity >= :minCapacity AND s.capacity <= :maxCapacity")
+                .contains("EXISTS (SELECT 1 FROM service_availability_periods p WHERE p.service_id = s.id "
+                        + "AND p.end_date >= :availableFrom)")
+                .contains("ORDER BY b.created_at DESC, b.id");
+        assertThat(query.parameters())
+                .containsEntry("keyword", "%склад%")
+                .containsEntry("location", "%казань%")
+                .doesNotContainKey("availableTo");
+    }
+
+    @Test
+    void request_withInvertedRange_isRejected() {
+        assertThatThrownBy(() -> request(null, BigDecimal.TEN, BigDecimal.ONE, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new FacetedServiceSearchRequest(null, null, null, null, null, null, null, null,
+                null, null, null, 0, 500))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private FacetedServiceSearchRequest request(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
+                                                LocalDate from, LocalDate to) {
+        return new FacetedServiceSearchRequest(keyword, null, null, null, minPrice, maxPrice, null, null,
+                from, to, null, 0, 20);
+    }
+}
@@ -0,0 +1,93 @@
+package org.dev.powermarket.service.search;
+
+import jakarta.persistence.EntityManager;
+import org.dev.powermarket.domain.Service;
+import org.dev.powermarket.domain.dto.request.FacetedServiceSearchRequest;
+import org.dev.powermarket.domain.dto.response.FacetedSearchResponse.PriceBucket;
+import org.dev.powermarket.domain.enums.ServiceCategory;
+import org.dev.powermarket.security.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Фасетный запрос на встроенной H2 того же контекста, что и PowermarketApplicationTests.
+ * search_vector в H2 нет, поэтому выполняется ветка LIKE.
+ */
+@SpringBootTest
+@Transactional
+class ServiceFacetSearchH2Test {
+
+    @Autowired
+    private ServiceFacetSearch serviceFacetSearch;
+    @Autowired
+    private ServiceFullTextSearch serviceFullTextSearch;
+    @Autowired
+    private EntityManager entityManager;
+
+    private User supplier;
+
+    @BeforeEach
+    void setUp() {
+        supplier = new User();
+        supplier.setEmail("facets-" + UUID.randomUUID() + "@example.com");
+        supplier.setPasswordHash("hash");
+        supplier.setFullName("ООО Склад");
+        entityManager.persist(supplier);
+    }
+
+    @Test
+    void search_likeBranch_returnsHitsTotalAndDisjunctiveFacets() {
+        assertThat(serviceFullTextSearch.isAvailable()).isFalse();
+        Service cheapWarehouse = persist("Теплый склад", null, ServiceCategory.WAREHOUSE, "800", true);
+        Service warehouse = persist("Склад холодный", null, ServiceCategory.WAREHOUSE, "3000", true);
+        persist("Испытательная лаборатория", "Рядом со складом", ServiceCategory.LABORATORY, "7000", true);
+        persist("Дорогой склад", null, ServiceCategory.WAREHOUSE, "60000", true);
+        persist("Токарный станок", null, ServiceCategory.MANUFACTURING, "3000", true);
+        persist("Закрытый склад", null, ServiceCategory.WAREHOUSE, "2000", false);
+        entityManager.flush();
+
+        FacetedServiceSearchRequest request = new FacetedServiceSearchRequest("склад", ServiceCategory.WAREHOUSE,
+                null, null, null, new BigDecimal("5000"), null, null, null, null,
+                FacetedServiceSearchRequest.Sort.PRICE_ASC, 0, 1);
+
+        ServiceFacetSearch.Result result = serviceFacetSearch.search(request);
+
+        // Страница из одного элемента, total - по всем совпадениям с категорией и ценой
+        assertThat(result.ids()).containsExactly(cheapWarehouse.getId());
+        assertThat(result.total()).isEqualTo(2);
+
+        FacetedServiceSearchRequest secondPage = new FacetedServiceSearchRequest("склад", ServiceCategory.WAREHOUSE,
+                null, null, null, new BigDecimal("5000"), null, null, null, null,
+                FacetedServiceSearchRequest.Sort.PRICE_ASC, 1, 1);
+        assertThat(serviceFacetSearch.search(secondPage).ids()).containsExactly(warehouse.getId());
+
+        // Категории считаются без фильтра категории, но с фильтром цены
+        assertThat(result.categories())
+                .containsEntry(ServiceCategory.WAREHOUSE, 2L)
+                .containsEntry(ServiceCategory.LABORATORY, 0L)
+                .containsEntry(ServiceCategory.MANUFACTURING, 0L);
+        // Цены - без фильтра цены, но с фильтром категории: 800 | 3000 | - | - | 60000
+        assertThat(result.priceBuckets()).extracting(PriceBucket::count).containsExactly(1L, 1L, 0L, 0L, 1L);
+    }
+
+    private Service persist(String title, String description, ServiceCategory category, String price, boolean active) {
+        Service service = new Service();
+        service.setSupplier(supplier);
+        service.setTitle(title);
+        service.setDescription(description);
+        service.setCategory(category);
+        service.setPricePerDay(new BigDecimal(price));
+        service.setMaxCapacity(BigDecimal.TEN);
+        service.setIsActive(active);
+        entityManager.persist(service);
+        return service;
+    }
+}
@@ -0,0 +1,71 @@
+package org.dev.powermarket.service.search;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.dev.powermarket.domain.dto.request.FacetedServiceSearchRequest;
+import org.dev.powermarket.domain.dto.response.FacetedSearchResponse.PriceBucket;
+import org.dev.powermarket.domain.enums.ServiceCategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ServiceFacetSearchTest {
+
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private ServiceFullTextSearch serviceFullTextSearch;
+    @Mock
+    private Query query;
+
+    private ServiceFacetSearch facetSearch;
+
+    @BeforeEach
+    void setUp() {
+        facetSearch = new ServiceFacetSearch(entityManager, serviceFullTextSearch,
+                List.of(BigDecimal.valueOf(5000), BigDecimal.valueOf(1000)));
+    }
+
+    @Test
+    void search_readsHitsTotalAndFacetsFromSingleQuery() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        when(serviceFullTextSearch.isAvailable()).thenReturn(true);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+        when(query.getResultList()).thenReturn(List.<Object[]>of(
+                new Object[]{"hit", second.toString(), 12L},
+                new Object[]{"hit", first.toString(), 11L},
+                new Object[]{"total", null, 40L},
+                new Object[]{"category", "WAREHOUSE", 30L},
+                new Object[]{"price", "0", 7L},
+                new Object[]{"price", "2", 3L}));
+
+        ServiceFacetSearch.Result result = facetSearch.search(new FacetedServiceSearchRequest("склад", null, null,
+                null, null, null, null, null, null, null, null, 1, 10));
+
+        assertThat(result.ids()).containsExactly(first, second);
+        assertThat(result.total()).isEqualTo(40);
+        assertThat(result.categories())
+                .containsEntry(ServiceCategory.WAREHOUSE, 30L)
+                .containsEntry(ServiceCategory.OTHER, 0L)
+                .hasSize(ServiceCategory.values().length);
+        assertThat(result.priceBuckets()).containsExactly(
+                new PriceBucket(BigDecimal.ZERO, BigDecimal.valueOf(1000), 7),
+                new PriceBucket(BigDecimal.valueOf(1000), BigDecimal.valueOf(5000), 0),
+                new PriceBucket(BigDecimal.valueOf(5000), null, 3));
+        verify(query).setParameter("keyword", "склад");
+        verify(query).setParameter("pageOffset", 10L);
+        verify(entityManager, times(1)).createNativeQuery(anyString());
+    }
+}
@@ -0,0 +1,153 @@
+package org.dev.powermarket.service.search;
+
+import org.dev.powermarket.domain.Service;
+import org.dev.powermarket.repository.ServiceRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ServiceSearchIndexTest {
+
+    @Mock
+    private ServiceRepository serviceRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ServiceSearchIndex index;
+
+    private final Pageable firstPage = PageRequest.of(0, 10);
+
+    private final Service lathe = service("Токарный станок с ЧПУ", "Обработка валов и втулок", "Диаметр до 400 мм", "Казань");
+    private final Service warehouse = service("Теплый склад", "Хранение паллет, есть погрузчики", null, "Москва");
+    private final Service lab = service("Испытательная лаборатория", "Проверка прочности, токарный участок рядом", null, "Москва");
+
+    @BeforeEach
+    void setUp() {
+        index = new ServiceSearchIndex(serviceRepository, transactionManager, new DefaultResourceLoader(),
+                true, 2, "classpath:search/synonyms.txt", 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.shutdown();
+    }
+
+    @Test
+    void search_beforeRebuild_isNotReady() {
+        assertThat(index.isReady()).isFalse();
+        assertThat(index.search("склад", firstPage)).isEmpty();
+    }
+
+    @Test
+    void rebuild_indexesAllPagesAndFindsWordForms() {
+        rebuildWith(lathe, warehouse, lab);
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(ids("склады")).containsExactly(warehouse.getId());
+        assertThat(ids("станок в казани")).containsExactly(lathe.getId());
+        assertThat(ids("экскаватор")).isEmpty();
+    }
+
+    @Test
+    void search_ranksTitleMatchesFirst() {
+        rebuildWith(lab, lathe);
+
+        assertThat(ids("токарный")).containsExactly(lathe.getId(), lab.getId());
+    }
+
+    @Test
+    void search_expandsSynonymsAndMatchesPrefixOfLastWord() {
+        rebuildWith(lathe, warehouse, lab);
+
+        assertThat(ids("хранилище")).containsExactly(warehouse.getId());
+        assertThat(ids("тепл скл")).containsExactly(warehouse.getId());
+    }
+
+    @Test
+    void search_pagesThroughHitsWithExactTotal() {
+        rebuildWith(lathe, warehouse, lab);
+
+        Page<UUID> page = index.search("москва", PageRequest.of(1, 1));
+
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        assertThat(page.getContent()).hasSize(1);
+    }
+
+    @Test
+    void index_andRemove_withoutTransaction_applyImmediately() {
+        rebuildWith(lathe);
+
+        index.index(warehouse);
+        assertThat(ids("склад")).containsExactly(warehouse.getId());
+
+        warehouse.setIsActive(false);
+        index.index(warehouse);
+        assertThat(ids("склад")).isEmpty();
+
+        index.remove(lathe.getId());
+        assertThat(ids("станок")).isEmpty();
+    }
+
+    @Test
+    void scheduleRebuilds_buildsIndexInBackgroundAtStartup() throws InterruptedException {
+        stubServices(lathe);
+
+        index.scheduleRebuilds();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!index.isReady() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(index.isReady()).isTrue();
+        assertThat(ids("станок")).containsExactly(lathe.getId());
+    }
+
+    private void rebuildWith(Service... services) {
+        stubServices(services);
+        index.rebuild();
+    }
+
+    private void stubServices(Service... services) {
+        List<Service> all = List.of(services);
+        when(serviceRepository.findByIsActiveTrueAndDeletedFalse(any(Pageable.class))).thenAnswer(invocation -> {
+            Pageable pageable = invocation.getArgument(0);
+            int from = (int) Math.min(pageable.getOffset(), all.size());
+            int to = Math.min(from + pageable.getPageSize(), all.size());
+            return new PageImpl<>(all.subList(from, to), pageable, all.size());
+        });
+    }
+
+    private List<UUID> ids(String keyword) {
+        return index.search(keyword, firstPage).getContent();
+    }
+
+    private static Service service(String title, String description, String technicalSpecs, String location) {
+        Service service = new Service();
+        service.setId(UUID.randomUUID());
+        service.setTitle(title);
+        service.setDescription(description);
+        service.setTechnicalSpecs(technicalSpecs);
+        service.setLocation(location);
+        service.setIsActive(true);
+        service.setDeleted(false);
+        return service;
+    }
+}
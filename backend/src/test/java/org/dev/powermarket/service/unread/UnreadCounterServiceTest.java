@@ -0,0 +1,123 @@
+package org.dev.powermarket.service.unread;
+
+import org.dev.powermarket.repository.ChatMessageRepository;
+import org.dev.powermarket.repository.NotificationRepository;
+import org.dev.powermarket.repository.projection.UnreadCountProjection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UnreadCounterServiceTest {
+
+    @Mock
+    private ChatMessageRepository messageRepository;
+    @Mock
+    private NotificationRepository notificationRepository;
+
+    private UnreadCounterService unreadCounterService;
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID chatId = UUID.randomUUID();
+    private final UUID otherChatId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        unreadCounterService = new UnreadCounterService(messageRepository, notificationRepository, 60_000, 1000, nanos::get);
+    }
+
+    @Test
+    void counters_areLoadedOnceAndThenServedFromMemory() {
+        stubRecovery(5L, 2L, 1L);
+
+        assertThat(unreadCounterService.unreadMessages(userId)).isEqualTo(7L);
+        assertThat(unreadCounterService.unreadMessagesInChat(userId, chatId)).isEqualTo(5L);
+        assertThat(unreadCounterService.unreadMessagesByChat(userId)).containsEntry(otherChatId, 2L);
+        assertThat(unreadCounterService.unreadNotifications(userId)).isEqualTo(1L);
+
+        verify(messageRepository, times(1)).countUnreadMessagesByChat(userId);
+        verify(notificationRepository, times(1)).countUnreadByUserId(userId);
+    }
+
+    @Test
+    void changes_areAppliedToLoadedCounters() {
+        stubRecovery(5L, 2L, 1L);
+        unreadCounterService.unreadMessages(userId);
+
+        unreadCounterService.messageReceived(userId, chatId);
+        unreadCounterService.notificationCreated(userId);
+        assertThat(unreadCounterService.unreadMessagesInChat(userId, chatId)).isEqualTo(6L);
+        assertThat(unreadCounterService.unreadNotifications(userId)).isEqualTo(2L);
+
+        unreadCounterService.chatRead(userId, chatId);
+        assertThat(unreadCounterService.unreadMessages(userId)).isEqualTo(2L);
+        assertThat(unreadCounterService.unreadMessagesByChat(userId)).doesNotContainKey(chatId);
+
+        unreadCounterService.unreadMessageRemoved(userId, otherChatId);
+        unreadCounterService.unreadMessageRemoved(userId, otherChatId);
+        unreadCounterService.unreadMessageRemoved(userId, otherChatId);
+        assertThat(unreadCounterService.unreadMessages(userId)).isZero();
+
+        unreadCounterService.allNotificationsRead(userId);
+        unreadCounterService.notificationRead(userId);
+        assertThat(unreadCounterService.unreadNotifications(userId)).isZero();
+    }
+
+    @Test
+    void changes_beforeFirstLoad_areLeftToRecovery() {
+        unreadCounterService.messageReceived(userId, chatId);
+        stubRecovery(1L, 0L, 0L);
+
+        assertThat(unreadCounterService.unreadMessages(userId)).isEqualTo(1L);
+    }
+
+    @Test
+    void evict_forcesReloadFromDatabase() {
+        stubRecovery(1L, 0L, 0L);
+        unreadCounterService.unreadMessages(userId);
+
+        unreadCounterService.evict(userId);
+        unreadCounterService.unreadMessages(userId);
+
+        verify(messageRepository, times(2)).countUnreadMessagesByChat(userId);
+    }
+
+    @Test
+    void counters_expireAfterTtlFromLoadEvenWhenUpdated() {
+        stubRecovery(1L, 0L, 0L);
+        unreadCounterService.unreadMessages(userId);
+
+        nanos.addAndGet(Duration.ofSeconds(40).toNanos());
+        unreadCounterService.messageReceived(userId, chatId);
+        assertThat(unreadCounterService.unreadMessages(userId)).isEqualTo(2L);
+
+        // Изменения не продлевают жизнь записи: через ttl после загрузки счетчики перечитываются из БД
+        nanos.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertThat(unreadCounterService.unreadMessages(userId)).isEqualTo(1L);
+        verify(messageRepository, times(2)).countUnreadMessagesByChat(userId);
+    }
+
+    private void stubRecovery(long inChat, long inOtherChat, long notifications) {
+        List<UnreadCountProjection> projections = inOtherChat > 0
+                ? List.of(new TestUnreadCountProjection(chatId, inChat), new TestUnreadCountProjection(otherChatId, inOtherChat))
+                : List.of(new TestUnreadCountProjection(chatId, inChat));
+        when(messageRepository.countUnreadMessagesByChat(userId)).thenReturn(projections);
+        when(notificationRepository.countUnreadByUserId(userId)).thenReturn(notifications);
+    }
+
+    private record TestUnreadCountProjection(UUID chatId, Long count) implements UnreadCountProjection {
+        @Override public UUID getChatId() { return chatId; }
+        @Override public Long getCount() { return count; }
+    }
+}
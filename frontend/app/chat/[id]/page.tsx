@@ -37,17 +37,64 @@ function ChatPage() {
   const isScrolledEnd = useRef(false)
 
   useEffect(() => {
-    if (loadingMore || messagesLoading || chatLoading) return
-
     const loadData = async () => {
       await loadChat()
       loadMessages(0)
     }
     loadData()
-    const interval = setInterval(loadData, 3000) // Poll every 3 seconds
-    return () => clearInterval(interval)
+
+    // Новые сообщения приходят по SSE. При обрыве соединения переподключаемся
+    // и догружаем первую страницу, чтобы не потерять пропущенные события.
+    const controller = new AbortController()
+    let retryTimer: ReturnType<typeof setTimeout> | undefined
+
+    const subscribe = async () => {
+      try {
+        await api.stream('/v1/chats/stream', handleStreamEvent, controller.signal, { chatId })
+      } catch (error) {
+        if (controller.signal.aborted) return
+        console.error('Ошибка подписки на чат:', error)
+      }
+      if (controller.signal.aborted) return
+      retryTimer = setTimeout(() => {
+        loadData()
+        subscribe()
+      }, 3000)
+    }
+    subscribe()
+
+    return () => {
+      controller.abort()
+      clearTimeout(retryTimer)
+    }
   }, [chatId])
 
+  const handleStreamEvent = (event: string, data: string) => {
+    if (event === 'ready') return
+    const message = JSON.parse(data) as ChatMessage
+
+    setMessages((prev) => {
+      const exists = prev.messages.some((m) => m.id === message.id)
+      switch (event) {
+        case 'message.created':
+          if (exists) return prev
+          return { ...prev, messages: [message, ...prev.messages], totalElements: prev.totalElements + 1 }
+        case 'message.updated':
+          return { ...prev, messages: prev.messages.map((m) => (m.id === message.id ? message : m)) }
+        case 'message.deleted':
+          if (!exists) return prev
+          return {
+            ...prev,
+            messages: prev.messages.filter((m) => m.id !== message.id),
+            totalElements: Math.max(prev.totalElements - 1, 0),
+          }
+        default:
+          return prev
+      }
+    })
+    if (event === 'message.created') scrollToBottom()
+  }
+
   useEffect(() => {
     if (!chat) return
     loadRental()
@@ -137,11 +184,12 @@ function ChatPage() {
 
     setSending(true)
     try {
-      await api.post(`/v1/chats/${chatId}/messages`, {
+      const sent = await api.post<ChatMessage>(`/v1/chats/${chatId}/messages`, {
         content: newMessage.trim(),
       })
       setNewMessage('')
-      await loadMessages(0, { scrollToBottom: true })
+      // Добавляем ответ сразу; повторное событие message.created отфильтруется по id
+      handleStreamEvent('message.created', JSON.stringify(sent))
     } catch (error) {
       console.error('Ошибка отправки сообщения:', error)
       alert('Не удалось отправить сообщение')
@@ -85,6 +85,53 @@ export class ApiClient {
   async delete<T>(endpoint: string): Promise<T> {
     return this.request<T>(endpoint, { method: 'DELETE' })
   }
+
+  /**
+   * Подписка на Server-Sent Events. EventSource не умеет передавать заголовки,
+   * поэтому поток читается через fetch, чтобы отправить Bearer-токен.
+   * Промис завершается, когда сервер или signal закрывают соединение.
+   */
+  async stream(
+    endpoint: string,
+    onEvent: (event: string, data: string) => void,
+    signal: AbortSignal,
+    params?: Record<string, unknown>,
+  ): Promise<void> {
+    const url = `${API_BASE_URL}${endpoint}${this.buildQuery(params)}`
+    const response = await fetch(url, {
+      headers: { ...this.getAuthHeader(null), Accept: 'text/event-stream' },
+      signal,
+    })
+
+    if (!response.ok || !response.body) {
+      throw new Error(`HTTP error! status: ${response.status}`)
+    }
+
+    const reader = response.body.pipeThrough(new TextDecoderStream()).getReader()
+    let buffer = ''
+
+    while (true) {
+      const { value, done } = await reader.read()
+      if (done) return
+
+      buffer += value
+      let boundary = buffer.indexOf('\n\n')
+      while (boundary !== -1) {
+        const chunk = buffer.slice(0, boundary)
+        buffer = buffer.slice(boundary + 2)
+        boundary = buffer.indexOf('\n\n')
+
+        let event = 'message'
+        const data: string[] = []
+        for (const line of chunk.split('\n')) {
+          if (line.startsWith('event:')) event = line.slice(6).trim()
+          else if (line.startsWith('data:')) data.push(line.slice(5).replace(/^ /, ''))
+        }
+        // Комментарии (heartbeat) не содержат data и пропускаются
+        if (data.length > 0) onEvent(event, data.join('\n'))
+      }
+    }
+  }
 }
 
 export const api = new ApiClient()
@@ -97,6 +144,8 @@ export const authApi = {
   register: (data: RegisterData) => api.post<{ token: string; user: User }>('/auth/register', data),
 
   getCurrentUser: () => api.get<User>('/auth/me'),
+
+  logout: () => api.post<void>('/auth/logout'),
 }
 
 // Types
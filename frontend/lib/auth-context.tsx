@@ -50,6 +50,8 @@ export function AuthProvider({ children }: { children: ReactNode }) {
   }
 
   const logout = () => {
+    // Отзываем токен на сервере; локальный выход не ждет ответа
+    authApi.logout().catch(() => {})
     localStorage.removeItem('jwt_token')
     setUser(null)
     router.push('/login')
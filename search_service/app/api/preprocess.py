@@ -1,3 +1,4 @@
+from typing import List, Optional
 from uuid import UUID
 
 from fastapi import APIRouter, HTTPException, Depends, status
@@ -22,6 +23,41 @@ class IndexResponse(BaseModel):
     message: str
 
 
+class ServiceDocument(BaseModel):
+    """Актуальное состояние услуги, присланное backend"""
+    id: UUID
+    title: str
+    description: Optional[str] = None
+    category: str
+    location: Optional[str] = None
+    capacity: Optional[str] = None
+    technical_specs: Optional[str] = None
+    supplier_id: Optional[UUID] = None
+    supplier_name: Optional[str] = None
+    price_per_day: Optional[float] = None
+    average_rating: Optional[float] = None
+    total_reviews: Optional[int] = None
+    created_at: Optional[str] = None
+
+
+class IndexBatchRequest(BaseModel):
+    upserts: List[ServiceDocument] = []
+    deletes: List[UUID] = []
+
+
+class IndexBatchFailure(BaseModel):
+    """Документ, который Typesense не принял"""
+    id: UUID
+    error: str
+
+
+class IndexBatchResponse(BaseModel):
+    success: bool
+    upserted: int
+    deleted: int
+    failed: List[IndexBatchFailure] = []
+
+
 def get_db_dependency():
     """Dependency для FastAPI"""
     try:
@@ -76,6 +112,28 @@ def index_service_endpoint(
         )
 
 
+@router.post("/index/batch", response_model=IndexBatchResponse)
+def index_batch_endpoint(request: IndexBatchRequest):
+    """
+    Пакетная синхронизация индекса изменениями из backend (outbox).
+    Данные приходят целиком, поэтому БД сервиса поиска не читается.
+    Отклоненные документы перечисляются в failed - backend повторит только их.
+    """
+    try:
+        from app.services.typesense_client import index_services_batch
+        result = index_services_batch(
+            [document.model_dump(mode="json") for document in request.upserts],
+            [str(service_id) for service_id in request.deletes]
+        )
+        return IndexBatchResponse(success=not result['failed'], **result)
+    except Exception as e:
+        logger.error(f"Batch indexing error: {e}", exc_info=True)
+        raise HTTPException(
+            status_code=status.HTTP_500_INTERNAL_SERVER_ERROR,
+            detail="Failed to apply index batch"
+        )
+
+
 @router.delete("/index/{service_id}")
 def delete_service_endpoint(service_id: int):
     """Удаление услуги из индекса"""
@@ -4,7 +4,7 @@ from dateutil import parser
 from typesense import Client
 from app.config import settings
 import logging
-from typing import Dict, Optional
+from typing import Dict, List, Optional
 
 from app.database.queries import get_all_synonyms
 from typesense.exceptions import ObjectNotFound
@@ -37,6 +37,8 @@ COLLECTION_SCHEMA = {
         {'name': 'supplier_id', 'type': 'string', 'facet': True},
         {'name': 'supplier_name', 'type': 'string', 'optional': True, 'locale': 'ru', 'infix': True},
         {'name': 'price_per_day', 'type': 'float', 'optional': True},
+        {'name': 'average_rating', 'type': 'float', 'optional': True},
+        {'name': 'total_reviews', 'type': 'int32', 'optional': True},
         {'name': 'created_at', 'type': 'int64'},
     ],
     'default_sorting_field': 'created_at'
@@ -108,38 +110,38 @@ def sync_synonyms_with_typesense(db_connection):
         logger.error(f"❌ Failed to synchronize synonyms with Typesense: {e}", exc_info=True)
 
 
-# app/services/typesense_client.py
-# ... (импорты и другие функции) ...
+def build_document(service_data: dict) -> dict:
+    """Документ Typesense из данных услуги (из БД или из пачки backend)"""
+    # Преобразуем дату в Unix timestamp
+    created_at_ts = 0
+    if service_data.get('created_at'):
+        created_at_ts = int(parser.isoparse(service_data['created_at']).timestamp())
+
+    document = {
+        'id': str(service_data['id']),
+        'title': service_data.get('title') or '',
+        'description': service_data.get('description') or '',
+        'category': service_data.get('category') or '',
+        'location': service_data.get('location') or '',
+        'capacity': str(service_data.get('capacity') or ''),
+        'technical_specs': service_data.get('technical_specs') or '',
+        'supplier_id': str(service_data.get('supplier_id') or ''),
+        'supplier_name': service_data.get('supplier_name') or '',
+        'price_per_day': float(service_data['price_per_day']) if service_data.get('price_per_day') else 0.0,
+        'created_at': created_at_ts
+    }
+    if service_data.get('average_rating') is not None:
+        document['average_rating'] = float(service_data['average_rating'])
+    if service_data.get('total_reviews') is not None:
+        document['total_reviews'] = int(service_data['total_reviews'])
+    return document
+
 
 def index_service(service_data: dict) -> bool:
     """Индексация услуги в Typesense"""
     try:
-        # Преобразуем дату в Unix timestamp
-        created_at_ts = 0
-        if service_data.get('created_at'):
-            from dateutil import parser
-            created_at_ts = int(parser.isoparse(service_data['created_at']).timestamp())
-
-        document = {
-            'id': str(service_data['id']),
-            'title': service_data.get('title', ''),
-            'description': service_data.get('description', ''),
-            'category': service_data.get('category', ''),
-            'location': service_data.get('location', ''),
-            'capacity': service_data.get('capacity', ''),
-            'technical_specs': service_data.get('technical_specs', ''),
-            'supplier_id': str(service_data.get('supplier_id', '')),
-            'supplier_name': service_data.get('supplier_name', ''),
-            'price_per_day': float(service_data.get('price_per_day', 0.0)) if service_data.get(
-                'price_per_day') else 0.0,
-            'created_at': created_at_ts
-        }
-
-        # --- ДОБАВЬТЕ ЭТОТ ЛОГ ---
-        import json
-        logger.info(f"--- DEBUG: Preparing to index document ---")
-        logger.info(json.dumps(document, indent=2, ensure_ascii=False))
-        logger.info(f"----------------------------------------")
+        document = build_document(service_data)
+        logger.debug(f"Indexing document: {document}")
 
         client.collections[COLLECTION_NAME].documents.upsert(document)
         logger.info(f"Document {document['id']} indexed successfully.")
@@ -150,6 +152,36 @@ def index_service(service_data: dict) -> bool:
         return False
 
 
+def index_services_batch(upserts: List[dict], deletes: List[str]) -> Dict:
+    """
+    Пакетная синхронизация индекса: upsert одним import-запросом, удаление одним filter_by.
+    Отклоненные Typesense документы возвращаются в failed (id и причина), остальные применяются.
+    Бросает исключение, только если запрос к Typesense не выполнен целиком - тогда отправитель
+    повторяет всю пачку.
+    """
+    documents = client.collections[COLLECTION_NAME].documents
+    upserted = 0
+    failed = []
+    if upserts:
+        results = documents.import_([build_document(item) for item in upserts], {'action': 'upsert'})
+        # import_ возвращает результаты в порядке документов
+        for item, result in zip(upserts, results):
+            if result.get('success'):
+                upserted += 1
+            else:
+                failed.append({'id': str(item['id']), 'error': str(result.get('error', 'unknown error'))})
+        if failed:
+            logger.warning(f"Typesense rejected {len(failed)} of {len(upserts)} documents: {failed[0]}")
+
+    deleted = 0
+    if deletes:
+        ids = ','.join(str(service_id) for service_id in deletes)
+        deleted = documents.delete({'filter_by': f'id:[{ids}]'}).get('num_deleted', 0)
+
+    logger.info(f"Index batch applied: upserted={upserted}, deleted={deleted}, failed={len(failed)}")
+    return {'upserted': upserted, 'deleted': deleted, 'failed': failed}
+
+
 def delete_service(service_id: int) -> bool:
     """Удаление услуги из индекса"""
     try: